@@ -0,0 +1,28 @@
+package com.dxy.library.cache.redis.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口，默认运行所有基准测试并开启GC分析器（统计每次操作分配的字节数）
+ * 参数与JMH命令行一致，如只运行序列化的基准测试：SerializerBenchmark -f 1
+ * @author duanxinyuan
+ * 2020/6/26 10:20
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            builder.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+        }
+        builder.parent(commandLineOptions).addProfiler(GCProfiler.class);
+        new Runner(builder.build()).run();
+    }
+
+}
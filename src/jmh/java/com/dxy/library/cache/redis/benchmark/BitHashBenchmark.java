@@ -0,0 +1,63 @@
+package com.dxy.library.cache.redis.benchmark;
+
+import com.dxy.library.cache.redis.util.BitHashUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 布隆过滤器计算bit偏移量（BitHashUtil.murmurHash）的基准测试
+ * @author duanxinyuan
+ * 2020/6/26 10:20
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BitHashBenchmark {
+
+    //值的长度
+    @Param({"16", "256"})
+    public int length;
+
+    //Hash次数
+    @Param({"8"})
+    public int hashFunctionCount;
+
+    private String value;
+
+    private long number;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        value = builder.toString();
+        number = 1234567890123L;
+    }
+
+    @Benchmark
+    public long[] murmurHashString() {
+        return BitHashUtil.murmurHash(value, hashFunctionCount, 1L << 32);
+    }
+
+    @Benchmark
+    public long[] murmurHashLong() {
+        return BitHashUtil.murmurHash(number, hashFunctionCount, 1L << 32);
+    }
+
+}
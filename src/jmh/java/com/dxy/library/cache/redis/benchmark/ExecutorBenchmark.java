@@ -0,0 +1,94 @@
+package com.dxy.library.cache.redis.benchmark;
+
+import com.dxy.library.cache.redis.executor.single.RedisSingleExecutor;
+import com.dxy.library.cache.redis.properties.RedisProperties;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.BuilderFactory;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存器公共方法（transformResponse、checkNotNull）的基准测试，只测试客户端的开销，不连接Redis
+ * @author duanxinyuan
+ * 2020/6/26 10:20
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorBenchmark {
+
+    //pipeline返回值的个数
+    @Param({"10", "1000"})
+    public int size;
+
+    private RedisSingleExecutor executor;
+
+    private Map<String, Response<String>> responses;
+
+    private Map<String, String> map;
+
+    private String[] values;
+
+    @Setup
+    public void setup() {
+        //连接池按需创建连接，未调用Redis命令时不会连接
+        RedisProperties redisProperties = new RedisProperties("benchmark");
+        redisProperties.setNodes(Lists.newArrayList("127.0.0.1:6379"));
+        executor = new RedisSingleExecutor(redisProperties);
+        responses = new LinkedHashMap<>(size);
+        map = new LinkedHashMap<>(size);
+        values = new String[size];
+        for (int i = 0; i < size; i++) {
+            Response<String> response = new Response<>(BuilderFactory.STRING);
+            response.set(SafeEncoder.encode("value" + i));
+            //首次get时构建返回值，预先构建只测试结果的收集
+            response.get();
+            responses.put("key" + i, response);
+            map.put("field" + i, "value" + i);
+            values[i] = "value" + i;
+        }
+    }
+
+    @Benchmark
+    public List<String> transformResponse() {
+        return executor.transformResponse(responses);
+    }
+
+    @Benchmark
+    public void checkNotNullKey() {
+        executor.checkNotNull("key");
+    }
+
+    @Benchmark
+    public void checkNotNullMap() {
+        executor.checkNotNull("key", map);
+    }
+
+    /**
+     * 与sadd、lpush等多值命令相同，逐个检查数组中的值
+     */
+    @Benchmark
+    public void checkNotNullArray() {
+        executor.checkNotNull("key", (Object[]) values);
+    }
+
+}
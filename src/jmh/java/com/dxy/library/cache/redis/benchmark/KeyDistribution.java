@@ -0,0 +1,99 @@
+package com.dxy.library.cache.redis.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 压测时key的访问分布，返回 [0, keyCount) 内的下标
+ * @author duanxinyuan
+ * 2020/6/28 10:30
+ */
+public abstract class KeyDistribution {
+
+    protected final long keyCount;
+
+    protected KeyDistribution(long keyCount) {
+        if (keyCount <= 0) {
+            throw new IllegalArgumentException("keyCount must be greater than 0");
+        }
+        this.keyCount = keyCount;
+    }
+
+    public abstract long next();
+
+    /**
+     * @param name uniform/zipfian
+     * @param theta Zipfian分布的偏斜系数，越大访问越集中，不能等于1
+     */
+    public static KeyDistribution of(String name, long keyCount, double theta) {
+        switch (name.toLowerCase()) {
+            case "zipfian":
+                return new Zipfian(keyCount, theta);
+            case "uniform":
+                return new Uniform(keyCount);
+            default:
+                throw new IllegalArgumentException("unknown key distribution " + name + ", supported: uniform/zipfian");
+        }
+    }
+
+    /**
+     * 均匀分布
+     */
+    public static class Uniform extends KeyDistribution {
+
+        public Uniform(long keyCount) {
+            super(keyCount);
+        }
+
+        @Override
+        public long next() {
+            return ThreadLocalRandom.current().nextLong(keyCount);
+        }
+    }
+
+    /**
+     * Zipfian分布，下标越小访问越频繁，算法来自 Gray et al. "Quickly Generating Billion-Record Synthetic Databases"（与YCSB相同）
+     */
+    public static class Zipfian extends KeyDistribution {
+
+        private final double theta;
+
+        private final double zetaN;
+
+        private final double alpha;
+
+        private final double eta;
+
+        public Zipfian(long keyCount, double theta) {
+            super(keyCount);
+            if (theta <= 0 || theta == 1) {
+                throw new IllegalArgumentException("zipfian theta must be greater than 0 and not equal to 1");
+            }
+            this.theta = theta;
+            this.zetaN = zeta(keyCount, theta);
+            this.alpha = 1 / (1 - theta);
+            this.eta = (1 - Math.pow(2.0 / keyCount, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+        }
+
+        @Override
+        public long next() {
+            double u = ThreadLocalRandom.current().nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1) {
+                return 0;
+            }
+            if (uz < 1 + Math.pow(0.5, theta)) {
+                return Math.min(1, keyCount - 1);
+            }
+            return Math.min(keyCount - 1, (long) (keyCount * Math.pow(eta * u - eta + 1, alpha)));
+        }
+
+        private static double zeta(long n, double theta) {
+            double sum = 0;
+            for (long i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+    }
+
+}
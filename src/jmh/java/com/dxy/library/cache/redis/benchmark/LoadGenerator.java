@@ -0,0 +1,362 @@
+package com.dxy.library.cache.redis.benchmark;
+
+import com.dxy.library.cache.redis.RedisCache;
+import com.dxy.library.cache.redis.batch.RedisBatch;
+import com.dxy.library.cache.redis.executor.AbstractExecutor;
+import com.dxy.library.cache.redis.metrics.HistogramSnapshot;
+import com.dxy.library.cache.redis.metrics.LatencyHistogram;
+import com.dxy.library.cache.redis.properties.RedisProperties;
+import com.dxy.library.cache.redis.stub.RespCluster;
+import com.dxy.library.cache.redis.stub.RespServer;
+import com.google.common.collect.Lists;
+import lombok.AllArgsConstructor;
+import org.apache.commons.lang3.RandomStringUtils;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 端到端压测，对比不同模式的缓存器及不同接口（get/set、mget/mset、RedisBatch的pipeline）的吞吐量和耗时分位数
+ * 参数格式为 key=value，见 {@link LoadOptions}，如：threads=32 distribution=zipfian apis=get,mget
+ * 未指定 names 时使用进程内的RESP服务端（可通过 stubLatencyMicros 模拟网络延迟），指定时使用 application.properties 中对应名称的配置
+ * @author duanxinyuan
+ * 2020/6/28 10:30
+ */
+public class LoadGenerator {
+
+    private static final String KEY_PREFIX = "benchmark:load:";
+
+    //预先生成的value数量，压测时随机选取，避免生成value的开销计入耗时
+    private static final int VALUE_POOL_SIZE = 64;
+
+    private static final int PRELOAD_BATCH_SIZE = 1000;
+
+    private final LoadOptions options;
+
+    private final KeyDistribution distribution;
+
+    private final String[] values;
+
+    public LoadGenerator(LoadOptions options) {
+        if (options.getReadRatio() < 0 || options.getReadRatio() > 1) {
+            throw new IllegalArgumentException("readRatio must be between 0 and 1");
+        }
+        if (options.getThreads() <= 0 || options.getBatchSize() <= 0 || options.getValueSize() <= 0) {
+            throw new IllegalArgumentException("threads, batchSize and valueSize must be greater than 0");
+        }
+        this.options = options;
+        this.distribution = KeyDistribution.of(options.getDistribution(), options.getKeys(), options.getZipfianTheta());
+        this.values = IntStream.range(0, VALUE_POOL_SIZE).mapToObj(i -> RandomStringUtils.randomAlphanumeric(options.getValueSize())).toArray(String[]::new);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        LoadGenerator generator = new LoadGenerator(options);
+        List<Result> results = new ArrayList<>();
+        if (options.getNames() == null || options.getNames().isEmpty()) {
+            for (String mode : options.getStubModes()) {
+                try (StubTarget target = generator.startStub(mode)) {
+                    results.addAll(generator.run(mode, target.executor));
+                }
+            }
+        } else {
+            for (String name : options.getNames()) {
+                results.addAll(generator.run(name, RedisCache.name(name)));
+            }
+        }
+        print(options, results);
+        //缓存器的连接池及哨兵监听线程不会自动关闭
+        System.exit(0);
+    }
+
+    /**
+     * 压测一个缓存器的所有接口
+     */
+    public List<Result> run(String mode, AbstractExecutor<?> executor) throws InterruptedException {
+        if (options.isPreload()) {
+            preload(executor);
+        }
+        List<Result> results = new ArrayList<>();
+        for (String api : options.getApis()) {
+            Api type = Api.getApi(api);
+            if (options.getWarmupSeconds() > 0) {
+                run(mode, executor, type, options.getWarmupSeconds());
+            }
+            Result result = run(mode, executor, type, options.getDurationSeconds());
+            results.add(result);
+            System.out.println(String.format("finished %s %s, %d ops", mode, api, result.ops()));
+        }
+        return results;
+    }
+
+    private Result run(String mode, AbstractExecutor<?> executor, Api api, int seconds) throws InterruptedException {
+        Result result = new Result(mode, api, seconds);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch latch = new CountDownLatch(options.getThreads());
+        for (int i = 0; i < options.getThreads(); i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    RedisBatch batch = new RedisBatch(executor);
+                    while (System.nanoTime() < deadline) {
+                        execute(executor, batch, api, result);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            }, "load-generator-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        latch.await();
+        return result;
+    }
+
+    private void execute(AbstractExecutor<?> executor, RedisBatch batch, Api api, Result result) {
+        boolean read = ThreadLocalRandom.current().nextDouble() < options.getReadRatio();
+        Operation operation = read ? result.read : result.write;
+        long start = System.nanoTime();
+        try {
+            switch (api) {
+                case get:
+                    if (read) {
+                        executor.get(nextKey());
+                    } else {
+                        executor.set(nextKey(), nextValue());
+                    }
+                    break;
+                case mget:
+                    if (read) {
+                        executor.mget(nextKeys());
+                    } else {
+                        Map<String, String> map = new LinkedHashMap<>();
+                        nextKeys().forEach(key -> map.put(key, nextValue()));
+                        executor.mset(map);
+                    }
+                    break;
+                case batch:
+                default:
+                    for (String key : nextKeys()) {
+                        if (read) {
+                            batch.get(key);
+                        } else {
+                            batch.set(key, nextValue());
+                        }
+                    }
+                    batch.execute();
+                    break;
+            }
+        } catch (Exception e) {
+            operation.errors.increment();
+        } finally {
+            operation.histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    private void preload(AbstractExecutor<?> executor) {
+        RedisBatch batch = new RedisBatch(executor);
+        for (long i = 0; i < options.getKeys(); i++) {
+            batch.set(KEY_PREFIX + i, nextValue());
+            if (batch.size() >= PRELOAD_BATCH_SIZE) {
+                batch.execute();
+            }
+        }
+        batch.execute();
+    }
+
+    private String nextKey() {
+        return KEY_PREFIX + distribution.next();
+    }
+
+    private List<String> nextKeys() {
+        List<String> keys = new ArrayList<>(options.getBatchSize());
+        for (int i = 0; i < options.getBatchSize(); i++) {
+            keys.add(nextKey());
+        }
+        return keys;
+    }
+
+    private String nextValue() {
+        return values[ThreadLocalRandom.current().nextInt(VALUE_POOL_SIZE)];
+    }
+
+    /**
+     * 启动进程内的RESP服务端并创建对应模式的缓存器
+     */
+    private StubTarget startStub(String mode) {
+        List<Closeable> servers = new ArrayList<>();
+        String type;
+        String nodes;
+        switch (mode) {
+            case "single": {
+                RespServer server = RespServer.startNew();
+                servers.add(server);
+                type = "single";
+                nodes = server.getAddress();
+                break;
+            }
+            case "sentinel": {
+                RespServer master = RespServer.startNew();
+                RespServer sentinel = RespServer.startNew();
+                sentinel.monitor("CacheMaster", master);
+                servers.add(master);
+                servers.add(sentinel);
+                type = "sentinel";
+                nodes = sentinel.getAddress();
+                break;
+            }
+            case "sharded": {
+                List<RespServer> shards = IntStream.range(0, options.getStubNodes()).mapToObj(i -> RespServer.startNew()).collect(Collectors.toList());
+                servers.addAll(shards);
+                type = "sharded";
+                nodes = shards.stream().map(RespServer::getAddress).collect(Collectors.joining(","));
+                break;
+            }
+            case "cluster": {
+                RespCluster cluster = RespCluster.start(options.getStubNodes(), 0);
+                servers.add(cluster);
+                type = "cluster";
+                nodes = cluster.getAddresses();
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("unknown stub mode " + mode + ", supported: single/sentinel/sharded/cluster");
+        }
+        for (Closeable server : servers) {
+            if (server instanceof RespServer) {
+                ((RespServer) server).setLatency(options.getStubLatencyMicros(), TimeUnit.MICROSECONDS);
+            } else {
+                ((RespCluster) server).setLatency(options.getStubLatencyMicros(), TimeUnit.MICROSECONDS);
+            }
+        }
+        RedisProperties redisProperties = new RedisProperties("benchmark");
+        redisProperties.setType(type);
+        redisProperties.setNodes(Lists.newArrayList(nodes.split(",")));
+        redisProperties.setPassword(null);
+        redisProperties.setMaxTotal(options.getMaxTotal());
+        return new StubTarget(RedisCache.getExecutor(redisProperties), servers);
+    }
+
+    private static void print(LoadOptions options, List<Result> results) {
+        System.out.println();
+        System.out.println(String.format("threads=%d, keys=%d, distribution=%s, valueSize=%d, readRatio=%.2f, batchSize=%d, duration=%ds",
+                options.getThreads(), options.getKeys(), options.getDistribution(), options.getValueSize(), options.getReadRatio(),
+                options.getBatchSize(), options.getDurationSeconds()));
+        String format = "%-12s %-6s %-10s %10s %12s %12s %10s %10s %10s %10s %10s %10s %8s%n";
+        System.out.printf(format, "mode", "api", "op", "ops", "ops/s", "keys/s", "mean(us)", "p50(us)", "p90(us)", "p99(us)", "p999(us)", "max(us)", "errors");
+        for (Result result : results) {
+            int keysPerOp = result.api == Api.get ? 1 : options.getBatchSize();
+            printOperation(format, result, result.api.getReadName(), result.read, keysPerOp);
+            printOperation(format, result, result.api.getWriteName(), result.write, keysPerOp);
+        }
+    }
+
+    private static void printOperation(String format, Result result, String name, Operation operation, int keysPerOp) {
+        HistogramSnapshot snapshot = operation.histogram.snapshot();
+        if (snapshot.getCount() == 0) {
+            return;
+        }
+        double opsPerSecond = (double) snapshot.getCount() / result.seconds;
+        System.out.printf(format, result.mode, result.api.name(), name, snapshot.getCount(), String.format("%.0f", opsPerSecond),
+                String.format("%.0f", opsPerSecond * keysPerOp), snapshot.getMeanMicros(),
+                snapshot.getP50Micros(), snapshot.getP90Micros(), snapshot.getP99Micros(), snapshot.getP999Micros(),
+                snapshot.getMaxMicros(), operation.errors.sum());
+    }
+
+    /**
+     * 压测的接口
+     */
+    public enum Api {
+        //单个key的get/set
+        get("get", "set"),
+        //多个key的mget/mset
+        mget("mget", "mset"),
+        //RedisBatch按节点分组的pipeline
+        batch("batch-get", "batch-set");
+
+        private final String readName;
+        private final String writeName;
+
+        Api(String readName, String writeName) {
+            this.readName = readName;
+            this.writeName = writeName;
+        }
+
+        public String getReadName() {
+            return readName;
+        }
+
+        public String getWriteName() {
+            return writeName;
+        }
+
+        public static Api getApi(String name) {
+            for (Api api : values()) {
+                if (api.name().equalsIgnoreCase(name)) {
+                    return api;
+                }
+            }
+            throw new IllegalArgumentException("unknown api " + name + ", supported: get/mget/batch");
+        }
+    }
+
+    /**
+     * 一个接口的压测结果，读写分别统计
+     */
+    public static class Result {
+
+        private final String mode;
+
+        private final Api api;
+
+        private final int seconds;
+
+        private final Operation read = new Operation();
+
+        private final Operation write = new Operation();
+
+        Result(String mode, Api api, int seconds) {
+            this.mode = mode;
+            this.api = api;
+            this.seconds = seconds;
+        }
+
+        public long ops() {
+            return read.histogram.snapshot().getCount() + write.histogram.snapshot().getCount();
+        }
+    }
+
+    private static class Operation {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private final LongAdder errors = new LongAdder();
+    }
+
+    @AllArgsConstructor
+    private static class StubTarget implements Closeable {
+
+        private final AbstractExecutor<?> executor;
+
+        private final List<Closeable> servers;
+
+        @Override
+        public void close() {
+            for (Closeable server : servers) {
+                try {
+                    server.close();
+                } catch (Exception ignored) {
+                }
+            }
+        }
+    }
+
+}
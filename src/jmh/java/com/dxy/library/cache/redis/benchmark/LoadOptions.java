@@ -0,0 +1,130 @@
+package com.dxy.library.cache.redis.benchmark;
+
+import com.google.common.base.Splitter;
+import lombok.Data;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.util.List;
+
+/**
+ * 压测参数，命令行参数格式为 key=value，如 threads=32 distribution=zipfian apis=get,mget
+ * @author duanxinyuan
+ * 2020/6/28 10:30
+ */
+@Data
+public class LoadOptions {
+
+    //压测的缓存配置名称，多个使用逗号隔开，使用 application.properties 中的配置，为空时使用进程内的RESP服务端
+    private List<String> names;
+
+    //使用进程内RESP服务端时压测的模式，single/sentinel/sharded/cluster
+    private List<String> stubModes = Splitter.on(',').splitToList("single,sentinel,sharded,cluster");
+
+    //进程内RESP服务端分片/集群模式的节点数
+    private int stubNodes = 3;
+
+    //进程内RESP服务端注入的网络延迟微秒数
+    private long stubLatencyMicros = 0;
+
+    //进程内RESP服务端使用的最大连接数
+    private int maxTotal = 100;
+
+    //压测的接口，get（get/set）、mget（mget/mset）、batch（RedisBatch的pipeline）
+    private List<String> apis = Splitter.on(',').splitToList("get,mget,batch");
+
+    //key的数量
+    private long keys = 100000;
+
+    //key的访问分布，uniform/zipfian
+    private String distribution = "uniform";
+
+    //Zipfian分布的偏斜系数
+    private double zipfianTheta = 0.99;
+
+    //value的字节数
+    private int valueSize = 100;
+
+    //读请求的比例，其余为写请求
+    private double readRatio = 0.8;
+
+    //压测线程数
+    private int threads = 16;
+
+    //mget/mset/batch每次操作的key数量
+    private int batchSize = 10;
+
+    //每个接口的预热秒数
+    private int warmupSeconds = 3;
+
+    //每个接口的压测秒数
+    private int durationSeconds = 10;
+
+    //压测前是否写入所有key
+    private boolean preload = true;
+
+    public static LoadOptions parse(String... args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index <= 0) {
+                throw new IllegalArgumentException("invalid argument " + arg + ", expected key=value");
+            }
+            String key = arg.substring(0, index).trim();
+            String value = arg.substring(index + 1).trim();
+            switch (key) {
+                case "names":
+                    options.names = Splitter.on(',').trimResults().omitEmptyStrings().splitToList(value);
+                    break;
+                case "stubModes":
+                    options.stubModes = Splitter.on(',').trimResults().omitEmptyStrings().splitToList(value);
+                    break;
+                case "stubNodes":
+                    options.stubNodes = NumberUtils.toInt(value, options.stubNodes);
+                    break;
+                case "stubLatencyMicros":
+                    options.stubLatencyMicros = NumberUtils.toLong(value, options.stubLatencyMicros);
+                    break;
+                case "maxTotal":
+                    options.maxTotal = NumberUtils.toInt(value, options.maxTotal);
+                    break;
+                case "apis":
+                    options.apis = Splitter.on(',').trimResults().omitEmptyStrings().splitToList(value);
+                    break;
+                case "keys":
+                    options.keys = NumberUtils.toLong(value, options.keys);
+                    break;
+                case "distribution":
+                    options.distribution = value;
+                    break;
+                case "zipfianTheta":
+                    options.zipfianTheta = NumberUtils.toDouble(value, options.zipfianTheta);
+                    break;
+                case "valueSize":
+                    options.valueSize = NumberUtils.toInt(value, options.valueSize);
+                    break;
+                case "readRatio":
+                    options.readRatio = NumberUtils.toDouble(value, options.readRatio);
+                    break;
+                case "threads":
+                    options.threads = NumberUtils.toInt(value, options.threads);
+                    break;
+                case "batchSize":
+                    options.batchSize = NumberUtils.toInt(value, options.batchSize);
+                    break;
+                case "warmupSeconds":
+                    options.warmupSeconds = NumberUtils.toInt(value, options.warmupSeconds);
+                    break;
+                case "durationSeconds":
+                    options.durationSeconds = NumberUtils.toInt(value, options.durationSeconds);
+                    break;
+                case "preload":
+                    options.preload = Boolean.parseBoolean(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown argument " + key);
+            }
+        }
+        return options;
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.dxy.library.cache.redis.benchmark;
+
+import com.dxy.library.cache.redis.util.Serializer;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializer序列化与反序列化的基准测试，覆盖字符串、基本类型、POJO和列表
+ * @author duanxinyuan
+ * 2020/6/26 10:20
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializerBenchmark {
+
+    //列表的元素个数
+    @Param({"10", "1000"})
+    public int size;
+
+    private String string;
+
+    private long number;
+
+    private String numberJson;
+
+    private User user;
+
+    private String userJson;
+
+    private List<User> users;
+
+    private List<String> userJsons;
+
+    @Setup
+    public void setup() {
+        string = "cache:redis:benchmark:value";
+        number = 1234567890123L;
+        numberJson = Serializer.serialize(number);
+        user = new User(10001L, "duanxinyuan", 28, true);
+        userJson = Serializer.serialize(user);
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(new User((long) i, "user" + i, i % 100, i % 2 == 0));
+        }
+        userJsons = Serializer.serialize(users);
+    }
+
+    @Benchmark
+    public String serializeString() {
+        return Serializer.serialize(string);
+    }
+
+    @Benchmark
+    public String deserializeString() {
+        return Serializer.deserialize(string, String.class);
+    }
+
+    @Benchmark
+    public String serializeLong() {
+        return Serializer.serialize(number);
+    }
+
+    @Benchmark
+    public Long deserializeLong() {
+        return Serializer.deserialize(numberJson, Long.class);
+    }
+
+    @Benchmark
+    public String serializePojo() {
+        return Serializer.serialize(user);
+    }
+
+    @Benchmark
+    public User deserializePojo() {
+        return Serializer.deserialize(userJson, User.class);
+    }
+
+    @Benchmark
+    public List<String> serializeList() {
+        return Serializer.serialize(users);
+    }
+
+    @Benchmark
+    public List<User> deserializeList() {
+        return Serializer.deserialize(userJsons, User.class);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class User {
+
+        private Long id;
+
+        private String name;
+
+        private Integer age;
+
+        private Boolean enabled;
+    }
+
+}
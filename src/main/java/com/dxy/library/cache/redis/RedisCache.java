@@ -2,14 +2,18 @@ package com.dxy.library.cache.redis;
 
 import com.dxy.library.cache.redis.properties.RedisProperties;
 import com.google.common.collect.Maps;
+import com.dxy.library.cache.redis.batch.RedisBatch;
 import com.dxy.library.cache.redis.constant.CacheType;
 import com.dxy.library.cache.redis.executor.AbstractExecutor;
 import com.dxy.library.cache.redis.executor.cluster.RedisClusterExecutor;
 import com.dxy.library.cache.redis.executor.sentinel.RedisSentinelExecutor;
 import com.dxy.library.cache.redis.executor.sharded.RedisShardedExecutor;
+import com.dxy.library.cache.redis.executor.sharded.RedisShardedSentinelExecutor;
 import com.dxy.library.cache.redis.executor.single.RedisSingleExecutor;
 import com.dxy.library.cache.redis.inter.RedisConsumer;
 import com.dxy.library.cache.redis.inter.RedisFunction;
+import com.dxy.library.cache.redis.metrics.CacheMetrics;
+import com.dxy.library.cache.redis.pool.ConnectionHealthChecker;
 import com.dxy.library.util.config.dto.Config;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -24,9 +28,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 /**
- * Redis缓存操作（兼容single/sentinel/sharded/cluster四种模式）
+ * Redis缓存操作（兼容single/sentinel/sharded/shardedSentinel/cluster五种模式）
  * @author duanxinyuan
  * 2018/8/9 15:27
  */
@@ -77,7 +84,7 @@ public class RedisCache {
     }
 
     /**
-     * 分片模式的自定义操作方法
+     * 分片模式（包括shardedSentinel模式）的自定义操作方法
      */
     public static AbstractExecutor<ShardedJedis> sharded() {
         return (AbstractExecutor<ShardedJedis>) defaultExecutor;
@@ -98,6 +105,34 @@ public class RedisCache {
         return (AbstractExecutor<JedisCluster>) name(name);
     }
 
+    /**
+     * 批量执行命令，按key所在的节点分组后使用pipeline执行，兼容所有模式
+     */
+    public static RedisBatch batch() {
+        return defaultExecutor.batch();
+    }
+
+    /**
+     * 命令监控指标，可获取每个命令的耗时分布、错误数和数据量，以及获取连接的等待耗时
+     */
+    public static CacheMetrics metrics() {
+        return defaultExecutor.getMetrics();
+    }
+
+    /**
+     * 连接健康检查器，可获取连接校验次数和断开的连接数
+     */
+    public static ConnectionHealthChecker healthChecker() {
+        return defaultExecutor.getHealthChecker();
+    }
+
+    /**
+     * 连接池是否就绪，未开启预热或预热成功时返回true
+     */
+    public static boolean isReady() {
+        return defaultExecutor.isReady();
+    }
+
     public static AbstractExecutor<?> getExecutor(RedisProperties redisProperties) {
         CacheType cacheType = CacheType.getType(redisProperties.getType());
         switch (cacheType) {
@@ -105,6 +140,8 @@ public class RedisCache {
                 return new RedisSentinelExecutor(redisProperties);
             case sharded:
                 return new RedisShardedExecutor(redisProperties);
+            case shardedSentinel:
+                return new RedisShardedSentinelExecutor(redisProperties);
             case cluster:
                 return new RedisClusterExecutor(redisProperties);
             case single:
@@ -250,6 +287,29 @@ public class RedisCache {
         return defaultExecutor.unlink(key);
     }
 
+    /**
+     * 迭代删除所有符合给定模式 pattern 的 key，返回删除的 key 的数量
+     * 在所有节点/分片上使用SCAN代替KEYS查找，按批次pipeline执行UNLINK异步删除（集群模式按slot分组），并按每秒最大删除数量限速
+     * @param pattern key规则
+     * @param batchSize 每批次SCAN及删除的 key 的个数
+     * @param maxOpsPerSecond 每秒最多删除的 key 的个数，小于等于0表示不限速
+     */
+    public static Long deleteByPattern(String pattern, int batchSize, int maxOpsPerSecond) {
+        return defaultExecutor.deleteByPattern(pattern, batchSize, maxOpsPerSecond);
+    }
+
+    /**
+     * 迭代删除所有符合给定模式 pattern 的 key，返回删除的 key 的数量
+     * 在所有节点/分片上使用SCAN代替KEYS查找，按批次pipeline执行UNLINK异步删除（集群模式按slot分组），并按每秒最大删除数量限速
+     * @param pattern key规则
+     * @param batchSize 每批次SCAN及删除的 key 的个数
+     * @param maxOpsPerSecond 每秒最多删除的 key 的个数，小于等于0表示不限速
+     * @param progress 删除进度回调，每批次删除后回调一次，参数为当前累计删除的 key 的数量
+     */
+    public static Long deleteByPattern(String pattern, int batchSize, int maxOpsPerSecond, LongConsumer progress) {
+        return defaultExecutor.deleteByPattern(pattern, batchSize, maxOpsPerSecond, progress);
+    }
+
     /**
      * 将 oldkey 重命名为 newkey，返回OK表示成功
      * @param oldkey 旧的Key名称
@@ -531,6 +591,34 @@ public class RedisCache {
         return defaultExecutor.hscan(key, cursor, params);
     }
 
+    /**
+     * 以Stream的方式惰性迭代哈希表 key 中符合给定模式 pattern 的域和值，适用于元素很多的大哈希表
+     * 处理当前页时会在后台预取下一页，值按页批量反序列化，使用完毕后需要关闭Stream
+     * @param params pattern key规则，以及每页迭代的个数
+     */
+    public static <T> Stream<Map.Entry<String, T>> hscanStream(String key, ScanParams params, Class<T> type) {
+        return defaultExecutor.hscanStream(key, params, type);
+    }
+
+    /**
+     * 以Stream的方式按页读取哈希表 key 中所有的域和值，适用于元素很多的大哈希表，避免一次返回所有元素
+     * 处理当前页时会在后台预取下一页，值按页批量反序列化，使用完毕后需要关闭Stream
+     * 内存中最多只保留两页数据，rehash期间HSCAN可能返回重复的域，需要时由调用方去重
+     * @param pageSize 每页读取的个数
+     */
+    public static <T> Stream<Map.Entry<String, T>> hgetAllStream(String key, int pageSize, Class<T> type) {
+        return defaultExecutor.hgetAllStream(key, pageSize, type);
+    }
+
+    /**
+     * 按页读取哈希表 key 中所有的域和值，每页反序列化后交给 consumer 处理，内存中最多只保留两页数据
+     * rehash期间HSCAN可能返回重复的域，同一个域可能交给 consumer 多次
+     * @param pageSize 每页读取的个数
+     */
+    public static <T> void hgetAll(String key, int pageSize, Class<T> type, Consumer<Map<String, T>> consumer) {
+        defaultExecutor.hgetAll(key, pageSize, type, consumer);
+    }
+
     /**
      * 检查给定域 field 是否存在于哈希表 hash 当中，返回1表示存在
      */
@@ -677,6 +765,23 @@ public class RedisCache {
         return defaultExecutor.lrangeAll(key, type);
     }
 
+    /**
+     * 以Stream的方式按页读取列表 key 中的所有元素，适用于元素很多的大列表，避免一次返回所有元素
+     * 处理当前页时会在后台预取下一页，元素按页批量反序列化，使用完毕后需要关闭Stream，读取期间列表被修改时结果可能重复或缺失
+     * @param pageSize 每页读取的个数
+     */
+    public static <T> Stream<T> lrangeAllStream(String key, int pageSize, Class<T> type) {
+        return defaultExecutor.lrangeAllStream(key, pageSize, type);
+    }
+
+    /**
+     * 按页读取列表 key 中的所有元素，每页反序列化后交给 consumer 处理，内存中最多只保留两页数据
+     * @param pageSize 每页读取的个数
+     */
+    public static <T> void lrangeAll(String key, int pageSize, Class<T> type, Consumer<List<T>> consumer) {
+        defaultExecutor.lrangeAll(key, pageSize, type, consumer);
+    }
+
     /**
      * 返回列表 key 中，下标为 index 的元素
      */
@@ -829,6 +934,15 @@ public class RedisCache {
         return defaultExecutor.sscan(key, cursor, params, type);
     }
 
+    /**
+     * 以Stream的方式惰性迭代集合 key 中符合给定模式 pattern 的元素，适用于元素很多的大集合
+     * 处理当前页时会在后台预取下一页，元素按页批量反序列化，使用完毕后需要关闭Stream
+     * @param params pattern key规则，以及每页迭代的个数
+     */
+    public static <T> Stream<T> sscanStream(String key, ScanParams params, Class<T> type) {
+        return defaultExecutor.sscanStream(key, params, type);
+    }
+
     /**
      * 移除集合 key 中的一个或多个 member 元素，返回被成功移除的元素的数量
      */
@@ -1130,6 +1244,16 @@ public class RedisCache {
         return defaultExecutor.zscan(key, cursor, params);
     }
 
+    /**
+     * 以Stream的方式惰性迭代有序集 key 中符合给定模式 pattern 的成员及其分数，适用于元素很多的大有序集
+     * 处理当前页时会在后台预取下一页，成员按页批量反序列化，使用完毕后需要关闭Stream
+     * @param params pattern key规则，以及每页迭代的个数
+     * @return 成员和分数
+     */
+    public static <T> Stream<Map.Entry<T, Double>> zscanStream(String key, ScanParams params, Class<T> type) {
+        return defaultExecutor.zscanStream(key, params, type);
+    }
+
     /**
      * 移除有序集 key 中，指定排名(rank)区间内的所有成员，返回被移除成员的数量
      */
@@ -0,0 +1,124 @@
+package com.dxy.library.cache.redis.batch;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 批量执行中的单个命令，执行后通过future返回反序列化后的结果
+ * @author duanxinyuan
+ * 2020/6/22 10:30
+ */
+public class BatchCommand<T> {
+
+    //命令的key，用于按节点分组
+    private final String key;
+
+    //在pipeline中追加命令，返回读取并反序列化返回值的方法
+    private final Function<Pipeline, Supplier<T>> command;
+
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    private Supplier<T> response;
+
+    public <R> BatchCommand(String key, Function<Pipeline, Response<R>> command, Function<R, T> decoder) {
+        this.key = key;
+        this.command = pipeline -> {
+            Response<R> response = command.apply(pipeline);
+            return () -> decoder.apply(response.get());
+        };
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public CompletableFuture<T> getFuture() {
+        return future;
+    }
+
+    public void append(Pipeline pipeline) {
+        response = command.apply(pipeline);
+    }
+
+    /**
+     * 读取pipeline中的返回值并完成future，返回false表示key所在的slot已迁移，需要重新路由后执行
+     */
+    public boolean complete() {
+        T value;
+        try {
+            value = response.get();
+        } catch (JedisRedirectionException e) {
+            return false;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            return true;
+        }
+        complete(value);
+        return true;
+    }
+
+    public void complete(T value) {
+        future.complete(value);
+    }
+
+    public void fail(Throwable e) {
+        future.completeExceptionally(e);
+    }
+
+    /**
+     * 在指定连接上单独执行命令，返回反序列化后的结果
+     */
+    public T execute(Jedis jedis) {
+        Pipeline pipeline = jedis.pipelined();
+        Supplier<T> single = command.apply(pipeline);
+        pipeline.sync();
+        return single.get();
+    }
+
+    /**
+     * 按连接分组以pipeline执行，先在所有连接上发送命令，再依次读取返回值
+     * 连接异常时该连接上的命令全部失败，并在所有连接读取完成后抛出第一个异常
+     * @return 需要重新路由的命令
+     */
+    public static List<BatchCommand<?>> pipelined(Map<Jedis, List<BatchCommand<?>>> groups) {
+        Map<Pipeline, List<BatchCommand<?>>> pipelines = new LinkedHashMap<>(groups.size());
+        groups.forEach((jedis, commands) -> {
+            Pipeline pipeline = jedis.pipelined();
+            commands.forEach(command -> command.append(pipeline));
+            pipelines.put(pipeline, commands);
+        });
+        List<BatchCommand<?>> redirected = new ArrayList<>();
+        RuntimeException exception = null;
+        for (Map.Entry<Pipeline, List<BatchCommand<?>>> entry : pipelines.entrySet()) {
+            try {
+                entry.getKey().sync();
+            } catch (RuntimeException e) {
+                entry.getValue().forEach(command -> command.fail(e));
+                if (exception == null) {
+                    exception = e;
+                }
+                continue;
+            }
+            for (BatchCommand<?> command : entry.getValue()) {
+                if (!command.complete()) {
+                    redirected.add(command);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return redirected;
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.dxy.library.cache.redis.batch;
+
+import com.dxy.library.cache.redis.executor.AbstractExecutor;
+import com.dxy.library.cache.redis.util.Serializer;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 批量执行命令，兼容所有模式
+ * 命令先加入队列，调用execute后按key所在的节点（分片/slot）分组，每个节点使用一次pipeline执行，执行后future返回反序列化后的结果
+ * 批量命令不是事务，单个命令失败时只有该命令的future异常结束
+ * @author duanxinyuan
+ * 2020/6/22 10:30
+ */
+public class RedisBatch {
+
+    private final AbstractExecutor<?> executor;
+
+    private final List<BatchCommand<?>> commands = new ArrayList<>();
+
+    public RedisBatch(AbstractExecutor<?> executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 加入自定义命令
+     * @param key 命令的key，用于路由到key所在的节点
+     * @param command 在pipeline中追加命令
+     * @param decoder 反序列化命令的返回值
+     */
+    public <R, T> CompletableFuture<T> add(String key, Function<Pipeline, Response<R>> command, Function<R, T> decoder) {
+        executor.checkNotNull(key, command, decoder);
+        BatchCommand<T> batchCommand = new BatchCommand<>(key, command, decoder);
+        commands.add(batchCommand);
+        return batchCommand.getFuture();
+    }
+
+    private <R> CompletableFuture<R> add(String key, Function<Pipeline, Response<R>> command) {
+        return add(key, command, Function.identity());
+    }
+
+    public CompletableFuture<String> get(String key) {
+        return add(key, p -> p.get(key));
+    }
+
+    public <T> CompletableFuture<T> get(String key, Class<T> type) {
+        return add(key, p -> p.get(key), value -> Serializer.deserialize(value, type));
+    }
+
+    public <T> CompletableFuture<String> set(String key, T value) {
+        executor.checkNotNull(key, value);
+        String valueString = Serializer.serialize(value);
+        return add(key, p -> p.set(key, valueString));
+    }
+
+    public <T> CompletableFuture<String> setex(String key, int seconds, T value) {
+        executor.checkNotNull(key, value);
+        String valueString = Serializer.serialize(value);
+        return add(key, p -> p.setex(key, seconds, valueString));
+    }
+
+    public CompletableFuture<Long> del(String key) {
+        return add(key, p -> p.del(key));
+    }
+
+    public CompletableFuture<Boolean> exists(String key) {
+        return add(key, p -> p.exists(key));
+    }
+
+    public CompletableFuture<Long> expire(String key, int seconds) {
+        return add(key, p -> p.expire(key, seconds));
+    }
+
+    public CompletableFuture<Long> ttl(String key) {
+        return add(key, p -> p.ttl(key));
+    }
+
+    public CompletableFuture<Long> incr(String key) {
+        return add(key, p -> p.incr(key));
+    }
+
+    public CompletableFuture<Long> incrBy(String key, long increment) {
+        return add(key, p -> p.incrBy(key, increment));
+    }
+
+    public <P, T> CompletableFuture<T> hget(String key, P field, Class<T> type) {
+        executor.checkNotNull(key, field);
+        String fieldString = Serializer.serialize(field);
+        return add(key, p -> p.hget(key, fieldString), value -> Serializer.deserialize(value, type));
+    }
+
+    public <P, T> CompletableFuture<Long> hset(String key, P field, T value) {
+        executor.checkNotNull(key, field, value);
+        String fieldString = Serializer.serialize(field);
+        String valueString = Serializer.serialize(value);
+        return add(key, p -> p.hset(key, fieldString, valueString));
+    }
+
+    public <P> CompletableFuture<Long> hincrBy(String key, P field, long value) {
+        executor.checkNotNull(key, field);
+        String fieldString = Serializer.serialize(field);
+        return add(key, p -> p.hincrBy(key, fieldString, value));
+    }
+
+    public CompletableFuture<Map<String, String>> hgetAll(String key) {
+        return add(key, p -> p.hgetAll(key));
+    }
+
+    public <T> CompletableFuture<Long> zadd(String key, double score, T member) {
+        executor.checkNotNull(key, member);
+        String memberString = Serializer.serialize(member);
+        return add(key, p -> p.zadd(key, score, memberString));
+    }
+
+    public <T> CompletableFuture<Double> zincrby(String key, double increment, T member) {
+        executor.checkNotNull(key, member);
+        String memberString = Serializer.serialize(member);
+        return add(key, p -> p.zincrby(key, increment, memberString));
+    }
+
+    public <T> CompletableFuture<Double> zscore(String key, T member) {
+        executor.checkNotNull(key, member);
+        String memberString = Serializer.serialize(member);
+        return add(key, p -> p.zscore(key, memberString));
+    }
+
+    public <T> CompletableFuture<Long> sadd(String key, T... values) {
+        executor.checkNotNull(key, values);
+        String[] valueStrings = Serializer.serialize(values);
+        return add(key, p -> p.sadd(key, valueStrings));
+    }
+
+    public <T> CompletableFuture<Boolean> sismember(String key, T value) {
+        executor.checkNotNull(key, value);
+        String valueString = Serializer.serialize(value);
+        return add(key, p -> p.sismember(key, valueString));
+    }
+
+    public <T> CompletableFuture<Long> lpush(String key, T... values) {
+        executor.checkNotNull(key, values);
+        String[] valueStrings = Serializer.serialize(values);
+        return add(key, p -> p.lpush(key, valueStrings));
+    }
+
+    public <T> CompletableFuture<Long> rpush(String key, T... values) {
+        executor.checkNotNull(key, values);
+        String[] valueStrings = Serializer.serialize(values);
+        return add(key, p -> p.rpush(key, valueStrings));
+    }
+
+    public <T> CompletableFuture<List<T>> lrange(String key, long start, long end, Class<T> type) {
+        return add(key, p -> p.lrange(key, start, end), values -> Serializer.deserialize(values, type));
+    }
+
+    /**
+     * 队列中的命令数量
+     */
+    public int size() {
+        return commands.size();
+    }
+
+    /**
+     * 执行队列中的所有命令并清空队列，执行完成后所有命令的future均已结束
+     */
+    public void execute() {
+        if (commands.isEmpty()) {
+            return;
+        }
+        List<BatchCommand<?>> batchCommands = new ArrayList<>(commands);
+        commands.clear();
+        try {
+            executor.executeBatch(batchCommands);
+        } catch (RuntimeException e) {
+            batchCommands.forEach(command -> command.fail(e));
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.dxy.library.cache.redis.constant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 集合元素个数超过单次读取上限时的处理策略
+ * @author duanxinyuan
+ * 2020/6/27 10:05
+ */
+@Getter
+@AllArgsConstructor
+public enum BigKeyPolicy {
+
+    //分块读取，每块使用LRANGE/HSCAN/SSCAN读取，结果与一次读取相同，但不是原子的
+    chunk("chunk"),
+
+    //拒绝读取，抛出BigKeyException
+    reject("reject");
+
+    String policy;
+
+    public static BigKeyPolicy getPolicy(String policy) {
+        BigKeyPolicy[] values = values();
+        for (BigKeyPolicy value : values) {
+            if (value.getPolicy().equals(policy)) {
+                return value;
+            }
+        }
+        //默认分块读取
+        return chunk;
+    }
+
+}
@@ -21,6 +21,9 @@ public enum CacheType {
     //分片集群模式
     sharded("sharded"),
 
+    //多个哨兵主节点的分片模式，按一致性哈希将key分散到多个主节点
+    shardedSentinel("shardedSentinel"),
+
     //官方集群模式
     cluster("cluster");
 
@@ -0,0 +1,40 @@
+package com.dxy.library.cache.redis.constant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 连接健康检查策略
+ * @author duanxinyuan
+ * 2020/6/4 10:12
+ */
+@Getter
+@AllArgsConstructor
+public enum HealthCheckStrategy {
+
+    //每次获取连接时都发送PING校验，每个命令多一次网络往返
+    borrow("borrow"),
+
+    //只由后台驱逐线程校验空闲连接，获取连接时不校验
+    idle("idle"),
+
+    //后台校验空闲连接，且发生连接异常后的一段时间内，获取连接时校验
+    failure("failure"),
+
+    //后台校验空闲连接，且连接空闲超过指定毫秒数时，获取连接时校验
+    idleTime("idleTime");
+
+    String strategy;
+
+    public static HealthCheckStrategy getStrategy(String strategy) {
+        HealthCheckStrategy[] values = values();
+        for (HealthCheckStrategy value : values) {
+            if (value.getStrategy().equals(strategy)) {
+                return value;
+            }
+        }
+        //默认按空闲时长校验
+        return idleTime;
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.dxy.library.cache.redis.constant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 读命令的路由策略
+ * @author duanxinyuan
+ * 2020/6/8 14:10
+ */
+@Getter
+@AllArgsConstructor
+public enum ReadPolicy {
+
+    //所有读命令都发送到主节点
+    master("master"),
+
+    //读命令轮询发送到从节点
+    roundRobin("roundRobin"),
+
+    //读命令发送到正在执行的命令数最少的从节点
+    leastOutstanding("leastOutstanding"),
+
+    //读命令发送到平均响应时间最短的节点，集群模式下主节点也参与选择
+    latency("latency");
+
+    String policy;
+
+    public static ReadPolicy getPolicy(String policy) {
+        ReadPolicy[] values = values();
+        for (ReadPolicy value : values) {
+            if (value.getPolicy().equals(policy)) {
+                return value;
+            }
+        }
+        //默认读主节点
+        return master;
+    }
+
+}
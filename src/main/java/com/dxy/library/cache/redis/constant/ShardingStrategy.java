@@ -0,0 +1,34 @@
+package com.dxy.library.cache.redis.constant;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 分片模式的key分布策略
+ * @author duanxinyuan
+ * 2020/6/15 11:05
+ */
+@Getter
+@AllArgsConstructor
+public enum ShardingStrategy {
+
+    //Jedis默认的MurmurHash哈希环，每个节点160 * 权重个虚拟节点
+    murmur("murmur"),
+
+    //ketama哈希环（MD5），每个节点的虚拟节点数可配置，与其他语言的ketama客户端分布一致
+    ketama("ketama");
+
+    String strategy;
+
+    public static ShardingStrategy getStrategy(String strategy) {
+        ShardingStrategy[] values = values();
+        for (ShardingStrategy value : values) {
+            if (value.getStrategy().equals(strategy)) {
+                return value;
+            }
+        }
+        //默认使用Jedis的哈希环，保持已有数据的分布不变
+        return murmur;
+    }
+
+}
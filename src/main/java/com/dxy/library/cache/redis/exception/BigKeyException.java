@@ -0,0 +1,33 @@
+package com.dxy.library.cache.redis.exception;
+
+import lombok.Getter;
+
+/**
+ * 集合元素个数超过单次读取上限，且处理策略为reject
+ * @author duanxinyuan
+ * 2020/6/27 10:05
+ */
+@Getter
+public class BigKeyException extends RedisCacheException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String command;
+
+    private final String key;
+
+    //集合的元素个数
+    private final long size;
+
+    //单次读取的最大元素个数
+    private final int limit;
+
+    public BigKeyException(String command, String key, long size, int limit) {
+        super("the command '" + command + "' is rejected, key " + key + " has " + size + " elements, exceeds the limit " + limit);
+        this.command = command;
+        this.key = key;
+        this.size = size;
+        this.limit = limit;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.dxy.library.cache.redis.exception;
+
+import com.dxy.library.cache.redis.metrics.PoolSnapshot;
+import lombok.Getter;
+
+/**
+ * 连接池耗尽，在 cache.redis.max.wait.millis 内没有获取到连接（或 cache.redis.block.when.exhausted 为false）
+ * @author duanxinyuan
+ * 2020/6/28 14:20
+ */
+@Getter
+public class PoolExhaustedException extends RedisCacheException {
+
+    private static final long serialVersionUID = 1L;
+
+    //获取连接失败时连接池的状态
+    private final PoolSnapshot pool;
+
+    public PoolExhaustedException(PoolSnapshot pool, Throwable cause) {
+        super("redis pool exhausted, " + pool, cause);
+        this.pool = pool;
+    }
+
+}
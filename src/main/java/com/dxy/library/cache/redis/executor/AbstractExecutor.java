@@ -1,28 +1,90 @@
 package com.dxy.library.cache.redis.executor;
 
+import com.dxy.library.cache.redis.batch.BatchCommand;
+import com.dxy.library.cache.redis.batch.RedisBatch;
+import com.dxy.library.cache.redis.exception.BigKeyException;
+import com.dxy.library.cache.redis.exception.PoolExhaustedException;
 import com.dxy.library.cache.redis.exception.RedisCacheException;
 import com.dxy.library.cache.redis.inter.ICommands;
+import com.dxy.library.cache.redis.inter.RedisFunction;
+import com.dxy.library.cache.redis.metrics.CacheMetrics;
+import com.dxy.library.cache.redis.metrics.CommandMetrics;
 import com.dxy.library.cache.redis.inter.IExecutor;
+import com.dxy.library.cache.redis.pool.ConnectionHealthChecker;
+import com.dxy.library.cache.redis.pool.JedisObjectFactory;
 import com.dxy.library.cache.redis.properties.RedisProperties;
+import com.dxy.library.cache.redis.util.BigKeyGuard;
+import com.dxy.library.cache.redis.util.ScanSpliterator;
+import com.dxy.library.cache.redis.util.Serializer;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisExhaustedPoolException;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.Pool;
 
+import java.io.Closeable;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author duanxinyuan
  * 2019/4/16 21:58
  */
-public abstract class AbstractExecutor<C> implements IExecutor<C>, ICommands {
+@Slf4j
+public abstract class AbstractExecutor<C> implements IExecutor<C>, ICommands, Closeable {
+
+    //预热连接池的最大线程数
+    private static final int WARM_UP_THREADS = 16;
 
     private RedisProperties redisProperties;
 
+    //连接健康检查器，所有连接池共用，重新创建连接池时保留统计数据
+    private ConnectionHealthChecker healthChecker;
+
+    //连接池预热结果，未开启预热时为null
+    private volatile CompletableFuture<Void> warmUpFuture;
+
+    private final CacheMetrics metrics;
+
+    private BigKeyGuard bigKeyGuard;
+
     public AbstractExecutor(RedisProperties redisProperties) {
         this.redisProperties = redisProperties;
+        this.metrics = new CacheMetrics(redisProperties, this::getNode, this::getPools);
+        this.healthChecker = new ConnectionHealthChecker(redisProperties);
+        this.bigKeyGuard = new BigKeyGuard(redisProperties, metrics);
         init(redisProperties);
+        initWarmUp(redisProperties);
     }
 
     public RedisProperties getRedisProperties() {
@@ -31,21 +93,408 @@ public abstract class AbstractExecutor<C> implements IExecutor<C>, ICommands {
 
     public void setRedisProperties(RedisProperties redisProperties) {
         this.redisProperties = redisProperties;
+        this.healthChecker = new ConnectionHealthChecker(redisProperties);
+        this.bigKeyGuard = new BigKeyGuard(redisProperties, metrics);
         init(redisProperties);
+        initWarmUp(redisProperties);
+    }
+
+    /**
+     * 连接健康检查器，可获取连接校验次数和断开的连接数
+     */
+    public ConnectionHealthChecker getHealthChecker() {
+        return healthChecker;
+    }
+
+    /**
+     * 命令的耗时、错误数和数据量统计
+     */
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 限制集合命令单次读取的元素个数
+     */
+    protected BigKeyGuard getBigKeyGuard() {
+        return bigKeyGuard;
     }
 
     public abstract void init(RedisProperties redisProperties);
 
+    /**
+     * 关闭执行器，取消监控指标的定时任务，子类关闭连接池等资源后需要调用
+     */
+    @Override
+    public void close() {
+        metrics.close();
+    }
+
+    /**
+     * 从连接池获取连接执行命令，记录获取连接的等待时间和命令的耗时
+     * @param command 命令名称，为ICommands的方法名
+     * @param keys 命令的key（字符串、字符串数组或集合），用于慢命令日志和热点key统计，没有key时为null
+     */
+    protected <R extends Closeable, T> T executeOnPool(Pool<R> pool, String command, Object keys, RedisFunction<R, T> function) {
+        return executeOnPool(pool, command, keys, 0, function, Function.identity());
+    }
+
+    /**
+     * 从连接池获取连接执行命令，参数在调用前序列化，返回值在归还连接后由decoder反序列化，连接只在命令执行期间占用
+     * @param requestBytes 序列化后的参数数据量
+     * @param decoder 归还连接后处理返回值（如反序列化），耗时计入本次命令
+     */
+    protected <R extends Closeable, S, T> T executeOnPool(Pool<R> pool, String command, Object keys, long requestBytes,
+                                                          RedisFunction<R, S> function, Function<S, T> decoder) {
+        CommandMetrics commandMetrics = metrics.command(command, requestBytes);
+        long startNanos = System.nanoTime();
+        long acquiredNanos = startNanos;
+        boolean success = false;
+        S response = null;
+        try {
+            try (R resource = borrow(pool, startNanos)) {
+                acquiredNanos = System.nanoTime();
+                response = function.apply(resource);
+            }
+            T result = decoder.apply(response);
+            success = true;
+            return result;
+        } catch (Exception e) {
+            throw wrapException(e);
+        } finally {
+            metrics.record(commandMetrics, keys, startNanos, acquiredNanos, success, response);
+        }
+    }
+
+    /**
+     * 从连接池获取连接并按节点记录等待时间，连接池耗尽时抛出带有连接池状态的PoolExhaustedException
+     */
+    private <R> R borrow(Pool<R> pool, long startNanos) {
+        try {
+            R resource = pool.getResource();
+            metrics.recordBorrowWait(pool, System.nanoTime() - startNanos);
+            return resource;
+        } catch (JedisExhaustedPoolException e) {
+            metrics.recordBorrowWait(pool, System.nanoTime() - startNanos);
+            throw new PoolExhaustedException(metrics.pool(pool), e);
+        }
+    }
+
+    private void initWarmUp(RedisProperties redisProperties) {
+        if (!redisProperties.isWarmUpEnabled()) {
+            return;
+        }
+        CompletableFuture<Void> future = warmUp();
+        if (!redisProperties.isWarmUpBlocking()) {
+            return;
+        }
+        try {
+            future.get(redisProperties.getWarmUpTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            //预热失败不影响使用，连接会在获取时按需创建
+        } catch (TimeoutException e) {
+            log.warn("redis warm up not finished in {}ms, continue in background", redisProperties.getWarmUpTimeoutMillis());
+        }
+    }
+
+    /**
+     * 预热连接池，为每个节点并行创建 minIdle 个连接
+     */
+    public CompletableFuture<Void> warmUp() {
+        int count = redisProperties.getMinIdle();
+        if (count <= 0) {
+            log.warn("redis warm up skipped, cache.redis.connection.min.idle not configured");
+            warmUpFuture = CompletableFuture.completedFuture(null);
+            return warmUpFuture;
+        }
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(WARM_UP_THREADS,
+                new ThreadFactoryBuilder().setNameFormat("redis-warm-up-%d").setDaemon(true).build());
+        CompletableFuture<Void> future;
+        try {
+            future = warmUpPool(count, executor);
+        } catch (Exception e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        warmUpFuture = future.whenComplete((v, e) -> {
+            executor.shutdown();
+            if (e == null) {
+                log.info("redis warm up finished, {} connections per node, cost {}ms", count, System.currentTimeMillis() - start);
+            } else {
+                log.error("redis warm up failed", e);
+            }
+        });
+        return warmUpFuture;
+    }
+
+    /**
+     * 为每个节点创建count个连接，异步任务提交到executor中执行
+     */
+    protected abstract CompletableFuture<Void> warmUpPool(int count, Executor executor);
+
+    /**
+     * 创建批量执行器，命令按key所在的节点分组后使用pipeline执行
+     */
+    public RedisBatch batch() {
+        return new RedisBatch(this);
+    }
+
+    /**
+     * 按key所在的节点分组，每个节点使用一次pipeline执行批量命令
+     */
+    public abstract void executeBatch(List<BatchCommand<?>> commands);
+
+    /**
+     * 获取key所在的节点（host:port）
+     */
+    public abstract String getNode(String key);
+
+    /**
+     * 获取当前所有节点的连接池，key为节点（host:port），用于统计连接池的状态
+     */
+    public abstract Map<String, Pool<?>> getPools();
+
+    /**
+     * 连接池是否就绪，未开启预热或预热成功时返回true
+     */
+    public boolean isReady() {
+        CompletableFuture<Void> future = warmUpFuture;
+        return future == null || (future.isDone() && !future.isCompletedExceptionally());
+    }
+
+    /**
+     * 并行向连接池中添加count个空闲连接
+     */
+    protected CompletableFuture<Void> addObjects(Pool<?> pool, int count, Executor executor) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[count];
+        for (int i = 0; i < count; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> pool.addObjects(1), executor);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
     public JedisPoolConfig initJedisPoolConfig(RedisProperties redisProperties) {
         JedisPoolConfig config = new JedisPoolConfig();
         config.setMaxTotal(redisProperties.getMaxTotal());
         config.setMaxIdle(redisProperties.getMaxIdle());
+        config.setMinIdle(redisProperties.getMinIdle());
         config.setMaxWaitMillis(redisProperties.getMaxWaitMillis());
-        config.setTestOnBorrow(true);
+        config.setBlockWhenExhausted(redisProperties.isBlockWhenExhausted());
+        config.setLifo(redisProperties.isLifo());
+        config.setFairness(redisProperties.isFairness());
+        config.setTimeBetweenEvictionRunsMillis(redisProperties.getTimeBetweenEvictionRunsMillis());
+        config.setMinEvictableIdleTimeMillis(redisProperties.getMinEvictableIdleTimeMillis());
+        config.setNumTestsPerEvictionRun(redisProperties.getNumTestsPerEvictionRun());
+        //获取连接时是否发送PING由连接工厂按健康检查策略决定
+        config.setTestOnBorrow(healthChecker.isTestOnBorrow());
         config.setTestWhileIdle(true);
         return config;
     }
 
+    /**
+     * 创建单个节点的连接池，使用按健康检查策略校验连接的连接工厂
+     */
+    protected JedisPool createJedisPool(JedisPoolConfig config, HostAndPort hostAndPort, int database) {
+        return createJedisPool(config, hostAndPort, database, false);
+    }
+
+    /**
+     * 创建单个节点的连接池，readonly为true时连接以READONLY模式打开
+     */
+    protected JedisPool createJedisPool(JedisPoolConfig config, HostAndPort hostAndPort, int database, boolean readonly) {
+        int connectionTimeout = redisProperties.getConnectionTimeoutMillis();
+        int soTimeout = redisProperties.getSoTimeoutMillis();
+        JedisPool jedisPool = new JedisPool(config, hostAndPort.getHost(), hostAndPort.getPort(), connectionTimeout, soTimeout,
+                redisProperties.getPassword(), database, null);
+        //替换默认的连接工厂，按健康检查策略校验连接
+        jedisPool.initPool(config, new JedisObjectFactory(() -> hostAndPort, connectionTimeout, soTimeout,
+                redisProperties.getPassword(), database, readonly, healthChecker));
+        return jedisPool;
+    }
+
+    /**
+     * 创建哨兵的连接，配置了哨兵的密码（cache.redis.sentinel.password）时先认证
+     */
+    protected Jedis createSentinelJedis(HostAndPort sentinel) {
+        Jedis jedis = new Jedis(sentinel.getHost(), sentinel.getPort(), redisProperties.getConnectionTimeoutMillis(),
+                redisProperties.getSoTimeoutMillis());
+        String sentinelPassword = redisProperties.getSentinelPassword();
+        if (sentinelPassword != null) {
+            try {
+                jedis.auth(sentinelPassword);
+            } catch (RuntimeException e) {
+                jedis.close();
+                throw e;
+            }
+        }
+        return jedis;
+    }
+
+    /**
+     * 从节点读取失败时是否可以改为读主节点，命令执行出错（服务端返回的错误）不重试
+     */
+    protected boolean isReadFallback(Exception e) {
+        return redisProperties.isReadFallbackMaster() && e instanceof JedisException && !(e instanceof JedisDataException);
+    }
+
+    /**
+     * 将执行命令时的异常包装为RedisCacheException，连接异常会计入健康检查
+     */
+    protected RedisCacheException wrapException(Exception e) {
+        if (e instanceof BigKeyException || e instanceof PoolExhaustedException) {
+            return (RedisCacheException) e;
+        }
+        healthChecker.onException(e);
+        return new RedisCacheException(e);
+    }
+
+    @Override
+    public Long deleteByPattern(String pattern, int batchSize, int maxOpsPerSecond) {
+        return deleteByPattern(pattern, batchSize, maxOpsPerSecond, deleted -> {
+        });
+    }
+
+    /**
+     * 校验deleteByPattern的批次大小，SCAN的COUNT必须大于0
+     */
+    protected void checkBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than 0, batchSize: " + batchSize);
+        }
+    }
+
+    /**
+     * 校验eval的key个数，不能为负数或大于参数个数
+     */
+    protected void checkKeyCount(int keyCount, int paramCount) {
+        if (keyCount < 0 || keyCount > paramCount) {
+            throw new IllegalArgumentException("keyCount must be between 0 and the number of params, keyCount: " + keyCount + ", params: " + paramCount);
+        }
+    }
+
+    /**
+     * 创建deleteByPattern的限速器，maxOpsPerSecond小于等于0时不限速
+     */
+    protected RateLimiter createRateLimiter(int maxOpsPerSecond) {
+        return maxOpsPerSecond > 0 ? RateLimiter.create(maxOpsPerSecond) : null;
+    }
+
+    /**
+     * 在单个节点上使用SCAN迭代查找匹配的key，并按批次pipeline执行UNLINK，返回该节点删除的 key 的数量
+     * @param groupBySlot 是否按slot分组删除，集群模式下多key命令要求所有key在同一个slot
+     * @param deleted 所有节点累计删除的 key 的数量
+     */
+    protected long unlinkByPattern(Jedis jedis, String pattern, int batchSize, RateLimiter rateLimiter, boolean groupBySlot,
+                                   AtomicLong deleted, LongConsumer progress) {
+        ScanParams params = new ScanParams().match(pattern).count(batchSize);
+        String cursor = ScanParams.SCAN_POINTER_START;
+        long count = 0;
+        do {
+            ScanResult<String> scanResult = jedis.scan(cursor, params);
+            List<String> keys = scanResult.getResult();
+            if (!keys.isEmpty()) {
+                if (rateLimiter != null) {
+                    rateLimiter.acquire(keys.size());
+                }
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<Long>> responses = new ArrayList<>();
+                if (groupBySlot) {
+                    Map<Integer, List<String>> slotKeys = keys.stream().collect(Collectors.groupingBy(JedisClusterCRC16::getSlot));
+                    slotKeys.values().forEach(slotKeyList -> responses.add(pipeline.unlink(slotKeyList.toArray(new String[0]))));
+                } else {
+                    responses.add(pipeline.unlink(keys.toArray(new String[0])));
+                }
+                pipeline.sync();
+                long batchCount = responses.stream().mapToLong(Response::get).sum();
+                count += batchCount;
+                progress.accept(deleted.addAndGet(batchCount));
+            }
+            cursor = scanResult.getCursor();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+        return count;
+    }
+
+    @Override
+    public <T> Stream<Map.Entry<String, T>> hscanStream(String key, ScanParams params, Class<T> type) {
+        checkNotNull(key, params);
+        return ScanSpliterator.stream(cursor -> hscan(key, cursor, params), entries -> {
+            List<T> values = Serializer.deserialize(entries.stream().map(Map.Entry::getValue).collect(Collectors.toList()), type);
+            List<Map.Entry<String, T>> result = new ArrayList<>(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                result.add(new AbstractMap.SimpleImmutableEntry<>(entries.get(i).getKey(), values.get(i)));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public <T> Stream<T> sscanStream(String key, ScanParams params, Class<T> type) {
+        checkNotNull(key, params);
+        return ScanSpliterator.stream(cursor -> sscan(key, cursor, params), members -> Serializer.deserialize(members, type));
+    }
+
+    @Override
+    public <T> Stream<Map.Entry<T, Double>> zscanStream(String key, ScanParams params, Class<T> type) {
+        checkNotNull(key, params);
+        return ScanSpliterator.stream(cursor -> zscan(key, cursor, params), tuples -> {
+            List<T> members = Serializer.deserialize(tuples.stream().map(Tuple::getElement).collect(Collectors.toList()), type);
+            List<Map.Entry<T, Double>> result = new ArrayList<>(tuples.size());
+            for (int i = 0; i < tuples.size(); i++) {
+                result.add(new AbstractMap.SimpleImmutableEntry<>(members.get(i), tuples.get(i).getScore()));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public <T> Stream<Map.Entry<String, T>> hgetAllStream(String key, int pageSize, Class<T> type) {
+        checkPageSize(pageSize);
+        //不按域名去重，去重需要保留所有已读取的域名，内存占用与哈希表大小成正比
+        return hscanStream(key, new ScanParams().count(pageSize), type);
+    }
+
+    @Override
+    public <T> void hgetAll(String key, int pageSize, Class<T> type, Consumer<Map<String, T>> consumer) {
+        checkNotNull(consumer);
+        try (Stream<Map.Entry<String, T>> stream = hgetAllStream(key, pageSize, type)) {
+            Iterators.partition(stream.iterator(), pageSize).forEachRemaining(entries -> {
+                Map<String, T> page = new LinkedHashMap<>(entries.size());
+                entries.forEach(entry -> page.put(entry.getKey(), entry.getValue()));
+                consumer.accept(page);
+            });
+        }
+    }
+
+    @Override
+    public <T> Stream<T> lrangeAllStream(String key, int pageSize, Class<T> type) {
+        checkNotNull(key);
+        checkPageSize(pageSize);
+        //以下一页的起始下标作为游标，最后一页返回"0"结束迭代
+        return ScanSpliterator.stream(cursor -> {
+            long start = Long.parseLong(cursor);
+            List<String> values = lrange(key, start, start + pageSize - 1);
+            String next = values.size() < pageSize ? ScanParams.SCAN_POINTER_START : String.valueOf(start + pageSize);
+            return new ScanResult<>(next, values);
+        }, values -> Serializer.deserialize(values, type));
+    }
+
+    @Override
+    public <T> void lrangeAll(String key, int pageSize, Class<T> type, Consumer<List<T>> consumer) {
+        checkNotNull(consumer);
+        try (Stream<T> stream = lrangeAllStream(key, pageSize, type)) {
+            Iterators.partition(stream.iterator(), pageSize).forEachRemaining(consumer);
+        }
+    }
+
+    private void checkPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new RedisCacheException("pageSize must be greater than 0");
+        }
+    }
+
     public <T> List<T> transformResponse(Map<String, Response<T>> map) {
         List<T> result = new ArrayList<>(map.size());
         map.forEach((key, response) -> result.add(response.get()));
@@ -1,8 +1,14 @@
 package com.dxy.library.cache.redis.executor;
 
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.RateLimiter;
+import com.dxy.library.cache.redis.batch.BatchCommand;
+import com.dxy.library.cache.redis.inter.RedisFunction;
+import com.dxy.library.cache.redis.metrics.CacheMetrics;
+import com.dxy.library.cache.redis.metrics.PayloadSize;
 import com.dxy.library.cache.redis.properties.RedisProperties;
 import com.dxy.library.cache.redis.util.BitHashUtil;
+import com.dxy.library.cache.redis.util.ScriptRegistry;
 import com.dxy.library.cache.redis.util.Serializer;
 import org.apache.commons.lang3.BooleanUtils;
 import redis.clients.jedis.*;
@@ -13,6 +19,9 @@ import redis.clients.jedis.params.ZIncrByParams;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 
 /**
  * @author duanxinyuan
@@ -24,213 +33,303 @@ public abstract class JedisExecutor extends AbstractExecutor<Jedis> {
         super(redisProperties);
     }
 
+    /**
+     * 执行只读命令，支持读写分离的模式下可以路由到从节点
+     */
+    public <T> T executeRead(RedisFunction<Jedis, T> function) {
+        return executeRead(CacheMetrics.CUSTOM_COMMAND, null, function);
+    }
+
+    @Override
+    public <T> T execute(RedisFunction<Jedis, T> function) {
+        return execute(CacheMetrics.CUSTOM_COMMAND, null, function);
+    }
+
+    /**
+     * 执行命令，命令名称和key用于监控统计
+     * @param command 命令名称，为ICommands的方法名
+     * @param keys 命令的key（字符串、字符串数组或集合），没有key时为null
+     */
+    protected <T> T execute(String command, Object keys, RedisFunction<Jedis, T> function) {
+        return execute(command, keys, 0, function, Function.identity());
+    }
+
+    /**
+     * 执行命令，参数已在调用前序列化
+     * @param requestBytes 序列化后的参数数据量
+     */
+    protected <T> T execute(String command, Object keys, long requestBytes, RedisFunction<Jedis, T> function) {
+        return execute(command, keys, requestBytes, function, Function.identity());
+    }
+
+    /**
+     * 执行命令，返回值在归还连接后反序列化
+     */
+    protected <S, T> T execute(String command, Object keys, RedisFunction<Jedis, S> function, Function<S, T> decoder) {
+        return execute(command, keys, 0, function, decoder);
+    }
+
+    /**
+     * 执行命令，参数在调用前序列化，返回值在归还连接后由decoder反序列化，序列化和反序列化期间不占用连接
+     * @param requestBytes 序列化后的参数数据量
+     * @param decoder 归还连接后处理返回值，耗时计入本次命令
+     */
+    protected abstract <S, T> T execute(String command, Object keys, long requestBytes, RedisFunction<Jedis, S> function, Function<S, T> decoder);
+
+    /**
+     * 执行只读命令，支持读写分离的模式下可以路由到从节点
+     * keys和scan/hscan/sscan/zscan不使用该方法，游标只在返回它的节点上有效，同一次遍历的每页需要在同一个节点（主节点）上执行
+     * @param command 命令名称，为ICommands的方法名
+     * @param keys 命令的key（字符串、字符串数组或集合），没有key时为null
+     */
+    protected <T> T executeRead(String command, Object keys, RedisFunction<Jedis, T> function) {
+        return executeRead(command, keys, 0, function, Function.identity());
+    }
+
+    protected <T> T executeRead(String command, Object keys, long requestBytes, RedisFunction<Jedis, T> function) {
+        return executeRead(command, keys, requestBytes, function, Function.identity());
+    }
+
+    protected <S, T> T executeRead(String command, Object keys, RedisFunction<Jedis, S> function, Function<S, T> decoder) {
+        return executeRead(command, keys, 0, function, decoder);
+    }
+
+    /**
+     * 执行只读命令，参数在调用前序列化，返回值在归还连接后由decoder反序列化
+     */
+    protected <S, T> T executeRead(String command, Object keys, long requestBytes, RedisFunction<Jedis, S> function, Function<S, T> decoder) {
+        return execute(command, keys, requestBytes, function, decoder);
+    }
+
+    @Override
+    public void executeBatch(List<BatchCommand<?>> commands) {
+        execute("executeBatch", null, j -> BatchCommand.pipelined(Collections.singletonMap(j, commands)));
+    }
+
     @Override
     public Set<String> keys(String pattern) {
         checkNotNull(pattern);
-        return execute(j -> j.keys(pattern));
+        return execute("keys", null, j -> j.keys(pattern));
     }
 
     @Override
     public ScanResult<String> scan(String cursor, ScanParams params) {
         checkNotNull(cursor, params);
-        return execute(j -> j.scan(cursor, params));
+        return execute("scan", null, j -> j.scan(cursor, params));
     }
 
     @Override
     public String type(String key) {
         checkNotNull(key);
-        return execute(j -> j.type(key));
+        return executeRead("type", key, j -> j.type(key));
     }
 
     @Override
     public Long ttl(String key) {
         checkNotNull(key);
-        return execute(j -> j.ttl(key));
+        return executeRead("ttl", key, j -> j.ttl(key));
     }
 
     @Override
     public Long pttl(String key) {
         checkNotNull(key);
-        return execute(j -> j.pttl(key));
+        return executeRead("pttl", key, j -> j.pttl(key));
     }
 
     @Override
     public Long expire(String key, int seconds) {
         checkNotNull(key);
-        return execute(j -> j.expire(key, seconds));
+        return execute("expire", key, j -> j.expire(key, seconds));
     }
 
     @Override
     public Long expireAt(String key, long unixTime) {
         checkNotNull(key);
-        return execute(j -> j.expireAt(key, unixTime));
+        return execute("expireAt", key, j -> j.expireAt(key, unixTime));
     }
 
     @Override
     public Long persist(String key) {
         checkNotNull(key);
-        return execute(j -> j.persist(key));
+        return execute("persist", key, j -> j.persist(key));
     }
 
     @Override
     public boolean exists(String key) {
         checkNotNull(key);
-        return execute(j -> BooleanUtils.toBoolean(j.exists(key)));
+        return executeRead("exists", key, j -> BooleanUtils.toBoolean(j.exists(key)));
     }
 
     @Override
     public Long del(String key) {
         checkNotNull(key);
-        return execute(j -> j.del(key));
+        return execute("del", key, j -> j.del(key));
     }
 
     @Override
     public Long del(String... keys) {
         checkNotNull(keys);
-        return execute(j -> j.del(keys));
+        return execute("del", keys, j -> j.del(keys));
     }
 
     @Override
     public Long del(List<String> keys) {
         checkNotNull(keys);
-        return execute(j -> j.del(keys.toArray(new String[0])));
+        return execute("del", keys, j -> j.del(keys.toArray(new String[0])));
     }
 
     @Override
     public Long unlink(String key) {
         checkNotNull(key);
-        return execute(j -> j.unlink(key));
+        return execute("unlink", key, j -> j.unlink(key));
+    }
+
+    @Override
+    public Long deleteByPattern(String pattern, int batchSize, int maxOpsPerSecond, LongConsumer progress) {
+        checkNotNull(pattern, progress);
+        checkBatchSize(batchSize);
+        RateLimiter rateLimiter = createRateLimiter(maxOpsPerSecond);
+        return execute("deleteByPattern", null, j -> unlinkByPattern(j, pattern, batchSize, rateLimiter, false, new AtomicLong(), progress));
     }
 
     @Override
     public String rename(String oldkey, String newkey) {
         checkNotNull(oldkey, oldkey);
-        return execute(j -> j.rename(oldkey, newkey));
+        return execute("rename", oldkey, j -> j.rename(oldkey, newkey));
     }
 
     @Override
     public Long renamenx(String oldkey, String newkey) {
         checkNotNull(oldkey, oldkey);
-        return execute(j -> j.renamenx(oldkey, newkey));
+        return execute("renamenx", oldkey, j -> j.renamenx(oldkey, newkey));
     }
 
     @Override
     public <T> String set(String key, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.set(key, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return execute("set", key, PayloadSize.of(valueString), j -> j.set(key, valueString));
     }
 
     @Override
     public <T> String set(String key, T value, SetParams setParams) {
         checkNotNull(key, value, setParams);
-        return execute(j -> j.set(key, Serializer.serialize(value), setParams));
+        String valueString = Serializer.serialize(value);
+        return execute("set", key, PayloadSize.of(valueString), j -> j.set(key, valueString, setParams));
     }
 
     @Override
     public <T> Long setnx(String key, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.setnx(key, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return execute("setnx", key, PayloadSize.of(valueString), j -> j.setnx(key, valueString));
     }
 
     @Override
     public <T> String setex(String key, int seconds, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.setex(key, seconds, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return execute("setex", key, PayloadSize.of(valueString), j -> j.setex(key, seconds, valueString));
     }
 
     @Override
     public <T> String setex(String key, long time, TimeUnit timeUnit, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.psetex(key, timeUnit.toMillis(time), Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return execute("setex", key, PayloadSize.of(valueString), j -> j.psetex(key, timeUnit.toMillis(time), valueString));
     }
 
     @Override
     public <T> String psetex(String key, long milliseconds, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.psetex(key, milliseconds, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return execute("psetex", key, PayloadSize.of(valueString), j -> j.psetex(key, milliseconds, valueString));
     }
 
     @Override
     public <T> String mset(Map<String, T> map) {
         checkNotNull(map);
-        return execute(j -> j.mset(Serializer.serialize(map).toArray(new String[0])));
+        String[] keysValues = Serializer.serialize(map).toArray(new String[0]);
+        return execute("mset", map.keySet(), PayloadSize.of(keysValues), j -> j.mset(keysValues));
     }
 
     @Override
     public String get(String key) {
         checkNotNull(key);
-        return execute(j -> j.get(key));
+        return executeRead("get", key, j -> j.get(key));
     }
 
     @Override
     public <T> T get(String key, Class<T> type) {
-        return execute(j -> Serializer.deserialize(j.get(key), type));
+        return executeRead("get", key, j -> j.get(key), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public List<String> mget(String... keys) {
         checkNotNull(keys);
-        return execute(j -> j.mget(keys));
+        return executeRead("mget", keys, j -> j.mget(keys));
     }
 
     @Override
     public List<String> mget(List<String> keys) {
         checkNotNull(keys);
-        return execute(j -> j.mget(keys.toArray(new String[0])));
+        return executeRead("mget", keys, j -> j.mget(keys.toArray(new String[0])));
     }
 
     @Override
     public <T> List<T> mget(List<String> keys, Class<T> type) {
         checkNotNull(keys);
-        return execute(j -> Serializer.deserialize(j.mget(keys.toArray(new String[0])), type));
+        return executeRead("mget", keys, j -> j.mget(keys.toArray(new String[0])), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Long incr(String key) {
         checkNotNull(key);
-        return execute(j -> j.incr(key));
+        return execute("incr", key, j -> j.incr(key));
     }
 
     @Override
     public Long incrBy(String key, long increment) {
         checkNotNull(key);
-        return execute(j -> j.incrBy(key, increment));
+        return execute("incrBy", key, j -> j.incrBy(key, increment));
     }
 
     @Override
     public Double incrByFloat(String key, double increment) {
         checkNotNull(key);
-        return execute(j -> j.incrByFloat(key, increment));
+        return execute("incrByFloat", key, j -> j.incrByFloat(key, increment));
     }
 
     @Override
     public Long decr(String key) {
         checkNotNull(key);
-        return execute(j -> j.decr(key));
+        return execute("decr", key, j -> j.decr(key));
     }
 
     @Override
     public Long decrBy(String key, long decrement) {
         checkNotNull(key);
-        return execute(j -> j.decrBy(key, decrement));
+        return execute("decrBy", key, j -> j.decrBy(key, decrement));
     }
 
     @Override
     public Long append(String key, String value) {
         checkNotNull(key, value);
-        return execute(j -> j.append(key, value));
+        return execute("append", key, j -> j.append(key, value));
     }
 
     @Override
     public Long strlen(String key) {
         checkNotNull(key);
-        return execute(j -> j.strlen(key));
+        return executeRead("strlen", key, j -> j.strlen(key));
     }
 
     @Override
     public <P, T> Long hset(String key, P field, T value) {
         checkNotNull(key, field, value);
-        return execute(j -> j.hset(key, Serializer.serialize(field), Serializer.serialize(value)));
+        String fieldString = Serializer.serialize(field);
+        String valueString = Serializer.serialize(value);
+        return execute("hset", key, PayloadSize.of(fieldString, valueString), j -> j.hset(key, fieldString, valueString));
     }
 
     @Override
@@ -238,44 +337,50 @@ public abstract class JedisExecutor extends AbstractExecutor<Jedis> {
         checkNotNull(key, hash);
         Map<String, String> valueMap = Maps.newHashMap();
         hash.forEach((field, value) -> valueMap.put(Serializer.serialize(field), Serializer.serialize(value)));
-        return execute(j -> j.hmset(key, valueMap));
+        return execute("hmset", key, PayloadSize.of(valueMap), j -> j.hmset(key, valueMap));
     }
 
     @Override
     public <P, T> Long hsetnx(String key, P field, T value) {
         checkNotNull(key, field, value);
-        return execute(j -> j.hsetnx(key, Serializer.serialize(field), Serializer.serialize(value)));
+        String fieldString = Serializer.serialize(field);
+        String valueString = Serializer.serialize(value);
+        return execute("hsetnx", key, PayloadSize.of(fieldString, valueString), j -> j.hsetnx(key, fieldString, valueString));
     }
 
     @Override
     public <P> String hget(String key, P field) {
         checkNotNull(key, field);
-        return execute(j -> j.hget(key, Serializer.serialize(field)));
+        String fieldString = Serializer.serialize(field);
+        return executeRead("hget", key, PayloadSize.of(fieldString), j -> j.hget(key, fieldString));
     }
 
     @Override
     public <P, T> T hget(String key, P field, Class<T> type) {
         checkNotNull(key, field);
-        return execute(j -> Serializer.deserialize(j.hget(key, Serializer.serialize(field)), type));
+        String fieldString = Serializer.serialize(field);
+        return executeRead("hget", key, PayloadSize.of(fieldString), j -> j.hget(key, fieldString), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public <P> List<String> hmget(String key, P... fields) {
         checkNotNull(key, fields);
-        return execute(j -> j.hmget(key, Serializer.serialize(fields)));
+        String[] fieldStrings = Serializer.serialize(fields);
+        return executeRead("hmget", key, PayloadSize.of(fieldStrings), j -> j.hmget(key, fieldStrings));
     }
 
     @Override
     public <P> List<String> hmget(String key, List<P> fields) {
         checkNotNull(key, fields);
-        return execute(j -> j.hmget(key, Serializer.serialize(fields).toArray(new String[0])));
+        String[] fieldStrings = Serializer.serialize(fields).toArray(new String[0]);
+        return executeRead("hmget", key, PayloadSize.of(fieldStrings), j -> j.hmget(key, fieldStrings));
     }
 
     @Override
     public <P, T> List<T> hmget(String key, List<P> fields, Class<T> type) {
         checkNotNull(key, fields);
-        return execute(j -> {
-            List<String> hmget = j.hmget(key, Serializer.serialize(fields).toArray(new String[0]));
+        String[] fieldStrings = Serializer.serialize(fields).toArray(new String[0]);
+        return executeRead("hmget", key, PayloadSize.of(fieldStrings), j -> j.hmget(key, fieldStrings), hmget -> {
             List<T> ts = new ArrayList<>(hmget.size());
             hmget.forEach(s -> ts.add(Serializer.deserialize(s, type)));
             return ts;
@@ -285,684 +390,694 @@ public abstract class JedisExecutor extends AbstractExecutor<Jedis> {
     @Override
     public <P> Long hincrBy(String key, P field, long value) {
         checkNotNull(key, field);
-        return execute(j -> j.hincrBy(key, Serializer.serialize(field), value));
+        String fieldString = Serializer.serialize(field);
+        return execute("hincrBy", key, PayloadSize.of(fieldString), j -> j.hincrBy(key, fieldString, value));
     }
 
     @Override
     public <P> Double hincrByFloat(String key, P field, double value) {
         checkNotNull(key, field);
-        return execute(j -> j.hincrByFloat(key.getBytes(), Serializer.serialize(field).getBytes(), value));
+        String fieldString = Serializer.serialize(field);
+        return execute("hincrByFloat", key, PayloadSize.of(fieldString), j -> j.hincrByFloat(key.getBytes(), fieldString.getBytes(), value));
     }
 
     @Override
     public Set<String> hkeys(String key) {
         checkNotNull(key);
-        return execute(j -> j.hkeys(key));
+        return executeRead("hkeys", key, j -> getBigKeyGuard().hkeys(j, key));
     }
 
     @Override
     public List<String> hvals(String key) {
         checkNotNull(key);
-        return execute(j -> j.hvals(key));
+        return executeRead("hvals", key, j -> getBigKeyGuard().hvals(j, key));
     }
 
     @Override
     public <T> List<T> hvals(String key, Class<T> type) {
         checkNotNull(key);
-        List<String> strings = execute(j -> j.hvals(key));
-        return Serializer.deserialize(strings, type);
+        return executeRead("hvals", key, j -> getBigKeyGuard().hvals(j, key), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Map<String, String> hgetAll(String key) {
         checkNotNull(key);
-        return execute(j -> j.hgetAll(key));
+        return executeRead("hgetAll", key, j -> getBigKeyGuard().hgetAll(j, key));
     }
 
     @Override
     public <T> Map<String, T> hgetAll(String key, Class<T> type) {
         checkNotNull(key);
-        Map<String, String> stringMap = execute(j -> j.hgetAll(key));
-        Map<String, T> result = new LinkedHashMap<>(stringMap.size());
-        stringMap.forEach((k, v) -> result.put(k, Serializer.deserialize(v, type)));
-        return result;
+        return executeRead("hgetAll", key, j -> getBigKeyGuard().hgetAll(j, key), stringMap -> {
+            Map<String, T> result = new LinkedHashMap<>(stringMap.size());
+            stringMap.forEach((k, v) -> result.put(k, Serializer.deserialize(v, type)));
+            return result;
+        });
     }
 
     @Override
     public ScanResult<Map.Entry<String, String>> hscan(String key, String cursor) {
         checkNotNull(key, cursor);
-        return execute(j -> j.hscan(key, cursor));
+        return execute("hscan", key, j -> j.hscan(key, cursor));
     }
 
     @Override
     public ScanResult<Map.Entry<String, String>> hscan(String key, String cursor, ScanParams params) {
         checkNotNull(key, cursor, params);
-        return execute(j -> j.hscan(key, cursor, params));
+        return execute("hscan", key, j -> j.hscan(key, cursor, params));
     }
 
     @Override
     public <P> boolean hexists(String key, P field) {
         checkNotNull(key, field);
-        return execute(j -> j.hexists(key, Serializer.serialize(field)));
+        String fieldString = Serializer.serialize(field);
+        return executeRead("hexists", key, PayloadSize.of(fieldString), j -> j.hexists(key, fieldString));
     }
 
     @Override
     public <P> Long hdel(String key, P... fields) {
         checkNotNull(key, fields);
-        return execute(j -> j.hdel(key, Serializer.serialize(fields)));
+        String[] fieldStrings = Serializer.serialize(fields);
+        return execute("hdel", key, PayloadSize.of(fieldStrings), j -> j.hdel(key, fieldStrings));
     }
 
     @Override
     public <P> Long hdel(String key, List<P> fields) {
         checkNotNull(key, fields);
-        return execute(j -> j.hdel(key, fields.toArray(new String[0])));
+        return execute("hdel", key, j -> j.hdel(key, fields.toArray(new String[0])));
     }
 
     @Override
     public <P> Long hstrlen(String key, P field) {
         checkNotNull(key, field);
-        return execute(j -> j.hstrlen(key, Serializer.serialize(field)));
+        String fieldString = Serializer.serialize(field);
+        return executeRead("hstrlen", key, PayloadSize.of(fieldString), j -> j.hstrlen(key, fieldString));
     }
 
     @Override
     public <T> Long lpush(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.lpush(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return execute("lpush", key, PayloadSize.of(valueStrings), j -> j.lpush(key, valueStrings));
     }
 
     @Override
     public <T> Long lpush(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.lpush(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return execute("lpush", key, PayloadSize.of(valueStrings), j -> j.lpush(key, valueStrings));
     }
 
     @Override
     public <T> Long rpush(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.rpush(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return execute("rpush", key, PayloadSize.of(valueStrings), j -> j.rpush(key, valueStrings));
     }
 
     @Override
     public <T> Long rpush(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.rpush(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return execute("rpush", key, PayloadSize.of(valueStrings), j -> j.rpush(key, valueStrings));
     }
 
     @Override
     public <T> Long lpushx(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.lpushx(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return execute("lpushx", key, PayloadSize.of(valueStrings), j -> j.lpushx(key, valueStrings));
     }
 
     @Override
     public <T> Long lpushx(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.lpushx(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return execute("lpushx", key, PayloadSize.of(valueStrings), j -> j.lpushx(key, valueStrings));
     }
 
     @Override
     public <T> Long rpushx(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.rpushx(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return execute("rpushx", key, PayloadSize.of(valueStrings), j -> j.rpushx(key, valueStrings));
     }
 
     @Override
     public <T> Long rpushx(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.rpushx(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return execute("rpushx", key, PayloadSize.of(valueStrings), j -> j.rpushx(key, valueStrings));
     }
 
     @Override
     public <T> String lset(String key, long index, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.lset(key, index, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return execute("lset", key, PayloadSize.of(valueString), j -> j.lset(key, index, valueString));
     }
 
     @Override
     public <T> Long linsert(String key, ListPosition where, String pivot, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.linsert(key, where, pivot, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return execute("linsert", key, PayloadSize.of(valueString), j -> j.linsert(key, where, pivot, valueString));
     }
 
     @Override
     public String rpoplpush(String srckey, String dstkey) {
         checkNotNull(srckey, dstkey);
-        return execute(j -> j.rpoplpush(srckey, dstkey));
+        return execute("rpoplpush", srckey, j -> j.rpoplpush(srckey, dstkey));
     }
 
     @Override
     public String brpoplpush(String source, String destination, int timeout) {
         checkNotNull(source, destination);
-        return execute(j -> j.brpoplpush(source, destination, timeout));
+        return execute("brpoplpush", source, j -> j.brpoplpush(source, destination, timeout));
     }
 
     @Override
     public List<String> lrange(String key, long start, long end) {
         checkNotNull(key);
-        return execute(j -> j.lrange(key, start, end));
+        return executeRead("lrange", key, j -> j.lrange(key, start, end));
     }
 
     @Override
     public <T> List<T> lrange(String key, long start, long end, Class<T> type) {
         checkNotNull(key);
-        List<String> strings = execute(j -> j.lrange(key, start, end));
-        return Serializer.deserialize(strings, type);
+        return executeRead("lrange", key, j -> j.lrange(key, start, end), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public List<String> lrangePage(String key, int pageNo, int pageSize) {
         checkNotNull(key);
-        return execute(j -> j.lrange(key, pageNo * pageSize, (pageNo + 1) * pageSize));
+        return executeRead("lrangePage", key, j -> j.lrange(key, pageNo * pageSize, (pageNo + 1) * pageSize));
     }
 
     @Override
     public <T> List<T> lrangePage(String key, int pageNo, int pageSize, Class<T> type) {
         checkNotNull(key);
-        List<String> strings = execute(j -> j.lrange(key, pageNo * pageSize, (pageNo + 1) * pageSize));
-        return Serializer.deserialize(strings, type);
+        return executeRead("lrangePage", key, j -> j.lrange(key, pageNo * pageSize, (pageNo + 1) * pageSize), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public List<String> lrangeAll(String key) {
         checkNotNull(key);
-        return execute(j -> j.lrange(key, 0, -1));
+        return executeRead("lrangeAll", key, j -> getBigKeyGuard().lrangeAll(j, key));
     }
 
     @Override
     public <T> List<T> lrangeAll(String key, Class<T> type) {
         checkNotNull(key);
-        List<String> strings = execute(j -> j.lrange(key, 0, -1));
-        return Serializer.deserialize(strings, type);
+        return executeRead("lrangeAll", key, j -> getBigKeyGuard().lrangeAll(j, key), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public String lindex(String key, int index) {
         checkNotNull(key);
-        return execute(j -> j.lindex(key, index));
+        return executeRead("lindex", key, j -> j.lindex(key, index));
     }
 
     @Override
     public <T> T lindex(String key, int index, Class<T> type) {
         checkNotNull(key);
-        String s = execute(j -> j.lindex(key, index));
-        return Serializer.deserialize(s, type);
+        return executeRead("lindex", key, j -> j.lindex(key, index), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public Long llen(String key) {
         checkNotNull(key);
-        return execute(j -> j.llen(key));
+        return executeRead("llen", key, j -> j.llen(key));
     }
 
     @Override
     public String lpop(String key) {
         checkNotNull(key);
-        return execute(j -> j.lpop(key));
+        return execute("lpop", key, j -> j.lpop(key));
     }
 
     @Override
     public <T> T lpop(String key, Class<T> type) {
         checkNotNull(key);
-        String s = execute(j -> j.lpop(key));
-        return Serializer.deserialize(s, type);
+        return execute("lpop", key, j -> j.lpop(key), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public String rpop(String key) {
         checkNotNull(key);
-        return execute(j -> j.rpop(key));
+        return execute("rpop", key, j -> j.rpop(key));
     }
 
     @Override
     public <T> T rpop(String key, Class<T> type) {
         checkNotNull(key);
-        String s = execute(j -> j.rpop(key));
-        return Serializer.deserialize(s, type);
+        return execute("rpop", key, j -> j.rpop(key), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public List<String> blpop(int timeout, String key) {
         checkNotNull(key);
-        return execute(j -> j.blpop(timeout, key));
+        return execute("blpop", key, j -> j.blpop(timeout, key));
     }
 
     @Override
     public List<String> brpop(int timeout, String key) {
         checkNotNull(key);
-        return execute(j -> j.brpop(timeout, key));
+        return execute("brpop", key, j -> j.brpop(timeout, key));
     }
 
     @Override
     public <T> Long lrem(String key, long count, T value) {
         checkNotNull(key);
-        return execute(j -> j.lrem(key, count, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return execute("lrem", key, PayloadSize.of(valueString), j -> j.lrem(key, count, valueString));
     }
 
     @Override
     public String ltrim(String key, long start, long end) {
         checkNotNull(key);
-        return execute(j -> j.ltrim(key, start, end));
+        return execute("ltrim", key, j -> j.ltrim(key, start, end));
     }
 
     @Override
     public <T> Long sadd(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.sadd(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return execute("sadd", key, PayloadSize.of(valueStrings), j -> j.sadd(key, valueStrings));
     }
 
     @Override
     public <T> Long sadd(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.sadd(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return execute("sadd", key, PayloadSize.of(valueStrings), j -> j.sadd(key, valueStrings));
     }
 
     @Override
     public Set<String> smembers(String key) {
         checkNotNull(key);
-        return execute(j -> j.smembers(key));
+        return executeRead("smembers", key, j -> getBigKeyGuard().smembers(j, key));
     }
 
     @Override
     public <T> Set<T> smembers(String key, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.smembers(key));
-        return Serializer.deserialize(strings, type);
+        return executeRead("smembers", key, j -> getBigKeyGuard().smembers(j, key), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public ScanResult<String> sscan(String key, String cursor) {
         checkNotNull(key, cursor);
-        return execute(j -> j.sscan(key, cursor));
+        return execute("sscan", key, j -> j.sscan(key, cursor));
     }
 
     @Override
     public <T> ScanResult<T> sscan(String key, String cursor, Class<T> type) {
         checkNotNull(key, cursor);
-        ScanResult<String> strings = execute(j -> j.sscan(key, cursor));
-        return new ScanResult<>(cursor, Serializer.deserialize(strings.getResult(), type));
+        return execute("sscan", key, j -> j.sscan(key, cursor),
+                strings -> new ScanResult<>(strings.getCursor(), Serializer.deserialize(strings.getResult(), type)));
     }
 
     @Override
     public ScanResult<String> sscan(String key, String cursor, ScanParams params) {
         checkNotNull(key, cursor, params);
-        return execute(j -> j.sscan(key, cursor, params));
+        return execute("sscan", key, j -> j.sscan(key, cursor, params));
 
     }
 
     @Override
     public <T> ScanResult<T> sscan(String key, String cursor, ScanParams params, Class<T> type) {
         checkNotNull(key, cursor, params);
-        ScanResult<String> strings = sscan(key, cursor, params);
-        return new ScanResult<>(cursor, Serializer.deserialize(strings.getResult(), type));
+        return execute("sscan", key, j -> j.sscan(key, cursor, params),
+                strings -> new ScanResult<>(strings.getCursor(), Serializer.deserialize(strings.getResult(), type)));
     }
 
     @Override
     public <T> Long srem(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.srem(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return execute("srem", key, PayloadSize.of(valueStrings), j -> j.srem(key, valueStrings));
     }
 
     @Override
     public <T> Long srem(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.srem(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return execute("srem", key, PayloadSize.of(valueStrings), j -> j.srem(key, valueStrings));
     }
 
     @Override
     public String spop(String key) {
         checkNotNull(key);
-        return execute(j -> j.spop(key));
+        return execute("spop", key, j -> j.spop(key));
     }
 
     @Override
     public <T> T spop(String key, Class<T> type) {
         checkNotNull(key);
-        String s = execute(j -> j.spop(key));
-        return Serializer.deserialize(s, type);
+        return execute("spop", key, j -> j.spop(key), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public Long scard(String key) {
         checkNotNull(key);
-        return execute(j -> j.scard(key));
+        return executeRead("scard", key, j -> j.scard(key));
     }
 
     @Override
     public <T> boolean sismember(String key, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.sismember(key, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return executeRead("sismember", key, PayloadSize.of(valueString), j -> j.sismember(key, valueString));
     }
 
     @Override
     public String srandmember(String key) {
         checkNotNull(key);
-        return execute(j -> j.srandmember(key));
+        return executeRead("srandmember", key, j -> j.srandmember(key));
     }
 
     @Override
     public List<String> srandmember(String key, int count) {
         checkNotNull(key);
-        return execute(j -> j.srandmember(key, count));
+        return executeRead("srandmember", key, j -> j.srandmember(key, count));
     }
 
     @Override
     public <T> List<T> srandmember(String key, int count, Class<T> type) {
         checkNotNull(key);
-        return execute(j -> Serializer.deserialize(j.srandmember(key, count), type));
+        return executeRead("srandmember", key, j -> j.srandmember(key, count), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public <T> Long zadd(String key, double score, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zadd(key, score, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return execute("zadd", key, PayloadSize.of(memberString), j -> j.zadd(key, score, memberString));
     }
 
     @Override
     public <T> Long zadd(String key, double score, T member, ZAddParams params) {
         checkNotNull(key, member, params);
-        return execute(j -> j.zadd(key, score, Serializer.serialize(member), params));
+        String memberString = Serializer.serialize(member);
+        return execute("zadd", key, PayloadSize.of(memberString), j -> j.zadd(key, score, memberString, params));
     }
 
     @Override
     public Long zadd(String key, Map<String, Double> scoreMembers) {
         checkNotNull(key, scoreMembers);
-        return execute(j -> j.zadd(key, scoreMembers));
+        return execute("zadd", key, j -> j.zadd(key, scoreMembers));
     }
 
     @Override
     public Long zadd(String key, Map<String, Double> scoreMembers, ZAddParams params) {
         checkNotNull(key, scoreMembers, params);
-        return execute(j -> j.zadd(key, scoreMembers, params));
+        return execute("zadd", key, j -> j.zadd(key, scoreMembers, params));
     }
 
     @Override
     public Set<String> zrange(String key, long start, long stop) {
         checkNotNull(key);
-        return execute(j -> j.zrange(key, start, stop));
+        return executeRead("zrange", key, j -> j.zrange(key, start, stop));
     }
 
     @Override
     public <T> Set<T> zrange(String key, long start, long stop, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrange(key, start, stop));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrange", key, j -> j.zrange(key, start, stop), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrevrange(String key, long start, long stop) {
         checkNotNull(key);
-        return execute(j -> j.zrevrange(key, start, stop));
+        return executeRead("zrevrange", key, j -> j.zrevrange(key, start, stop));
     }
 
     @Override
     public <T> Set<T> zrevrange(String key, long start, long stop, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrevrange(key, start, stop));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrevrange", key, j -> j.zrevrange(key, start, stop), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public <T> Long zrem(String key, T... members) {
         checkNotNull(key, members);
-        return execute(j -> j.zrem(key, Serializer.serialize(members)));
+        String[] memberStrings = Serializer.serialize(members);
+        return execute("zrem", key, PayloadSize.of(memberStrings), j -> j.zrem(key, memberStrings));
     }
 
     @Override
     public <T> Long zrem(String key, List<T> members) {
         checkNotNull(key, members);
-        return execute(j -> j.zrem(key, Serializer.serialize(members).toArray(new String[0])));
+        String[] memberStrings = Serializer.serialize(members).toArray(new String[0]);
+        return execute("zrem", key, PayloadSize.of(memberStrings), j -> j.zrem(key, memberStrings));
     }
 
     @Override
     public <T> Double zincrby(String key, double increment, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zincrby(key, increment, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return execute("zincrby", key, PayloadSize.of(memberString), j -> j.zincrby(key, increment, memberString));
     }
 
     @Override
     public <T> Double zincrby(String key, double increment, T member, ZIncrByParams params) {
         checkNotNull(key, member, params);
-        return execute(j -> j.zincrby(key, increment, Serializer.serialize(member), params));
+        String memberString = Serializer.serialize(member);
+        return execute("zincrby", key, PayloadSize.of(memberString), j -> j.zincrby(key, increment, memberString, params));
     }
 
     @Override
     public Set<String> zrangeByScore(String key, double min, double max) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByScore(key, min, max));
+        return executeRead("zrangeByScore", key, j -> j.zrangeByScore(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrangeByScore(String key, double min, double max, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrangeByScore(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrangeByScore", key, j -> j.zrangeByScore(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrangeByScore(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByScore(key, min, max));
+        return executeRead("zrangeByScore", key, j -> j.zrangeByScore(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrangeByScore(String key, String min, String max, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrangeByScore(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrangeByScore", key, j -> j.zrangeByScore(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByScoreWithScores(key, min, max));
+        return executeRead("zrangeByScoreWithScores", key, j -> j.zrangeByScoreWithScores(key, min, max));
     }
 
     @Override
     public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByScoreWithScores(key, min, max, offset, count));
+        return executeRead("zrangeByScoreWithScores", key, j -> j.zrangeByScoreWithScores(key, min, max, offset, count));
     }
 
     @Override
     public Set<String> zrevrangeByScore(String key, double max, double min) {
         checkNotNull(key);
-        return execute(j -> j.zrevrangeByScore(key, min, max));
+        return executeRead("zrevrangeByScore", key, j -> j.zrevrangeByScore(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrevrangeByScore(String key, double max, double min, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrevrangeByScore(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrevrangeByScore", key, j -> j.zrevrangeByScore(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrevrangeByScore(String key, String max, String min) {
         checkNotNull(key);
-        return execute(j -> j.zrevrangeByScore(key, min, max));
+        return executeRead("zrevrangeByScore", key, j -> j.zrevrangeByScore(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrevrangeByScore(String key, String max, String min, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrevrangeByScore(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrevrangeByScore", key, j -> j.zrevrangeByScore(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrangeByLex(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByLex(key, min, max));
+        return executeRead("zrangeByLex", key, j -> j.zrangeByLex(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrangeByLex(String key, String min, String max, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrangeByLex(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrangeByLex", key, j -> j.zrangeByLex(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrevrangeByLex(String key, String max, String min) {
         checkNotNull(key);
-        return execute(j -> j.zrevrangeByLex(key, min, max));
+        return executeRead("zrevrangeByLex", key, j -> j.zrevrangeByLex(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrevrangeByLex(String key, String max, String min, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrevrangeByLex(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrevrangeByLex", key, j -> j.zrevrangeByLex(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public ScanResult<Tuple> zscan(String key, String cursor) {
         checkNotNull(key, cursor);
-        return execute(j -> j.zscan(key, cursor));
+        return execute("zscan", key, j -> j.zscan(key, cursor));
     }
 
     @Override
     public ScanResult<Tuple> zscan(String key, String cursor, ScanParams params) {
         checkNotNull(key, cursor, params);
-        return execute(j -> j.zscan(key.getBytes(), cursor.getBytes(), params));
+        return execute("zscan", key, j -> j.zscan(key.getBytes(), cursor.getBytes(), params));
     }
 
     @Override
     public Long zremrangeByRank(String key, long start, long stop) {
         checkNotNull(key);
-        return execute(j -> j.zremrangeByRank(key, start, stop));
+        return execute("zremrangeByRank", key, j -> j.zremrangeByRank(key, start, stop));
     }
 
     @Override
     public Long zremrangeByScore(String key, double min, double max) {
         checkNotNull(key);
-        return execute(j -> j.zremrangeByScore(key, min, max));
+        return execute("zremrangeByScore", key, j -> j.zremrangeByScore(key, min, max));
     }
 
     @Override
     public Long zremrangeByScore(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zremrangeByScore(key, min, max));
+        return execute("zremrangeByScore", key, j -> j.zremrangeByScore(key, min, max));
     }
 
     @Override
     public Long zremrangeByLex(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zremrangeByLex(key, min, max));
+        return execute("zremrangeByLex", key, j -> j.zremrangeByLex(key, min, max));
     }
 
     @Override
     public <T> Long zrank(String key, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zrank(key, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return executeRead("zrank", key, PayloadSize.of(memberString), j -> j.zrank(key, memberString));
     }
 
     @Override
     public <T> Long zrevrank(String key, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zrevrank(key, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return executeRead("zrevrank", key, PayloadSize.of(memberString), j -> j.zrevrank(key, memberString));
     }
 
     @Override
     public Long zcard(String key) {
         checkNotNull(key);
-        return execute(j -> j.zcard(key));
+        return executeRead("zcard", key, j -> j.zcard(key));
     }
 
     @Override
     public <T> Double zscore(String key, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zscore(key, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return executeRead("zscore", key, PayloadSize.of(memberString), j -> j.zscore(key, memberString));
     }
 
     @Override
     public Long zcount(String key, double min, double max) {
         checkNotNull(key);
-        return execute(j -> j.zcount(key, min, max));
+        return executeRead("zcount", key, j -> j.zcount(key, min, max));
     }
 
     @Override
     public Long zcount(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zcount(key, min, max));
+        return executeRead("zcount", key, j -> j.zcount(key, min, max));
     }
 
     @Override
     public Long zlexcount(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zlexcount(key, min, max));
+        return executeRead("zlexcount", key, j -> j.zlexcount(key, min, max));
     }
 
     @Override
     public <T> Long pfadd(String key, T... elements) {
         checkNotNull(key, elements);
-        return execute(j -> j.pfadd(key, Serializer.serialize(elements)));
+        String[] elementStrings = Serializer.serialize(elements);
+        return execute("pfadd", key, PayloadSize.of(elementStrings), j -> j.pfadd(key, elementStrings));
     }
 
     @Override
     public <T> Long pfadd(String key, List<T> elements) {
         checkNotNull(key, elements);
-        return execute(j -> j.pfadd(key, Serializer.serialize(elements).toArray(new String[0])));
+        String[] elementStrings = Serializer.serialize(elements).toArray(new String[0]);
+        return execute("pfadd", key, PayloadSize.of(elementStrings), j -> j.pfadd(key, elementStrings));
     }
 
     @Override
     public Long pfcount(String key) {
         checkNotNull(key);
-        return execute(j -> j.pfcount(key));
+        return executeRead("pfcount", key, j -> j.pfcount(key));
     }
 
     @Override
     public boolean setbit(String key, long offset, boolean value) {
         checkNotNull(key);
-        return execute(j -> j.setbit(key, offset, value));
+        return execute("setbit", key, j -> j.setbit(key, offset, value));
     }
 
     @Override
     public boolean setbit(String key, long offset, String value) {
         checkNotNull(key);
-        return execute(j -> j.setbit(key, offset, value));
+        return execute("setbit", key, j -> j.setbit(key, offset, value));
     }
 
     @Override
     public boolean getbit(String key, long offset) {
         checkNotNull(key);
-        return execute(j -> j.getbit(key, offset));
+        return executeRead("getbit", key, j -> j.getbit(key, offset));
     }
 
     @Override
     public Long bitcount(String key) {
         checkNotNull(key);
-        return execute(j -> j.bitcount(key));
+        return executeRead("bitcount", key, j -> j.bitcount(key));
     }
 
     @Override
     public Long bitcount(String key, long start, long end) {
         checkNotNull(key);
-        return execute(j -> j.bitcount(key, start, end));
+        return executeRead("bitcount", key, j -> j.bitcount(key, start, end));
     }
 
     @Override
     public Long bitpos(String key, boolean value) {
         checkNotNull(key);
-        return execute(j -> j.bitpos(key, value));
+        return executeRead("bitpos", key, j -> j.bitpos(key, value));
     }
 
     @Override
     public Long bitpos(String key, boolean value, long start, long end) {
         checkNotNull(key);
-        return execute(j -> j.bitpos(key, value, new BitPosParams(start, end)));
+        return executeRead("bitpos", key, j -> j.bitpos(key, value, new BitPosParams(start, end)));
     }
 
     @Override
     public Long bitop(BitOP op, String destKey, String... srcKeys) {
         checkNotNull(op, destKey, srcKeys);
-        return execute(j -> j.bitop(op, destKey, srcKeys));
+        return execute("bitop", destKey, j -> j.bitop(op, destKey, srcKeys));
     }
 
     @Override
@@ -974,85 +1089,96 @@ public abstract class JedisExecutor extends AbstractExecutor<Jedis> {
     @Override
     public List<Long> bitfield(String key, String... arguments) {
         checkNotNull(key, arguments);
-        return execute(j -> j.bitfield(key, arguments));
+        return execute("bitfield", key, j -> j.bitfield(key, arguments));
     }
 
     @Override
     public List<Long> bitfield(String key, List<String> arguments) {
         checkNotNull(key, arguments);
-        return execute(j -> j.bitfield(key, arguments.toArray(new String[0])));
+        return execute("bitfield", key, j -> j.bitfield(key, arguments.toArray(new String[0])));
     }
 
     @Override
     public <T> Long geoadd(String key, double longitude, double latitude, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.geoadd(key, longitude, latitude, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return execute("geoadd", key, PayloadSize.of(memberString), j -> j.geoadd(key, longitude, latitude, memberString));
     }
 
     @Override
     public Long geoadd(String key, Map<String, GeoCoordinate> memberCoordinateMap) {
         checkNotNull(key, memberCoordinateMap);
-        return execute(j -> j.geoadd(key, memberCoordinateMap));
+        return execute("geoadd", key, j -> j.geoadd(key, memberCoordinateMap));
     }
 
     @Override
     public <T> Double geodist(String key, T member1, T member2) {
         checkNotNull(key, member1, member2);
-        return execute(j -> j.geodist(key, Serializer.serialize(member1), Serializer.serialize(member2)));
+        String member1String = Serializer.serialize(member1);
+        String member2String = Serializer.serialize(member2);
+        return executeRead("geodist", key, PayloadSize.of(member1String, member2String), j -> j.geodist(key, member1String, member2String));
     }
 
     @Override
     public <T> Double geodist(String key, T member1, T member2, GeoUnit unit) {
         checkNotNull(key, member1, member2);
-        return execute(j -> j.geodist(key, Serializer.serialize(member1), Serializer.serialize(member2), unit));
+        String member1String = Serializer.serialize(member1);
+        String member2String = Serializer.serialize(member2);
+        return executeRead("geodist", key, PayloadSize.of(member1String, member2String), j -> j.geodist(key, member1String, member2String, unit));
     }
 
     @Override
     public <T> List<String> geohash(String key, T... members) {
         checkNotNull(key, members);
-        return execute(j -> j.geohash(key, Serializer.serialize(members)));
+        String[] memberStrings = Serializer.serialize(members);
+        return executeRead("geohash", key, PayloadSize.of(memberStrings), j -> j.geohash(key, memberStrings));
     }
 
     @Override
     public <T> List<String> geohash(String key, List<T> members) {
         checkNotNull(key, members);
-        return execute(j -> j.geohash(key, Serializer.serialize(members).toArray(new String[0])));
+        String[] memberStrings = Serializer.serialize(members).toArray(new String[0]);
+        return executeRead("geohash", key, PayloadSize.of(memberStrings), j -> j.geohash(key, memberStrings));
     }
 
     @Override
     public <T> List<GeoCoordinate> geopos(String key, T... members) {
         checkNotNull(key, members);
-        return execute(j -> j.geopos(key, Serializer.serialize(members)));
+        String[] memberStrings = Serializer.serialize(members);
+        return executeRead("geopos", key, PayloadSize.of(memberStrings), j -> j.geopos(key, memberStrings));
     }
 
     @Override
     public <T> List<GeoCoordinate> geopos(String key, List<T> members) {
         checkNotNull(key, members);
-        return execute(j -> j.geopos(key, Serializer.serialize(members).toArray(new String[0])));
+        String[] memberStrings = Serializer.serialize(members).toArray(new String[0]);
+        return executeRead("geopos", key, PayloadSize.of(memberStrings), j -> j.geopos(key, memberStrings));
     }
 
     @Override
     public List<GeoRadiusResponse> georadius(String key, double longitude, double latitude, double radius, GeoUnit unit) {
         checkNotNull(key);
-        return execute(j -> j.georadius(key, longitude, latitude, radius, unit));
+        return execute("georadius", key, j -> j.georadius(key, longitude, latitude, radius, unit));
     }
 
     @Override
     public List<GeoRadiusResponse> georadius(String key, double longitude, double latitude, double radius, GeoUnit unit, GeoRadiusParam param) {
         checkNotNull(key);
-        return execute(j -> j.georadius(key, longitude, latitude, radius, unit, param));
+        return execute("georadius", key, j -> j.georadius(key, longitude, latitude, radius, unit, param));
     }
 
     @Override
     public <T> List<GeoRadiusResponse> georadiusByMember(String key, T member, double radius, GeoUnit unit) {
         checkNotNull(key);
-        return execute(j -> j.georadiusByMember(key, Serializer.serialize(member), radius, unit));
+        String memberString = Serializer.serialize(member);
+        return execute("georadiusByMember", key, PayloadSize.of(memberString), j -> j.georadiusByMember(key, memberString, radius, unit));
     }
 
     @Override
     public <T> List<GeoRadiusResponse> georadiusByMember(String key, T member, double radius, GeoUnit unit, GeoRadiusParam param) {
         checkNotNull(key);
-        return execute(j -> j.georadiusByMember(key, Serializer.serialize(member), radius, unit, param));
+        String memberString = Serializer.serialize(member);
+        return execute("georadiusByMember", key, PayloadSize.of(memberString), j -> j.georadiusByMember(key, memberString, radius, unit, param));
     }
 
     @Override
@@ -1064,7 +1190,7 @@ public abstract class JedisExecutor extends AbstractExecutor<Jedis> {
         }
         long[] offsets = BitHashUtil.getBitOffsets(value);
         for (long offset : offsets) {
-            execute(j -> j.setbit(key, offset, true));
+            execute("bloomadd", key, j -> j.setbit(key, offset, true));
         }
         return true;
     }
@@ -1074,7 +1200,7 @@ public abstract class JedisExecutor extends AbstractExecutor<Jedis> {
         checkNotNull(key, value);
         long[] offsets = BitHashUtil.getBitOffsets(value);
         for (long offset : offsets) {
-            Boolean execute = execute(j -> j.getbit(key, offset));
+            Boolean execute = executeRead("bloomcons", key, j -> j.getbit(key, offset));
             if (BooleanUtils.isFalse(execute)) {
                 return false;
             }
@@ -1088,7 +1214,7 @@ public abstract class JedisExecutor extends AbstractExecutor<Jedis> {
         SetParams setParams = SetParams.setParams();
         setParams.nx();
         setParams.px(expireTime);
-        String result = execute(j -> j.set(lockKey, requestId, setParams));
+        String result = execute("getDistributedLock", lockKey, j -> j.set(lockKey, requestId, setParams));
         return "OK".equals(result);
     }
 
@@ -1096,7 +1222,8 @@ public abstract class JedisExecutor extends AbstractExecutor<Jedis> {
     public boolean releaseDistributedLock(String lockKey, String requestId) {
         checkNotNull(lockKey, requestId);
         String script = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
-        Object result = execute(j -> j.eval(script, Collections.singletonList(lockKey), Collections.singletonList(requestId)));
+        Object result = execute("releaseDistributedLock", lockKey, j -> ScriptRegistry.evalsha(script,
+                sha1 -> j.evalsha(sha1, Collections.singletonList(lockKey), Collections.singletonList(requestId)), j::scriptLoad));
         Long success = 1L;
         return success.equals(result);
     }
@@ -1107,8 +1234,9 @@ public abstract class JedisExecutor extends AbstractExecutor<Jedis> {
             checkNotNull(params);
         }
         String[] strings = Serializer.serialize(params).toArray(new String[0]);
-        Object result = execute(j -> j.eval(script, keyCount, strings));
-        return Serializer.deserialize(result, type);
+        checkKeyCount(keyCount, strings.length);
+        return execute("eval", null, PayloadSize.of(strings), j -> ScriptRegistry.evalsha(script, sha1 -> j.evalsha(sha1, keyCount, strings), j::scriptLoad),
+                result -> Serializer.deserialize(result, type));
     }
 
     @Override
@@ -1116,14 +1244,18 @@ public abstract class JedisExecutor extends AbstractExecutor<Jedis> {
         if (keyCount != 0) {
             checkNotNull(params);
         }
-        Object result = execute(j -> j.eval(script, keyCount, Serializer.serialize(params)));
-        return Serializer.deserialize(result, type);
+        String[] strings = Serializer.serialize(params);
+        checkKeyCount(keyCount, strings.length);
+        return execute("eval", null, PayloadSize.of(strings), j -> ScriptRegistry.evalsha(script, sha1 -> j.evalsha(sha1, keyCount, strings), j::scriptLoad),
+                result -> Serializer.deserialize(result, type));
     }
 
     @Override
     public <P, T, R> R eval(String script, List<P> keys, List<T> args, Class<R> type) {
         checkNotNull(keys, args);
-        Object result = execute(j -> j.eval(script, Serializer.serialize(keys), Serializer.serialize(args)));
-        return Serializer.deserialize(result, type);
+        List<String> keyStrings = Serializer.serialize(keys);
+        List<String> argStrings = Serializer.serialize(args);
+        return execute("eval", keys, PayloadSize.of(keyStrings, argStrings), j -> ScriptRegistry.evalsha(script, sha1 -> j.evalsha(sha1, keyStrings, argStrings), j::scriptLoad),
+                result -> Serializer.deserialize(result, type));
     }
 }
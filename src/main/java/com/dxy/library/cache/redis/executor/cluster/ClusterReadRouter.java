@@ -0,0 +1,234 @@
+package com.dxy.library.cache.redis.executor.cluster;
+
+import com.dxy.library.cache.redis.constant.ReadPolicy;
+import com.dxy.library.cache.redis.pool.ReplicaNode;
+import com.dxy.library.cache.redis.pool.ReplicaSelector;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisClusterInfoCache;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 集群模式下读命令的路由，按CLUSTER SLOTS维护每个slot的主节点和从节点，从节点使用READONLY连接
+ * 读主节点（master策略）时不维护从节点，只缓存每个slot的主节点，用于获取主节点列表和分布热点key的副本
+ * @author duanxinyuan
+ * 2020/6/10 10:40
+ */
+@Slf4j
+public class ClusterReadRouter implements Closeable {
+
+    private final RoutableJedisCluster jedisCluster;
+
+    private final ReplicaSelector replicaSelector;
+
+    //创建从节点的READONLY连接池
+    private final Function<HostAndPort, JedisPool> replicaPoolFactory;
+
+    private final ScheduledExecutorService refresher;
+
+    //是否有正在执行的刷新任务
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    //每个slot的可读节点
+    private volatile SlotNodes[] slots = new SlotNodes[JedisCluster.HASHSLOTS];
+
+    //主节点，连接池来自JedisCluster
+    private volatile Map<HostAndPort, ReplicaNode> masters = Collections.emptyMap();
+
+    //从节点，连接池由路由维护
+    private volatile Map<HostAndPort, ReplicaNode> replicas = Collections.emptyMap();
+
+    //slot所在主节点的版本，主节点变化时加1
+    private volatile long epoch;
+
+    public ClusterReadRouter(RoutableJedisCluster jedisCluster, ReplicaSelector replicaSelector,
+                             Function<HostAndPort, JedisPool> replicaPoolFactory, long refreshMillis) {
+        this.jedisCluster = jedisCluster;
+        this.replicaSelector = replicaSelector;
+        this.replicaPoolFactory = replicaPoolFactory;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("redis-cluster-slots-refresh-%d").setDaemon(true).build());
+        refresh();
+        refresher.scheduleWithFixedDelay(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 选择执行读命令的节点，返回null时由JedisCluster在主节点上执行
+     */
+    public ReplicaNode select(String key) {
+        if (replicaSelector.getPolicy() == ReadPolicy.master) {
+            return null;
+        }
+        SlotNodes nodes = slots[JedisClusterCRC16.getSlot(key)];
+        if (nodes == null) {
+            return null;
+        }
+        return replicaSelector.select(replicaSelector.getPolicy() == ReadPolicy.latency ? nodes.all : nodes.replicas);
+    }
+
+    public Collection<ReplicaNode> getReplicas() {
+        return replicas.values();
+    }
+
+    /**
+     * slot所在的主节点，slot信息未加载时返回null
+     */
+    public HostAndPort getMaster(int slot) {
+        SlotNodes nodes = slots[slot];
+        return nodes == null ? null : nodes.master;
+    }
+
+    /**
+     * 所有主节点的连接池，key为 host:port
+     */
+    public Map<String, JedisPool> getMasterPools() {
+        Map<String, JedisPool> masterPools = new LinkedHashMap<>();
+        masters.forEach((hostAndPort, master) -> masterPools.put(JedisClusterInfoCache.getNodeKey(hostAndPort), master.getJedisPool()));
+        return masterPools;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * 异步刷新slot信息，已有刷新任务时忽略
+     */
+    public void refreshAsync() {
+        if (refreshing.compareAndSet(false, true)) {
+            try {
+                refresher.execute(() -> {
+                    try {
+                        refresh();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            } catch (Exception e) {
+                refreshing.set(false);
+            }
+        }
+    }
+
+    /**
+     * 从任意节点获取CLUSTER SLOTS，重建slot到主从节点的映射
+     */
+    public synchronized void refresh() {
+        Map<String, JedisPool> clusterNodes = jedisCluster.getClusterNodes();
+        List<Object> clusterSlots = null;
+        for (Map.Entry<String, JedisPool> entry : clusterNodes.entrySet()) {
+            try (Jedis jedis = entry.getValue().getResource()) {
+                clusterSlots = jedis.clusterSlots();
+                break;
+            } catch (Exception e) {
+                log.warn("redis cluster node {} get slots failed", entry.getKey(), e);
+            }
+        }
+        if (clusterSlots == null) {
+            return;
+        }
+        Map<HostAndPort, ReplicaNode> oldReplicas = new HashMap<>(replicas);
+        Map<HostAndPort, ReplicaNode> newMasters = new HashMap<>();
+        Map<HostAndPort, ReplicaNode> newReplicas = new HashMap<>();
+        SlotNodes[] newSlots = new SlotNodes[JedisCluster.HASHSLOTS];
+        for (Object clusterSlot : clusterSlots) {
+            List<?> slotInfo = (List<?>) clusterSlot;
+            int start = ((Long) slotInfo.get(0)).intValue();
+            int end = ((Long) slotInfo.get(1)).intValue();
+            SlotNodes nodes = new SlotNodes();
+            for (int i = 2; i < slotInfo.size(); i++) {
+                List<?> hostInfo = (List<?>) slotInfo.get(i);
+                HostAndPort hostAndPort = new HostAndPort(SafeEncoder.encode((byte[]) hostInfo.get(0)), ((Long) hostInfo.get(1)).intValue());
+                if (i == 2) {
+                    nodes.master = hostAndPort;
+                    ReplicaNode master = getMaster(hostAndPort, clusterNodes, newMasters);
+                    if (master != null) {
+                        nodes.all.add(master);
+                    }
+                } else if (replicaSelector.getPolicy() != ReadPolicy.master) {
+                    ReplicaNode replica = newReplicas.computeIfAbsent(hostAndPort, hp -> {
+                        ReplicaNode old = oldReplicas.remove(hp);
+                        return old != null ? old : new ReplicaNode(hp, replicaPoolFactory.apply(hp));
+                    });
+                    nodes.all.add(replica);
+                    nodes.replicas.add(replica);
+                }
+            }
+            for (int slot = start; slot <= end; slot++) {
+                newSlots[slot] = nodes;
+            }
+        }
+        if (isMasterChanged(slots, newSlots)) {
+            epoch++;
+        }
+        slots = newSlots;
+        masters = newMasters;
+        replicas = newReplicas;
+        oldReplicas.values().forEach(replica -> {
+            log.info("redis cluster replica {} removed", replica.getHostAndPort());
+            replica.getJedisPool().close();
+        });
+    }
+
+    private ReplicaNode getMaster(HostAndPort hostAndPort, Map<String, JedisPool> clusterNodes, Map<HostAndPort, ReplicaNode> newMasters) {
+        JedisPool jedisPool = clusterNodes.get(JedisClusterInfoCache.getNodeKey(hostAndPort));
+        if (jedisPool == null) {
+            return null;
+        }
+        return newMasters.computeIfAbsent(hostAndPort, hp -> {
+            ReplicaNode old = masters.get(hp);
+            //JedisCluster重建连接池后使用新的连接池
+            return old != null && old.getJedisPool() == jedisPool ? old : new ReplicaNode(hp, jedisPool);
+        });
+    }
+
+    private static boolean isMasterChanged(SlotNodes[] oldSlots, SlotNodes[] newSlots) {
+        for (int slot = 0; slot < newSlots.length; slot++) {
+            HostAndPort oldMaster = oldSlots[slot] == null ? null : oldSlots[slot].master;
+            HostAndPort newMaster = newSlots[slot] == null ? null : newSlots[slot].master;
+            if (!Objects.equals(oldMaster, newMaster)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+        replicas.values().forEach(replica -> replica.getJedisPool().close());
+    }
+
+    private static class SlotNodes {
+
+        private HostAndPort master;
+
+        //主节点和从节点
+        private final List<ReplicaNode> all = new ArrayList<>();
+
+        //从节点
+        private final List<ReplicaNode> replicas = new ArrayList<>();
+
+    }
+
+}
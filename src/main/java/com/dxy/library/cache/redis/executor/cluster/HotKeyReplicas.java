@@ -0,0 +1,348 @@
+package com.dxy.library.cache.redis.executor.cluster;
+
+import com.dxy.library.cache.redis.batch.BatchCommand;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 集群模式的热点key副本，热点key复制到多个带hash tag的副本key（key{#i}），读取时随机选择原key或一个副本
+ * 副本的hash tag按CLUSTER SLOTS选择，每个副本位于不同的主节点（不包括原key所在的主节点），主节点不足时副本数相应减少
+ * 副本key由slot分布确定，slot分布相同的客户端计算出的副本相同，slot分布变化后重新选择并删除原来的副本
+ * 写入原key后同步删除所有副本，之后读取副本未命中时读取原key，并在后台线程使用DUMP/RESTORE重新复制
+ * 复制完成后再次读取原key，数据或过期时间已变化（复制期间有写入）时删除副本，避免旧数据覆盖写入后的删除
+ * 所有写入热点key的客户端都需要注册相同的热点key，否则写入后副本不会被删除
+ * @author duanxinyuan
+ * 2020/6/26 14:20
+ */
+@Slf4j
+public class HotKeyReplicas implements AutoCloseable {
+
+    //选择副本hash tag时最多尝试的tag个数
+    private static final int MAX_TAG_CANDIDATES = 4096;
+
+    private final RoutableJedisCluster jedisCluster;
+
+    //slot所在的主节点
+    private final ClusterReadRouter slotRouter;
+
+    //按节点分组以pipeline执行命令
+    private final Consumer<List<BatchCommand<?>>> pipeliner;
+
+    //热点key及其副本数
+    private final Map<String, Integer> keys = new ConcurrentHashMap<>();
+
+    //热点key当前的副本key
+    private final Map<String, Placement> placements = new ConcurrentHashMap<>();
+
+    //等待复制的key
+    private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService syncExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("redis-hot-key-replica-sync").setDaemon(true).build());
+
+    public HotKeyReplicas(RoutableJedisCluster jedisCluster, ClusterReadRouter slotRouter, Consumer<List<BatchCommand<?>>> pipeliner) {
+        this.jedisCluster = jedisCluster;
+        this.slotRouter = slotRouter;
+        this.pipeliner = pipeliner;
+    }
+
+    /**
+     * 副本key的名称，原key已包含hash tag时hash tag加在前面，否则加在后面
+     */
+    public static String replicaKey(String key, int index) {
+        String tag = "{#" + index + "}";
+        return hasHashTag(key) ? tag + key : key + tag;
+    }
+
+    /**
+     * 注册热点key，并立即复制已有的数据
+     */
+    public void register(String key, int copies) {
+        keys.put(key, Math.max(1, copies));
+        place(key, true);
+        sync(key);
+    }
+
+    /**
+     * 取消注册热点key，并删除所有副本
+     */
+    public void unregister(String key) {
+        keys.remove(key);
+        Placement placement = placements.remove(key);
+        if (placement != null && !placement.replicaKeys.isEmpty()) {
+            delete(placement.replicaKeys);
+        }
+    }
+
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(keys.keySet());
+    }
+
+    public boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+    public boolean contains(String key) {
+        return keys.containsKey(key);
+    }
+
+    /**
+     * 热点key当前的副本key，不是热点key时返回空列表
+     */
+    public List<String> getReplicaKeys(String key) {
+        if (!keys.containsKey(key)) {
+            return Collections.emptyList();
+        }
+        Placement placement = placements.get(key);
+        if (placement != null && placement.epoch == slotRouter.getEpoch()) {
+            return placement.replicaKeys;
+        }
+        return place(key, false);
+    }
+
+    /**
+     * 读取时使用的key，热点key随机返回原key或一个副本
+     */
+    public String readKey(String key) {
+        List<String> replicaKeys = getReplicaKeys(key);
+        if (replicaKeys.isEmpty()) {
+            return key;
+        }
+        int index = ThreadLocalRandom.current().nextInt(replicaKeys.size() + 1);
+        return index == replicaKeys.size() ? key : replicaKeys.get(index);
+    }
+
+    /**
+     * 写入原key后同步删除所有副本，删除失败时抛出异常
+     */
+    public void invalidate(String key) {
+        List<String> replicaKeys = getReplicaKeys(key);
+        if (!replicaKeys.isEmpty()) {
+            delete(replicaKeys);
+        }
+    }
+
+    /**
+     * 读取副本未命中后在后台复制热点key，已在等待复制时不重复提交
+     */
+    public void syncAsync(String key) {
+        if (!keys.containsKey(key) || !pendingKeys.add(key)) {
+            return;
+        }
+        try {
+            syncExecutor.execute(() -> {
+                //先移除，复制期间的未命中会重新提交
+                pendingKeys.remove(key);
+                sync(key);
+            });
+        } catch (Exception e) {
+            pendingKeys.remove(key);
+            log.error("redis hot key replicas sync submit failed, key: {}", key, e);
+        }
+    }
+
+    /**
+     * 将热点key的当前数据和过期时间复制到所有副本，复制失败时只记录日志
+     */
+    public void sync(String key) {
+        List<String> replicaKeys = getReplicaKeys(key);
+        if (replicaKeys.isEmpty()) {
+            return;
+        }
+        try {
+            Snapshot before = snapshot(key);
+            if (before.value == null) {
+                delete(replicaKeys);
+                return;
+            }
+            int ttl = toRestoreTtl(before.pttl);
+            execute(replicaKeys, replicaKey -> pipeline -> pipeline.restoreReplace(replicaKey, ttl, before.value));
+            //复制期间原key被写入时，写入方的删除可能早于本次复制完成，需要再次删除
+            if (!before.isSame(snapshot(key))) {
+                delete(replicaKeys);
+            }
+        } catch (Exception e) {
+            log.error("redis hot key replicas sync failed, key: {}", key, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        syncExecutor.shutdown();
+    }
+
+    /**
+     * 按当前的slot分布选择副本key，slot分布变化或重新注册时删除不再使用的副本
+     * @param reset 是否忽略已选择的副本重新选择
+     */
+    private synchronized List<String> place(String key, boolean reset) {
+        Integer copies = keys.get(key);
+        if (copies == null) {
+            return Collections.emptyList();
+        }
+        long epoch = slotRouter.getEpoch();
+        Placement old = placements.get(key);
+        if (!reset && old != null && old.epoch == epoch) {
+            return old.replicaKeys;
+        }
+        List<String> replicaKeys = selectReplicaKeys(key, copies);
+        placements.put(key, new Placement(epoch, replicaKeys));
+        if (old != null) {
+            List<String> unused = old.replicaKeys.stream().filter(replicaKey -> !replicaKeys.contains(replicaKey)).collect(Collectors.toList());
+            if (!unused.isEmpty()) {
+                try {
+                    delete(unused);
+                } catch (Exception e) {
+                    log.error("redis hot key unused replicas delete failed, key: {}", key, e);
+                }
+            }
+        }
+        return replicaKeys;
+    }
+
+    /**
+     * 依次尝试hash tag，选择落在不同主节点上的副本key，slot信息未加载时没有副本
+     */
+    private List<String> selectReplicaKeys(String key, int copies) {
+        Set<HostAndPort> masters = new HashSet<>();
+        HostAndPort keyMaster = slotRouter.getMaster(JedisClusterCRC16.getSlot(key));
+        if (keyMaster == null) {
+            return Collections.emptyList();
+        }
+        masters.add(keyMaster);
+        List<String> replicaKeys = new ArrayList<>(copies);
+        for (int i = 0; i < MAX_TAG_CANDIDATES && replicaKeys.size() < copies; i++) {
+            String replicaKey = replicaKey(key, i);
+            HostAndPort master = slotRouter.getMaster(JedisClusterCRC16.getSlot(replicaKey));
+            if (master != null && masters.add(master)) {
+                replicaKeys.add(replicaKey);
+            }
+        }
+        return Collections.unmodifiableList(replicaKeys);
+    }
+
+    private Snapshot snapshot(String key) {
+        long startTime = System.currentTimeMillis();
+        return jedisCluster.run(key, j -> {
+            Pipeline pipeline = j.pipelined();
+            Response<byte[]> dump = pipeline.dump(key);
+            Response<Long> pttl = pipeline.pttl(key);
+            pipeline.sync();
+            return new Snapshot(dump.get(), pttl.get(), startTime, System.currentTimeMillis());
+        });
+    }
+
+    private void delete(List<String> replicaKeys) {
+        execute(replicaKeys, replicaKey -> pipeline -> pipeline.del(replicaKey));
+    }
+
+    /**
+     * 在副本key所在的节点上以pipeline执行命令，任一命令失败时抛出异常
+     */
+    private <R> void execute(List<String> replicaKeys, Function<String, Function<Pipeline, Response<R>>> command) {
+        List<BatchCommand<R>> commands = new ArrayList<>(replicaKeys.size());
+        replicaKeys.forEach(replicaKey -> commands.add(new BatchCommand<>(replicaKey, command.apply(replicaKey), Function.identity())));
+        pipeliner.accept(new ArrayList<>(commands));
+        for (BatchCommand<R> batchCommand : commands) {
+            try {
+                batchCommand.getFuture().join();
+            } catch (CompletionException e) {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 转换为RESTORE的过期毫秒数，0表示不过期
+     */
+    private static int toRestoreTtl(Long pttl) {
+        return pttl == null || pttl <= 0 ? 0 : (int) Math.min(pttl, Integer.MAX_VALUE);
+    }
+
+    private static boolean hasHashTag(String key) {
+        int start = key.indexOf('{');
+        if (start < 0) {
+            return false;
+        }
+        int end = key.indexOf('}', start + 1);
+        return end > start + 1;
+    }
+
+    /**
+     * 热点key在某个slot分布版本下的副本key
+     */
+    private static class Placement {
+
+        private final long epoch;
+
+        private final List<String> replicaKeys;
+
+        private Placement(long epoch, List<String> replicaKeys) {
+            this.epoch = epoch;
+            this.replicaKeys = replicaKeys;
+        }
+
+    }
+
+    /**
+     * 原key的DUMP数据和过期时间
+     */
+    private static class Snapshot {
+
+        private final byte[] value;
+
+        private final Long pttl;
+
+        //读取的开始和结束时间，用于换算过期的时间点
+        private final long startTime;
+
+        private final long endTime;
+
+        private Snapshot(byte[] value, Long pttl, long startTime, long endTime) {
+            this.value = value;
+            this.pttl = pttl;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        /**
+         * 数据相同，且过期的时间点在两次读取的误差范围内相同
+         */
+        private boolean isSame(Snapshot other) {
+            if (!Arrays.equals(value, other.value)) {
+                return false;
+            }
+            long pttl1 = pttl == null ? -1 : pttl;
+            long pttl2 = other.pttl == null ? -1 : other.pttl;
+            if (pttl1 < 0 || pttl2 < 0) {
+                return pttl1 == pttl2;
+            }
+            //过期时间点分别在 [startTime + pttl, endTime + pttl] 内，两个范围有重叠时视为相同
+            return startTime + pttl1 <= other.endTime + pttl2 + 1 && other.startTime + pttl2 <= endTime + pttl1 + 1;
+        }
+
+    }
+
+}
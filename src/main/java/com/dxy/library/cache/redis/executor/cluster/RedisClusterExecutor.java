@@ -2,26 +2,49 @@ package com.dxy.library.cache.redis.executor.cluster;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.RateLimiter;
+import com.dxy.library.cache.redis.batch.BatchCommand;
+import com.dxy.library.cache.redis.constant.HealthCheckStrategy;
+import com.dxy.library.cache.redis.constant.ReadPolicy;
 import com.dxy.library.cache.redis.exception.RedisCacheException;
-import com.dxy.library.cache.redis.exception.UnsupportedCommandException;
 import com.dxy.library.cache.redis.executor.AbstractExecutor;
 import com.dxy.library.cache.redis.inter.RedisConsumer;
 import com.dxy.library.cache.redis.inter.RedisFunction;
+import com.dxy.library.cache.redis.metrics.CacheMetrics;
+import com.dxy.library.cache.redis.metrics.CommandMetrics;
+import com.dxy.library.cache.redis.metrics.PayloadSize;
+import com.dxy.library.cache.redis.pool.ReplicaNode;
+import com.dxy.library.cache.redis.pool.ReplicaSelector;
 import com.dxy.library.cache.redis.properties.RedisProperties;
 import com.dxy.library.cache.redis.util.BitHashUtil;
+import com.dxy.library.cache.redis.util.BitOpEmulator;
+import com.dxy.library.cache.redis.util.ScriptRegistry;
 import com.dxy.library.cache.redis.util.Serializer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import redis.clients.jedis.*;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
 import redis.clients.jedis.params.GeoRadiusParam;
 import redis.clients.jedis.params.SetParams;
 import redis.clients.jedis.params.ZAddParams;
 import redis.clients.jedis.params.ZIncrByParams;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.Pool;
+import redis.clients.jedis.util.SafeEncoder;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -32,7 +55,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
 
-    private JedisCluster jedisCluster;
+    private RoutableJedisCluster jedisCluster;
+
+    //读命令的路由，同时缓存每个slot的主节点
+    private ClusterReadRouter readRouter;
+
+    //已预加载到所有节点的脚本SHA1
+    private Set<String> loadedScripts;
+
+    //热点key副本
+    private HotKeyReplicas hotKeyReplicas;
 
     public RedisClusterExecutor(RedisProperties redisProperties) {
         super(redisProperties);
@@ -41,6 +73,8 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
     @Override
     public void init(RedisProperties redisProperties) {
         JedisPoolConfig config = initJedisPoolConfig(redisProperties);
+        //集群节点的连接池由JedisCluster创建，无法替换连接工厂，只有borrow策略在获取连接时校验，连接异常由JedisCluster重试
+        config.setTestOnBorrow(getHealthChecker().getStrategy() == HealthCheckStrategy.borrow);
         if (redisProperties.getNodes() == null || redisProperties.getNodes().isEmpty()) {
             log.error("redis cluster init failed, nodes not configured");
             return;
@@ -51,97 +85,429 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
             int port = strings.length > 1 ? NumberUtils.toInt(strings[1].trim(), 6379) : 6379;
             hostSet.add(new HostAndPort(strings[0], port));
         }
-        int connectionTimeout = redisProperties.getTimeoutMillis();
-        int soTimeout = redisProperties.getTimeoutMillis();
-        //重试次数，默认5次
-        int maxAttempts = 5;
-        if (StringUtils.isEmpty(redisProperties.getPassword())) {
-            jedisCluster = new JedisCluster(hostSet, connectionTimeout, soTimeout, maxAttempts, config);
-        } else {
-            jedisCluster = new JedisCluster(hostSet, connectionTimeout, soTimeout, maxAttempts, redisProperties.getPassword(), config);
+        int connectionTimeout = redisProperties.getConnectionTimeoutMillis();
+        int soTimeout = redisProperties.getSoTimeoutMillis();
+        int maxAttempts = redisProperties.getMaxAttempts();
+        String password = StringUtils.defaultIfEmpty(redisProperties.getPassword(), null);
+        jedisCluster = new RoutableJedisCluster(hostSet, connectionTimeout, soTimeout, maxAttempts, password, config);
+        loadedScripts = ConcurrentHashMap.newKeySet();
+
+        if (readRouter != null) {
+            readRouter.close();
+        }
+        ReplicaSelector replicaSelector = new ReplicaSelector(ReadPolicy.getPolicy(redisProperties.getReadPolicy()));
+        readRouter = new ClusterReadRouter(jedisCluster, replicaSelector, hostAndPort -> createJedisPool(config, hostAndPort, 0, true),
+                redisProperties.getReplicaRefreshMillis());
+
+        if (hotKeyReplicas != null) {
+            hotKeyReplicas.close();
+        }
+        hotKeyReplicas = new HotKeyReplicas(jedisCluster, readRouter, this::pipelined);
+        if (redisProperties.getHotKeyReplicaKeys() != null) {
+            redisProperties.getHotKeyReplicaKeys().forEach(key -> hotKeyReplicas.register(key.trim(), redisProperties.getHotKeyReplicaCount()));
+        }
+    }
+
+    @Override
+    protected CompletableFuture<Void> warmUpPool(int count, Executor executor) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        getMasterNodes().values().forEach(jedisPool -> futures.add(addObjects(jedisPool, count, executor)));
+        if (readRouter != null) {
+            readRouter.getReplicas().forEach(replica -> futures.add(addObjects(replica.getJedisPool(), count, executor)));
         }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
     }
 
     @Override
     public void executeVoid(RedisConsumer<JedisCluster> consumer) {
+        execute(cluster -> {
+            consumer.accept(cluster);
+            return null;
+        }, getMetrics().command(CacheMetrics.CUSTOM_COMMAND), null);
+    }
+
+    @Override
+    public <T> T execute(RedisFunction<JedisCluster, T> function) {
+        return execute(function, getMetrics().command(CacheMetrics.CUSTOM_COMMAND), null);
+    }
+
+    /**
+     * 执行命令，命令名称和key用于监控统计
+     * @param command 命令名称，为ICommands的方法名
+     * @param keys 命令的key（字符串、字符串数组或集合），没有key时为null
+     */
+    private <T> T execute(String command, Object keys, RedisFunction<JedisCluster, T> function) {
+        return execute(function, Function.identity(), getMetrics().command(command), keys);
+    }
+
+    /**
+     * 执行命令，参数已在调用前序列化
+     * @param requestBytes 序列化后的参数数据量
+     */
+    private <T> T execute(String command, Object keys, long requestBytes, RedisFunction<JedisCluster, T> function) {
+        return execute(function, Function.identity(), getMetrics().command(command, requestBytes), keys);
+    }
+
+    /**
+     * 执行命令，返回值在命令返回后反序列化
+     */
+    private <S, T> T execute(String command, Object keys, RedisFunction<JedisCluster, S> function, Function<S, T> decoder) {
+        return execute(function, decoder, getMetrics().command(command), keys);
+    }
+
+    private <T> T execute(RedisFunction<JedisCluster, T> function, CommandMetrics commandMetrics, Object keys) {
+        return execute(function, Function.identity(), commandMetrics, keys);
+    }
+
+    /**
+     * 执行命令并记录耗时，集群的连接由JedisCluster管理，不记录获取连接的等待时间
+     * @param decoder 命令返回后处理返回值（如反序列化），耗时计入本次命令
+     */
+    private <S, T> T execute(RedisFunction<JedisCluster, S> function, Function<S, T> decoder, CommandMetrics commandMetrics, Object keys) {
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        S response = null;
         try {
-            consumer.accept(jedisCluster);
+            response = function.apply(jedisCluster);
+            T result = decoder.apply(response);
+            success = true;
+            return result;
+        } catch (RedisCacheException e) {
+            throw e;
         } catch (Exception e) {
-            throw new RedisCacheException(e);
+            throw wrapException(e);
         } finally {
             //jedisCluster无需close
+            getMetrics().record(commandMetrics, keys, startNanos, startNanos, success, response);
+        }
+    }
+
+    /**
+     * 执行单个key的只读命令，开启从节点读取时路由到key所在slot的从节点（READONLY连接），否则在主节点上执行
+     */
+    public <T> T executeRead(String key, RedisFunction<Jedis, T> function) {
+        return executeRead(CacheMetrics.CUSTOM_COMMAND, key, function);
+    }
+
+    /**
+     * 执行单个key的只读命令，hscan/sscan/zscan的游标只在返回它的节点上有效，不使用该方法
+     * @param command 命令名称，为ICommands的方法名
+     */
+    private <T> T executeRead(String command, String key, RedisFunction<Jedis, T> function) {
+        return executeRead(command, key, 0, function, Function.identity());
+    }
+
+    private <T> T executeRead(String command, String key, long requestBytes, RedisFunction<Jedis, T> function) {
+        return executeRead(command, key, requestBytes, function, Function.identity());
+    }
+
+    private <S, T> T executeRead(String command, String key, RedisFunction<Jedis, S> function, Function<S, T> decoder) {
+        return executeRead(command, key, 0, function, decoder);
+    }
+
+    /**
+     * 执行单个key的只读命令，参数在调用前序列化，返回值在归还连接后由decoder反序列化
+     * @param requestBytes 序列化后的参数数据量
+     */
+    private <S, T> T executeRead(String command, String key, long requestBytes, RedisFunction<Jedis, S> function, Function<S, T> decoder) {
+        CommandMetrics commandMetrics = getMetrics().command(command, requestBytes);
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        S response = null;
+        try {
+            response = route(key, function);
+            T result = decoder.apply(response);
+            success = true;
+            return result;
+        } catch (RedisCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw wrapException(e);
+        } finally {
+            getMetrics().record(commandMetrics, key, startNanos, startNanos, success, response);
+        }
+    }
+
+    /**
+     * 注册热点key，复制到多个位于不同主节点的副本，读取时分散到副本所在的节点，副本数使用cache.redis.hotkey.replica.count配置
+     * 只支持string和hash类型，写入后同步删除副本，由之后的读取重新复制，所有写入该key的客户端都需要注册
+     */
+    public void registerHotKey(String key) {
+        registerHotKey(key, getRedisProperties().getHotKeyReplicaCount());
+    }
+
+    public void registerHotKey(String key, int copies) {
+        checkNotNull(key);
+        hotKeyReplicas.register(key, copies);
+    }
+
+    /**
+     * 取消注册热点key，并删除所有副本
+     */
+    public void unregisterHotKey(String key) {
+        checkNotNull(key);
+        hotKeyReplicas.unregister(key);
+    }
+
+    public Set<String> getHotKeys() {
+        return hotKeyReplicas.getKeys();
+    }
+
+    /**
+     * 读取key，热点key随机读取原key或一个副本，副本不存在（如被淘汰）时返回null，此时读取原key
+     */
+    private <T> T readHotKey(String key, Function<String, T> read) {
+        return readHotKey(key, read, Objects::isNull);
+    }
+
+    /**
+     * 读取key，热点key随机读取原key或一个副本，副本的读取结果满足miss（key不存在时命令的返回值）时读取原key
+     */
+    private <T> T readHotKey(String key, Function<String, T> read, Predicate<T> miss) {
+        String readKey = hotKeyReplicas.readKey(key);
+        if (readKey.equals(key)) {
+            return read.apply(key);
+        }
+        T value = read.apply(readKey);
+        if (!miss.test(value)) {
+            return value;
         }
+        //副本已在写入后删除，读取原key并在后台重新复制
+        value = read.apply(key);
+        if (!miss.test(value)) {
+            hotKeyReplicas.syncAsync(key);
+        }
+        return value;
+    }
+
+    /**
+     * hmget的所有字段都不存在，key不存在时返回的也是全部为null的列表
+     */
+    private static <T> boolean isAllNull(List<T> values) {
+        return values.stream().allMatch(Objects::isNull);
+    }
+
+    /**
+     * 写入key后同步删除热点key的副本，写入返回后不会再读到副本中的旧数据
+     */
+    private <T> T invalidateHotKey(String key, T result) {
+        return invalidateHotKeys(Collections.singletonList(key), result);
+    }
+
+    private <T> T invalidateHotKeys(Collection<String> keys, T result) {
+        if (hotKeyReplicas.isEmpty()) {
+            return result;
+        }
+        try {
+            keys.stream().filter(hotKeyReplicas::contains).distinct().forEach(hotKeyReplicas::invalidate);
+        } catch (RedisCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw wrapException(e);
+        }
+        return result;
     }
 
+    /**
+     * 关闭热点key副本的复制线程、从节点的连接池和集群的连接池
+     */
     @Override
-    public <T> T execute(RedisFunction<JedisCluster, T> function) {
+    public void close() {
+        if (hotKeyReplicas != null) {
+            hotKeyReplicas.close();
+        }
+        if (readRouter != null) {
+            readRouter.close();
+        }
+        if (jedisCluster != null) {
+            jedisCluster.close();
+        }
+        super.close();
+    }
+
+    @Override
+    public String getNode(String key) {
+        try (Jedis jedis = jedisCluster.getConnectionFromSlot(JedisClusterCRC16.getSlot(key))) {
+            return jedis.getClient().getHost() + ":" + jedis.getClient().getPort();
+        }
+    }
+
+    private <T> T route(String key, RedisFunction<Jedis, T> function) {
+        ReplicaNode node = readRouter != null ? readRouter.select(key) : null;
+        if (node != null) {
+            try {
+                return node.execute(function);
+            } catch (JedisRedirectionException e) {
+                //slot已迁移，刷新slot信息，本次由主节点执行
+                readRouter.refreshAsync();
+            } catch (Exception e) {
+                if (!isReadFallback(e)) {
+                    throw wrapException(e);
+                }
+                log.warn("redis cluster node {} read failed, fallback to master", node.getHostAndPort(), e);
+            }
+        }
         try {
-            return function.apply(jedisCluster);
+            return jedisCluster.run(key, function);
+        } catch (RedisCacheException e) {
+            throw e;
         } catch (Exception e) {
-            throw new RedisCacheException(e);
+            throw wrapException(e);
+        }
+    }
+
+    @Override
+    public void executeBatch(List<BatchCommand<?>> commands) {
+        CommandMetrics commandMetrics = getMetrics().command("executeBatch");
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        try {
+            pipelined(commands);
+            success = true;
         } finally {
-            //jedisCluster无需close
+            getMetrics().record(commandMetrics, null, startNanos, startNanos, success, null);
+        }
+        //无法区分批量命令的读写，执行后删除其中热点key的副本
+        invalidateHotKeys(commands.stream().map(BatchCommand::getKey).collect(Collectors.toList()), null);
+    }
+
+    private void pipelined(List<BatchCommand<?>> commands) {
+        //同一个节点的多个slot共用一个连接
+        Map<String, Jedis> connections = new HashMap<>();
+        Map<Jedis, List<BatchCommand<?>>> groups = new LinkedHashMap<>();
+        List<BatchCommand<?>> redirected;
+        try {
+            Map<Integer, List<BatchCommand<?>>> slots = commands.stream().collect(Collectors.groupingBy(command -> JedisClusterCRC16.getSlot(command.getKey())));
+            for (Map.Entry<Integer, List<BatchCommand<?>>> entry : slots.entrySet()) {
+                Jedis jedis = jedisCluster.getConnectionFromSlot(entry.getKey());
+                String node = jedis.getClient().getHost() + ":" + jedis.getClient().getPort();
+                Jedis connection = connections.putIfAbsent(node, jedis);
+                if (connection != null) {
+                    jedis.close();
+                } else {
+                    connection = jedis;
+                }
+                groups.computeIfAbsent(connection, c -> new ArrayList<>()).addAll(entry.getValue());
+            }
+            redirected = BatchCommand.pipelined(groups);
+        } catch (Exception e) {
+            throw wrapException(e);
+        } finally {
+            connections.values().forEach(Jedis::close);
+        }
+        //slot已迁移的命令逐个重新路由执行
+        redirected.forEach(this::redirect);
+    }
+
+    /**
+     * 按key重新路由并单独执行命令
+     */
+    private <T> void redirect(BatchCommand<T> command) {
+        try {
+            command.complete(jedisCluster.run(command.getKey(), command::execute));
+        } catch (Exception e) {
+            command.fail(e);
+        }
+    }
+
+    /**
+     * 获取集群所有主节点的连接池，key为 host:port
+     * 优先使用slot缓存中的主节点，slot信息未加载时向所有节点查询角色
+     */
+    public Map<String, JedisPool> getMasterNodes() {
+        if (readRouter != null) {
+            Map<String, JedisPool> masterPools = readRouter.getMasterPools();
+            if (!masterPools.isEmpty()) {
+                return masterPools;
+            }
+        }
+        Map<String, JedisPool> masterNodes = Maps.newHashMap();
+        jedisCluster.getClusterNodes().forEach((node, jedisPool) -> {
+            try (Jedis jedis = jedisPool.getResource()) {
+                if (jedis.info("replication").contains("role:master")) {
+                    masterNodes.put(node, jedisPool);
+                }
+            } catch (Exception e) {
+                log.error("redis cluster node {} role check failed", node, e);
+            }
+        });
+        return masterNodes;
+    }
+
+    /**
+     * 集群所有节点（包括从节点）的连接池，开启从节点读取时还包括以READONLY模式连接的连接池，key为 host:port(readonly)
+     */
+    @Override
+    public Map<String, Pool<?>> getPools() {
+        Map<String, Pool<?>> pools = new LinkedHashMap<>();
+        if (jedisCluster == null) {
+            return pools;
+        }
+        pools.putAll(jedisCluster.getClusterNodes());
+        if (readRouter != null) {
+            readRouter.getReplicas().forEach(replica -> pools.put(replica.getHostAndPort() + "(readonly)", replica.getJedisPool()));
         }
+        return pools;
     }
 
     @Override
     public Set<String> keys(String pattern) {
         checkNotNull(pattern);
-        return execute(j -> j.keys(pattern));
+        return execute("keys", null, j -> j.keys(pattern));
     }
 
     @Override
     public ScanResult<String> scan(String cursor, ScanParams params) {
         checkNotNull(cursor, params);
-        return execute(j -> j.scan(cursor, params));
+        return execute("scan", null, j -> j.scan(cursor, params));
     }
 
     @Override
     public String type(String key) {
         checkNotNull(key);
-        return execute(j -> j.type(key));
+        return readHotKey(key, readKey -> executeRead("type", readKey, j -> j.type(readKey)), "none"::equals);
     }
 
     @Override
     public Long ttl(String key) {
         checkNotNull(key);
-        return execute(j -> j.ttl(key));
+        return readHotKey(key, readKey -> executeRead("ttl", readKey, j -> j.ttl(readKey)), ttl -> ttl == null || ttl == -2);
     }
 
     @Override
     public Long pttl(String key) {
         checkNotNull(key);
-        return execute(j -> j.pttl(key));
+        return readHotKey(key, readKey -> executeRead("pttl", readKey, j -> j.pttl(readKey)), pttl -> pttl == null || pttl == -2);
     }
 
     @Override
     public Long expire(String key, int seconds) {
         checkNotNull(key);
-        return execute(j -> j.expire(key, seconds));
+        return invalidateHotKey(key, execute("expire", key, j -> j.expire(key, seconds)));
     }
 
     @Override
     public Long expireAt(String key, long unixTime) {
         checkNotNull(key);
-        return execute(j -> j.expireAt(key, unixTime));
+        return invalidateHotKey(key, execute("expireAt", key, j -> j.expireAt(key, unixTime)));
     }
 
     @Override
     public Long persist(String key) {
         checkNotNull(key);
-        return execute(j -> j.persist(key));
+        return invalidateHotKey(key, execute("persist", key, j -> j.persist(key)));
     }
 
     @Override
     public boolean exists(String key) {
         checkNotNull(key);
-        return execute(j -> BooleanUtils.toBoolean(j.exists(key)));
+        return readHotKey(key, readKey -> executeRead("exists", readKey, j -> BooleanUtils.toBoolean(j.exists(readKey))), exists -> !exists);
     }
 
     @Override
     public Long del(String key) {
         checkNotNull(key);
-        return execute(j -> j.del(key));
+        return invalidateHotKey(key, execute("del", key, j -> j.del(key)));
     }
 
     @Override
@@ -153,9 +519,9 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
     @Override
     public Long del(List<String> keys) {
         checkNotNull(keys);
-        return execute(j -> {
+        return execute("del", keys, j -> {
             List<Long> result = Lists.newArrayList();
-            keys.forEach(key -> result.add(jedisCluster.del(key)));
+            keys.forEach(key -> result.add(invalidateHotKey(key, jedisCluster.del(key))));
             return result.stream().mapToLong(l -> NumberUtils.toLong(String.valueOf(l))).sum();
         });
     }
@@ -163,62 +529,89 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
     @Override
     public Long unlink(String key) {
         checkNotNull(key);
-        return execute(j -> j.unlink(key));
+        return invalidateHotKey(key, execute("unlink", key, j -> j.unlink(key)));
+    }
+
+    @Override
+    public Long deleteByPattern(String pattern, int batchSize, int maxOpsPerSecond, LongConsumer progress) {
+        checkNotNull(pattern, progress);
+        checkBatchSize(batchSize);
+        RateLimiter rateLimiter = createRateLimiter(maxOpsPerSecond);
+        AtomicLong deleted = new AtomicLong();
+        Long count = execute("deleteByPattern", null, j -> {
+            long sum = 0;
+            for (JedisPool jedisPool : getMasterNodes().values()) {
+                try (Jedis jedis = jedisPool.getResource()) {
+                    sum += unlinkByPattern(jedis, pattern, batchSize, rateLimiter, true, deleted, progress);
+                }
+            }
+            return sum;
+        });
+        //热点key很少，不按pattern匹配，删除所有热点key的副本
+        return invalidateHotKeys(hotKeyReplicas.getKeys(), count);
     }
 
     @Override
     public String rename(String oldkey, String newkey) {
         checkNotNull(oldkey, oldkey);
-        return execute(j -> j.rename(oldkey, newkey));
+        return invalidateHotKeys(Arrays.asList(oldkey, newkey), execute("rename", oldkey, j -> j.rename(oldkey, newkey)));
     }
 
     @Override
     public Long renamenx(String oldkey, String newkey) {
         checkNotNull(oldkey, oldkey);
-        return execute(j -> j.renamenx(oldkey, newkey));
+        return invalidateHotKeys(Arrays.asList(oldkey, newkey), execute("renamenx", oldkey, j -> j.renamenx(oldkey, newkey)));
     }
 
     @Override
     public <T> String set(String key, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.set(key, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return invalidateHotKey(key, execute("set", key, PayloadSize.of(valueString), j -> j.set(key, valueString)));
     }
 
     @Override
     public <T> String set(String key, T value, SetParams setParams) {
         checkNotNull(key, value, setParams);
-        return execute(j -> j.set(key, Serializer.serialize(value), setParams));
+        String valueString = Serializer.serialize(value);
+        return invalidateHotKey(key, execute("set", key, PayloadSize.of(valueString), j -> j.set(key, valueString, setParams)));
     }
 
     @Override
     public <T> Long setnx(String key, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.setnx(key, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return invalidateHotKey(key, execute("setnx", key, PayloadSize.of(valueString), j -> j.setnx(key, valueString)));
     }
 
     @Override
     public <T> String setex(String key, int seconds, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.setex(key, seconds, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return invalidateHotKey(key, execute("setex", key, PayloadSize.of(valueString), j -> j.setex(key, seconds, valueString)));
     }
 
     @Override
     public <T> String setex(String key, long time, TimeUnit timeUnit, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.psetex(key, timeUnit.toMillis(time), Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return invalidateHotKey(key, execute("setex", key, PayloadSize.of(valueString), j -> j.psetex(key, timeUnit.toMillis(time), valueString)));
     }
 
     @Override
     public <T> String psetex(String key, long milliseconds, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.psetex(key, milliseconds, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return invalidateHotKey(key, execute("psetex", key, PayloadSize.of(valueString), j -> j.psetex(key, milliseconds, valueString)));
     }
 
     @Override
     public <T> String mset(Map<String, T> map) {
         checkNotNull(map);
-        return execute(j -> {
-            map.forEach((key, value) -> j.set(key, Serializer.serialize(value)));
+        Map<String, String> valueMap = new LinkedHashMap<>(map.size());
+        map.forEach((key, value) -> valueMap.put(key, Serializer.serialize(value)));
+        return execute("mset", map.keySet(), PayloadSize.of(valueMap), j -> {
+            valueMap.forEach((key, value) -> invalidateHotKey(key, j.set(key, value)));
             return "OK";
         });
     }
@@ -226,12 +619,12 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
     @Override
     public String get(String key) {
         checkNotNull(key);
-        return execute(j -> j.get(key));
+        return readHotKey(key, readKey -> executeRead("get", readKey, j -> j.get(readKey)));
     }
 
     @Override
     public <T> T get(String key, Class<T> type) {
-        return execute(j -> Serializer.deserialize(j.get(key), type));
+        return readHotKey(key, readKey -> executeRead("get", readKey, j -> j.get(readKey), value -> Serializer.deserialize(value, type)));
     }
 
     @Override
@@ -249,55 +642,57 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
     @Override
     public <T> List<T> mget(List<String> keys, Class<T> type) {
         checkNotNull(keys);
-        return execute(j -> Serializer.deserialize(keys.stream().map(j::get).collect(Collectors.toList()), type));
+        return execute("mget", keys, j -> keys.stream().map(j::get).collect(Collectors.toList()), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Long incr(String key) {
         checkNotNull(key);
-        return execute(j -> j.incr(key));
+        return invalidateHotKey(key, execute("incr", key, j -> j.incr(key)));
     }
 
     @Override
     public Long incrBy(String key, long increment) {
         checkNotNull(key);
-        return execute(j -> j.incrBy(key, increment));
+        return invalidateHotKey(key, execute("incrBy", key, j -> j.incrBy(key, increment)));
     }
 
     @Override
     public Double incrByFloat(String key, double increment) {
         checkNotNull(key);
-        return execute(j -> j.incrByFloat(key, increment));
+        return invalidateHotKey(key, execute("incrByFloat", key, j -> j.incrByFloat(key, increment)));
     }
 
     @Override
     public Long decr(String key) {
         checkNotNull(key);
-        return execute(j -> j.decr(key));
+        return invalidateHotKey(key, execute("decr", key, j -> j.decr(key)));
     }
 
     @Override
     public Long decrBy(String key, long decrement) {
         checkNotNull(key);
-        return execute(j -> j.decrBy(key, decrement));
+        return invalidateHotKey(key, execute("decrBy", key, j -> j.decrBy(key, decrement)));
     }
 
     @Override
     public Long append(String key, String value) {
         checkNotNull(key, value);
-        return execute(j -> j.append(key, value));
+        return invalidateHotKey(key, execute("append", key, j -> j.append(key, value)));
     }
 
     @Override
     public Long strlen(String key) {
         checkNotNull(key);
-        return execute(j -> j.strlen(key));
+        return readHotKey(key, readKey -> executeRead("strlen", readKey, j -> j.strlen(readKey)), length -> length == null || length == 0);
     }
 
     @Override
     public <P, T> Long hset(String key, P field, T value) {
         checkNotNull(key, field, value);
-        return execute(j -> j.hset(key, Serializer.serialize(field), Serializer.serialize(value)));
+        String fieldString = Serializer.serialize(field);
+        String valueString = Serializer.serialize(value);
+        return invalidateHotKey(key, execute("hset", key, PayloadSize.of(fieldString, valueString), j -> j.hset(key, fieldString, valueString)));
     }
 
     @Override
@@ -305,106 +700,114 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
         checkNotNull(key, hash);
         Map<String, String> valueMap = Maps.newHashMap();
         hash.forEach((field, value) -> valueMap.put(Serializer.serialize(field), Serializer.serialize(value)));
-        return execute(j -> j.hmset(key, valueMap));
+        return invalidateHotKey(key, execute("hmset", key, PayloadSize.of(valueMap), j -> j.hmset(key, valueMap)));
     }
 
     @Override
     public <P, T> Long hsetnx(String key, P field, T value) {
         checkNotNull(key, field, value);
-        return execute(j -> j.hsetnx(key, Serializer.serialize(field), Serializer.serialize(value)));
+        String fieldString = Serializer.serialize(field);
+        String valueString = Serializer.serialize(value);
+        return invalidateHotKey(key, execute("hsetnx", key, PayloadSize.of(fieldString, valueString), j -> j.hsetnx(key, fieldString, valueString)));
     }
 
     @Override
     public <P> String hget(String key, P field) {
         checkNotNull(key, field);
-        return execute(j -> j.hget(key, Serializer.serialize(field)));
+        String fieldString = Serializer.serialize(field);
+        return readHotKey(key, readKey -> executeRead("hget", readKey, PayloadSize.of(fieldString), j -> j.hget(readKey, fieldString)));
     }
 
     @Override
     public <P, T> T hget(String key, P field, Class<T> type) {
         checkNotNull(key, field);
-        return execute(j -> Serializer.deserialize(j.hget(key, Serializer.serialize(field)), type));
+        String fieldString = Serializer.serialize(field);
+        return readHotKey(key, readKey -> executeRead("hget", readKey, PayloadSize.of(fieldString), j -> j.hget(readKey, fieldString), value -> Serializer.deserialize(value, type)));
     }
 
     @Override
     public <P> List<String> hmget(String key, P... fields) {
         checkNotNull(key, fields);
-        return execute(j -> j.hmget(key, Serializer.serialize(fields)));
+        String[] fieldStrings = Serializer.serialize(fields);
+        return readHotKey(key, readKey -> executeRead("hmget", readKey, PayloadSize.of(fieldStrings), j -> j.hmget(readKey, fieldStrings)), RedisClusterExecutor::isAllNull);
     }
 
     @Override
     public <P> List<String> hmget(String key, List<P> fields) {
         checkNotNull(key, fields);
-        return execute(j -> j.hmget(key, Serializer.serialize(fields).toArray(new String[0])));
+        String[] fieldStrings = Serializer.serialize(fields).toArray(new String[0]);
+        return readHotKey(key, readKey -> executeRead("hmget", readKey, PayloadSize.of(fieldStrings), j -> j.hmget(readKey, fieldStrings)), RedisClusterExecutor::isAllNull);
     }
 
     @Override
     public <P, T> List<T> hmget(String key, List<P> fields, Class<T> type) {
         checkNotNull(key, fields);
-        return execute(j -> {
-            List<String> hmget = j.hmget(key, Serializer.serialize(fields).toArray(new String[0]));
+        String[] fieldStrings = Serializer.serialize(fields).toArray(new String[0]);
+        return readHotKey(key, readKey -> executeRead("hmget", readKey, PayloadSize.of(fieldStrings), j -> j.hmget(readKey, fieldStrings), hmget -> {
             List<T> ts = new ArrayList<>(hmget.size());
             hmget.forEach(s -> ts.add(Serializer.deserialize(s, type)));
             return ts;
-        });
+        }), RedisClusterExecutor::isAllNull);
     }
 
     @Override
     public <P> Long hincrBy(String key, P field, long value) {
         checkNotNull(key, field);
-        return execute(j -> j.hincrBy(key, Serializer.serialize(field), value));
+        String fieldString = Serializer.serialize(field);
+        return invalidateHotKey(key, execute("hincrBy", key, PayloadSize.of(fieldString), j -> j.hincrBy(key, fieldString, value)));
     }
 
     @Override
     public <P> Double hincrByFloat(String key, P field, double value) {
         checkNotNull(key, field);
-        return execute(j -> j.hincrByFloat(key.getBytes(), Serializer.serialize(field).getBytes(), value));
+        String fieldString = Serializer.serialize(field);
+        return invalidateHotKey(key, execute("hincrByFloat", key, PayloadSize.of(fieldString), j -> j.hincrByFloat(key.getBytes(), fieldString.getBytes(), value)));
     }
 
     @Override
     public Set<String> hkeys(String key) {
         checkNotNull(key);
-        return execute(j -> j.hkeys(key));
+        return readHotKey(key, readKey -> executeRead("hkeys", readKey, j -> getBigKeyGuard().hkeys(j, readKey)), Set::isEmpty);
     }
 
     @Override
     public List<String> hvals(String key) {
         checkNotNull(key);
-        return execute(j -> j.hvals(key));
+        return readHotKey(key, readKey -> executeRead("hvals", readKey, j -> getBigKeyGuard().hvals(j, readKey)), List::isEmpty);
     }
 
     @Override
     public <T> List<T> hvals(String key, Class<T> type) {
         checkNotNull(key);
-        List<String> strings = execute(j -> j.hvals(key));
-        return Serializer.deserialize(strings, type);
+        return readHotKey(key, readKey -> executeRead("hvals", readKey, j -> getBigKeyGuard().hvals(j, readKey), values -> Serializer.deserialize(values, type)), List::isEmpty);
     }
 
     @Override
     public Map<String, String> hgetAll(String key) {
         checkNotNull(key);
-        return execute(j -> j.hgetAll(key));
+        return readHotKey(key, readKey -> executeRead("hgetAll", readKey, j -> getBigKeyGuard().hgetAll(j, readKey)), Map::isEmpty);
     }
 
     @Override
     public <T> Map<String, T> hgetAll(String key, Class<T> type) {
         checkNotNull(key);
-        Map<String, String> stringMap = execute(j -> j.hgetAll(key));
-        Map<String, T> result = new LinkedHashMap<>(stringMap.size());
-        stringMap.forEach((k, v) -> result.put(k, Serializer.deserialize(v, type)));
-        return result;
+        return readHotKey(key, readKey -> executeRead("hgetAll", readKey, j -> getBigKeyGuard().hgetAll(j, readKey), stringMap -> {
+            Map<String, T> result = new LinkedHashMap<>(stringMap.size());
+            stringMap.forEach((k, v) -> result.put(k, Serializer.deserialize(v, type)));
+            return result;
+        }), Map::isEmpty);
     }
 
     @Override
     public ScanResult<Map.Entry<String, String>> hscan(String key, String cursor) {
         checkNotNull(key, cursor);
-        return execute(j -> j.hscan(key, cursor));
+        return execute("hscan", key, j -> j.hscan(key, cursor));
     }
 
     @Override
     public ScanResult<Map.Entry<String, String>> hscan(String key, String cursor, ScanParams params) {
         checkNotNull(key, cursor, params);
-        return execute(j -> {
+        return execute("hscan", key, j -> {
             ScanResult<Map.Entry<byte[], byte[]>> scanResult = j.hscan(key.getBytes(), cursor.getBytes(), params);
             List<Map.Entry<byte[], byte[]>> entries = scanResult.getResult();
             List<Map.Entry<String, String>> stringEntries = entries.stream().map(map -> new Map.Entry<String, String>() {
@@ -440,719 +843,780 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
     @Override
     public <P> boolean hexists(String key, P field) {
         checkNotNull(key, field);
-        return execute(j -> j.hexists(key, Serializer.serialize(field)));
+        String fieldString = Serializer.serialize(field);
+        return readHotKey(key, readKey -> executeRead("hexists", readKey, PayloadSize.of(fieldString), j -> j.hexists(readKey, fieldString)), exists -> !BooleanUtils.toBoolean(exists));
     }
 
     @Override
     public <P> Long hdel(String key, P... fields) {
         checkNotNull(key, fields);
-        return execute(j -> j.hdel(key, Serializer.serialize(fields)));
+        String[] fieldStrings = Serializer.serialize(fields);
+        return invalidateHotKey(key, execute("hdel", key, PayloadSize.of(fieldStrings), j -> j.hdel(key, fieldStrings)));
     }
 
     @Override
     public <P> Long hdel(String key, List<P> fields) {
         checkNotNull(key, fields);
-        return execute(j -> j.hdel(key, fields.toArray(new String[0])));
+        return invalidateHotKey(key, execute("hdel", key, j -> j.hdel(key, fields.toArray(new String[0]))));
     }
 
     @Override
     public <P> Long hstrlen(String key, P field) {
         checkNotNull(key, field);
-        return execute(j -> j.hstrlen(key, Serializer.serialize(field)));
+        String fieldString = Serializer.serialize(field);
+        return readHotKey(key, readKey -> executeRead("hstrlen", readKey, PayloadSize.of(fieldString), j -> j.hstrlen(readKey, fieldString)), length -> length == null || length == 0);
     }
 
     @Override
     public <T> Long lpush(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.lpush(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return execute("lpush", key, PayloadSize.of(valueStrings), j -> j.lpush(key, valueStrings));
     }
 
     @Override
     public <T> Long lpush(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.lpush(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return execute("lpush", key, PayloadSize.of(valueStrings), j -> j.lpush(key, valueStrings));
     }
 
     @Override
     public <T> Long rpush(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.rpush(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return execute("rpush", key, PayloadSize.of(valueStrings), j -> j.rpush(key, valueStrings));
     }
 
     @Override
     public <T> Long rpush(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.rpush(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return execute("rpush", key, PayloadSize.of(valueStrings), j -> j.rpush(key, valueStrings));
     }
 
     @Override
     public <T> Long lpushx(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.lpushx(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return execute("lpushx", key, PayloadSize.of(valueStrings), j -> j.lpushx(key, valueStrings));
     }
 
     @Override
     public <T> Long lpushx(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.lpushx(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return execute("lpushx", key, PayloadSize.of(valueStrings), j -> j.lpushx(key, valueStrings));
     }
 
     @Override
     public <T> Long rpushx(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.rpushx(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return execute("rpushx", key, PayloadSize.of(valueStrings), j -> j.rpushx(key, valueStrings));
     }
 
     @Override
     public <T> Long rpushx(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.rpushx(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return execute("rpushx", key, PayloadSize.of(valueStrings), j -> j.rpushx(key, valueStrings));
     }
 
     @Override
     public <T> String lset(String key, long index, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.lset(key, index, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return execute("lset", key, PayloadSize.of(valueString), j -> j.lset(key, index, valueString));
     }
 
     @Override
     public <T> Long linsert(String key, ListPosition where, String pivot, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.linsert(key, where, pivot, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return execute("linsert", key, PayloadSize.of(valueString), j -> j.linsert(key, where, pivot, valueString));
     }
 
     @Override
     public String rpoplpush(String srckey, String dstkey) {
         checkNotNull(srckey, dstkey);
-        return execute(j -> j.rpoplpush(srckey, dstkey));
+        return execute("rpoplpush", srckey, j -> j.rpoplpush(srckey, dstkey));
     }
 
     @Override
     public String brpoplpush(String source, String destination, int timeout) {
         checkNotNull(source, destination);
-        return execute(j -> j.brpoplpush(source, destination, timeout));
+        return execute("brpoplpush", source, j -> j.brpoplpush(source, destination, timeout));
     }
 
     @Override
     public List<String> lrange(String key, long start, long end) {
         checkNotNull(key);
-        return execute(j -> j.lrange(key, start, end));
+        return executeRead("lrange", key, j -> j.lrange(key, start, end));
     }
 
     @Override
     public <T> List<T> lrange(String key, long start, long end, Class<T> type) {
         checkNotNull(key);
-        List<String> strings = execute(j -> j.lrange(key, start, end));
-        return Serializer.deserialize(strings, type);
+        return executeRead("lrange", key, j -> j.lrange(key, start, end), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public List<String> lrangePage(String key, int pageNo, int pageSize) {
         checkNotNull(key);
-        return execute(j -> j.lrange(key, pageNo * pageSize, (pageNo + 1) * pageSize));
+        return executeRead("lrangePage", key, j -> j.lrange(key, pageNo * pageSize, (pageNo + 1) * pageSize));
     }
 
     @Override
     public <T> List<T> lrangePage(String key, int pageNo, int pageSize, Class<T> type) {
         checkNotNull(key);
-        List<String> strings = execute(j -> j.lrange(key, pageNo * pageSize, (pageNo + 1) * pageSize));
-        return Serializer.deserialize(strings, type);
+        return executeRead("lrangePage", key, j -> j.lrange(key, pageNo * pageSize, (pageNo + 1) * pageSize), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public List<String> lrangeAll(String key) {
         checkNotNull(key);
-        return execute(j -> j.lrange(key, 0, -1));
+        return executeRead("lrangeAll", key, j -> getBigKeyGuard().lrangeAll(j, key));
     }
 
     @Override
     public <T> List<T> lrangeAll(String key, Class<T> type) {
         checkNotNull(key);
-        List<String> strings = execute(j -> j.lrange(key, 0, -1));
-        return Serializer.deserialize(strings, type);
+        return executeRead("lrangeAll", key, j -> getBigKeyGuard().lrangeAll(j, key), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public String lindex(String key, int index) {
         checkNotNull(key);
-        return execute(j -> j.lindex(key, index));
+        return executeRead("lindex", key, j -> j.lindex(key, index));
     }
 
     @Override
     public <T> T lindex(String key, int index, Class<T> type) {
         checkNotNull(key);
-        String s = execute(j -> j.lindex(key, index));
-        return Serializer.deserialize(s, type);
+        return executeRead("lindex", key, j -> j.lindex(key, index), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public Long llen(String key) {
         checkNotNull(key);
-        return execute(j -> j.llen(key));
+        return executeRead("llen", key, j -> j.llen(key));
     }
 
     @Override
     public String lpop(String key) {
         checkNotNull(key);
-        return execute(j -> j.lpop(key));
+        return execute("lpop", key, j -> j.lpop(key));
     }
 
     @Override
     public <T> T lpop(String key, Class<T> type) {
         checkNotNull(key);
-        String s = execute(j -> j.lpop(key));
-        return Serializer.deserialize(s, type);
+        return execute("lpop", key, j -> j.lpop(key), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public String rpop(String key) {
         checkNotNull(key);
-        return execute(j -> j.rpop(key));
+        return execute("rpop", key, j -> j.rpop(key));
     }
 
     @Override
     public <T> T rpop(String key, Class<T> type) {
         checkNotNull(key);
-        String s = execute(j -> j.rpop(key));
-        return Serializer.deserialize(s, type);
+        return execute("rpop", key, j -> j.rpop(key), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public List<String> blpop(int timeout, String key) {
         checkNotNull(key);
-        return execute(j -> j.blpop(timeout, key));
+        return execute("blpop", key, j -> j.blpop(timeout, key));
     }
 
     @Override
     public List<String> brpop(int timeout, String key) {
         checkNotNull(key);
-        return execute(j -> j.brpop(timeout, key));
+        return execute("brpop", key, j -> j.brpop(timeout, key));
     }
 
     @Override
     public <T> Long lrem(String key, long count, T value) {
         checkNotNull(key);
-        return execute(j -> j.lrem(key, count, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return execute("lrem", key, PayloadSize.of(valueString), j -> j.lrem(key, count, valueString));
     }
 
     @Override
     public String ltrim(String key, long start, long end) {
         checkNotNull(key);
-        return execute(j -> j.ltrim(key, start, end));
+        return execute("ltrim", key, j -> j.ltrim(key, start, end));
     }
 
     @Override
     public <T> Long sadd(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.sadd(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return execute("sadd", key, PayloadSize.of(valueStrings), j -> j.sadd(key, valueStrings));
     }
 
     @Override
     public <T> Long sadd(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.sadd(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return execute("sadd", key, PayloadSize.of(valueStrings), j -> j.sadd(key, valueStrings));
     }
 
     @Override
     public Set<String> smembers(String key) {
         checkNotNull(key);
-        return execute(j -> j.smembers(key));
+        return executeRead("smembers", key, j -> getBigKeyGuard().smembers(j, key));
     }
 
     @Override
     public <T> Set<T> smembers(String key, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.smembers(key));
-        return Serializer.deserialize(strings, type);
+        return executeRead("smembers", key, j -> getBigKeyGuard().smembers(j, key), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public ScanResult<String> sscan(String key, String cursor) {
         checkNotNull(key, cursor);
-        return execute(j -> j.sscan(key, cursor));
+        return execute("sscan", key, j -> j.sscan(key, cursor));
     }
 
     @Override
     public <T> ScanResult<T> sscan(String key, String cursor, Class<T> type) {
         checkNotNull(key, cursor);
-        ScanResult<String> strings = execute(j -> j.sscan(key, cursor));
-        return new ScanResult<>(cursor, Serializer.deserialize(strings.getResult(), type));
+        return execute("sscan", key, j -> j.sscan(key, cursor),
+                strings -> new ScanResult<>(strings.getCursor(), Serializer.deserialize(strings.getResult(), type)));
     }
 
     @Override
     public ScanResult<String> sscan(String key, String cursor, ScanParams params) {
         checkNotNull(key, cursor, params);
-        return execute(j -> {
+        return execute("sscan", key, j -> {
             ScanResult<byte[]> scanResult = j.sscan(key.getBytes(), cursor.getBytes(), params);
             List<String> strings = scanResult.getResult().stream().map(String::new).collect(Collectors.toList());
-            return new ScanResult<>(cursor, strings);
+            return new ScanResult<>(scanResult.getCursor(), strings);
         });
     }
 
     @Override
     public <T> ScanResult<T> sscan(String key, String cursor, ScanParams params, Class<T> type) {
         checkNotNull(key, cursor, params);
-        ScanResult<String> strings = sscan(key, cursor, params);
-        return new ScanResult<>(cursor, Serializer.deserialize(strings.getResult(), type));
+        return execute("sscan", key, j -> jedisCluster.run(key, jedis -> jedis.sscan(key, cursor, params)),
+                strings -> new ScanResult<>(strings.getCursor(), Serializer.deserialize(strings.getResult(), type)));
     }
 
     @Override
     public <T> Long srem(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.srem(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return execute("srem", key, PayloadSize.of(valueStrings), j -> j.srem(key, valueStrings));
     }
 
     @Override
     public <T> Long srem(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.srem(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return execute("srem", key, PayloadSize.of(valueStrings), j -> j.srem(key, valueStrings));
     }
 
     @Override
     public String spop(String key) {
         checkNotNull(key);
-        return execute(j -> j.spop(key));
+        return execute("spop", key, j -> j.spop(key));
     }
 
     @Override
     public <T> T spop(String key, Class<T> type) {
         checkNotNull(key);
-        String s = execute(j -> j.spop(key));
-        return Serializer.deserialize(s, type);
+        return execute("spop", key, j -> j.spop(key), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public Long scard(String key) {
         checkNotNull(key);
-        return execute(j -> j.scard(key));
+        return executeRead("scard", key, j -> j.scard(key));
     }
 
     @Override
     public <T> boolean sismember(String key, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.sismember(key, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return executeRead("sismember", key, PayloadSize.of(valueString), j -> j.sismember(key, valueString));
     }
 
     @Override
     public String srandmember(String key) {
         checkNotNull(key);
-        return execute(j -> j.srandmember(key));
+        return executeRead("srandmember", key, j -> j.srandmember(key));
     }
 
     @Override
     public List<String> srandmember(String key, int count) {
         checkNotNull(key);
-        return execute(j -> j.srandmember(key, count));
+        return executeRead("srandmember", key, j -> j.srandmember(key, count));
     }
 
     @Override
     public <T> List<T> srandmember(String key, int count, Class<T> type) {
         checkNotNull(key);
-        return execute(j -> Serializer.deserialize(j.srandmember(key, count), type));
+        return executeRead("srandmember", key, j -> j.srandmember(key, count), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public <T> Long zadd(String key, double score, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zadd(key, score, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return execute("zadd", key, PayloadSize.of(memberString), j -> j.zadd(key, score, memberString));
     }
 
     @Override
     public <T> Long zadd(String key, double score, T member, ZAddParams params) {
         checkNotNull(key, member, params);
-        return execute(j -> j.zadd(key, score, Serializer.serialize(member), params));
+        String memberString = Serializer.serialize(member);
+        return execute("zadd", key, PayloadSize.of(memberString), j -> j.zadd(key, score, memberString, params));
     }
 
     @Override
     public Long zadd(String key, Map<String, Double> scoreMembers) {
         checkNotNull(key, scoreMembers);
-        return execute(j -> j.zadd(key, scoreMembers));
+        return execute("zadd", key, j -> j.zadd(key, scoreMembers));
     }
 
     @Override
     public Long zadd(String key, Map<String, Double> scoreMembers, ZAddParams params) {
         checkNotNull(key, scoreMembers, params);
-        return execute(j -> j.zadd(key, scoreMembers, params));
+        return execute("zadd", key, j -> j.zadd(key, scoreMembers, params));
     }
 
     @Override
     public Set<String> zrange(String key, long start, long stop) {
         checkNotNull(key);
-        return execute(j -> j.zrange(key, start, stop));
+        return executeRead("zrange", key, j -> j.zrange(key, start, stop));
     }
 
     @Override
     public <T> Set<T> zrange(String key, long start, long stop, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrange(key, start, stop));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrange", key, j -> j.zrange(key, start, stop), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrevrange(String key, long start, long stop) {
         checkNotNull(key);
-        return execute(j -> j.zrevrange(key, start, stop));
+        return executeRead("zrevrange", key, j -> j.zrevrange(key, start, stop));
     }
 
     @Override
     public <T> Set<T> zrevrange(String key, long start, long stop, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrevrange(key, start, stop));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrevrange", key, j -> j.zrevrange(key, start, stop), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public <T> Long zrem(String key, T... members) {
         checkNotNull(key, members);
-        return execute(j -> j.zrem(key, Serializer.serialize(members)));
+        String[] memberStrings = Serializer.serialize(members);
+        return execute("zrem", key, PayloadSize.of(memberStrings), j -> j.zrem(key, memberStrings));
     }
 
     @Override
     public <T> Long zrem(String key, List<T> members) {
         checkNotNull(key, members);
-        return execute(j -> j.zrem(key, Serializer.serialize(members).toArray(new String[0])));
+        String[] memberStrings = Serializer.serialize(members).toArray(new String[0]);
+        return execute("zrem", key, PayloadSize.of(memberStrings), j -> j.zrem(key, memberStrings));
     }
 
     @Override
     public <T> Double zincrby(String key, double increment, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zincrby(key, increment, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return execute("zincrby", key, PayloadSize.of(memberString), j -> j.zincrby(key, increment, memberString));
     }
 
     @Override
     public <T> Double zincrby(String key, double increment, T member, ZIncrByParams params) {
         checkNotNull(key, member, params);
-        return execute(j -> j.zincrby(key, increment, Serializer.serialize(member), params));
+        String memberString = Serializer.serialize(member);
+        return execute("zincrby", key, PayloadSize.of(memberString), j -> j.zincrby(key, increment, memberString, params));
     }
 
     @Override
     public Set<String> zrangeByScore(String key, double min, double max) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByScore(key, min, max));
+        return executeRead("zrangeByScore", key, j -> j.zrangeByScore(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrangeByScore(String key, double min, double max, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrangeByScore(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrangeByScore", key, j -> j.zrangeByScore(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrangeByScore(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByScore(key, min, max));
+        return executeRead("zrangeByScore", key, j -> j.zrangeByScore(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrangeByScore(String key, String min, String max, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrangeByScore(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrangeByScore", key, j -> j.zrangeByScore(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByScoreWithScores(key, min, max));
+        return executeRead("zrangeByScoreWithScores", key, j -> j.zrangeByScoreWithScores(key, min, max));
     }
 
     @Override
     public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByScoreWithScores(key, min, max, offset, count));
+        return executeRead("zrangeByScoreWithScores", key, j -> j.zrangeByScoreWithScores(key, min, max, offset, count));
     }
 
     @Override
     public Set<String> zrevrangeByScore(String key, double max, double min) {
         checkNotNull(key);
-        return execute(j -> j.zrevrangeByScore(key, min, max));
+        return executeRead("zrevrangeByScore", key, j -> j.zrevrangeByScore(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrevrangeByScore(String key, double max, double min, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrevrangeByScore(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrevrangeByScore", key, j -> j.zrevrangeByScore(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrevrangeByScore(String key, String max, String min) {
         checkNotNull(key);
-        return execute(j -> j.zrevrangeByScore(key, min, max));
+        return executeRead("zrevrangeByScore", key, j -> j.zrevrangeByScore(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrevrangeByScore(String key, String max, String min, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrevrangeByScore(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrevrangeByScore", key, j -> j.zrevrangeByScore(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrangeByLex(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByLex(key, min, max));
+        return executeRead("zrangeByLex", key, j -> j.zrangeByLex(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrangeByLex(String key, String min, String max, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrangeByLex(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrangeByLex", key, j -> j.zrangeByLex(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrevrangeByLex(String key, String max, String min) {
         checkNotNull(key);
-        return execute(j -> j.zrevrangeByLex(key, min, max));
+        return executeRead("zrevrangeByLex", key, j -> j.zrevrangeByLex(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrevrangeByLex(String key, String max, String min, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrevrangeByLex(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrevrangeByLex", key, j -> j.zrevrangeByLex(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public ScanResult<Tuple> zscan(String key, String cursor) {
         checkNotNull(key, cursor);
-        return execute(j -> j.zscan(key, cursor));
+        return execute("zscan", key, j -> j.zscan(key, cursor));
     }
 
     @Override
     public ScanResult<Tuple> zscan(String key, String cursor, ScanParams params) {
         checkNotNull(key, cursor, params);
-        return execute(j -> j.zscan(key.getBytes(), cursor.getBytes(), params));
+        return execute("zscan", key, j -> j.zscan(key.getBytes(), cursor.getBytes(), params));
     }
 
     @Override
     public Long zremrangeByRank(String key, long start, long stop) {
         checkNotNull(key);
-        return execute(j -> j.zremrangeByRank(key, start, stop));
+        return execute("zremrangeByRank", key, j -> j.zremrangeByRank(key, start, stop));
     }
 
     @Override
     public Long zremrangeByScore(String key, double min, double max) {
         checkNotNull(key);
-        return execute(j -> j.zremrangeByScore(key, min, max));
+        return execute("zremrangeByScore", key, j -> j.zremrangeByScore(key, min, max));
     }
 
     @Override
     public Long zremrangeByScore(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zremrangeByScore(key, min, max));
+        return execute("zremrangeByScore", key, j -> j.zremrangeByScore(key, min, max));
     }
 
     @Override
     public Long zremrangeByLex(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zremrangeByLex(key, min, max));
+        return execute("zremrangeByLex", key, j -> j.zremrangeByLex(key, min, max));
     }
 
     @Override
     public <T> Long zrank(String key, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zrank(key, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return executeRead("zrank", key, PayloadSize.of(memberString), j -> j.zrank(key, memberString));
     }
 
     @Override
     public <T> Long zrevrank(String key, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zrevrank(key, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return executeRead("zrevrank", key, PayloadSize.of(memberString), j -> j.zrevrank(key, memberString));
     }
 
     @Override
     public Long zcard(String key) {
         checkNotNull(key);
-        return execute(j -> j.zcard(key));
+        return executeRead("zcard", key, j -> j.zcard(key));
     }
 
     @Override
     public <T> Double zscore(String key, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zscore(key, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return executeRead("zscore", key, PayloadSize.of(memberString), j -> j.zscore(key, memberString));
     }
 
     @Override
     public Long zcount(String key, double min, double max) {
         checkNotNull(key);
-        return execute(j -> j.zcount(key, min, max));
+        return executeRead("zcount", key, j -> j.zcount(key, min, max));
     }
 
     @Override
     public Long zcount(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zcount(key, min, max));
+        return executeRead("zcount", key, j -> j.zcount(key, min, max));
     }
 
     @Override
     public Long zlexcount(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zlexcount(key, min, max));
+        return executeRead("zlexcount", key, j -> j.zlexcount(key, min, max));
     }
 
     @Override
     public <T> Long pfadd(String key, T... elements) {
         checkNotNull(key, elements);
-        return execute(j -> j.pfadd(key, Serializer.serialize(elements)));
+        String[] elementStrings = Serializer.serialize(elements);
+        return invalidateHotKey(key, execute("pfadd", key, PayloadSize.of(elementStrings), j -> j.pfadd(key, elementStrings)));
     }
 
     @Override
     public <T> Long pfadd(String key, List<T> elements) {
         checkNotNull(key, elements);
-        return execute(j -> j.pfadd(key, Serializer.serialize(elements).toArray(new String[0])));
+        String[] elementStrings = Serializer.serialize(elements).toArray(new String[0]);
+        return invalidateHotKey(key, execute("pfadd", key, PayloadSize.of(elementStrings), j -> j.pfadd(key, elementStrings)));
     }
 
     @Override
     public Long pfcount(String key) {
         checkNotNull(key);
-        return execute(j -> j.pfcount(key));
+        return executeRead("pfcount", key, j -> j.pfcount(key));
     }
 
     @Override
     public boolean setbit(String key, long offset, boolean value) {
         checkNotNull(key);
-        return execute(j -> j.setbit(key, offset, value));
+        return invalidateHotKey(key, execute("setbit", key, j -> j.setbit(key, offset, value)));
     }
 
     @Override
     public boolean setbit(String key, long offset, String value) {
         checkNotNull(key);
-        return execute(j -> j.setbit(key, offset, value));
+        return invalidateHotKey(key, execute("setbit", key, j -> j.setbit(key, offset, value)));
     }
 
     @Override
     public boolean getbit(String key, long offset) {
         checkNotNull(key);
-        return execute(j -> j.getbit(key, offset));
+        return executeRead("getbit", key, j -> j.getbit(key, offset));
     }
 
     @Override
     public Long bitcount(String key) {
         checkNotNull(key);
-        return execute(j -> j.bitcount(key));
+        return executeRead("bitcount", key, j -> j.bitcount(key));
     }
 
     @Override
     public Long bitcount(String key, long start, long end) {
         checkNotNull(key);
-        return execute(j -> j.bitcount(key, start, end));
+        return executeRead("bitcount", key, j -> j.bitcount(key, start, end));
     }
 
     @Override
     public Long bitpos(String key, boolean value) {
         checkNotNull(key);
-        throw new UnsupportedCommandException("bitpos");
+        return executeRead("bitpos", key, j -> j.bitpos(key, value));
     }
 
     @Override
     public Long bitpos(String key, boolean value, long start, long end) {
         checkNotNull(key);
-        throw new UnsupportedCommandException("bitpos");
+        return executeRead("bitpos", key, j -> j.bitpos(key, value, new BitPosParams(start, end)));
     }
 
     @Override
     public Long bitop(BitOP op, String destKey, String... srcKeys) {
         checkNotNull(op, destKey, srcKeys);
-        return execute(j -> j.bitop(op, destKey, srcKeys));
+        return bitop(op, destKey, Lists.newArrayList(srcKeys));
     }
 
     @Override
     public Long bitop(BitOP op, String destKey, List<String> srcKeys) {
         checkNotNull(op, destKey, srcKeys);
-        return bitop(op, destKey, srcKeys.toArray(new String[0]));
+        int slot = JedisClusterCRC16.getSlot(destKey);
+        if (srcKeys.stream().allMatch(srcKey -> JedisClusterCRC16.getSlot(srcKey) == slot)) {
+            return invalidateHotKey(destKey, execute("bitop", destKey, j -> j.bitop(op, destKey, srcKeys.toArray(new String[0]))));
+        }
+        //源key分布在不同的slot时在客户端按块模拟
+        return invalidateHotKey(destKey, execute("bitop", destKey, j -> BitOpEmulator.bitop(op, destKey, srcKeys, new ClusterBitmapStore())));
+    }
+
+    /**
+     * 按key所在slot的主节点读写位图，每个key使用独立的连接并行读取
+     */
+    private class ClusterBitmapStore implements BitOpEmulator.BitmapStore {
+
+        @Override
+        public Map<String, Long> strlen(List<String> keys) {
+            return parallel(keys, key -> jedisCluster.strlen(key));
+        }
+
+        @Override
+        public Map<String, byte[]> getrange(List<String> keys, long start, long end) {
+            return parallel(keys, key -> jedisCluster.getrange(SafeEncoder.encode(key), start, end));
+        }
+
+        @Override
+        public void setrange(String key, long offset, byte[] value) {
+            jedisCluster.setrange(SafeEncoder.encode(key), offset, value);
+        }
+
+        @Override
+        public void del(String key) {
+            jedisCluster.del(key);
+        }
+
+        private <T> Map<String, T> parallel(List<String> keys, Function<String, T> command) {
+            List<String> distinctKeys = keys.stream().distinct().collect(Collectors.toList());
+            List<Supplier<T>> tasks = distinctKeys.stream().map(key -> (Supplier<T>) () -> command.apply(key)).collect(Collectors.toList());
+            List<T> results = BitOpEmulator.parallel(tasks);
+            Map<String, T> map = new HashMap<>(distinctKeys.size());
+            for (int i = 0; i < distinctKeys.size(); i++) {
+                map.put(distinctKeys.get(i), results.get(i));
+            }
+            return map;
+        }
     }
 
     @Override
     public List<Long> bitfield(String key, String... arguments) {
         checkNotNull(key, arguments);
-        return execute(j -> j.bitfield(key, arguments));
+        return invalidateHotKey(key, execute("bitfield", key, j -> j.bitfield(key, arguments)));
     }
 
     @Override
     public List<Long> bitfield(String key, List<String> arguments) {
         checkNotNull(key, arguments);
-        return execute(j -> j.bitfield(key, arguments.toArray(new String[0])));
+        return invalidateHotKey(key, execute("bitfield", key, j -> j.bitfield(key, arguments.toArray(new String[0]))));
     }
 
     @Override
     public <T> Long geoadd(String key, double longitude, double latitude, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.geoadd(key, longitude, latitude, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return execute("geoadd", key, PayloadSize.of(memberString), j -> j.geoadd(key, longitude, latitude, memberString));
     }
 
     @Override
     public Long geoadd(String key, Map<String, GeoCoordinate> memberCoordinateMap) {
         checkNotNull(key, memberCoordinateMap);
-        return execute(j -> j.geoadd(key, memberCoordinateMap));
+        return execute("geoadd", key, j -> j.geoadd(key, memberCoordinateMap));
     }
 
     @Override
     public <T> Double geodist(String key, T member1, T member2) {
         checkNotNull(key, member1, member2);
-        return execute(j -> j.geodist(key, Serializer.serialize(member1), Serializer.serialize(member2)));
+        String member1String = Serializer.serialize(member1);
+        String member2String = Serializer.serialize(member2);
+        return executeRead("geodist", key, PayloadSize.of(member1String, member2String), j -> j.geodist(key, member1String, member2String));
     }
 
     @Override
     public <T> Double geodist(String key, T member1, T member2, GeoUnit unit) {
         checkNotNull(key, member1, member2);
-        return execute(j -> j.geodist(key, Serializer.serialize(member1), Serializer.serialize(member2), unit));
+        String member1String = Serializer.serialize(member1);
+        String member2String = Serializer.serialize(member2);
+        return executeRead("geodist", key, PayloadSize.of(member1String, member2String), j -> j.geodist(key, member1String, member2String, unit));
     }
 
     @Override
     public <T> List<String> geohash(String key, T... members) {
         checkNotNull(key, members);
-        return execute(j -> j.geohash(key, Serializer.serialize(members)));
+        String[] memberStrings = Serializer.serialize(members);
+        return executeRead("geohash", key, PayloadSize.of(memberStrings), j -> j.geohash(key, memberStrings));
     }
 
     @Override
     public <T> List<String> geohash(String key, List<T> members) {
         checkNotNull(key, members);
-        return execute(j -> j.geohash(key, Serializer.serialize(members).toArray(new String[0])));
+        String[] memberStrings = Serializer.serialize(members).toArray(new String[0]);
+        return executeRead("geohash", key, PayloadSize.of(memberStrings), j -> j.geohash(key, memberStrings));
     }
 
     @Override
     public <T> List<GeoCoordinate> geopos(String key, T... members) {
         checkNotNull(key, members);
-        return execute(j -> j.geopos(key, Serializer.serialize(members)));
+        String[] memberStrings = Serializer.serialize(members);
+        return executeRead("geopos", key, PayloadSize.of(memberStrings), j -> j.geopos(key, memberStrings));
     }
 
     @Override
     public <T> List<GeoCoordinate> geopos(String key, List<T> members) {
         checkNotNull(key, members);
-        return execute(j -> j.geopos(key, Serializer.serialize(members).toArray(new String[0])));
+        String[] memberStrings = Serializer.serialize(members).toArray(new String[0]);
+        return executeRead("geopos", key, PayloadSize.of(memberStrings), j -> j.geopos(key, memberStrings));
     }
 
     @Override
     public List<GeoRadiusResponse> georadius(String key, double longitude, double latitude, double radius, GeoUnit unit) {
         checkNotNull(key);
-        return execute(j -> j.georadius(key, longitude, latitude, radius, unit));
+        return execute("georadius", key, j -> j.georadius(key, longitude, latitude, radius, unit));
     }
 
     @Override
     public List<GeoRadiusResponse> georadius(String key, double longitude, double latitude, double radius, GeoUnit unit, GeoRadiusParam param) {
         checkNotNull(key);
-        return execute(j -> j.georadius(key, longitude, latitude, radius, unit, param));
+        return execute("georadius", key, j -> j.georadius(key, longitude, latitude, radius, unit, param));
     }
 
     @Override
     public <T> List<GeoRadiusResponse> georadiusByMember(String key, T member, double radius, GeoUnit unit) {
         checkNotNull(key);
-        return execute(j -> j.georadiusByMember(key, Serializer.serialize(member), radius, unit));
+        String memberString = Serializer.serialize(member);
+        return execute("georadiusByMember", key, PayloadSize.of(memberString), j -> j.georadiusByMember(key, memberString, radius, unit));
     }
 
     @Override
     public <T> List<GeoRadiusResponse> georadiusByMember(String key, T member, double radius, GeoUnit unit, GeoRadiusParam param) {
         checkNotNull(key);
-        return execute(j -> j.georadiusByMember(key, Serializer.serialize(member), radius, unit, param));
+        String memberString = Serializer.serialize(member);
+        return execute("georadiusByMember", key, PayloadSize.of(memberString), j -> j.georadiusByMember(key, memberString, radius, unit, param));
     }
 
     @Override
@@ -1164,7 +1628,7 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
         }
         long[] offsets = BitHashUtil.getBitOffsets(value);
         for (long offset : offsets) {
-            execute(j -> j.setbit(key, offset, true));
+            execute("bloomadd", key, j -> j.setbit(key, offset, true));
         }
         return true;
     }
@@ -1174,7 +1638,7 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
         checkNotNull(key, value);
         long[] offsets = BitHashUtil.getBitOffsets(value);
         for (long offset : offsets) {
-            Boolean execute = execute(j -> j.getbit(key, offset));
+            Boolean execute = executeRead("bloomcons", key, j -> j.getbit(key, offset));
             if (BooleanUtils.isFalse(execute)) {
                 return false;
             }
@@ -1188,7 +1652,7 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
         SetParams setParams = SetParams.setParams();
         setParams.nx();
         setParams.px(expireTime);
-        String result = execute(j -> j.set(lockKey, requestId, setParams));
+        String result = execute("getDistributedLock", lockKey, j -> j.set(lockKey, requestId, setParams));
         return "OK".equals(result);
     }
 
@@ -1196,7 +1660,8 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
     public boolean releaseDistributedLock(String lockKey, String requestId) {
         checkNotNull(lockKey, requestId);
         String script = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
-        Object result = execute(j -> j.eval(script, Collections.singletonList(lockKey), Collections.singletonList(requestId)));
+        Long result = evalInSlot(getMetrics().command("eval", PayloadSize.of(requestId)), script, Collections.singletonList(lockKey),
+                Collections.singletonList(requestId), Long.class);
         Long success = 1L;
         return success.equals(result);
     }
@@ -1206,9 +1671,10 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
         if (keyCount != 0) {
             checkNotNull(params);
         }
-        String[] strings = Serializer.serialize(params).toArray(new String[0]);
-        Object result = execute(j -> j.eval(script, keyCount, strings));
-        return Serializer.deserialize(result, type);
+        List<String> strings = params == null ? Collections.emptyList() : Serializer.serialize(params);
+        checkKeyCount(keyCount, strings.size());
+        CommandMetrics commandMetrics = getMetrics().command("eval", PayloadSize.of(strings));
+        return evalInSlot(commandMetrics, script, strings.subList(0, keyCount), strings.subList(keyCount, strings.size()), type);
     }
 
     @Override
@@ -1216,15 +1682,118 @@ public class RedisClusterExecutor extends AbstractExecutor<JedisCluster> {
         if (keyCount != 0) {
             checkNotNull(params);
         }
-        Object result = execute(j -> j.eval(script, keyCount, Serializer.serialize(params)));
-        return Serializer.deserialize(result, type);
+        List<String> strings = params == null ? Collections.emptyList() : Arrays.asList(Serializer.serialize(params));
+        checkKeyCount(keyCount, strings.size());
+        CommandMetrics commandMetrics = getMetrics().command("eval", PayloadSize.of(strings));
+        return evalInSlot(commandMetrics, script, strings.subList(0, keyCount), strings.subList(keyCount, strings.size()), type);
     }
 
     @Override
     public <P, T, R> R eval(String script, List<P> keys, List<T> args, Class<R> type) {
         checkNotNull(keys, args);
-        Object result = execute(j -> j.eval(script, Serializer.serialize(keys), Serializer.serialize(args)));
-        return Serializer.deserialize(result, type);
+        List<String> keyStrings = Serializer.serialize(keys);
+        List<String> argStrings = Serializer.serialize(args);
+        CommandMetrics commandMetrics = getMetrics().command("eval", PayloadSize.of(keyStrings, argStrings));
+        return evalInSlot(commandMetrics, script, keyStrings, argStrings, type);
+    }
+
+    /**
+     * 在routingKey所在slot的主节点上执行脚本，脚本中的key可以为空，但必须与routingKey在同一个slot
+     * @param script 脚本内容
+     * @param routingKey 用于路由的key
+     * @param keys 参数名列表
+     * @param args 参数值列表
+     * @return 脚本设定的返回值
+     */
+    public <P, T, R> R evalOnKey(String script, String routingKey, List<P> keys, List<T> args, Class<R> type) {
+        checkNotNull(script, routingKey, keys, args);
+        List<String> keyStrings = Serializer.serialize(keys);
+        List<String> slotKeys = new ArrayList<>(keyStrings);
+        slotKeys.add(routingKey);
+        checkSameSlot(slotKeys);
+        List<String> argStrings = Serializer.serialize(args);
+        CommandMetrics commandMetrics = getMetrics().command("eval", PayloadSize.of(keyStrings, argStrings));
+        return evalOnNode(commandMetrics, script, routingKey, keyStrings, argStrings, type);
+    }
+
+    /**
+     * 在所有主节点上并行执行不带key的脚本（如统计、清理类脚本）
+     * @param script 脚本内容
+     * @param args 参数值列表
+     * @return 主节点（host:port）与脚本返回值
+     */
+    public <T, R> Map<String, R> evalOnAllMasters(String script, List<T> args, Class<R> type) {
+        checkNotNull(script, args);
+        List<String> argStrings = Serializer.serialize(args);
+        preloadScript(script);
+        Map<String, JedisPool> masterNodes = getMasterNodes();
+        List<Supplier<Object>> tasks = new ArrayList<>(masterNodes.size());
+        masterNodes.values().forEach(jedisPool -> tasks.add(() -> {
+            try (Jedis jedis = jedisPool.getResource()) {
+                return ScriptRegistry.evalsha(script, sha1 -> jedis.evalsha(sha1, Collections.emptyList(), argStrings), jedis::scriptLoad);
+            } catch (Exception e) {
+                throw wrapException(e);
+            }
+        }));
+        List<Object> resultList = tasks.isEmpty() ? Collections.emptyList() : BitOpEmulator.parallel(tasks);
+        Map<String, R> results = new LinkedHashMap<>();
+        Iterator<Object> iterator = resultList.iterator();
+        masterNodes.keySet().forEach(node -> results.put(node, Serializer.deserialize(iterator.next(), type)));
+        return results;
+    }
+
+    /**
+     * 在所有主节点上执行不带key的脚本，并合并所有主节点的返回值
+     * @param script 脚本内容
+     * @param args 参数值列表
+     * @param reducer 返回值的合并方法，如 Long::sum
+     * @return 合并后的返回值，没有主节点时返回null
+     */
+    public <T, R> R evalOnAllMasters(String script, List<T> args, Class<R> type, BinaryOperator<R> reducer) {
+        checkNotNull(reducer);
+        return evalOnAllMasters(script, args, type).values().stream().filter(Objects::nonNull).reduce(reducer).orElse(null);
+    }
+
+    /**
+     * 校验所有key在同一个slot，否则抛出异常，避免脚本发送到节点后才返回CROSSSLOT错误
+     */
+    public void checkSameSlot(Collection<String> keys) {
+        Set<Integer> slots = keys.stream().map(JedisClusterCRC16::getSlot).collect(Collectors.toSet());
+        if (slots.size() > 1) {
+            throw new RedisCacheException("keys must be in the same slot, use hash tags to colocate them, keys: " + keys + ", slots: " + slots);
+        }
+    }
+
+    /**
+     * key在同一个slot时在该slot的主节点上执行，没有key时按脚本的SHA1路由，不同脚本分散到不同的主节点
+     */
+    private <R> R evalInSlot(CommandMetrics commandMetrics, String script, List<String> keys, List<String> args, Class<R> type) {
+        checkSameSlot(keys);
+        String routingKey = keys.isEmpty() ? ScriptRegistry.sha1(script) : keys.get(0);
+        return evalOnNode(commandMetrics, script, routingKey, keys, args, type);
+    }
+
+    /**
+     * 使用EVALSHA执行脚本，首次执行时预加载到所有主从节点，NOSCRIPT时在执行的节点上加载后重试
+     * @param commandMetrics 在序列化参数之后获取，并记录参数的数据量
+     */
+    private <R> R evalOnNode(CommandMetrics commandMetrics, String script, String routingKey, List<String> keys, List<String> args, Class<R> type) {
+        preloadScript(script);
+        return invalidateHotKeys(keys, execute(cluster -> jedisCluster.run(routingKey, j -> ScriptRegistry.evalsha(script, sha1 -> j.evalsha(sha1, keys, args), j::scriptLoad)),
+                result -> Serializer.deserialize(result, type), commandMetrics, routingKey));
+    }
+
+    private void preloadScript(String script) {
+        if (!loadedScripts.add(ScriptRegistry.sha1(script))) {
+            return;
+        }
+        jedisCluster.getClusterNodes().forEach((node, jedisPool) -> {
+            try (Jedis jedis = jedisPool.getResource()) {
+                jedis.scriptLoad(script);
+            } catch (Exception e) {
+                log.warn("redis cluster node {} script load failed", node, e);
+            }
+        });
     }
 
 }
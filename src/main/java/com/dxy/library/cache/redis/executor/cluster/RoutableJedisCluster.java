@@ -0,0 +1,51 @@
+package com.dxy.library.cache.redis.executor.cluster;
+
+import com.dxy.library.cache.redis.exception.RedisCacheException;
+import com.dxy.library.cache.redis.inter.RedisFunction;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisClusterCommand;
+import redis.clients.jedis.JedisSlotBasedConnectionHandler;
+
+import java.util.Set;
+
+/**
+ * 支持在key所在slot的主节点连接上执行自定义命令的JedisCluster，重定向和重试逻辑与JedisCluster的命令相同
+ * @author duanxinyuan
+ * 2020/6/10 10:20
+ */
+public class RoutableJedisCluster extends JedisCluster {
+
+    public RoutableJedisCluster(Set<HostAndPort> nodes, int connectionTimeout, int soTimeout, int maxAttempts, String password,
+                                GenericObjectPoolConfig<?> poolConfig) {
+        super(nodes, connectionTimeout, soTimeout, maxAttempts, password, poolConfig);
+    }
+
+    /**
+     * 获取slot所在主节点的连接，使用后需要close
+     */
+    public Jedis getConnectionFromSlot(int slot) {
+        return ((JedisSlotBasedConnectionHandler) connectionHandler).getConnectionFromSlot(slot);
+    }
+
+    /**
+     * 在key所在slot的主节点上执行命令
+     */
+    public <T> T run(String key, RedisFunction<Jedis, T> function) {
+        return new JedisClusterCommand<T>(connectionHandler, maxAttempts) {
+            @Override
+            public T execute(Jedis connection) {
+                try {
+                    return function.apply(connection);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RedisCacheException(e);
+                }
+            }
+        }.run(key);
+    }
+
+}
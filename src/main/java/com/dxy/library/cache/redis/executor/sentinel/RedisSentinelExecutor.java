@@ -1,18 +1,40 @@
 package com.dxy.library.cache.redis.executor.sentinel;
 
 import com.google.common.collect.Sets;
-import com.dxy.library.cache.redis.exception.RedisCacheException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.dxy.library.cache.redis.constant.ReadPolicy;
 import com.dxy.library.cache.redis.executor.JedisExecutor;
 import com.dxy.library.cache.redis.inter.RedisConsumer;
 import com.dxy.library.cache.redis.inter.RedisFunction;
+import com.dxy.library.cache.redis.metrics.CacheMetrics;
+import com.dxy.library.cache.redis.metrics.CommandMetrics;
+import com.dxy.library.cache.redis.pool.JedisObjectFactory;
+import com.dxy.library.cache.redis.pool.ReplicaNode;
+import com.dxy.library.cache.redis.pool.ReplicaSelector;
 import com.dxy.library.cache.redis.properties.RedisProperties;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.JedisSentinelPool;
+import redis.clients.jedis.util.Pool;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Redis哨兵模式缓存器
@@ -25,6 +47,17 @@ public class RedisSentinelExecutor extends JedisExecutor {
 
     private JedisSentinelPool jedisSentinelPool;
 
+    private String masterName;
+
+    //读命令的从节点选择器
+    private ReplicaSelector replicaSelector;
+
+    //可读的从节点列表，定时从哨兵刷新
+    private volatile List<ReplicaNode> replicas;
+
+    @Getter(AccessLevel.NONE)
+    private ScheduledExecutorService replicaRefresher;
+
     public RedisSentinelExecutor(RedisProperties redisProperties) {
         super(redisProperties);
     }
@@ -38,26 +71,184 @@ public class RedisSentinelExecutor extends JedisExecutor {
         }
         Set<String> sentinels = Sets.newHashSet(redisProperties.getNodes());
 
-        String masterName = "CacheMaster";
+        masterName = redisProperties.getSentinelMasters().get(0).trim();
+        if (redisProperties.getSentinelMasters().size() > 1) {
+            log.warn("redis sentinel uses master {} only, use shardedSentinel type for multiple masters", masterName);
+        }
+
+        int connectionTimeout = redisProperties.getConnectionTimeoutMillis();
+        int soTimeout = redisProperties.getSoTimeoutMillis();
+        jedisSentinelPool = new JedisSentinelPool(masterName, sentinels, config, connectionTimeout, soTimeout, redisProperties.getPassword(),
+                redisProperties.getDatabase(), null, connectionTimeout, soTimeout, redisProperties.getSentinelPassword(), null);
+        //替换默认的连接工厂，按健康检查策略校验连接，主从切换后连接旧主节点的连接会被判定为无效
+        JedisSentinelPool sentinelPool = jedisSentinelPool;
+        jedisSentinelPool.initPool(config, new JedisObjectFactory(sentinelPool::getCurrentHostMaster, connectionTimeout, soTimeout,
+                redisProperties.getPassword(), redisProperties.getDatabase(), getHealthChecker()));
 
-        jedisSentinelPool = new JedisSentinelPool(masterName, sentinels, config, redisProperties.getTimeoutMillis(), redisProperties.getPassword(), redisProperties.getDatabase());
+        initReplicas(redisProperties, config);
+    }
+
+    @Override
+    public String getNode(String key) {
+        return jedisSentinelPool.getCurrentHostMaster().toString();
+    }
+
+    /**
+     * 主节点及从节点的连接池
+     */
+    @Override
+    public Map<String, Pool<?>> getPools() {
+        Map<String, Pool<?>> pools = new LinkedHashMap<>();
+        if (jedisSentinelPool == null) {
+            return pools;
+        }
+        pools.put(jedisSentinelPool.getCurrentHostMaster().toString(), jedisSentinelPool);
+        List<ReplicaNode> currentReplicas = replicas;
+        if (currentReplicas != null) {
+            currentReplicas.forEach(replica -> pools.put(replica.getHostAndPort().toString(), replica.getJedisPool()));
+        }
+        return pools;
+    }
+
+    private void initReplicas(RedisProperties redisProperties, JedisPoolConfig config) {
+        stopReplicas();
+        replicaSelector = new ReplicaSelector(ReadPolicy.getPolicy(redisProperties.getReadPolicy()));
+        if (replicaSelector.getPolicy() == ReadPolicy.master) {
+            return;
+        }
+        refreshReplicas(config);
+        replicaRefresher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("redis-sentinel-replica-refresh-%d").setDaemon(true).build());
+        long refreshMillis = redisProperties.getReplicaRefreshMillis();
+        replicaRefresher.scheduleWithFixedDelay(() -> refreshReplicas(config), refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 从哨兵获取主节点的从节点列表，为新增的从节点创建连接池，关闭已下线的从节点的连接池
+     */
+    private void refreshReplicas(JedisPoolConfig config) {
+        List<HostAndPort> hostAndPorts = null;
+        for (String sentinel : getRedisProperties().getNodes()) {
+            String[] strings = sentinel.split(":");
+            int port = strings.length > 1 ? NumberUtils.toInt(strings[1].trim(), 26379) : 26379;
+            try (Jedis jedis = createSentinelJedis(new HostAndPort(strings[0].trim(), port))) {
+                hostAndPorts = jedis.sentinelSlaves(masterName).stream().filter(this::isReplicaAvailable)
+                        .map(slave -> new HostAndPort(slave.get("ip"), NumberUtils.toInt(slave.get("port"))))
+                        .collect(Collectors.toList());
+                break;
+            } catch (Exception e) {
+                log.warn("redis sentinel {} get replicas of {} failed", sentinel, masterName, e);
+            }
+        }
+        if (hostAndPorts == null) {
+            return;
+        }
+        Map<HostAndPort, ReplicaNode> current = replicas.stream().collect(Collectors.toMap(ReplicaNode::getHostAndPort, replica -> replica));
+        List<ReplicaNode> refreshed = new ArrayList<>(hostAndPorts.size());
+        for (HostAndPort hostAndPort : hostAndPorts) {
+            ReplicaNode replica = current.remove(hostAndPort);
+            refreshed.add(replica != null ? replica : new ReplicaNode(hostAndPort, createJedisPool(config, hostAndPort, getRedisProperties().getDatabase())));
+        }
+        replicas = refreshed;
+        current.values().forEach(replica -> {
+            log.info("redis sentinel replica {} of {} removed", replica.getHostAndPort(), masterName);
+            replica.getJedisPool().close();
+        });
+    }
+
+    /**
+     * 停止从节点列表的定时刷新，并关闭所有从节点的连接池
+     */
+    private void stopReplicas() {
+        if (replicaRefresher != null) {
+            replicaRefresher.shutdownNow();
+            try {
+                replicaRefresher.awaitTermination(getRedisProperties().getSoTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            replicaRefresher = null;
+        }
+        List<ReplicaNode> currentReplicas = replicas;
+        replicas = Collections.emptyList();
+        if (currentReplicas != null) {
+            currentReplicas.forEach(replica -> replica.getJedisPool().close());
+        }
+    }
+
+    /**
+     * 关闭主节点的连接池（包括订阅哨兵的线程），停止从节点列表的刷新并关闭从节点的连接池
+     */
+    @Override
+    public void close() {
+        stopReplicas();
+        if (jedisSentinelPool != null) {
+            jedisSentinelPool.close();
+        }
+        super.close();
+    }
+
+    private boolean isReplicaAvailable(Map<String, String> slave) {
+        String flags = slave.getOrDefault("flags", "");
+        return !flags.contains("s_down") && !flags.contains("o_down") && !flags.contains("disconnected")
+                && "ok".equals(slave.get("master-link-status"));
+    }
+
+    @Override
+    protected CompletableFuture<Void> warmUpPool(int count, Executor executor) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        if (jedisSentinelPool == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        futures.add(addObjects(jedisSentinelPool, count, executor));
+        List<ReplicaNode> currentReplicas = replicas;
+        if (currentReplicas != null) {
+            currentReplicas.forEach(replica -> futures.add(addObjects(replica.getJedisPool(), count, executor)));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
     }
 
     @Override
     public void executeVoid(RedisConsumer<Jedis> consumer) {
-        try (Jedis jedis = jedisSentinelPool.getResource()) {
+        executeOnPool(jedisSentinelPool, CacheMetrics.CUSTOM_COMMAND, null, jedis -> {
             consumer.accept(jedis);
-        } catch (Exception e) {
-            throw new RedisCacheException(e);
-        }
+            return null;
+        });
     }
 
     @Override
-    public <T> T execute(RedisFunction<Jedis, T> function) {
-        try (Jedis jedis = jedisSentinelPool.getResource()) {
-            return function.apply(jedis);
+    protected <S, T> T execute(String command, Object keys, long requestBytes, RedisFunction<Jedis, S> function, Function<S, T> decoder) {
+        return executeOnPool(jedisSentinelPool, command, keys, requestBytes, function, decoder);
+    }
+
+    @Override
+    protected <S, T> T executeRead(String command, Object keys, long requestBytes, RedisFunction<Jedis, S> function, Function<S, T> decoder) {
+        ReplicaNode replica = replicaSelector != null ? replicaSelector.select(replicas) : null;
+        if (replica == null) {
+            return execute(command, keys, requestBytes, function, decoder);
+        }
+        CommandMetrics commandMetrics = getMetrics().command(command, requestBytes);
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        boolean fallback = false;
+        S response = null;
+        try {
+            response = replica.execute(function);
+            T result = decoder.apply(response);
+            success = true;
+            return result;
         } catch (Exception e) {
-            throw new RedisCacheException(e);
+            if (isReadFallback(e)) {
+                log.warn("redis sentinel replica {} read failed, fallback to master", replica.getHostAndPort(), e);
+                fallback = true;
+                return execute(command, keys, requestBytes, function, decoder);
+            }
+            throw wrapException(e);
+        } finally {
+            //改为读主节点时由execute记录
+            if (!fallback) {
+                getMetrics().record(commandMetrics, keys, startNanos, startNanos, success, response);
+            }
         }
     }
 
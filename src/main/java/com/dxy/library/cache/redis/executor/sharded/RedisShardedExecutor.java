@@ -2,26 +2,47 @@ package com.dxy.library.cache.redis.executor.sharded;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.RateLimiter;
+import com.dxy.library.cache.redis.batch.BatchCommand;
+import com.dxy.library.cache.redis.constant.ShardingStrategy;
 import com.dxy.library.cache.redis.exception.RedisCacheException;
 import com.dxy.library.cache.redis.exception.UnsupportedCommandException;
 import com.dxy.library.cache.redis.executor.AbstractExecutor;
 import com.dxy.library.cache.redis.inter.RedisConsumer;
 import com.dxy.library.cache.redis.inter.RedisFunction;
+import com.dxy.library.cache.redis.metrics.CacheMetrics;
+import com.dxy.library.cache.redis.metrics.PayloadSize;
+import com.dxy.library.cache.redis.pool.ShardedJedisObjectFactory;
 import com.dxy.library.cache.redis.properties.RedisProperties;
 import com.dxy.library.cache.redis.util.BitHashUtil;
+import com.dxy.library.cache.redis.util.BitOpEmulator;
+import com.dxy.library.cache.redis.util.KetamaRing;
+import com.dxy.library.cache.redis.util.ScriptRegistry;
 import com.dxy.library.cache.redis.util.Serializer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import redis.clients.jedis.*;
+import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.params.GeoRadiusParam;
 import redis.clients.jedis.params.SetParams;
 import redis.clients.jedis.params.ZAddParams;
 import redis.clients.jedis.params.ZIncrByParams;
+import redis.clients.jedis.util.Pool;
+import redis.clients.jedis.util.SafeEncoder;
+import redis.clients.jedis.util.Sharded;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -32,7 +53,13 @@ import java.util.stream.Collectors;
 @Slf4j
 public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
 
-    private ShardedJedisPool shardedJedisPool;
+    private volatile ShardedJedisPool shardedJedisPool;
+
+    //当前连接池的分片地址，多个使用逗号隔开
+    private volatile String shardNodes;
+
+    //在线迁移，未配置迁移前的节点时为null
+    private ShardMigration migration;
 
     public RedisShardedExecutor(RedisProperties redisProperties) {
         super(redisProperties);
@@ -46,38 +73,301 @@ public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
             log.error("redis sharded init failed, nodes not configured");
             return;
         }
+        initPool(config, parseShards(redisProperties.getNodes()));
+        initMigration(config);
+    }
+
+    /**
+     * 解析 host:port[:weight] 形式的节点列表
+     */
+    protected List<JedisShardInfo> parseShards(List<String> nodes) {
         List<JedisShardInfo> shards = new ArrayList<>();
-        for (String hostPort : redisProperties.getNodes()) {
+        for (String hostPort : nodes) {
             String[] strings = hostPort.split(":");
             String host = strings[0];
             int port = strings.length > 1 ? NumberUtils.toInt(strings[1].trim(), 6379) : 6379;
-            JedisShardInfo jedisShardInfo = new JedisShardInfo(host, port, redisProperties.getTimeoutMillis());
-            if (StringUtils.isNotEmpty(redisProperties.getPassword())) {
-                jedisShardInfo.setPassword(redisProperties.getPassword());
+            int weight = strings.length > 2 ? NumberUtils.toInt(strings[2].trim(), Sharded.DEFAULT_WEIGHT) : Sharded.DEFAULT_WEIGHT;
+            shards.add(createShardInfo(host, port, null, weight));
+        }
+        return shards;
+    }
+
+    /**
+     * 配置了迁移前的节点列表时开启在线迁移，新旧两个哈希环同时生效，直到后台迁移完成
+     */
+    private void initMigration(JedisPoolConfig config) {
+        if (migration != null) {
+            migration.close();
+            migration = null;
+        }
+        RedisProperties redisProperties = getRedisProperties();
+        List<String> migrationNodes = redisProperties.getShardingMigrationNodes();
+        if (migrationNodes == null || migrationNodes.isEmpty()) {
+            return;
+        }
+        List<JedisShardInfo> oldShards = parseShards(migrationNodes);
+        List<JedisShardInfo> newShards = parseShards(redisProperties.getNodes());
+        migration = new ShardMigration(createPool(config, oldShards), createObjectFactory(oldShards), createObjectFactory(newShards),
+                redisProperties.getShardingMigrationBatchSize(), redisProperties.getShardingMigrationMaxOpsPerSecond());
+        migration.start();
+        log.info("redis sharded migration started, from {} to {}", migrationNodes, redisProperties.getNodes());
+    }
+
+    /**
+     * 创建分片信息，name不为空时按name计算分片的哈希值，分片地址变化时key的分布不变
+     */
+    protected JedisShardInfo createShardInfo(String host, int port, String name, int weight) {
+        RedisProperties redisProperties = getRedisProperties();
+        JedisShardInfo jedisShardInfo = new JedisShardInfo(host, name, port, redisProperties.getConnectionTimeoutMillis(), weight);
+        jedisShardInfo.setSoTimeout(redisProperties.getSoTimeoutMillis());
+        if (StringUtils.isNotEmpty(redisProperties.getPassword())) {
+            jedisShardInfo.setPassword(redisProperties.getPassword());
+        }
+        return jedisShardInfo;
+    }
+
+    /**
+     * 按分片信息创建连接池，替换并关闭原有的连接池
+     */
+    protected void initPool(JedisPoolConfig config, List<JedisShardInfo> shards) {
+        ShardedJedisPool pool = createPool(config, shards);
+        ShardedJedisPool oldPool = shardedJedisPool;
+        shardNodes = shards.stream().map(shard -> shard.getHost() + ":" + shard.getPort()).collect(Collectors.joining(","));
+        shardedJedisPool = pool;
+        if (oldPool != null) {
+            oldPool.close();
+        }
+    }
+
+    private ShardedJedisPool createPool(JedisPoolConfig config, List<JedisShardInfo> shards) {
+        ShardedJedisPool pool = new ShardedJedisPool(config, shards);
+        //替换默认的连接工厂，按健康检查策略校验连接，并使用配置的分布策略
+        pool.initPool(config, createObjectFactory(shards));
+        return pool;
+    }
+
+    private ShardedJedisObjectFactory createObjectFactory(List<JedisShardInfo> shards) {
+        RedisProperties redisProperties = getRedisProperties();
+        Pattern keyTagPattern = redisProperties.isShardingHashTag() ? Sharded.DEFAULT_KEY_TAG_PATTERN : null;
+        KetamaRing ring = null;
+        if (ShardingStrategy.getStrategy(redisProperties.getShardingStrategy()) == ShardingStrategy.ketama) {
+            ring = new KetamaRing(shards, redisProperties.getShardingVirtualNodes());
+        }
+        return new ShardedJedisObjectFactory(shards, keyTagPattern, ring, getHealthChecker());
+    }
+
+    @Override
+    protected CompletableFuture<Void> warmUpPool(int count, Executor executor) {
+        //分片连接在首次使用时才建立，先借出count个连接，并行连接所有分片后再全部归还
+        List<ShardedJedis> resources = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                resources.add(shardedJedisPool.getResource());
+            }
+        } catch (Exception e) {
+            resources.forEach(ShardedJedis::close);
+            throw e;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (ShardedJedis resource : resources) {
+            for (Jedis jedis : resource.getAllShards()) {
+                futures.add(CompletableFuture.runAsync(jedis::connect, executor));
             }
-            shards.add(jedisShardInfo);
         }
-        shardedJedisPool = new ShardedJedisPool(config, shards);
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((v, e) -> resources.forEach(ShardedJedis::close));
     }
 
     @Override
     public void executeVoid(RedisConsumer<ShardedJedis> consumer) {
-        try (ShardedJedis shardedJedis = shardedJedisPool.getResource()) {
+        executeOnPool(shardedJedisPool, CacheMetrics.CUSTOM_COMMAND, null, shardedJedis -> {
             consumer.accept(shardedJedis);
+            return null;
+        });
+    }
+
+    @Override
+    public <T> T execute(RedisFunction<ShardedJedis, T> function) {
+        return execute(CacheMetrics.CUSTOM_COMMAND, null, function);
+    }
+
+    /**
+     * 执行命令，命令名称和key用于监控统计
+     * @param command 命令名称，为ICommands的方法名
+     * @param keys 命令的key（字符串、字符串数组或集合），没有key时为null
+     */
+    private <T> T execute(String command, Object keys, RedisFunction<ShardedJedis, T> function) {
+        return executeOnPool(shardedJedisPool, command, keys, function);
+    }
+
+    private <T> T execute(String command, Object keys, long requestBytes, RedisFunction<ShardedJedis, T> function) {
+        return executeOnPool(shardedJedisPool, command, keys, requestBytes, function, Function.identity());
+    }
+
+    private <S, T> T execute(String command, Object keys, RedisFunction<ShardedJedis, S> function, Function<S, T> decoder) {
+        return executeOnPool(shardedJedisPool, command, keys, 0, function, decoder);
+    }
+
+    protected <T> T executeRead(String command, String key, RedisFunction<ShardedJedis, T> function) {
+        return executeRead(command, key, 0, function, Function.identity());
+    }
+
+    protected <T> T executeRead(String command, String key, long requestBytes, RedisFunction<ShardedJedis, T> function) {
+        return executeRead(command, key, requestBytes, function, Function.identity());
+    }
+
+    protected <S, T> T executeRead(String command, String key, RedisFunction<ShardedJedis, S> function, Function<S, T> decoder) {
+        return executeRead(command, key, 0, function, decoder);
+    }
+
+    /**
+     * 执行读命令，迁移期间新节点上结果为空、key的分布发生变化且新节点上不存在该key时，回退到旧节点读取
+     * 参数在调用前序列化，返回值在归还连接后由decoder反序列化
+     * @param requestBytes 序列化后的参数数据量
+     */
+    protected <S, T> T executeRead(String command, String key, long requestBytes, RedisFunction<ShardedJedis, S> function, Function<S, T> decoder) {
+        ShardMigration shardMigration = migration;
+        T result = executeOnPool(shardedJedisPool, command, key, requestBytes, function, decoder);
+        if (shardMigration == null || !ShardMigration.isEmpty(result) || !shardMigration.isMoved(key)) {
+            return result;
+        }
+        try {
+            //结果为0、false或空集合时key可能存在，只在新节点上不存在时回退
+            if (result != null && existsOnPool(key)) {
+                return result;
+            }
+            T oldResult = decoder.apply(shardMigration.executeOld(function));
+            return ShardMigration.isEmpty(oldResult) ? result : oldResult;
         } catch (Exception e) {
-            throw new RedisCacheException(e);
+            throw wrapException(e);
+        }
+    }
+
+    /**
+     * 新节点上是否存在key，不计入命令统计
+     */
+    private boolean existsOnPool(String key) {
+        try (ShardedJedis shardedJedis = shardedJedisPool.getResource()) {
+            return BooleanUtils.isTrue(shardedJedis.exists(key));
+        }
+    }
+
+    protected <T> T executeWrite(String command, String key, RedisFunction<ShardedJedis, T> function) {
+        return executeWrite(command, key, 0, function, Function.identity());
+    }
+
+    protected <T> T executeWrite(String command, String key, long requestBytes, RedisFunction<ShardedJedis, T> function) {
+        return executeWrite(command, key, requestBytes, function, Function.identity());
+    }
+
+    protected <S, T> T executeWrite(String command, String key, RedisFunction<ShardedJedis, S> function, Function<S, T> decoder) {
+        return executeWrite(command, key, 0, function, decoder);
+    }
+
+    /**
+     * 执行写命令（以及游标命令），迁移期间key的分布发生变化时，先将key从旧节点迁移到新节点
+     * 参数在调用前序列化，返回值在归还连接后由decoder反序列化
+     * @param requestBytes 序列化后的参数数据量
+     */
+    protected <S, T> T executeWrite(String command, String key, long requestBytes, RedisFunction<ShardedJedis, S> function, Function<S, T> decoder) {
+        ShardMigration shardMigration = migration;
+        if (shardMigration == null || !shardMigration.isMoved(key)) {
+            return executeOnPool(shardedJedisPool, command, key, requestBytes, function, decoder);
+        }
+        return executeOnPool(shardedJedisPool, command, key, requestBytes, j -> {
+            shardMigration.migrateKey(j, key);
+            return function.apply(j);
+        }, decoder);
+    }
+
+    protected <T> T executeWrite(String command, Collection<String> keys, RedisFunction<ShardedJedis, T> function) {
+        return executeWrite(command, keys, 0, function, Function.identity());
+    }
+
+    /**
+     * 执行多key的写命令，迁移期间先将分布发生变化的key迁移到新节点
+     * 参数在调用前序列化，返回值在归还连接后由decoder反序列化
+     * @param requestBytes 序列化后的参数数据量
+     */
+    protected <S, T> T executeWrite(String command, Collection<String> keys, long requestBytes, RedisFunction<ShardedJedis, S> function, Function<S, T> decoder) {
+        ShardMigration shardMigration = migration;
+        if (shardMigration == null) {
+            return executeOnPool(shardedJedisPool, command, keys, requestBytes, function, decoder);
+        }
+        return executeOnPool(shardedJedisPool, command, keys, requestBytes, j -> {
+            for (String key : keys) {
+                if (shardMigration.isMoved(key)) {
+                    shardMigration.migrateKey(j, key);
+                }
+            }
+            return function.apply(j);
+        }, decoder);
+    }
+
+    /**
+     * 所有key在同一个分片时返回该分片，否则返回null，没有key时返回第一个分片
+     */
+    private Jedis getSameShard(ShardedJedis shardedJedis, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return shardedJedis.getAllShards().iterator().next();
+        }
+        Jedis shard = null;
+        for (String key : keys) {
+            Jedis keyShard = shardedJedis.getShard(key);
+            if (shard == null) {
+                shard = keyShard;
+            } else if (shard != keyShard) {
+                return null;
+            }
         }
+        return shard;
     }
 
+    /**
+     * 所有分片共用一个连接池（每个连接包含所有分片的连接），key为所有分片的地址
+     */
     @Override
-    public <T> T execute(RedisFunction<ShardedJedis, T> function) {
+    public Map<String, Pool<?>> getPools() {
+        ShardedJedisPool pool = shardedJedisPool;
+        return pool != null ? Collections.singletonMap(shardNodes, pool) : Collections.emptyMap();
+    }
+
+    /**
+     * 停止在线迁移，关闭迁移前后的连接池
+     */
+    @Override
+    public void close() {
+        if (migration != null) {
+            migration.close();
+        }
+        if (shardedJedisPool != null) {
+            shardedJedisPool.close();
+        }
+        super.close();
+    }
+
+    @Override
+    public String getNode(String key) {
         try (ShardedJedis shardedJedis = shardedJedisPool.getResource()) {
-            return function.apply(shardedJedis);
-        } catch (Exception e) {
-            throw new RedisCacheException(e);
+            JedisShardInfo shardInfo = shardedJedis.getShardInfo(key);
+            return shardInfo.getHost() + ":" + shardInfo.getPort();
         }
     }
 
+    public ShardMigration getMigration() {
+        return migration;
+    }
+
+    @Override
+    public void executeBatch(List<BatchCommand<?>> commands) {
+        List<String> keys = commands.stream().map(BatchCommand::getKey).collect(Collectors.toList());
+        executeWrite("executeBatch", keys, j -> {
+            Map<Jedis, List<BatchCommand<?>>> groups = new LinkedHashMap<>();
+            commands.forEach(command -> groups.computeIfAbsent(j.getShard(command.getKey()), shard -> new ArrayList<>()).add(command));
+            return BatchCommand.pipelined(groups);
+        });
+    }
+
     @Override
     public Set<String> keys(String pattern) {
         throw new UnsupportedCommandException("keys");
@@ -92,49 +382,49 @@ public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
     @Override
     public String type(String key) {
         checkNotNull(key);
-        return execute(j -> j.type(key));
+        return executeRead("type", key, j -> j.type(key));
     }
 
     @Override
     public Long ttl(String key) {
         checkNotNull(key);
-        return execute(j -> j.ttl(key));
+        return executeRead("ttl", key, j -> j.ttl(key));
     }
 
     @Override
     public Long pttl(String key) {
         checkNotNull(key);
-        return execute(j -> j.pttl(key));
+        return executeRead("pttl", key, j -> j.pttl(key));
     }
 
     @Override
     public Long expire(String key, int seconds) {
         checkNotNull(key);
-        return execute(j -> j.expire(key, seconds));
+        return executeWrite("expire", key, j -> j.expire(key, seconds));
     }
 
     @Override
     public Long expireAt(String key, long unixTime) {
         checkNotNull(key);
-        return execute(j -> j.expireAt(key, unixTime));
+        return executeWrite("expireAt", key, j -> j.expireAt(key, unixTime));
     }
 
     @Override
     public Long persist(String key) {
         checkNotNull(key);
-        return execute(j -> j.persist(key));
+        return executeWrite("persist", key, j -> j.persist(key));
     }
 
     @Override
     public boolean exists(String key) {
         checkNotNull(key);
-        return execute(j -> BooleanUtils.toBoolean(j.exists(key)));
+        return executeRead("exists", key, j -> BooleanUtils.toBoolean(j.exists(key)));
     }
 
     @Override
     public Long del(String key) {
         checkNotNull(key);
-        return execute(j -> j.del(key));
+        return executeWrite("del", key, j -> j.del(key));
     }
 
     @Override
@@ -146,75 +436,150 @@ public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
     @Override
     public Long del(List<String> keys) {
         checkNotNull(keys);
-        return execute(j -> {
-            ShardedJedisPipeline pipeline = j.pipelined();
-            Map<String, Response<Long>> stringResponseMap = new HashMap<>(keys.size());
-            keys.forEach(key -> stringResponseMap.put(key, pipeline.del(key)));
-            pipeline.sync();
-            List<Long> result = transformResponse(stringResponseMap);
-            return result.stream().mapToLong(l -> NumberUtils.toLong(String.valueOf(l))).sum();
+        return execute("del", keys, j -> {
+            ShardMigration shardMigration = migration;
+            if (shardMigration != null) {
+                //迁移期间先删除旧节点上的key，避免被回退读取到或被迁移线程恢复
+                shardMigration.deleteOld(keys);
+            }
+            long count = 0;
+            for (Map.Entry<Jedis, List<String>> entry : groupByShard(j, keys).entrySet()) {
+                count += entry.getKey().del(entry.getValue().toArray(new String[0]));
+            }
+            return count;
         });
     }
 
     @Override
     public Long unlink(String key) {
         checkNotNull(key);
-        return execute(j -> j.unlink(key));
+        return executeWrite("unlink", key, j -> j.unlink(key));
+    }
+
+    @Override
+    public Long deleteByPattern(String pattern, int batchSize, int maxOpsPerSecond, LongConsumer progress) {
+        checkNotNull(pattern, progress);
+        checkBatchSize(batchSize);
+        RateLimiter rateLimiter = createRateLimiter(maxOpsPerSecond);
+        AtomicLong deleted = new AtomicLong();
+        return execute("deleteByPattern", null, j -> {
+            long count = 0;
+            for (Jedis shard : j.getAllShards()) {
+                count += unlinkByPattern(shard, pattern, batchSize, rateLimiter, false, deleted, progress);
+            }
+            return count;
+        });
     }
 
     @Override
     public String rename(String oldkey, String newkey) {
-        throw new UnsupportedCommandException("rename");
+        checkNotNull(oldkey, newkey);
+        return executeWrite("rename", Lists.newArrayList(oldkey, newkey), j -> {
+            Jedis shard = getSameShard(j, Lists.newArrayList(oldkey, newkey));
+            if (shard != null) {
+                return shard.rename(oldkey, newkey);
+            }
+            moveAcrossShards(j, oldkey, newkey, true);
+            return "OK";
+        });
     }
 
     @Override
     public Long renamenx(String oldkey, String newkey) {
-        throw new UnsupportedCommandException("renamenx");
+        checkNotNull(oldkey, newkey);
+        return executeWrite("renamenx", Lists.newArrayList(oldkey, newkey), j -> {
+            Jedis shard = getSameShard(j, Lists.newArrayList(oldkey, newkey));
+            if (shard != null) {
+                return shard.renamenx(oldkey, newkey);
+            }
+            return moveAcrossShards(j, oldkey, newkey, false) ? 1L : 0L;
+        });
+    }
+
+    /**
+     * 跨分片重命名，使用DUMP/RESTORE保留数据类型和过期时间，成功后删除原key，不是原子操作
+     */
+    private boolean moveAcrossShards(ShardedJedis shardedJedis, String oldkey, String newkey, boolean replace) {
+        Jedis source = shardedJedis.getShard(oldkey);
+        Jedis target = shardedJedis.getShard(newkey);
+        byte[] value = source.dump(oldkey);
+        if (value == null) {
+            throw new JedisDataException("ERR no such key");
+        }
+        Long pttl = source.pttl(oldkey);
+        int ttl = pttl == null || pttl < 0 ? 0 : (int) Math.min(pttl, Integer.MAX_VALUE);
+        if (replace) {
+            target.restoreReplace(newkey, ttl, value);
+        } else {
+            try {
+                target.restore(newkey, ttl, value);
+            } catch (JedisDataException e) {
+                if (e.getMessage() != null && e.getMessage().startsWith("BUSYKEY")) {
+                    return false;
+                }
+                throw e;
+            }
+        }
+        source.del(oldkey);
+        return true;
     }
 
     @Override
     public <T> String set(String key, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.set(key, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return executeWrite("set", key, PayloadSize.of(valueString), j -> j.set(key, valueString));
     }
 
     @Override
     public <T> String set(String key, T value, SetParams setParams) {
         checkNotNull(key, value, setParams);
-        return execute(j -> j.set(key, Serializer.serialize(value), setParams));
+        String valueString = Serializer.serialize(value);
+        return executeWrite("set", key, PayloadSize.of(valueString), j -> j.set(key, valueString, setParams));
     }
 
     @Override
     public <T> Long setnx(String key, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.setnx(key, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return executeWrite("setnx", key, PayloadSize.of(valueString), j -> j.setnx(key, valueString));
     }
 
     @Override
     public <T> String setex(String key, int seconds, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.setex(key, seconds, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return executeWrite("setex", key, PayloadSize.of(valueString), j -> j.setex(key, seconds, valueString));
     }
 
     @Override
     public <T> String setex(String key, long time, TimeUnit timeUnit, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.psetex(key, timeUnit.toMillis(time), Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return executeWrite("setex", key, PayloadSize.of(valueString), j -> j.psetex(key, timeUnit.toMillis(time), valueString));
     }
 
     @Override
     public <T> String psetex(String key, long milliseconds, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.psetex(key, milliseconds, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return executeWrite("psetex", key, PayloadSize.of(valueString), j -> j.psetex(key, milliseconds, valueString));
     }
 
     @Override
     public <T> String mset(Map<String, T> map) {
         checkNotNull(map);
-        return execute(j -> {
-            ShardedJedisPipeline pipeline = j.pipelined();
-            map.forEach((key, value) -> pipeline.set(key, Serializer.serialize(value)));
-            pipeline.sync();
+        Map<String, String> valueMap = new LinkedHashMap<>(map.size());
+        map.forEach((key, value) -> valueMap.put(key, Serializer.serialize(value)));
+        return execute("mset", map.keySet(), PayloadSize.of(valueMap), j -> {
+            for (Map.Entry<Jedis, List<String>> entry : groupByShard(j, valueMap.keySet()).entrySet()) {
+                List<String> keysValues = new ArrayList<>(entry.getValue().size() * 2);
+                entry.getValue().forEach(key -> {
+                    keysValues.add(key);
+                    keysValues.add(valueMap.get(key));
+                });
+                entry.getKey().mset(keysValues.toArray(new String[0]));
+            }
             return "OK";
         });
     }
@@ -222,12 +587,12 @@ public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
     @Override
     public String get(String key) {
         checkNotNull(key);
-        return execute(j -> j.get(key));
+        return executeRead("get", key, j -> j.get(key));
     }
 
     @Override
     public <T> T get(String key, Class<T> type) {
-        return execute(j -> Serializer.deserialize(j.get(key), type));
+        return executeRead("get", key, j -> j.get(key), value -> Serializer.deserialize(value, type));
     }
 
     @Override
@@ -239,67 +604,107 @@ public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
     @Override
     public List<String> mget(List<String> keys) {
         checkNotNull(keys);
-        return execute(j -> {
-            ShardedJedisPipeline pipeline = j.pipelined();
-            return keys.stream().map(pipeline::get).map(Response::get).collect(Collectors.toList());
-        });
+        return execute("mget", keys, j -> mgetByShard(j, keys));
     }
 
     @Override
     public <T> List<T> mget(List<String> keys, Class<T> type) {
         checkNotNull(keys);
-        return execute(j -> {
-            ShardedJedisPipeline pipeline = j.pipelined();
-            return Serializer.deserialize(keys.stream().map(pipeline::get).map(Response::get).collect(Collectors.toList()), type);
-        });
+        return execute("mget", keys, j -> mgetByShard(j, keys), values -> Serializer.deserialize(values, type));
+    }
+
+    /**
+     * 按分片分组执行MGET，每个分片一次网络往返，结果与keys的顺序一致
+     */
+    private List<String> mgetByShard(ShardedJedis shardedJedis, List<String> keys) throws Exception {
+        Map<String, String> values = mgetValues(shardedJedis, keys);
+        ShardMigration shardMigration = migration;
+        if (shardMigration != null) {
+            //迁移期间新节点上不存在的key回退到旧节点读取
+            List<String> missingKeys = values.entrySet().stream()
+                    .filter(entry -> entry.getValue() == null && shardMigration.isMoved(entry.getKey()))
+                    .map(Map.Entry::getKey).collect(Collectors.toList());
+            if (!missingKeys.isEmpty()) {
+                Map<String, String> oldValues = shardMigration.executeOld(j -> mgetValues(j, missingKeys));
+                oldValues.forEach((key, value) -> {
+                    if (value != null) {
+                        values.put(key, value);
+                    }
+                });
+            }
+        }
+        return keys.stream().map(values::get).collect(Collectors.toList());
+    }
+
+    private Map<String, String> mgetValues(ShardedJedis shardedJedis, List<String> keys) {
+        Map<String, String> values = new HashMap<>(keys.size());
+        for (Map.Entry<Jedis, List<String>> entry : groupByShard(shardedJedis, keys).entrySet()) {
+            List<String> shardKeys = entry.getValue();
+            List<String> shardValues = entry.getKey().mget(shardKeys.toArray(new String[0]));
+            for (int i = 0; i < shardKeys.size(); i++) {
+                values.put(shardKeys.get(i), shardValues.get(i));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 按key所在的分片分组，带有相同hash tag的key在同一个分片
+     */
+    private Map<Jedis, List<String>> groupByShard(ShardedJedis shardedJedis, Collection<String> keys) {
+        Map<Jedis, List<String>> shardKeys = new LinkedHashMap<>();
+        keys.stream().distinct().forEach(key -> shardKeys.computeIfAbsent(shardedJedis.getShard(key), shard -> new ArrayList<>()).add(key));
+        return shardKeys;
     }
 
     @Override
     public Long incr(String key) {
         checkNotNull(key);
-        return execute(j -> j.incr(key));
+        return executeWrite("incr", key, j -> j.incr(key));
     }
 
     @Override
     public Long incrBy(String key, long increment) {
         checkNotNull(key);
-        return execute(j -> j.incrBy(key, increment));
+        return executeWrite("incrBy", key, j -> j.incrBy(key, increment));
     }
 
     @Override
     public Double incrByFloat(String key, double increment) {
         checkNotNull(key);
-        return execute(j -> j.incrByFloat(key, increment));
+        return executeWrite("incrByFloat", key, j -> j.incrByFloat(key, increment));
     }
 
     @Override
     public Long decr(String key) {
         checkNotNull(key);
-        return execute(j -> j.decr(key));
+        return executeWrite("decr", key, j -> j.decr(key));
     }
 
     @Override
     public Long decrBy(String key, long decrement) {
         checkNotNull(key);
-        return execute(j -> j.decrBy(key, decrement));
+        return executeWrite("decrBy", key, j -> j.decrBy(key, decrement));
     }
 
     @Override
     public Long append(String key, String value) {
         checkNotNull(key, value);
-        return execute(j -> j.append(key, value));
+        return executeWrite("append", key, j -> j.append(key, value));
     }
 
     @Override
     public Long strlen(String key) {
         checkNotNull(key);
-        return execute(j -> j.strlen(key));
+        return executeRead("strlen", key, j -> j.strlen(key));
     }
 
     @Override
     public <P, T> Long hset(String key, P field, T value) {
         checkNotNull(key, field, value);
-        return execute(j -> j.hset(key, Serializer.serialize(field), Serializer.serialize(value)));
+        String fieldString = Serializer.serialize(field);
+        String valueString = Serializer.serialize(value);
+        return executeWrite("hset", key, PayloadSize.of(fieldString, valueString), j -> j.hset(key, fieldString, valueString));
     }
 
     @Override
@@ -307,44 +712,50 @@ public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
         checkNotNull(key, hash);
         Map<String, String> valueMap = Maps.newHashMap();
         hash.forEach((field, value) -> valueMap.put(Serializer.serialize(field), Serializer.serialize(value)));
-        return execute(j -> j.hmset(key, valueMap));
+        return executeWrite("hmset", key, PayloadSize.of(valueMap), j -> j.hmset(key, valueMap));
     }
 
     @Override
     public <P, T> Long hsetnx(String key, P field, T value) {
         checkNotNull(key, field, value);
-        return execute(j -> j.hsetnx(key, Serializer.serialize(field), Serializer.serialize(value)));
+        String fieldString = Serializer.serialize(field);
+        String valueString = Serializer.serialize(value);
+        return executeWrite("hsetnx", key, PayloadSize.of(fieldString, valueString), j -> j.hsetnx(key, fieldString, valueString));
     }
 
     @Override
     public <P> String hget(String key, P field) {
         checkNotNull(key, field);
-        return execute(j -> j.hget(key, Serializer.serialize(field)));
+        String fieldString = Serializer.serialize(field);
+        return executeRead("hget", key, PayloadSize.of(fieldString), j -> j.hget(key, fieldString));
     }
 
     @Override
     public <P, T> T hget(String key, P field, Class<T> type) {
         checkNotNull(key, field);
-        return execute(j -> Serializer.deserialize(j.hget(key, Serializer.serialize(field)), type));
+        String fieldString = Serializer.serialize(field);
+        return executeRead("hget", key, PayloadSize.of(fieldString), j -> j.hget(key, fieldString), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public <P> List<String> hmget(String key, P... fields) {
         checkNotNull(key, fields);
-        return execute(j -> j.hmget(key, Serializer.serialize(fields)));
+        String[] fieldStrings = Serializer.serialize(fields);
+        return executeRead("hmget", key, PayloadSize.of(fieldStrings), j -> j.hmget(key, fieldStrings));
     }
 
     @Override
     public <P> List<String> hmget(String key, List<P> fields) {
         checkNotNull(key, fields);
-        return execute(j -> j.hmget(key, Serializer.serialize(fields).toArray(new String[0])));
+        String[] fieldStrings = Serializer.serialize(fields).toArray(new String[0]);
+        return executeRead("hmget", key, PayloadSize.of(fieldStrings), j -> j.hmget(key, fieldStrings));
     }
 
     @Override
     public <P, T> List<T> hmget(String key, List<P> fields, Class<T> type) {
         checkNotNull(key, fields);
-        return execute(j -> {
-            List<String> hmget = j.hmget(key, Serializer.serialize(fields).toArray(new String[0]));
+        String[] fieldStrings = Serializer.serialize(fields).toArray(new String[0]);
+        return executeRead("hmget", key, PayloadSize.of(fieldStrings), j -> j.hmget(key, fieldStrings), hmget -> {
             List<T> ts = new ArrayList<>(hmget.size());
             hmget.forEach(s -> ts.add(Serializer.deserialize(s, type)));
             return ts;
@@ -354,147 +765,159 @@ public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
     @Override
     public <P> Long hincrBy(String key, P field, long value) {
         checkNotNull(key, field);
-        return execute(j -> j.hincrBy(key, Serializer.serialize(field), value));
+        String fieldString = Serializer.serialize(field);
+        return executeWrite("hincrBy", key, PayloadSize.of(fieldString), j -> j.hincrBy(key, fieldString, value));
     }
 
     @Override
     public <P> Double hincrByFloat(String key, P field, double value) {
         checkNotNull(key, field);
-        return execute(j -> j.hincrByFloat(key.getBytes(), Serializer.serialize(field).getBytes(), value));
+        String fieldString = Serializer.serialize(field);
+        return executeWrite("hincrByFloat", key, PayloadSize.of(fieldString), j -> j.hincrByFloat(key, fieldString, value));
     }
 
     @Override
     public Set<String> hkeys(String key) {
         checkNotNull(key);
-        return execute(j -> j.hkeys(key));
+        return executeRead("hkeys", key, j -> getBigKeyGuard().hkeys(j.getShard(key), key));
     }
 
     @Override
     public List<String> hvals(String key) {
         checkNotNull(key);
-        return execute(j -> j.hvals(key));
+        return executeRead("hvals", key, j -> getBigKeyGuard().hvals(j.getShard(key), key));
     }
 
     @Override
     public <T> List<T> hvals(String key, Class<T> type) {
         checkNotNull(key);
-        List<String> strings = execute(j -> j.hvals(key));
-        return Serializer.deserialize(strings, type);
+        return executeRead("hvals", key, j -> getBigKeyGuard().hvals(j.getShard(key), key), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Map<String, String> hgetAll(String key) {
         checkNotNull(key);
-        return execute(j -> j.hgetAll(key));
+        return executeRead("hgetAll", key, j -> getBigKeyGuard().hgetAll(j.getShard(key), key));
     }
 
     @Override
     public <T> Map<String, T> hgetAll(String key, Class<T> type) {
         checkNotNull(key);
-        Map<String, String> stringMap = execute(j -> j.hgetAll(key));
-        Map<String, T> result = new LinkedHashMap<>(stringMap.size());
-        stringMap.forEach((k, v) -> result.put(k, Serializer.deserialize(v, type)));
-        return result;
+        return executeRead("hgetAll", key, j -> getBigKeyGuard().hgetAll(j.getShard(key), key), stringMap -> {
+            Map<String, T> result = new LinkedHashMap<>(stringMap.size());
+            stringMap.forEach((k, v) -> result.put(k, Serializer.deserialize(v, type)));
+            return result;
+        });
     }
 
     @Override
     public ScanResult<Map.Entry<String, String>> hscan(String key, String cursor) {
         checkNotNull(key, cursor);
-        return execute(j -> j.hscan(key, cursor));
+        return executeWrite("hscan", key, j -> j.hscan(key, cursor));
     }
 
     @Override
     public ScanResult<Map.Entry<String, String>> hscan(String key, String cursor, ScanParams params) {
         checkNotNull(key, cursor, params);
-        return execute(j -> j.hscan(key, cursor, params));
+        return executeWrite("hscan", key, j -> j.hscan(key, cursor, params));
     }
 
     @Override
     public <P> boolean hexists(String key, P field) {
         checkNotNull(key, field);
-        return execute(j -> j.hexists(key, Serializer.serialize(field)));
+        String fieldString = Serializer.serialize(field);
+        return executeRead("hexists", key, PayloadSize.of(fieldString), j -> j.hexists(key, fieldString));
     }
 
     @Override
     public <P> Long hdel(String key, P... fields) {
         checkNotNull(key, fields);
-        return execute(j -> j.hdel(key, Serializer.serialize(fields)));
+        String[] fieldStrings = Serializer.serialize(fields);
+        return executeWrite("hdel", key, PayloadSize.of(fieldStrings), j -> j.hdel(key, fieldStrings));
     }
 
     @Override
     public <P> Long hdel(String key, List<P> fields) {
         checkNotNull(key, fields);
-        return execute(j -> j.hdel(key, Serializer.serialize(fields).toArray(new String[0])));
+        String[] fieldStrings = Serializer.serialize(fields).toArray(new String[0]);
+        return executeWrite("hdel", key, PayloadSize.of(fieldStrings), j -> j.hdel(key, fieldStrings));
     }
 
     @Override
     public <P> Long hstrlen(String key, P field) {
         checkNotNull(key, field);
-        return execute(j -> j.hstrlen(key, Serializer.serialize(field)));
+        String fieldString = Serializer.serialize(field);
+        return executeRead("hstrlen", key, PayloadSize.of(fieldString), j -> j.hstrlen(key, fieldString));
     }
 
     @Override
     public <T> Long lpush(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.lpush(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return executeWrite("lpush", key, PayloadSize.of(valueStrings), j -> j.lpush(key, valueStrings));
     }
 
     @Override
     public <T> Long lpush(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.lpush(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return executeWrite("lpush", key, PayloadSize.of(valueStrings), j -> j.lpush(key, valueStrings));
     }
 
     @Override
     public <T> Long rpush(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.rpush(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return executeWrite("rpush", key, PayloadSize.of(valueStrings), j -> j.rpush(key, valueStrings));
     }
 
     @Override
     public <T> Long rpush(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.rpush(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return executeWrite("rpush", key, PayloadSize.of(valueStrings), j -> j.rpush(key, valueStrings));
     }
 
     @Override
     public <T> Long lpushx(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.lpushx(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return executeWrite("lpushx", key, PayloadSize.of(valueStrings), j -> j.lpushx(key, valueStrings));
     }
 
     @Override
     public <T> Long lpushx(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.lpushx(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return executeWrite("lpushx", key, PayloadSize.of(valueStrings), j -> j.lpushx(key, valueStrings));
     }
 
     @Override
     public <T> Long rpushx(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.rpushx(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return executeWrite("rpushx", key, PayloadSize.of(valueStrings), j -> j.rpushx(key, valueStrings));
     }
 
     @Override
     public <T> Long rpushx(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.rpushx(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return executeWrite("rpushx", key, PayloadSize.of(valueStrings), j -> j.rpushx(key, valueStrings));
     }
 
     @Override
     public <T> String lset(String key, long index, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.lset(key, index, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return executeWrite("lset", key, PayloadSize.of(valueString), j -> j.lset(key, index, valueString));
     }
 
     @Override
     public <T> Long linsert(String key, ListPosition where, String pivot, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.linsert(key, where, pivot, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return executeWrite("linsert", key, PayloadSize.of(valueString), j -> j.linsert(key, where, pivot, valueString));
     }
 
     @Override
@@ -510,617 +933,681 @@ public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
     @Override
     public List<String> lrange(String key, long start, long end) {
         checkNotNull(key);
-        return execute(j -> j.lrange(key, start, end));
+        return executeRead("lrange", key, j -> j.lrange(key, start, end));
     }
 
     @Override
     public <T> List<T> lrange(String key, long start, long end, Class<T> type) {
         checkNotNull(key);
-        List<String> strings = execute(j -> j.lrange(key, start, end));
-        return Serializer.deserialize(strings, type);
+        return executeRead("lrange", key, j -> j.lrange(key, start, end), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public List<String> lrangePage(String key, int pageNo, int pageSize) {
         checkNotNull(key);
-        return execute(j -> j.lrange(key, pageNo * pageSize, (pageNo + 1) * pageSize));
+        return executeRead("lrangePage", key, j -> j.lrange(key, pageNo * pageSize, (pageNo + 1) * pageSize));
     }
 
     @Override
     public <T> List<T> lrangePage(String key, int pageNo, int pageSize, Class<T> type) {
         checkNotNull(key);
-        List<String> strings = execute(j -> j.lrange(key, pageNo * pageSize, (pageNo + 1) * pageSize));
-        return Serializer.deserialize(strings, type);
+        return executeRead("lrangePage", key, j -> j.lrange(key, pageNo * pageSize, (pageNo + 1) * pageSize), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public List<String> lrangeAll(String key) {
         checkNotNull(key);
-        return execute(j -> j.lrange(key, 0, -1));
+        return executeRead("lrangeAll", key, j -> getBigKeyGuard().lrangeAll(j.getShard(key), key));
     }
 
     @Override
     public <T> List<T> lrangeAll(String key, Class<T> type) {
         checkNotNull(key);
-        List<String> strings = execute(j -> j.lrange(key, 0, -1));
-        return Serializer.deserialize(strings, type);
+        return executeRead("lrangeAll", key, j -> getBigKeyGuard().lrangeAll(j.getShard(key), key), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public String lindex(String key, int index) {
         checkNotNull(key);
-        return execute(j -> j.lindex(key, index));
+        return executeRead("lindex", key, j -> j.lindex(key, index));
     }
 
     @Override
     public <T> T lindex(String key, int index, Class<T> type) {
         checkNotNull(key);
-        String s = execute(j -> j.lindex(key, index));
-        return Serializer.deserialize(s, type);
+        return executeRead("lindex", key, j -> j.lindex(key, index), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public Long llen(String key) {
         checkNotNull(key);
-        return execute(j -> j.llen(key));
+        return executeRead("llen", key, j -> j.llen(key));
     }
 
     @Override
     public String lpop(String key) {
         checkNotNull(key);
-        return execute(j -> j.lpop(key));
+        return executeWrite("lpop", key, j -> j.lpop(key));
     }
 
     @Override
     public <T> T lpop(String key, Class<T> type) {
         checkNotNull(key);
-        String s = execute(j -> j.lpop(key));
-        return Serializer.deserialize(s, type);
+        return executeWrite("lpop", key, j -> j.lpop(key), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public String rpop(String key) {
         checkNotNull(key);
-        return execute(j -> j.rpop(key));
+        return executeWrite("rpop", key, j -> j.rpop(key));
     }
 
     @Override
     public <T> T rpop(String key, Class<T> type) {
         checkNotNull(key);
-        String s = execute(j -> j.rpop(key));
-        return Serializer.deserialize(s, type);
+        return executeWrite("rpop", key, j -> j.rpop(key), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public List<String> blpop(int timeout, String key) {
         checkNotNull(key);
-        return execute(j -> j.blpop(timeout, key));
+        return executeWrite("blpop", key, j -> j.blpop(timeout, key));
     }
 
     @Override
     public List<String> brpop(int timeout, String key) {
         checkNotNull(key);
-        return execute(j -> j.brpop(timeout, key));
+        return executeWrite("brpop", key, j -> j.brpop(timeout, key));
     }
 
     @Override
     public <T> Long lrem(String key, long count, T value) {
         checkNotNull(key);
-        return execute(j -> j.lrem(key, count, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return executeWrite("lrem", key, PayloadSize.of(valueString), j -> j.lrem(key, count, valueString));
     }
 
     @Override
     public String ltrim(String key, long start, long end) {
         checkNotNull(key);
-        return execute(j -> j.ltrim(key, start, end));
+        return executeWrite("ltrim", key, j -> j.ltrim(key, start, end));
     }
 
     @Override
     public <T> Long sadd(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.sadd(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return executeWrite("sadd", key, PayloadSize.of(valueStrings), j -> j.sadd(key, valueStrings));
     }
 
     @Override
     public <T> Long sadd(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.sadd(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return executeWrite("sadd", key, PayloadSize.of(valueStrings), j -> j.sadd(key, valueStrings));
     }
 
     @Override
     public Set<String> smembers(String key) {
         checkNotNull(key);
-        return execute(j -> j.smembers(key));
+        return executeRead("smembers", key, j -> getBigKeyGuard().smembers(j.getShard(key), key));
     }
 
     @Override
     public <T> Set<T> smembers(String key, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.smembers(key));
-        return Serializer.deserialize(strings, type);
+        return executeRead("smembers", key, j -> getBigKeyGuard().smembers(j.getShard(key), key), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public ScanResult<String> sscan(String key, String cursor) {
         checkNotNull(key, cursor);
-        return execute(j -> j.sscan(key, cursor));
+        return executeWrite("sscan", key, j -> j.sscan(key, cursor));
     }
 
     @Override
     public <T> ScanResult<T> sscan(String key, String cursor, Class<T> type) {
         checkNotNull(key, cursor);
-        ScanResult<String> strings = execute(j -> j.sscan(key, cursor));
-        return new ScanResult<>(cursor, Serializer.deserialize(strings.getResult(), type));
+        return executeWrite("sscan", key, j -> j.sscan(key, cursor),
+                strings -> new ScanResult<>(strings.getCursor(), Serializer.deserialize(strings.getResult(), type)));
     }
 
     @Override
     public ScanResult<String> sscan(String key, String cursor, ScanParams params) {
         checkNotNull(key, cursor, params);
-        return execute(j -> {
-            ScanResult<byte[]> scanResult = j.sscan(key.getBytes(), cursor.getBytes(), params);
-            List<String> strings = scanResult.getResult().stream().map(String::new).collect(Collectors.toList());
-            return new ScanResult<>(cursor, strings);
-        });
+        return executeWrite("sscan", key, j -> j.sscan(key, cursor, params));
     }
 
     @Override
     public <T> ScanResult<T> sscan(String key, String cursor, ScanParams params, Class<T> type) {
         checkNotNull(key, cursor, params);
-        ScanResult<String> strings = sscan(key, cursor, params);
-        return new ScanResult<>(cursor, Serializer.deserialize(strings.getResult(), type));
+        return executeWrite("sscan", key, j -> j.sscan(key, cursor, params),
+                strings -> new ScanResult<>(strings.getCursor(), Serializer.deserialize(strings.getResult(), type)));
     }
 
     @Override
     public <T> Long srem(String key, T... values) {
         checkNotNull(key, values);
-        return execute(j -> j.srem(key, Serializer.serialize(values)));
+        String[] valueStrings = Serializer.serialize(values);
+        return executeWrite("srem", key, PayloadSize.of(valueStrings), j -> j.srem(key, valueStrings));
     }
 
     @Override
     public <T> Long srem(String key, List<T> values) {
         checkNotNull(key, values);
-        List<String> strings = Serializer.serialize(values);
-        return execute(j -> j.srem(key, strings.toArray(new String[0])));
+        String[] valueStrings = Serializer.serialize(values).toArray(new String[0]);
+        return executeWrite("srem", key, PayloadSize.of(valueStrings), j -> j.srem(key, valueStrings));
     }
 
     @Override
     public String spop(String key) {
         checkNotNull(key);
-        return execute(j -> j.spop(key));
+        return executeWrite("spop", key, j -> j.spop(key));
     }
 
     @Override
     public <T> T spop(String key, Class<T> type) {
         checkNotNull(key);
-        String s = execute(j -> j.spop(key));
-        return Serializer.deserialize(s, type);
+        return executeWrite("spop", key, j -> j.spop(key), value -> Serializer.deserialize(value, type));
     }
 
     @Override
     public Long scard(String key) {
         checkNotNull(key);
-        return execute(j -> j.scard(key));
+        return executeRead("scard", key, j -> j.scard(key));
     }
 
     @Override
     public <T> boolean sismember(String key, T value) {
         checkNotNull(key, value);
-        return execute(j -> j.sismember(key, Serializer.serialize(value)));
+        String valueString = Serializer.serialize(value);
+        return executeRead("sismember", key, PayloadSize.of(valueString), j -> j.sismember(key, valueString));
     }
 
     @Override
     public String srandmember(String key) {
         checkNotNull(key);
-        return execute(j -> j.srandmember(key));
+        return executeRead("srandmember", key, j -> j.srandmember(key));
     }
 
     @Override
     public List<String> srandmember(String key, int count) {
         checkNotNull(key);
-        return execute(j -> j.srandmember(key, count));
+        return executeRead("srandmember", key, j -> j.srandmember(key, count));
     }
 
     @Override
     public <T> List<T> srandmember(String key, int count, Class<T> type) {
         checkNotNull(key);
-        return execute(j -> Serializer.deserialize(j.srandmember(key, count), type));
+        return executeRead("srandmember", key, j -> j.srandmember(key, count), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public <T> Long zadd(String key, double score, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zadd(key, score, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return executeWrite("zadd", key, PayloadSize.of(memberString), j -> j.zadd(key, score, memberString));
     }
 
     @Override
     public <T> Long zadd(String key, double score, T member, ZAddParams params) {
         checkNotNull(key, member, params);
-        return execute(j -> j.zadd(key, score, Serializer.serialize(member), params));
+        String memberString = Serializer.serialize(member);
+        return executeWrite("zadd", key, PayloadSize.of(memberString), j -> j.zadd(key, score, memberString, params));
     }
 
     @Override
     public Long zadd(String key, Map<String, Double> scoreMembers) {
         checkNotNull(key, scoreMembers);
-        return execute(j -> j.zadd(key, scoreMembers));
+        return executeWrite("zadd", key, j -> j.zadd(key, scoreMembers));
     }
 
     @Override
     public Long zadd(String key, Map<String, Double> scoreMembers, ZAddParams params) {
         checkNotNull(key, scoreMembers, params);
-        return execute(j -> j.zadd(key, scoreMembers, params));
+        return executeWrite("zadd", key, j -> j.zadd(key, scoreMembers, params));
     }
 
     @Override
     public Set<String> zrange(String key, long start, long stop) {
         checkNotNull(key);
-        return execute(j -> j.zrange(key, start, stop));
+        return executeRead("zrange", key, j -> j.zrange(key, start, stop));
     }
 
     @Override
     public <T> Set<T> zrange(String key, long start, long stop, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrange(key, start, stop));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrange", key, j -> j.zrange(key, start, stop), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrevrange(String key, long start, long stop) {
         checkNotNull(key);
-        return execute(j -> j.zrevrange(key, start, stop));
+        return executeRead("zrevrange", key, j -> j.zrevrange(key, start, stop));
     }
 
     @Override
     public <T> Set<T> zrevrange(String key, long start, long stop, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrevrange(key, start, stop));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrevrange", key, j -> j.zrevrange(key, start, stop), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public <T> Long zrem(String key, T... members) {
         checkNotNull(key, members);
-        return execute(j -> j.zrem(key, Serializer.serialize(members)));
+        String[] memberStrings = Serializer.serialize(members);
+        return executeWrite("zrem", key, PayloadSize.of(memberStrings), j -> j.zrem(key, memberStrings));
     }
 
     @Override
     public <T> Long zrem(String key, List<T> members) {
         checkNotNull(key, members);
-        return execute(j -> j.zrem(key, Serializer.serialize(members).toArray(new String[0])));
+        String[] memberStrings = Serializer.serialize(members).toArray(new String[0]);
+        return executeWrite("zrem", key, PayloadSize.of(memberStrings), j -> j.zrem(key, memberStrings));
     }
 
     @Override
     public <T> Double zincrby(String key, double increment, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zincrby(key, increment, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return executeWrite("zincrby", key, PayloadSize.of(memberString), j -> j.zincrby(key, increment, memberString));
     }
 
     @Override
     public <T> Double zincrby(String key, double increment, T member, ZIncrByParams params) {
         checkNotNull(key, member, params);
-        return execute(j -> j.zincrby(key, increment, Serializer.serialize(member), params));
+        String memberString = Serializer.serialize(member);
+        return executeWrite("zincrby", key, PayloadSize.of(memberString), j -> j.zincrby(key, increment, memberString, params));
     }
 
     @Override
     public Set<String> zrangeByScore(String key, double min, double max) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByScore(key, min, max));
+        return executeRead("zrangeByScore", key, j -> j.zrangeByScore(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrangeByScore(String key, double min, double max, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrangeByScore(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrangeByScore", key, j -> j.zrangeByScore(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrangeByScore(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByScore(key, min, max));
+        return executeRead("zrangeByScore", key, j -> j.zrangeByScore(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrangeByScore(String key, String min, String max, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrangeByScore(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrangeByScore", key, j -> j.zrangeByScore(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByScoreWithScores(key, min, max));
+        return executeRead("zrangeByScoreWithScores", key, j -> j.zrangeByScoreWithScores(key, min, max));
     }
 
     @Override
     public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByScoreWithScores(key, min, max, offset, count));
+        return executeRead("zrangeByScoreWithScores", key, j -> j.zrangeByScoreWithScores(key, min, max, offset, count));
     }
 
     @Override
     public Set<String> zrevrangeByScore(String key, double max, double min) {
         checkNotNull(key);
-        return execute(j -> j.zrevrangeByScore(key, min, max));
+        return executeRead("zrevrangeByScore", key, j -> j.zrevrangeByScore(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrevrangeByScore(String key, double max, double min, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrevrangeByScore(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrevrangeByScore", key, j -> j.zrevrangeByScore(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrevrangeByScore(String key, String max, String min) {
         checkNotNull(key);
-        return execute(j -> j.zrevrangeByScore(key, min, max));
+        return executeRead("zrevrangeByScore", key, j -> j.zrevrangeByScore(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrevrangeByScore(String key, String max, String min, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrevrangeByScore(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrevrangeByScore", key, j -> j.zrevrangeByScore(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrangeByLex(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zrangeByLex(key, min, max));
+        return executeRead("zrangeByLex", key, j -> j.zrangeByLex(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrangeByLex(String key, String min, String max, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrangeByLex(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrangeByLex", key, j -> j.zrangeByLex(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public Set<String> zrevrangeByLex(String key, String max, String min) {
         checkNotNull(key);
-        return execute(j -> j.zrevrangeByLex(key, min, max));
+        return executeRead("zrevrangeByLex", key, j -> j.zrevrangeByLex(key, min, max));
     }
 
     @Override
     public <T> Set<T> zrevrangeByLex(String key, String max, String min, Class<T> type) {
         checkNotNull(key);
-        Set<String> strings = execute(j -> j.zrevrangeByLex(key, min, max));
-        return Serializer.deserialize(strings, type);
+        return executeRead("zrevrangeByLex", key, j -> j.zrevrangeByLex(key, min, max), values -> Serializer.deserialize(values, type));
     }
 
     @Override
     public ScanResult<Tuple> zscan(String key, String cursor) {
         checkNotNull(key, cursor);
-        return execute(j -> j.zscan(key, cursor));
+        return executeWrite("zscan", key, j -> j.zscan(key, cursor));
     }
 
     @Override
     public ScanResult<Tuple> zscan(String key, String cursor, ScanParams params) {
         checkNotNull(key, cursor, params);
-        return execute(j -> j.zscan(key.getBytes(), cursor.getBytes(), params));
+        return executeWrite("zscan", key, j -> j.zscan(key, cursor, params));
     }
 
     @Override
     public Long zremrangeByRank(String key, long start, long stop) {
         checkNotNull(key);
-        return execute(j -> j.zremrangeByRank(key, start, stop));
+        return executeWrite("zremrangeByRank", key, j -> j.zremrangeByRank(key, start, stop));
     }
 
     @Override
     public Long zremrangeByScore(String key, double min, double max) {
         checkNotNull(key);
-        return execute(j -> j.zremrangeByScore(key, min, max));
+        return executeWrite("zremrangeByScore", key, j -> j.zremrangeByScore(key, min, max));
     }
 
     @Override
     public Long zremrangeByScore(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zremrangeByScore(key, min, max));
+        return executeWrite("zremrangeByScore", key, j -> j.zremrangeByScore(key, min, max));
     }
 
     @Override
     public Long zremrangeByLex(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zremrangeByLex(key, min, max));
+        return executeWrite("zremrangeByLex", key, j -> j.zremrangeByLex(key, min, max));
     }
 
     @Override
     public <T> Long zrank(String key, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zrank(key, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return executeRead("zrank", key, PayloadSize.of(memberString), j -> j.zrank(key, memberString));
     }
 
     @Override
     public <T> Long zrevrank(String key, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zrevrank(key, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return executeRead("zrevrank", key, PayloadSize.of(memberString), j -> j.zrevrank(key, memberString));
     }
 
     @Override
     public Long zcard(String key) {
         checkNotNull(key);
-        return execute(j -> j.zcard(key));
+        return executeRead("zcard", key, j -> j.zcard(key));
     }
 
     @Override
     public <T> Double zscore(String key, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.zscore(key, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return executeRead("zscore", key, PayloadSize.of(memberString), j -> j.zscore(key, memberString));
     }
 
     @Override
     public Long zcount(String key, double min, double max) {
         checkNotNull(key);
-        return execute(j -> j.zcount(key, min, max));
+        return executeRead("zcount", key, j -> j.zcount(key, min, max));
     }
 
     @Override
     public Long zcount(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zcount(key, min, max));
+        return executeRead("zcount", key, j -> j.zcount(key, min, max));
     }
 
     @Override
     public Long zlexcount(String key, String min, String max) {
         checkNotNull(key);
-        return execute(j -> j.zlexcount(key, min, max));
+        return executeRead("zlexcount", key, j -> j.zlexcount(key, min, max));
     }
 
     @Override
     public <T> Long pfadd(String key, T... elements) {
         checkNotNull(key, elements);
-        return execute(j -> j.pfadd(key, Serializer.serialize(elements)));
+        String[] elementStrings = Serializer.serialize(elements);
+        return executeWrite("pfadd", key, PayloadSize.of(elementStrings), j -> j.pfadd(key, elementStrings));
     }
 
     @Override
     public <T> Long pfadd(String key, List<T> elements) {
         checkNotNull(key, elements);
-        return execute(j -> j.pfadd(key, Serializer.serialize(elements).toArray(new String[0])));
+        String[] elementStrings = Serializer.serialize(elements).toArray(new String[0]);
+        return executeWrite("pfadd", key, PayloadSize.of(elementStrings), j -> j.pfadd(key, elementStrings));
     }
 
     @Override
     public Long pfcount(String key) {
         checkNotNull(key);
-        return execute(j -> j.pfcount(key));
+        return executeRead("pfcount", key, j -> j.pfcount(key));
     }
 
     @Override
     public boolean setbit(String key, long offset, boolean value) {
         checkNotNull(key);
-        return execute(j -> j.setbit(key, offset, value));
+        return executeWrite("setbit", key, j -> j.setbit(key, offset, value));
     }
 
     @Override
     public boolean setbit(String key, long offset, String value) {
         checkNotNull(key);
-        return execute(j -> j.setbit(key, offset, value));
+        return executeWrite("setbit", key, j -> j.setbit(key, offset, value));
     }
 
     @Override
     public boolean getbit(String key, long offset) {
         checkNotNull(key);
-        return execute(j -> j.getbit(key, offset));
+        return executeRead("getbit", key, j -> j.getbit(key, offset));
     }
 
     @Override
     public Long bitcount(String key) {
         checkNotNull(key);
-        return execute(j -> j.bitcount(key));
+        return executeRead("bitcount", key, j -> j.bitcount(key));
     }
 
     @Override
     public Long bitcount(String key, long start, long end) {
         checkNotNull(key);
-        return execute(j -> j.bitcount(key, start, end));
+        return executeRead("bitcount", key, j -> j.bitcount(key, start, end));
     }
 
     @Override
     public Long bitpos(String key, boolean value) {
         checkNotNull(key);
-        return execute(j -> j.bitpos(key, value));
+        return executeRead("bitpos", key, j -> j.bitpos(key, value));
     }
 
     @Override
     public Long bitpos(String key, boolean value, long start, long end) {
         checkNotNull(key);
-        return execute(j -> j.bitpos(key, value, new BitPosParams(start, end)));
+        return executeRead("bitpos", key, j -> j.bitpos(key, value, new BitPosParams(start, end)));
     }
 
     @Override
     public Long bitop(BitOP op, String destKey, String... srcKeys) {
-        throw new UnsupportedCommandException("bitop");
+        checkNotNull(op, destKey, srcKeys);
+        return bitop(op, destKey, Lists.newArrayList(srcKeys));
     }
 
     @Override
     public Long bitop(BitOP op, String destKey, List<String> srcKeys) {
-        throw new UnsupportedCommandException("bitop");
+        checkNotNull(op, destKey, srcKeys);
+        List<String> keys = new ArrayList<>(srcKeys);
+        keys.add(destKey);
+        return executeWrite("bitop", keys, j -> {
+            Jedis shard = getSameShard(j, keys);
+            if (shard != null) {
+                return shard.bitop(op, destKey, srcKeys.toArray(new String[0]));
+            }
+            return BitOpEmulator.bitop(op, destKey, srcKeys, new ShardedBitmapStore(j));
+        });
+    }
+
+    /**
+     * 按分片读写位图，不同分片的key并行读取，同一分片的key使用pipeline
+     */
+    private class ShardedBitmapStore implements BitOpEmulator.BitmapStore {
+
+        private final ShardedJedis shardedJedis;
+
+        private ShardedBitmapStore(ShardedJedis shardedJedis) {
+            this.shardedJedis = shardedJedis;
+        }
+
+        @Override
+        public Map<String, Long> strlen(List<String> keys) {
+            return pipelined(keys, (pipeline, key) -> pipeline.strlen(key));
+        }
+
+        @Override
+        public Map<String, byte[]> getrange(List<String> keys, long start, long end) {
+            return pipelined(keys, (pipeline, key) -> pipeline.getrange(SafeEncoder.encode(key), start, end));
+        }
+
+        @Override
+        public void setrange(String key, long offset, byte[] value) {
+            shardedJedis.getShard(key).setrange(SafeEncoder.encode(key), offset, value);
+        }
+
+        @Override
+        public void del(String key) {
+            shardedJedis.getShard(key).del(key);
+        }
+
+        private <T> Map<String, T> pipelined(List<String> keys, BiFunction<Pipeline, String, Response<T>> command) {
+            List<Supplier<Map<String, T>>> tasks = new ArrayList<>();
+            for (Map.Entry<Jedis, List<String>> entry : groupByShard(shardedJedis, keys).entrySet()) {
+                tasks.add(() -> {
+                    Pipeline pipeline = entry.getKey().pipelined();
+                    Map<String, Response<T>> responses = new LinkedHashMap<>();
+                    entry.getValue().forEach(key -> responses.put(key, command.apply(pipeline, key)));
+                    pipeline.sync();
+                    return Maps.transformValues(responses, Response::get);
+                });
+            }
+            Map<String, T> results = new HashMap<>(keys.size());
+            BitOpEmulator.parallel(tasks).forEach(results::putAll);
+            return results;
+        }
     }
 
     @Override
     public List<Long> bitfield(String key, String... arguments) {
         checkNotNull(key, arguments);
-        return execute(j -> j.bitfield(key, arguments));
+        return executeWrite("bitfield", key, j -> j.bitfield(key, arguments));
     }
 
     @Override
     public List<Long> bitfield(String key, List<String> arguments) {
         checkNotNull(key, arguments);
-        return execute(j -> j.bitfield(key, arguments.toArray(new String[0])));
+        return executeWrite("bitfield", key, j -> j.bitfield(key, arguments.toArray(new String[0])));
     }
 
     @Override
     public <T> Long geoadd(String key, double longitude, double latitude, T member) {
         checkNotNull(key, member);
-        return execute(j -> j.geoadd(key, longitude, latitude, Serializer.serialize(member)));
+        String memberString = Serializer.serialize(member);
+        return executeWrite("geoadd", key, PayloadSize.of(memberString), j -> j.geoadd(key, longitude, latitude, memberString));
     }
 
     @Override
     public Long geoadd(String key, Map<String, GeoCoordinate> memberCoordinateMap) {
         checkNotNull(key, memberCoordinateMap);
-        return execute(j -> j.geoadd(key, memberCoordinateMap));
+        return executeWrite("geoadd", key, j -> j.geoadd(key, memberCoordinateMap));
     }
 
     @Override
     public <T> Double geodist(String key, T member1, T member2) {
         checkNotNull(key, member1, member2);
-        return execute(j -> j.geodist(key, Serializer.serialize(member1), Serializer.serialize(member2)));
+        String member1String = Serializer.serialize(member1);
+        String member2String = Serializer.serialize(member2);
+        return executeRead("geodist", key, PayloadSize.of(member1String, member2String), j -> j.geodist(key, member1String, member2String));
     }
 
     @Override
     public <T> Double geodist(String key, T member1, T member2, GeoUnit unit) {
         checkNotNull(key, member1, member2);
-        return execute(j -> j.geodist(key, Serializer.serialize(member1), Serializer.serialize(member2), unit));
+        String member1String = Serializer.serialize(member1);
+        String member2String = Serializer.serialize(member2);
+        return executeRead("geodist", key, PayloadSize.of(member1String, member2String), j -> j.geodist(key, member1String, member2String, unit));
     }
 
     @Override
     public <T> List<String> geohash(String key, T... members) {
         checkNotNull(key, members);
-        return execute(j -> j.geohash(key, Serializer.serialize(members)));
+        String[] memberStrings = Serializer.serialize(members);
+        return executeRead("geohash", key, PayloadSize.of(memberStrings), j -> j.geohash(key, memberStrings));
     }
 
     @Override
     public <T> List<String> geohash(String key, List<T> members) {
         checkNotNull(key, members);
-        return execute(j -> j.geohash(key, Serializer.serialize(members).toArray(new String[0])));
+        String[] memberStrings = Serializer.serialize(members).toArray(new String[0]);
+        return executeRead("geohash", key, PayloadSize.of(memberStrings), j -> j.geohash(key, memberStrings));
     }
 
     @Override
     public <T> List<GeoCoordinate> geopos(String key, T... members) {
         checkNotNull(key, members);
-        return execute(j -> j.geopos(key, Serializer.serialize(members)));
+        String[] memberStrings = Serializer.serialize(members);
+        return executeRead("geopos", key, PayloadSize.of(memberStrings), j -> j.geopos(key, memberStrings));
     }
 
     @Override
     public <T> List<GeoCoordinate> geopos(String key, List<T> members) {
         checkNotNull(key, members);
-        return execute(j -> j.geopos(key, Serializer.serialize(members).toArray(new String[0])));
+        String[] memberStrings = Serializer.serialize(members).toArray(new String[0]);
+        return executeRead("geopos", key, PayloadSize.of(memberStrings), j -> j.geopos(key, memberStrings));
     }
 
     @Override
     public List<GeoRadiusResponse> georadius(String key, double longitude, double latitude, double radius, GeoUnit unit) {
         checkNotNull(key);
-        return execute(j -> j.georadius(key, longitude, latitude, radius, unit));
+        return executeRead("georadius", key, j -> j.georadius(key, longitude, latitude, radius, unit));
     }
 
     @Override
     public List<GeoRadiusResponse> georadius(String key, double longitude, double latitude, double radius, GeoUnit unit, GeoRadiusParam param) {
         checkNotNull(key);
-        return execute(j -> j.georadius(key, longitude, latitude, radius, unit, param));
+        return executeRead("georadius", key, j -> j.georadius(key, longitude, latitude, radius, unit, param));
     }
 
     @Override
     public <T> List<GeoRadiusResponse> georadiusByMember(String key, T member, double radius, GeoUnit unit) {
         checkNotNull(key);
-        return execute(j -> j.georadiusByMember(key, Serializer.serialize(member), radius, unit));
+        String memberString = Serializer.serialize(member);
+        return executeRead("georadiusByMember", key, PayloadSize.of(memberString), j -> j.georadiusByMember(key, memberString, radius, unit));
     }
 
     @Override
     public <T> List<GeoRadiusResponse> georadiusByMember(String key, T member, double radius, GeoUnit unit, GeoRadiusParam param) {
         checkNotNull(key);
-        return execute(j -> j.georadiusByMember(key, Serializer.serialize(member), radius, unit, param));
+        String memberString = Serializer.serialize(member);
+        return executeRead("georadiusByMember", key, PayloadSize.of(memberString), j -> j.georadiusByMember(key, memberString, radius, unit, param));
     }
 
     @Override
@@ -1132,7 +1619,7 @@ public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
         }
         long[] offsets = BitHashUtil.getBitOffsets(value);
         for (long offset : offsets) {
-            execute(j -> j.setbit(key, offset, true));
+            executeWrite("bloomadd", key, j -> j.setbit(key, offset, true));
         }
         return true;
     }
@@ -1142,7 +1629,7 @@ public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
         checkNotNull(key, value);
         long[] offsets = BitHashUtil.getBitOffsets(value);
         for (long offset : offsets) {
-            Boolean execute = execute(j -> j.getbit(key, offset));
+            Boolean execute = executeRead("bloomcons", key, j -> j.getbit(key, offset));
             if (BooleanUtils.isFalse(execute)) {
                 return false;
             }
@@ -1156,7 +1643,7 @@ public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
         SetParams setParams = SetParams.setParams();
         setParams.nx();
         setParams.px(expireTime);
-        String result = execute(j -> j.set(lockKey, requestId, setParams));
+        String result = executeWrite("getDistributedLock", lockKey, j -> j.set(lockKey, requestId, setParams));
         return "OK".equals(result);
     }
 
@@ -1164,24 +1651,57 @@ public class RedisShardedExecutor extends AbstractExecutor<ShardedJedis> {
     public boolean releaseDistributedLock(String lockKey, String requestId) {
         checkNotNull(lockKey, requestId);
         String script = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
-        Object result = execute(j -> j.getShard(lockKey).eval(script, Collections.singletonList(lockKey), Collections.singletonList(requestId)));
+        Object result = executeWrite("releaseDistributedLock", lockKey, j -> {
+            Jedis shard = j.getShard(lockKey);
+            return ScriptRegistry.evalsha(script,
+                    sha1 -> shard.evalsha(sha1, Collections.singletonList(lockKey), Collections.singletonList(requestId)), shard::scriptLoad);
+        });
         Long success = 1L;
         return success.equals(result);
     }
 
     @Override
     public <P, T> T eval(String script, int keyCount, List<P> params, Class<T> type) {
-        throw new UnsupportedCommandException("eval");
+        if (keyCount != 0) {
+            checkNotNull(params);
+        }
+        List<String> strings = params == null ? Collections.emptyList() : Serializer.serialize(params);
+        checkKeyCount(keyCount, strings.size());
+        return evalOnShard(script, strings.subList(0, keyCount), strings.subList(keyCount, strings.size()), type);
     }
 
     @Override
     public <P, T> T eval(String script, int keyCount, Class<T> type, P... params) {
-        throw new UnsupportedCommandException("eval");
+        if (keyCount != 0) {
+            checkNotNull(params);
+        }
+        List<String> strings = params == null ? Collections.emptyList() : Arrays.asList(Serializer.serialize(params));
+        checkKeyCount(keyCount, strings.size());
+        return evalOnShard(script, strings.subList(0, keyCount), strings.subList(keyCount, strings.size()), type);
     }
 
     @Override
     public <P, T, R> R eval(String script, List<P> keys, List<T> args, Class<R> type) {
-        throw new UnsupportedCommandException("eval");
+        checkNotNull(keys, args);
+        List<String> keyStrings = Serializer.serialize(keys);
+        List<String> argStrings = Serializer.serialize(args);
+        return evalOnShard(script, keyStrings, argStrings, type);
+    }
+
+    /**
+     * 所有key在同一个分片时在该分片上执行脚本，没有key时在第一个分片上执行
+     * 脚本无法在客户端模拟，key分布在多个分片时需要使用 {tag} 形式的hash tag（cache.redis.sharding.hash.tag）
+     * @param keys 序列化后的参数名列表
+     * @param args 序列化后的参数值列表
+     */
+    private <T> T evalOnShard(String script, List<String> keys, List<String> args, Class<T> type) {
+        return executeWrite("eval", keys, PayloadSize.of(keys, args), j -> {
+            Jedis shard = getSameShard(j, keys);
+            if (shard == null) {
+                throw new RedisCacheException("eval keys must be on the same shard, use hash tags to colocate them: " + keys);
+            }
+            return ScriptRegistry.evalsha(script, sha1 -> shard.evalsha(sha1, keys, args), shard::scriptLoad);
+        }, result -> Serializer.deserialize(result, type));
     }
 
 }
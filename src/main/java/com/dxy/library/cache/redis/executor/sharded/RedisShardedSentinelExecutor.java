@@ -0,0 +1,196 @@
+package com.dxy.library.cache.redis.executor.sharded;
+
+import com.dxy.library.cache.redis.exception.RedisCacheException;
+import com.dxy.library.cache.redis.properties.RedisProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.util.Sharded;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis多哨兵主节点的分片模式缓存器
+ * 按主节点名称做一致性哈希，将key分散到多个由哨兵管理的主节点，主从切换后只替换分片地址，key的分布不变
+ * @author duanxinyuan
+ * 2020/6/12 16:30
+ */
+@Slf4j
+public class RedisShardedSentinelExecutor extends RedisShardedExecutor {
+
+    //主节点名称和当前地址
+    private volatile Map<String, HostAndPort> masters;
+
+    private JedisPoolConfig config;
+
+    private List<MasterListener> masterListeners;
+
+    public RedisShardedSentinelExecutor(RedisProperties redisProperties) {
+        super(redisProperties);
+    }
+
+    @Override
+    public void init(RedisProperties redisProperties) {
+        config = initJedisPoolConfig(redisProperties);
+        if (redisProperties.getNodes() == null || redisProperties.getNodes().isEmpty()) {
+            log.error("redis sharded sentinel init failed, nodes not configured");
+            return;
+        }
+        if (masterListeners != null) {
+            masterListeners.forEach(MasterListener::shutdown);
+        }
+        Map<String, HostAndPort> currentMasters = new LinkedHashMap<>();
+        for (String masterName : redisProperties.getSentinelMasters()) {
+            currentMasters.put(masterName.trim(), getMasterAddress(masterName.trim()));
+        }
+        masters = currentMasters;
+        initPool(config, createShards(currentMasters));
+        log.info("redis sharded sentinel init, masters: {}", currentMasters);
+
+        masterListeners = new ArrayList<>();
+        for (String sentinel : redisProperties.getNodes()) {
+            HostAndPort hostAndPort = toHostAndPort(sentinel);
+            MasterListener masterListener = new MasterListener(hostAndPort);
+            masterListener.start();
+            masterListeners.add(masterListener);
+        }
+    }
+
+    /**
+     * 停止订阅哨兵的线程，再关闭连接池，避免关闭后主从切换时重新创建连接池
+     */
+    @Override
+    public void close() {
+        if (masterListeners != null) {
+            masterListeners.forEach(MasterListener::shutdown);
+        }
+        super.close();
+    }
+
+    /**
+     * 当前所有主节点的地址，key为主节点名称
+     */
+    public Map<String, HostAndPort> getMasters() {
+        return Collections.unmodifiableMap(masters);
+    }
+
+    private List<JedisShardInfo> createShards(Map<String, HostAndPort> masters) {
+        List<JedisShardInfo> shards = new ArrayList<>(masters.size());
+        masters.forEach((name, hostAndPort) -> shards.add(createShardInfo(hostAndPort.getHost(), hostAndPort.getPort(), name, Sharded.DEFAULT_WEIGHT)));
+        return shards;
+    }
+
+    private HostAndPort getMasterAddress(String masterName) {
+        for (String sentinel : getRedisProperties().getNodes()) {
+            HostAndPort hostAndPort = toHostAndPort(sentinel);
+            try (Jedis jedis = createSentinelJedis(hostAndPort)) {
+                List<String> address = jedis.sentinelGetMasterAddrByName(masterName);
+                if (address != null && address.size() == 2) {
+                    return new HostAndPort(address.get(0), NumberUtils.toInt(address.get(1)));
+                }
+                log.warn("redis sentinel {} does not monitor master {}", sentinel, masterName);
+            } catch (Exception e) {
+                log.warn("redis sentinel {} get master {} failed", sentinel, masterName, e);
+            }
+        }
+        throw new RedisCacheException("redis sharded sentinel init failed, can not get address of master " + masterName);
+    }
+
+    /**
+     * 主节点地址变化时重建连接池
+     */
+    private synchronized void switchMaster(String masterName, HostAndPort hostAndPort) {
+        if (!masters.containsKey(masterName) || hostAndPort.equals(masters.get(masterName))) {
+            return;
+        }
+        Map<String, HostAndPort> currentMasters = new LinkedHashMap<>(masters);
+        currentMasters.put(masterName, hostAndPort);
+        masters = currentMasters;
+        initPool(config, createShards(currentMasters));
+        log.info("redis sharded sentinel master {} switched to {}", masterName, hostAndPort);
+    }
+
+    private HostAndPort toHostAndPort(String hostPort) {
+        String[] strings = hostPort.split(":");
+        int port = strings.length > 1 ? NumberUtils.toInt(strings[1].trim(), 26379) : 26379;
+        return new HostAndPort(strings[0].trim(), port);
+    }
+
+    /**
+     * 订阅哨兵的+switch-master消息，断线重连后重新获取主节点地址，避免错过断线期间的主从切换
+     */
+    private class MasterListener extends Thread {
+
+        private final HostAndPort sentinel;
+
+        private volatile boolean running = true;
+
+        private volatile Jedis jedis;
+
+        private MasterListener(HostAndPort sentinel) {
+            super("redis-sharded-sentinel-listener-" + sentinel);
+            this.sentinel = sentinel;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    jedis = createSentinelJedis(sentinel);
+                    for (String masterName : masters.keySet()) {
+                        List<String> address = jedis.sentinelGetMasterAddrByName(masterName);
+                        if (address != null && address.size() == 2) {
+                            switchMaster(masterName, new HostAndPort(address.get(0), NumberUtils.toInt(address.get(1))));
+                        }
+                    }
+                    jedis.subscribe(new JedisPubSub() {
+                        @Override
+                        public void onMessage(String channel, String message) {
+                            //<master name> <old ip> <old port> <new ip> <new port>
+                            String[] strings = message.split(" ");
+                            if (strings.length == 5) {
+                                switchMaster(strings[0], new HostAndPort(strings[3], NumberUtils.toInt(strings[4])));
+                            }
+                        }
+                    }, "+switch-master");
+                } catch (Exception e) {
+                    if (running) {
+                        log.warn("redis sentinel {} subscribe failed, retry after 5000ms", sentinel, e);
+                        sleepQuietly();
+                    }
+                } finally {
+                    if (jedis != null) {
+                        jedis.close();
+                    }
+                }
+            }
+        }
+
+        private void sleepQuietly() {
+            try {
+                TimeUnit.MILLISECONDS.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+
+        private void shutdown() {
+            running = false;
+            if (jedis != null) {
+                jedis.disconnect();
+            }
+        }
+    }
+
+}
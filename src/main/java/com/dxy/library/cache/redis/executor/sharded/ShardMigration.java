@@ -0,0 +1,366 @@
+package com.dxy.library.cache.redis.executor.sharded;
+
+import com.dxy.library.cache.redis.inter.RedisFunction;
+import com.dxy.library.cache.redis.pool.ShardedJedisObjectFactory;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.Striped;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.ShardedJedis;
+import redis.clients.jedis.ShardedJedisPool;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 分片模式的在线迁移，节点变化后新旧两个哈希环同时生效
+ * 迁移期间读命令在新节点未命中时回退到旧节点读取，写命令执行前先迁移该key，后台线程SCAN旧节点，
+ * 按批次使用DUMP/RESTORE将分布发生变化的key迁移到新节点，迁移完成后只使用新的哈希环
+ * 后台迁移一批key（DUMP到UNLINK）期间持有这些key的锁，客户端迁移或删除同一个key时等待，避免已删除的key被迁移线程恢复
+ * 锁只在当前进程内有效，而每个配置了迁移节点的进程都会启动后台迁移，其他进程在一批key的DUMP到UNLINK之间删除的key仍可能被恢复，
+ * 写入不受影响（RESTORE不覆盖新节点上已存在的key），不能接受删除的key被恢复时应在迁移完成后再删除
+ * 后台迁移失败时保留回退读取，按递增的间隔重试，从失败的节点和SCAN游标处继续迁移，已迁移的key不会重复迁移
+ * @author duanxinyuan
+ * 2020/6/17 14:20
+ */
+@Slf4j
+public class ShardMigration implements AutoCloseable {
+
+    //后台迁移失败后重试的初始间隔和最大间隔，连续失败时间隔翻倍
+    private static final long RETRY_INTERVAL_MILLIS = 1000;
+
+    private static final long MAX_RETRY_INTERVAL_MILLIS = 60000;
+
+    //旧节点的连接池，用于回退读取和按需迁移
+    private final ShardedJedisPool oldPool;
+
+    //只用于计算key所在的节点，不建立连接
+    private final ShardedJedis oldRing;
+
+    private final ShardedJedis newRing;
+
+    //后台迁移线程创建专用的连接
+    private final ShardedJedisObjectFactory oldFactory;
+
+    private final ShardedJedisObjectFactory newFactory;
+
+    private final int batchSize;
+
+    private final RateLimiter rateLimiter;
+
+    private final Thread migrator;
+
+    private volatile boolean running = true;
+
+    private volatile boolean finished;
+
+
+    //迁移线程和客户端写命令对同一个key的互斥
+    private final Striped<Lock> keyLocks = Striped.lock(256);
+
+    //迁移成功的key数量
+    private final LongAdder migratedKeys = new LongAdder();
+
+    //新节点上已存在（迁移期间被写入）而跳过的key数量
+    private final LongAdder skippedKeys = new LongAdder();
+
+    //后台迁移失败后重试的次数
+    private final LongAdder retries = new LongAdder();
+
+    //回退到旧节点读取的次数
+    private final LongAdder fallbackReads = new LongAdder();
+
+    public ShardMigration(ShardedJedisPool oldPool, ShardedJedisObjectFactory oldFactory, ShardedJedisObjectFactory newFactory,
+                          int batchSize, int maxOpsPerSecond) {
+        this.oldPool = oldPool;
+        this.oldFactory = oldFactory;
+        this.newFactory = newFactory;
+        this.oldRing = oldFactory.makeObject().getObject();
+        this.newRing = newFactory.makeObject().getObject();
+        this.batchSize = batchSize;
+        this.rateLimiter = maxOpsPerSecond > 0 ? RateLimiter.create(maxOpsPerSecond) : null;
+        this.migrator = new Thread(this::migrate, "redis-shard-migration");
+        this.migrator.setDaemon(true);
+    }
+
+    public void start() {
+        migrator.start();
+    }
+
+    /**
+     * key在新旧哈希环上的节点是否不同，迁移完成后始终返回false
+     */
+    public boolean isMoved(String key) {
+        return !finished && !isSameNode(oldRing.getShardInfo(key), newRing.getShardInfo(key));
+    }
+
+    /**
+     * 在旧节点上执行读命令
+     */
+    public <T> T executeOld(RedisFunction<ShardedJedis, T> function) throws Exception {
+        fallbackReads.increment();
+        try (ShardedJedis shardedJedis = oldPool.getResource()) {
+            return function.apply(shardedJedis);
+        }
+    }
+
+    /**
+     * 将单个key从旧节点迁移到新节点，新节点已存在该key时以新节点为准
+     */
+    public void migrateKey(ShardedJedis newShardedJedis, String key) {
+        Lock lock = keyLocks.get(key);
+        lock.lock();
+        try (ShardedJedis oldShardedJedis = oldPool.getResource()) {
+            Jedis oldShard = oldShardedJedis.getShard(key);
+            Pipeline pipeline = oldShard.pipelined();
+            Response<byte[]> dump = pipeline.dump(key);
+            Response<Long> pttl = pipeline.pttl(key);
+            pipeline.sync();
+            byte[] value = dump.get();
+            //DUMP和PTTL之间过期的key不迁移，否则会以不过期恢复
+            if (value == null || pttl.get() == null || pttl.get() == -2) {
+                return;
+            }
+            try {
+                newShardedJedis.getShard(key).restore(key, toRestoreTtl(pttl.get()), value);
+                migratedKeys.increment();
+            } catch (JedisDataException e) {
+                if (!isBusyKey(e)) {
+                    throw e;
+                }
+                skippedKeys.increment();
+            }
+            oldShard.unlink(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 删除旧节点上分布发生变化的key，避免迁移期间删除的key被回退读取到，需要在删除新节点上的key之前调用
+     */
+    public void deleteOld(Collection<String> keys) {
+        List<String> movedKeys = keys.stream().filter(this::isMoved).collect(Collectors.toList());
+        if (movedKeys.isEmpty()) {
+            return;
+        }
+        Iterable<Lock> locks = keyLocks.bulkGet(movedKeys);
+        locks.forEach(Lock::lock);
+        try (ShardedJedis oldShardedJedis = oldPool.getResource()) {
+            movedKeys.forEach(key -> oldShardedJedis.getShard(key).unlink(key));
+        } finally {
+            locks.forEach(Lock::unlock);
+        }
+    }
+
+    private void migrate() {
+        long start = System.currentTimeMillis();
+        //迁移的进度，失败后从当前节点的当前游标继续
+        int shardIndex = 0;
+        String cursor = ScanParams.SCAN_POINTER_START;
+        int failures = 0;
+        ScanParams params = new ScanParams().count(batchSize);
+        while (running) {
+            ShardedJedis oldShardedJedis = null;
+            ShardedJedis newShardedJedis = null;
+            try {
+                oldShardedJedis = oldFactory.makeObject().getObject();
+                newShardedJedis = newFactory.makeObject().getObject();
+                List<Jedis> oldShards = new ArrayList<>(oldShardedJedis.getAllShards());
+                for (; shardIndex < oldShards.size(); shardIndex++) {
+                    Jedis oldShard = oldShards.get(shardIndex);
+                    do {
+                        if (!running) {
+                            return;
+                        }
+                        ScanResult<String> scanResult = oldShard.scan(cursor, params);
+                        ShardedJedis ring = newShardedJedis;
+                        List<String> movedKeys = scanResult.getResult().stream()
+                                .filter(key -> !isSameNode(oldShard, ring.getShardInfo(key))).collect(Collectors.toList());
+                        if (!movedKeys.isEmpty()) {
+                            if (rateLimiter != null) {
+                                rateLimiter.acquire(movedKeys.size());
+                            }
+                            migrateBatch(oldShard, newShardedJedis, movedKeys);
+                        }
+                        cursor = scanResult.getCursor();
+                        failures = 0;
+                    } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+                    log.info("redis shard migration of {}:{} finished, migrated: {}, skipped: {}",
+                            oldShard.getClient().getHost(), oldShard.getClient().getPort(), migratedKeys.sum(), skippedKeys.sum());
+                }
+                finished = true;
+                log.info("redis shard migration finished, migrated: {}, skipped: {}, cost {}ms",
+                        migratedKeys.sum(), skippedKeys.sum(), System.currentTimeMillis() - start);
+                return;
+            } catch (Exception e) {
+                retries.increment();
+                long delay = Math.min(RETRY_INTERVAL_MILLIS << Math.min(failures++, 6), MAX_RETRY_INTERVAL_MILLIS);
+                log.error("redis shard migration failed, retry in {}ms from shard {} cursor {}, still falling back to old nodes", delay, shardIndex, cursor, e);
+                if (!sleep(delay)) {
+                    return;
+                }
+            } finally {
+                disconnect(oldShardedJedis);
+                disconnect(newShardedJedis);
+            }
+        }
+    }
+
+    /**
+     * 等待重试，迁移关闭时返回false
+     */
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return running;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 从旧节点pipeline执行DUMP和PTTL，按新节点分组pipeline执行RESTORE，再从旧节点UNLINK已迁移的key
+     */
+    private void migrateBatch(Jedis oldShard, ShardedJedis newShardedJedis, List<String> keys) {
+        Iterable<Lock> locks = keyLocks.bulkGet(keys);
+        locks.forEach(Lock::lock);
+        try {
+            migrateLockedBatch(oldShard, newShardedJedis, keys);
+        } finally {
+            locks.forEach(Lock::unlock);
+        }
+    }
+
+    private void migrateLockedBatch(Jedis oldShard, ShardedJedis newShardedJedis, List<String> keys) {
+        Pipeline oldPipeline = oldShard.pipelined();
+        Map<String, Response<byte[]>> dumps = new LinkedHashMap<>(keys.size());
+        Map<String, Response<Long>> pttls = new LinkedHashMap<>(keys.size());
+        keys.forEach(key -> {
+            dumps.put(key, oldPipeline.dump(key));
+            pttls.put(key, oldPipeline.pttl(key));
+        });
+        oldPipeline.sync();
+
+        Map<Jedis, Pipeline> newPipelines = new LinkedHashMap<>();
+        Map<String, Response<String>> restores = new LinkedHashMap<>(keys.size());
+        dumps.forEach((key, dump) -> {
+            byte[] value = dump.get();
+            Long pttl = pttls.get(key).get();
+            if (value == null || pttl == null || pttl == -2) {
+                return;
+            }
+            Pipeline newPipeline = newPipelines.computeIfAbsent(newShardedJedis.getShard(key), Jedis::pipelined);
+            restores.put(key, newPipeline.restore(key, toRestoreTtl(pttl), value));
+        });
+        newPipelines.values().forEach(Pipeline::sync);
+
+        List<String> unlinkKeys = new ArrayList<>(restores.size());
+        restores.forEach((key, restore) -> {
+            try {
+                restore.get();
+                migratedKeys.increment();
+                unlinkKeys.add(key);
+            } catch (JedisDataException e) {
+                if (isBusyKey(e)) {
+                    skippedKeys.increment();
+                    unlinkKeys.add(key);
+                } else {
+                    log.warn("redis shard migration restore {} failed", key, e);
+                }
+            }
+        });
+        if (!unlinkKeys.isEmpty()) {
+            oldShard.unlink(unlinkKeys.toArray(new String[0]));
+        }
+    }
+
+    private int toRestoreTtl(Long pttl) {
+        return pttl == null || pttl < 0 ? 0 : (int) Math.min(pttl, Integer.MAX_VALUE);
+    }
+
+    private boolean isBusyKey(JedisDataException e) {
+        return e.getMessage() != null && e.getMessage().startsWith("BUSYKEY");
+    }
+
+    private boolean isSameNode(JedisShardInfo shardInfo, JedisShardInfo other) {
+        return shardInfo.getHost().equals(other.getHost()) && shardInfo.getPort() == other.getPort();
+    }
+
+    private boolean isSameNode(Jedis jedis, JedisShardInfo shardInfo) {
+        return jedis.getClient().getHost().equals(shardInfo.getHost()) && jedis.getClient().getPort() == shardInfo.getPort();
+    }
+
+    private void disconnect(ShardedJedis shardedJedis) {
+        if (shardedJedis == null) {
+            return;
+        }
+        shardedJedis.getAllShards().forEach(jedis -> {
+            try {
+                jedis.disconnect();
+            } catch (Exception ignored) {
+            }
+        });
+    }
+
+    /**
+     * 结果为空时可能需要回退到旧节点读取，0、false和空集合也可能是新节点上存在的key的正常结果，回退前需确认新节点上不存在该key
+     */
+    public static boolean isEmpty(Object result) {
+        if (result == null || Boolean.FALSE.equals(result)) {
+            return true;
+        }
+        if (result instanceof Long) {
+            //ttl/pttl返回-2表示key不存在
+            return (Long) result == 0 || (Long) result == -2;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).isEmpty();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).isEmpty();
+        }
+        return false;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getMigratedKeys() {
+        return migratedKeys.sum();
+    }
+
+    public long getSkippedKeys() {
+        return skippedKeys.sum();
+    }
+
+    public long getFallbackReads() {
+        return fallbackReads.sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        migrator.interrupt();
+        oldPool.close();
+    }
+
+}
@@ -1,16 +1,24 @@
 package com.dxy.library.cache.redis.executor.single;
 
-import com.dxy.library.cache.redis.exception.RedisCacheException;
 import com.dxy.library.cache.redis.executor.JedisExecutor;
 import com.dxy.library.cache.redis.inter.RedisConsumer;
 import com.dxy.library.cache.redis.inter.RedisFunction;
+import com.dxy.library.cache.redis.metrics.CacheMetrics;
 import com.dxy.library.cache.redis.properties.RedisProperties;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.math.NumberUtils;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.util.Pool;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * Redis单机模式缓存器
@@ -23,6 +31,8 @@ public class RedisSingleExecutor extends JedisExecutor {
 
     private JedisPool jedisPool;
 
+    private HostAndPort hostAndPort;
+
     public RedisSingleExecutor(RedisProperties redisProperties) {
         super(redisProperties);
     }
@@ -38,25 +48,44 @@ public class RedisSingleExecutor extends JedisExecutor {
         String host = strings[0];
         int port = strings.length > 1 ? NumberUtils.toInt(strings[1].trim(), 6379) : 6379;
 
-        jedisPool = new JedisPool(config, host, port, redisProperties.getTimeoutMillis(), redisProperties.getPassword(), redisProperties.getDatabase());
+        hostAndPort = new HostAndPort(host, port);
+        jedisPool = createJedisPool(config, hostAndPort, redisProperties.getDatabase());
+    }
+
+    @Override
+    public void close() {
+        if (jedisPool != null) {
+            jedisPool.close();
+        }
+        super.close();
+    }
+
+    @Override
+    public String getNode(String key) {
+        return hostAndPort.toString();
+    }
+
+    @Override
+    public Map<String, Pool<?>> getPools() {
+        return jedisPool != null ? Collections.singletonMap(hostAndPort.toString(), jedisPool) : Collections.emptyMap();
+    }
+
+    @Override
+    protected CompletableFuture<Void> warmUpPool(int count, Executor executor) {
+        return addObjects(jedisPool, count, executor);
     }
 
     @Override
     public void executeVoid(RedisConsumer<Jedis> consumer) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        executeOnPool(jedisPool, CacheMetrics.CUSTOM_COMMAND, null, jedis -> {
             consumer.accept(jedis);
-        } catch (Exception e) {
-            throw new RedisCacheException(e);
-        }
+            return null;
+        });
     }
 
     @Override
-    public <T> T execute(RedisFunction<Jedis, T> function) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            return function.apply(jedis);
-        } catch (Exception e) {
-            throw new RedisCacheException(e);
-        }
+    protected <S, T> T execute(String command, Object keys, long requestBytes, RedisFunction<Jedis, S> function, Function<S, T> decoder) {
+        return executeOnPool(jedisPool, command, keys, requestBytes, function, decoder);
     }
 
 }
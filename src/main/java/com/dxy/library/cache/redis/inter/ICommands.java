@@ -10,6 +10,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 /**
  * Redis命令
@@ -92,6 +95,25 @@ public interface ICommands {
      */
     Long unlink(String key);
 
+    /**
+     * 迭代删除所有符合给定模式 pattern 的 key，返回删除的 key 的数量
+     * 在所有节点/分片上使用SCAN代替KEYS查找，按批次pipeline执行UNLINK异步删除（集群模式按slot分组），并按每秒最大删除数量限速
+     * @param pattern key规则
+     * @param batchSize 每批次SCAN及删除的 key 的个数，必须大于0
+     * @param maxOpsPerSecond 每秒最多删除的 key 的个数，小于等于0表示不限速
+     */
+    Long deleteByPattern(String pattern, int batchSize, int maxOpsPerSecond);
+
+    /**
+     * 迭代删除所有符合给定模式 pattern 的 key，返回删除的 key 的数量
+     * 在所有节点/分片上使用SCAN代替KEYS查找，按批次pipeline执行UNLINK异步删除（集群模式按slot分组），并按每秒最大删除数量限速
+     * @param pattern key规则
+     * @param batchSize 每批次SCAN及删除的 key 的个数，必须大于0
+     * @param maxOpsPerSecond 每秒最多删除的 key 的个数，小于等于0表示不限速
+     * @param progress 删除进度回调，每批次删除后回调一次，参数为当前累计删除的 key 的数量
+     */
+    Long deleteByPattern(String pattern, int batchSize, int maxOpsPerSecond, LongConsumer progress);
+
     /**
      * 将 oldkey 重命名为 newkey，返回OK表示成功
      * @param oldkey 旧的Key名称
@@ -284,6 +306,21 @@ public interface ICommands {
      */
     <T> Map<String, T> hgetAll(String key, Class<T> type);
 
+    /**
+     * 以Stream的方式按页读取哈希表 key 中所有的域和值，适用于元素很多的大哈希表，避免一次返回所有元素
+     * 处理当前页时会在后台预取下一页，值按页批量反序列化，使用完毕后需要关闭Stream
+     * 内存中最多只保留两页数据，rehash期间HSCAN可能返回重复的域，需要时由调用方去重
+     * @param pageSize 每页读取的个数
+     */
+    <T> Stream<Map.Entry<String, T>> hgetAllStream(String key, int pageSize, Class<T> type);
+
+    /**
+     * 按页读取哈希表 key 中所有的域和值，每页反序列化后交给 consumer 处理，内存中最多只保留两页数据
+     * rehash期间HSCAN可能返回重复的域，同一个域可能交给 consumer 多次
+     * @param pageSize 每页读取的个数
+     */
+    <T> void hgetAll(String key, int pageSize, Class<T> type, Consumer<Map<String, T>> consumer);
+
     /**
      * 从哈希表 key 中迭代查找所有符合给定模式 pattern 的域和值
      * @param cursor 游标名
@@ -297,6 +334,13 @@ public interface ICommands {
      */
     ScanResult<Map.Entry<String, String>> hscan(String key, String cursor, ScanParams params);
 
+    /**
+     * 以Stream的方式惰性迭代哈希表 key 中符合给定模式 pattern 的域和值，适用于元素很多的大哈希表
+     * 处理当前页时会在后台预取下一页，值按页批量反序列化，使用完毕后需要关闭Stream
+     * @param params pattern key规则，以及每页迭代的个数
+     */
+    <T> Stream<Map.Entry<String, T>> hscanStream(String key, ScanParams params, Class<T> type);
+
     /**
      * 检查给定域 field 是否存在于哈希表 hash 当中，返回1表示存在
      */
@@ -413,6 +457,19 @@ public interface ICommands {
      */
     <T> List<T> lrangeAll(String key, Class<T> type);
 
+    /**
+     * 以Stream的方式按页读取列表 key 中的所有元素，适用于元素很多的大列表，避免一次返回所有元素
+     * 处理当前页时会在后台预取下一页，元素按页批量反序列化，使用完毕后需要关闭Stream，读取期间列表被修改时结果可能重复或缺失
+     * @param pageSize 每页读取的个数
+     */
+    <T> Stream<T> lrangeAllStream(String key, int pageSize, Class<T> type);
+
+    /**
+     * 按页读取列表 key 中的所有元素，每页反序列化后交给 consumer 处理，内存中最多只保留两页数据
+     * @param pageSize 每页读取的个数
+     */
+    <T> void lrangeAll(String key, int pageSize, Class<T> type, Consumer<List<T>> consumer);
+
     /**
      * 返回列表 key 中，下标为 index 的元素
      */
@@ -527,6 +584,13 @@ public interface ICommands {
      */
     <T> ScanResult<T> sscan(String key, String cursor, ScanParams params, Class<T> type);
 
+    /**
+     * 以Stream的方式惰性迭代集合 key 中符合给定模式 pattern 的元素，适用于元素很多的大集合
+     * 处理当前页时会在后台预取下一页，元素按页批量反序列化，使用完毕后需要关闭Stream
+     * @param params pattern key规则，以及每页迭代的个数
+     */
+    <T> Stream<T> sscanStream(String key, ScanParams params, Class<T> type);
+
     /**
      * 移除集合 key 中的一个或多个 member 元素，返回被成功移除的元素的数量
      */
@@ -762,6 +826,14 @@ public interface ICommands {
      */
     ScanResult<Tuple> zscan(String key, String cursor, ScanParams params);
 
+    /**
+     * 以Stream的方式惰性迭代有序集 key 中符合给定模式 pattern 的成员及其分数，适用于元素很多的大有序集
+     * 处理当前页时会在后台预取下一页，成员按页批量反序列化，使用完毕后需要关闭Stream
+     * @param params pattern key规则，以及每页迭代的个数
+     * @return 成员和分数
+     */
+    <T> Stream<Map.Entry<T, Double>> zscanStream(String key, ScanParams params, Class<T> type);
+
     /**
      * 移除有序集 key 中，指定排名(rank)区间内的所有成员，返回被移除成员的数量
      */
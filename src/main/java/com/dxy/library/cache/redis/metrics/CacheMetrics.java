@@ -0,0 +1,373 @@
+package com.dxy.library.cache.redis.metrics;
+
+import com.dxy.library.cache.redis.properties.RedisProperties;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.util.Pool;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 单个Redis连接配置的监控指标，统计每个命令的耗时直方图、错误数、数据量，以及获取连接的等待时间
+ * 每个节点连接池的连接数、等待线程数、创建/销毁次数及获取连接的等待时间，连接池饱和时回调PoolListener
+ * 耗时超过阈值的命令记录到慢命令日志，包括key、各阶段耗时和数据量，开启热点key统计时按比例采样命令的key
+ * 命令名称为ICommands的方法名，由执行器在调用处传入，响应数据量按比例采样估算，慢命令总是计算
+ * @author duanxinyuan
+ * 2020/6/23 10:15
+ */
+@Slf4j
+public class CacheMetrics implements CacheMetricsMXBean {
+
+    //自定义操作（execute/executeVoid）的命令名称
+    public static final String CUSTOM_COMMAND = "execute";
+
+    //记录的大key的最大个数
+    private static final int BIG_KEY_MAX_SIZE = 100;
+
+    private static final List<MetricsReporter> REPORTERS = new CopyOnWriteArrayList<>();
+
+    //已注册的MBean及其所属的监控指标，同名配置重新注册后，关闭旧的监控指标时不注销新的MBean
+    private static final Map<ObjectName, CacheMetrics> MBEANS = new ConcurrentHashMap<>();
+
+    //取消的任务立即从队列移除，不再持有已关闭的执行器的连接池和统计数据
+    private static final ScheduledThreadPoolExecutor REPORT_EXECUTOR = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setNameFormat("redis-metrics-reporter").setDaemon(true).build());
+
+    static {
+        REPORT_EXECUTOR.setRemoveOnCancelPolicy(true);
+        try {
+            ServiceLoader.load(MetricsReporter.class).forEach(REPORTERS::add);
+        } catch (Throwable e) {
+            log.error("redis metrics reporter load failed", e);
+        }
+    }
+
+    private final String name;
+
+    private final boolean enabled;
+
+    //响应数据量的采样比例
+    private final double payloadSampleRatio;
+
+    private final Map<String, CommandMetrics> commands = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram poolWait = new LatencyHistogram();
+
+    private final PoolMetrics poolMetrics;
+
+    private final SlowLog slowLog;
+
+    //热点key统计，未开启时为null
+    private final HotKeyDetector hotKeyDetector;
+
+    //元素个数超过单次读取上限的次数，key为命令名称
+    private final Map<String, LongAdder> bigKeyCounts = new ConcurrentHashMap<>();
+
+    //最近元素个数超过单次读取上限的key及其元素个数
+    private final Cache<String, Long> bigKeys = CacheBuilder.newBuilder().maximumSize(BIG_KEY_MAX_SIZE).build();
+
+    //定时上报和连接池检查的任务，执行器关闭时取消，未开启时为null
+    private volatile ScheduledFuture<?> reportFuture;
+
+    private volatile ScheduledFuture<?> checkPoolsFuture;
+
+    /**
+     * @param nodeResolver 获取key所在的节点，用于按节点查看热点key
+     * @param poolSupplier 获取当前所有节点的连接池，key为节点
+     */
+    public CacheMetrics(RedisProperties redisProperties, Function<String, String> nodeResolver, Supplier<Map<String, Pool<?>>> poolSupplier) {
+        this.name = redisProperties.getName();
+        this.enabled = redisProperties.isMetricsEnabled();
+        this.payloadSampleRatio = redisProperties.getMetricsPayloadSampleRatio();
+        this.poolMetrics = new PoolMetrics(redisProperties, poolSupplier);
+        this.slowLog = new SlowLog(redisProperties.getSlowLogThresholdMillis(), redisProperties.getSlowLogMaxSize());
+        this.hotKeyDetector = enabled && redisProperties.isHotKeyEnabled() ? new HotKeyDetector(redisProperties, nodeResolver) : null;
+        if (!enabled) {
+            return;
+        }
+        if (redisProperties.isMetricsJmxEnabled()) {
+            registerMBean();
+        }
+        long interval = redisProperties.getMetricsReportIntervalMillis();
+        if (interval > 0) {
+            reportFuture = REPORT_EXECUTOR.scheduleAtFixedRate(this::report, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        long poolMonitorInterval = redisProperties.getPoolMonitorIntervalMillis();
+        if (poolMonitorInterval > 0) {
+            checkPoolsFuture = REPORT_EXECUTOR.scheduleAtFixedRate(this::checkPools, poolMonitorInterval, poolMonitorInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 注册监控指标上报，对所有Redis连接配置生效
+     */
+    public static void addReporter(MetricsReporter reporter) {
+        REPORTERS.add(reporter);
+    }
+
+    public static void removeReporter(MetricsReporter reporter) {
+        REPORTERS.remove(reporter);
+    }
+
+    /**
+     * 注册连接池饱和的回调，只对当前Redis连接配置生效
+     */
+    public void addPoolListener(PoolListener listener) {
+        poolMetrics.addListener(listener);
+    }
+
+    public void removePoolListener(PoolListener listener) {
+        poolMetrics.removeListener(listener);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取命令的监控指标，未开启统计时返回null
+     * @param command 命令名称，为ICommands的方法名
+     */
+    public CommandMetrics command(String command) {
+        return command(command, 0);
+    }
+
+    /**
+     * 获取命令的监控指标并记录请求数据量，未开启统计时返回null
+     * @param command 命令名称，为ICommands的方法名
+     * @param requestBytes 序列化后的参数数据量，参数在获取连接前序列化
+     */
+    public CommandMetrics command(String command, long requestBytes) {
+        if (!enabled) {
+            return null;
+        }
+        CommandContext.begin();
+        CommandContext.addRequestBytes(requestBytes);
+        CommandMetrics commandMetrics = commands.get(command);
+        if (commandMetrics == null) {
+            commandMetrics = commands.computeIfAbsent(command, CommandMetrics::new);
+        }
+        return commandMetrics;
+    }
+
+    /**
+     * 记录一次命令执行
+     * @param commandMetrics 命令的监控指标，为null时不记录
+     * @param keys 命令的key（字符串、字符串数组或集合），用于慢命令日志和热点key统计，没有key时为null
+     * @param startNanos 开始获取连接的时间
+     * @param acquiredNanos 获取到连接的时间，没有从连接池获取连接时与startNanos相同
+     * @param success 是否执行成功
+     * @param result 返回值
+     */
+    public void record(CommandMetrics commandMetrics, Object keys, long startNanos, long acquiredNanos, boolean success, Object result) {
+        if (commandMetrics == null) {
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long requestBytes = CommandContext.takeRequestBytes();
+        long deserializeNanos = CommandContext.takeDeserializeNanos();
+        boolean slow = slowLog.isSlow(elapsedNanos);
+        boolean sampled = samplePayload();
+        //计算返回值的数据量需要遍历集合，只对采样的命令和慢命令计算，按采样比例估算总量
+        long responseBytes = sampled || slow ? PayloadSize.of(result) : 0;
+        commandMetrics.record(elapsedNanos, success, requestBytes, sampled ? (long) (responseBytes / payloadSampleRatio) : 0);
+        if (acquiredNanos != startNanos) {
+            poolWait.record(acquiredNanos - startNanos);
+        }
+        if (slow) {
+            slowLog.add(commandMetrics.getCommand(), keys, success, elapsedNanos, acquiredNanos - startNanos,
+                    deserializeNanos, requestBytes, responseBytes);
+        }
+        if (hotKeyDetector != null && hotKeyDetector.sample()) {
+            hotKeyDetector.add(KeyResolver.keys(keys));
+        }
+    }
+
+    private boolean samplePayload() {
+        return payloadSampleRatio >= 1 || (payloadSampleRatio > 0 && ThreadLocalRandom.current().nextDouble() < payloadSampleRatio);
+    }
+
+    /**
+     * 记录从连接池获取连接的等待时间（纳秒），按节点统计，未开启统计时不记录
+     */
+    public void recordBorrowWait(Pool<?> pool, long nanos) {
+        if (enabled) {
+            poolMetrics.recordBorrowWait(pool, nanos);
+        }
+    }
+
+    /**
+     * 连接池的当前状态，用于获取连接失败时描述连接池
+     */
+    public PoolSnapshot pool(Pool<?> pool) {
+        return poolMetrics.getPool(pool);
+    }
+
+    /**
+     * 记录元素个数超过单次读取上限的key，不受是否开启统计的影响
+     */
+    public void recordBigKey(String command, String key, long size) {
+        bigKeyCounts.computeIfAbsent(command, c -> new LongAdder()).increment();
+        bigKeys.put(key, size);
+    }
+
+    /**
+     * 慢命令日志
+     */
+    public SlowLog slowLog() {
+        return slowLog;
+    }
+
+    /**
+     * 热点key统计，未开启时为null
+     */
+    public HotKeyDetector hotKeys() {
+        return hotKeyDetector;
+    }
+
+    public CacheMetricsSnapshot snapshot() {
+        return new CacheMetricsSnapshot(name, System.currentTimeMillis(), poolWait.snapshot(), getCommands(), getPools());
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCommandCount() {
+        return getCommands().values().stream().mapToLong(command -> command.getLatency().getCount()).sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return getCommands().values().stream().mapToLong(CommandSnapshot::getErrors).sum();
+    }
+
+    @Override
+    public HistogramSnapshot getPoolWait() {
+        return poolWait.snapshot();
+    }
+
+    @Override
+    public Map<String, PoolSnapshot> getPools() {
+        return poolMetrics.getPools();
+    }
+
+    @Override
+    public Map<String, CommandSnapshot> getCommands() {
+        Map<String, CommandSnapshot> snapshots = new TreeMap<>();
+        commands.forEach((command, commandMetrics) -> snapshots.put(command, commandMetrics.snapshot()));
+        return snapshots;
+    }
+
+    @Override
+    public List<SlowLogEntry> getSlowLog() {
+        return slowLog.getEntries();
+    }
+
+    @Override
+    public Map<String, Long> getBigKeyCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        bigKeyCounts.forEach((command, count) -> counts.put(command, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getBigKeys() {
+        return new TreeMap<>(bigKeys.asMap());
+    }
+
+    @Override
+    public List<HotKeyWindow> getHotKeys() {
+        return hotKeyDetector != null ? hotKeyDetector.getWindows() : Collections.emptyList();
+    }
+
+    @Override
+    public void reset() {
+        commands.values().forEach(CommandMetrics::reset);
+        poolWait.reset();
+        poolMetrics.reset();
+        bigKeyCounts.clear();
+        bigKeys.invalidateAll();
+        if (hotKeyDetector != null) {
+            hotKeyDetector.reset();
+        }
+    }
+
+    /**
+     * 取消定时上报和连接池检查的任务，并注销MBean，由执行器关闭时调用，关闭后统计数据仍可读取
+     */
+    public void close() {
+        if (reportFuture != null) {
+            reportFuture.cancel(false);
+        }
+        if (checkPoolsFuture != null) {
+            checkPoolsFuture.cancel(false);
+        }
+        MBEANS.forEach((objectName, metrics) -> {
+            if (metrics == this && MBEANS.remove(objectName, this)) {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+                } catch (Exception e) {
+                    log.warn("redis metrics jmx unregister failed, name: {}", name, e);
+                }
+            }
+        });
+    }
+
+    private void report() {
+        if (REPORTERS.isEmpty()) {
+            return;
+        }
+        CacheMetricsSnapshot snapshot = snapshot();
+        for (MetricsReporter reporter : REPORTERS) {
+            try {
+                reporter.report(snapshot);
+            } catch (Exception e) {
+                log.error("redis metrics report failed, reporter: {}", reporter.getClass().getName(), e);
+            }
+        }
+    }
+
+    private void checkPools() {
+        try {
+            poolMetrics.check();
+        } catch (Exception e) {
+            log.error("redis pool check failed, name: {}", name, e);
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("com.dxy.library.cache.redis:type=CacheMetrics,name=" + ObjectName.quote(name));
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(this, objectName);
+            MBEANS.put(objectName, this);
+        } catch (Exception e) {
+            log.error("redis metrics jmx register failed, name: {}", name, e);
+        }
+    }
+
+}
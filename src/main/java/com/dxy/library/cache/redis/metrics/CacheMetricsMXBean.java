@@ -0,0 +1,50 @@
+package com.dxy.library.cache.redis.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 监控指标的JMX接口，ObjectName为 com.dxy.library.cache.redis:type=CacheMetrics,name=配置名称
+ * @author duanxinyuan
+ * 2020/6/23 10:15
+ */
+public interface CacheMetricsMXBean {
+
+    String getName();
+
+    long getCommandCount();
+
+    long getErrorCount();
+
+    HistogramSnapshot getPoolWait();
+
+    /**
+     * 每个节点连接池的状态，key为节点，分片模式下所有分片共用一个连接池
+     */
+    Map<String, PoolSnapshot> getPools();
+
+    Map<String, CommandSnapshot> getCommands();
+
+    /**
+     * 慢命令记录，最新的在前
+     */
+    List<SlowLogEntry> getSlowLog();
+
+    /**
+     * 元素个数超过单次读取上限的次数，key为命令名称
+     */
+    Map<String, Long> getBigKeyCounts();
+
+    /**
+     * 最近元素个数超过单次读取上限的key及其元素个数
+     */
+    Map<String, Long> getBigKeys();
+
+    /**
+     * 当前及历史时间窗口的热点key，最新的窗口在前，未开启热点key统计时为空
+     */
+    List<HotKeyWindow> getHotKeys();
+
+    void reset();
+
+}
@@ -0,0 +1,52 @@
+package com.dxy.library.cache.redis.metrics;
+
+import java.util.Map;
+
+/**
+ * 单个Redis连接配置的监控指标快照，均为累计值
+ * @author duanxinyuan
+ * 2020/6/23 10:15
+ */
+public class CacheMetricsSnapshot {
+
+    private final String name;
+
+    private final long timestamp;
+
+    private final HistogramSnapshot poolWait;
+
+    private final Map<String, CommandSnapshot> commands;
+
+    //每个节点连接池的状态，连接数为当前值
+    private final Map<String, PoolSnapshot> pools;
+
+    public CacheMetricsSnapshot(String name, long timestamp, HistogramSnapshot poolWait, Map<String, CommandSnapshot> commands,
+                                Map<String, PoolSnapshot> pools) {
+        this.name = name;
+        this.timestamp = timestamp;
+        this.poolWait = poolWait;
+        this.commands = commands;
+        this.pools = pools;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public HistogramSnapshot getPoolWait() {
+        return poolWait;
+    }
+
+    public Map<String, CommandSnapshot> getCommands() {
+        return commands;
+    }
+
+    public Map<String, PoolSnapshot> getPools() {
+        return pools;
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.dxy.library.cache.redis.metrics;
+
+/**
+ * 当前线程正在执行的命令的上下文，命令开始时由执行器写入请求数据量，反序列化时由Serializer累加耗时，命令执行完成后取出
+ * @author duanxinyuan
+ * 2020/6/24 10:20
+ */
+public class CommandContext {
+
+    private static final ThreadLocal<CommandContext> CONTEXT = ThreadLocal.withInitial(CommandContext::new);
+
+    //请求数据量（序列化后的参数值）
+    private long requestBytes;
+
+    //反序列化返回值的耗时纳秒数
+    private long deserializeNanos;
+
+    /**
+     * 命令开始执行，清除命令开始前（如未执行命令的反序列化）累加的请求数据量和反序列化耗时
+     * 参数在获取连接前序列化，数据量在命令开始后由执行器显式累加；反序列化在归还连接后、命令结束前进行，才能计入本次命令
+     */
+    public static void begin() {
+        CommandContext context = CONTEXT.get();
+        context.requestBytes = 0;
+        context.deserializeNanos = 0;
+    }
+
+    /**
+     * 累加当前线程的请求数据量
+     */
+    public static void addRequestBytes(long bytes) {
+        CONTEXT.get().requestBytes += bytes;
+    }
+
+    /**
+     * 累加当前线程的反序列化耗时
+     */
+    public static void addDeserializeNanos(long nanos) {
+        CONTEXT.get().deserializeNanos += nanos;
+    }
+
+    /**
+     * 取出并清零当前线程累加的请求数据量
+     */
+    public static long takeRequestBytes() {
+        CommandContext context = CONTEXT.get();
+        long requestBytes = context.requestBytes;
+        context.requestBytes = 0;
+        return requestBytes;
+    }
+
+    /**
+     * 取出并清零当前线程累加的反序列化耗时
+     */
+    public static long takeDeserializeNanos() {
+        CommandContext context = CONTEXT.get();
+        long deserializeNanos = context.deserializeNanos;
+        context.deserializeNanos = 0;
+        return deserializeNanos;
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.dxy.library.cache.redis.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个命令的监控指标
+ * @author duanxinyuan
+ * 2020/6/23 10:15
+ */
+public class CommandMetrics {
+
+    private final String command;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LongAdder errors = new LongAdder();
+
+    //请求数据量（序列化后的参数值）
+    private final LongAdder bytesOut = new LongAdder();
+
+    //响应数据量（返回值），按采样比例估算
+    private final LongAdder bytesIn = new LongAdder();
+
+    public CommandMetrics(String command) {
+        this.command = command;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public void record(long nanos, boolean success, long requestBytes, long responseBytes) {
+        latency.record(nanos);
+        if (!success) {
+            errors.increment();
+        }
+        if (requestBytes > 0) {
+            bytesOut.add(requestBytes);
+        }
+        if (responseBytes > 0) {
+            bytesIn.add(responseBytes);
+        }
+    }
+
+    public void reset() {
+        latency.reset();
+        errors.reset();
+        bytesOut.reset();
+        bytesIn.reset();
+    }
+
+    public CommandSnapshot snapshot() {
+        return new CommandSnapshot(command, latency.snapshot(), errors.sum(), bytesOut.sum(), bytesIn.sum());
+    }
+
+}
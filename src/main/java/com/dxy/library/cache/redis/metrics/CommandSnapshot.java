@@ -0,0 +1,53 @@
+package com.dxy.library.cache.redis.metrics;
+
+/**
+ * 单个命令监控指标的快照
+ * @author duanxinyuan
+ * 2020/6/23 10:15
+ */
+public class CommandSnapshot {
+
+    private final String command;
+
+    private final HistogramSnapshot latency;
+
+    private final long errors;
+
+    private final long bytesOut;
+
+    private final long bytesIn;
+
+    public CommandSnapshot(String command, HistogramSnapshot latency, long errors, long bytesOut, long bytesIn) {
+        this.command = command;
+        this.latency = latency;
+        this.errors = errors;
+        this.bytesOut = bytesOut;
+        this.bytesIn = bytesIn;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    @Override
+    public String toString() {
+        return command + ": " + latency + ", errors=" + errors + ", bytesOut=" + bytesOut + ", bytesIn=" + bytesIn;
+    }
+
+}
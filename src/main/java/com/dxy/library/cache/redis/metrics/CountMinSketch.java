@@ -0,0 +1,49 @@
+package com.dxy.library.cache.redis.metrics;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的Count-Min Sketch，以固定内存估算每个key的出现次数，估算值只会偏大不会偏小
+ * 每行使用一个由murmur3_128派生的哈希函数，计数为每行对应位置的最小值
+ * @author duanxinyuan
+ * 2020/6/25 11:30
+ */
+public class CountMinSketch {
+
+    private final int depth;
+
+    private final int width;
+
+    private final AtomicLongArray counts;
+
+    /**
+     * @param depth 哈希函数个数，越大估算值偏大的概率越小
+     * @param width 每行的计数器个数，越大估算误差越小
+     */
+    public CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        this.counts = new AtomicLongArray(depth * width);
+    }
+
+    /**
+     * 累加key的次数，返回累加后的估算次数
+     */
+    public long add(String key) {
+        HashCode hashCode = Hashing.murmur3_128().hashUnencodedChars(key);
+        ByteBuffer buffer = ByteBuffer.wrap(hashCode.asBytes());
+        long hash1 = buffer.getLong();
+        long hash2 = buffer.getLong();
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int index = i * width + (int) (((hash1 + i * hash2) & Long.MAX_VALUE) % width);
+            estimate = Math.min(estimate, counts.incrementAndGet(index));
+        }
+        return estimate;
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.dxy.library.cache.redis.metrics;
+
+/**
+ * 耗时直方图的快照，耗时单位为微秒
+ * @author duanxinyuan
+ * 2020/6/23 10:15
+ */
+public class HistogramSnapshot {
+
+    private final long count;
+
+    private final long meanNanos;
+
+    private final long maxNanos;
+
+    private final long p50Nanos;
+
+    private final long p90Nanos;
+
+    private final long p99Nanos;
+
+    private final long p999Nanos;
+
+    public HistogramSnapshot(long count, long meanNanos, long maxNanos, long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos) {
+        this.count = count;
+        this.meanNanos = meanNanos;
+        this.maxNanos = maxNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMeanMicros() {
+        return meanNanos / 1000;
+    }
+
+    public long getMaxMicros() {
+        return maxNanos / 1000;
+    }
+
+    public long getP50Micros() {
+        return p50Nanos / 1000;
+    }
+
+    public long getP90Micros() {
+        return p90Nanos / 1000;
+    }
+
+    public long getP99Micros() {
+        return p99Nanos / 1000;
+    }
+
+    public long getP999Micros() {
+        return p999Nanos / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + getMeanMicros() + "us, p50=" + getP50Micros() + "us, p90=" + getP90Micros()
+                + "us, p99=" + getP99Micros() + "us, p999=" + getP999Micros() + "us, max=" + getMaxMicros() + "us";
+    }
+
+}
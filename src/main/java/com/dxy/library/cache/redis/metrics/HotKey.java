@@ -0,0 +1,40 @@
+package com.dxy.library.cache.redis.metrics;
+
+/**
+ * 热点key，次数为按采样比例换算后的估算值
+ * @author duanxinyuan
+ * 2020/6/25 11:30
+ */
+public class HotKey {
+
+    private final String key;
+
+    private final long count;
+
+    //key所在的节点（host:port），无法获取时为null
+    private final String node;
+
+    public HotKey(String key, long count, String node) {
+        this.key = key;
+        this.count = count;
+        this.node = node;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    @Override
+    public String toString() {
+        return key + "=" + count + (node == null ? "" : "@" + node);
+    }
+
+}
@@ -0,0 +1,225 @@
+package com.dxy.library.cache.redis.metrics;
+
+import com.dxy.library.cache.redis.properties.RedisProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 热点key统计，按比例采样命令的key，每个时间窗口使用一个Count-Min Sketch估算次数，并维护次数最多的topSize个key
+ * 采样和统计均为无锁操作，候选key超过topSize的2倍时由一个线程裁剪，其他线程不等待
+ * key所在的节点在查询时解析，可按节点查看热点key
+ * @author duanxinyuan
+ * 2020/6/25 11:30
+ */
+@Slf4j
+public class HotKeyDetector {
+
+    private static final int SKETCH_DEPTH = 4;
+
+    private static final int SKETCH_WIDTH = 4096;
+
+    private final double sampleRatio;
+
+    private final int topSize;
+
+    private final long windowMillis;
+
+    private final int windowCount;
+
+    //获取key所在的节点
+    private final Function<String, String> nodeResolver;
+
+    private final AtomicReference<Window> current;
+
+    //已结束的时间窗口，最新的在前，只保留次数最多的key
+    private final Deque<HotKeyWindow> history = new ConcurrentLinkedDeque<>();
+
+    public HotKeyDetector(RedisProperties redisProperties, Function<String, String> nodeResolver) {
+        this.sampleRatio = Math.min(1, Math.max(0, redisProperties.getHotKeySampleRatio()));
+        this.topSize = Math.max(1, redisProperties.getHotKeyTopSize());
+        this.windowMillis = TimeUnit.SECONDS.toMillis(Math.max(1, redisProperties.getHotKeyWindowSeconds()));
+        this.windowCount = Math.max(0, redisProperties.getHotKeyWindowCount());
+        this.nodeResolver = nodeResolver;
+        this.current = new AtomicReference<>(new Window(System.currentTimeMillis(), topSize));
+    }
+
+    /**
+     * 本次命令是否采样
+     */
+    public boolean sample() {
+        return sampleRatio >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRatio;
+    }
+
+    /**
+     * 统计采样命令的key
+     */
+    public void add(Collection<?> keys) {
+        Window window = currentWindow();
+        for (Object key : keys) {
+            if (key instanceof String) {
+                window.add((String) key);
+            }
+        }
+    }
+
+    /**
+     * 当前时间窗口的热点key，按次数倒序
+     */
+    public List<HotKey> getHotKeys() {
+        return toHotKeys(current.get().top(), new HashMap<>());
+    }
+
+    /**
+     * 当前时间窗口的热点key，按节点分组
+     */
+    public Map<String, List<HotKey>> getHotKeysByNode() {
+        return getHotKeys().stream().collect(Collectors.groupingBy(hotKey -> String.valueOf(hotKey.getNode()), LinkedHashMap::new, Collectors.toList()));
+    }
+
+    /**
+     * 当前及历史时间窗口的热点key，最新的窗口在前
+     */
+    public List<HotKeyWindow> getWindows() {
+        Map<String, String> nodes = new HashMap<>();
+        Window window = current.get();
+        List<HotKeyWindow> windows = new ArrayList<>(history.size() + 1);
+        windows.add(new HotKeyWindow(window.startTime, System.currentTimeMillis(), toHotKeys(window.top(), nodes)));
+        for (HotKeyWindow hotKeyWindow : history) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            hotKeyWindow.getHotKeys().forEach(hotKey -> counts.put(hotKey.getKey(), hotKey.getCount()));
+            windows.add(new HotKeyWindow(hotKeyWindow.getStartTime(), hotKeyWindow.getEndTime(), toHotKeys(counts, nodes)));
+        }
+        return windows;
+    }
+
+    public void reset() {
+        current.set(new Window(System.currentTimeMillis(), topSize));
+        history.clear();
+    }
+
+    private Window currentWindow() {
+        Window window = current.get();
+        long now = System.currentTimeMillis();
+        if (now - window.startTime < windowMillis) {
+            return window;
+        }
+        Window next = new Window(now, topSize);
+        if (current.compareAndSet(window, next)) {
+            //结束的窗口只保留原始次数，查询时再换算和解析节点
+            List<HotKey> hotKeys = new ArrayList<>();
+            window.top().forEach((key, count) -> hotKeys.add(new HotKey(key, count, null)));
+            history.addFirst(new HotKeyWindow(window.startTime, now, hotKeys));
+            while (history.size() > windowCount) {
+                history.pollLast();
+            }
+            return next;
+        }
+        return current.get();
+    }
+
+    /**
+     * 按采样比例换算次数，并解析key所在的节点
+     */
+    private List<HotKey> toHotKeys(Map<String, Long> counts, Map<String, String> nodes) {
+        List<HotKey> hotKeys = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> hotKeys.add(new HotKey(key, Math.round(count / sampleRatio), nodes.computeIfAbsent(key, this::resolveNode))));
+        return hotKeys;
+    }
+
+    private String resolveNode(String key) {
+        try {
+            return nodeResolver.apply(key);
+        } catch (Exception e) {
+            log.warn("redis hot key node resolve failed, key: {}", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * 单个时间窗口的统计
+     */
+    private static class Window {
+
+        private final long startTime;
+
+        private final int topSize;
+
+        private final CountMinSketch sketch = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+
+        //候选热点key及其估算次数
+        private final Map<String, Long> candidates = new ConcurrentHashMap<>();
+
+        //进入候选的最小次数，裁剪后为第topSize个key的次数
+        private volatile long threshold;
+
+        private final AtomicBoolean pruning = new AtomicBoolean();
+
+        private Window(long startTime, int topSize) {
+            this.startTime = startTime;
+            this.topSize = topSize;
+        }
+
+        private void add(String key) {
+            long count = sketch.add(key);
+            if (count <= threshold && !candidates.containsKey(key)) {
+                return;
+            }
+            candidates.put(key, count);
+            if (candidates.size() > topSize * 2 && pruning.compareAndSet(false, true)) {
+                try {
+                    prune();
+                } finally {
+                    pruning.set(false);
+                }
+            }
+        }
+
+        private void prune() {
+            List<Map.Entry<String, Long>> entries = sort();
+            if (entries.size() <= topSize) {
+                return;
+            }
+            threshold = entries.get(topSize - 1).getValue();
+            for (Map.Entry<String, Long> entry : entries.subList(topSize, entries.size())) {
+                candidates.remove(entry.getKey(), entry.getValue());
+            }
+        }
+
+        /**
+         * 次数最多的topSize个key，按次数倒序
+         */
+        private Map<String, Long> top() {
+            Map<String, Long> top = new LinkedHashMap<>();
+            for (Map.Entry<String, Long> entry : sort()) {
+                if (top.size() >= topSize) {
+                    break;
+                }
+                top.put(entry.getKey(), entry.getValue());
+            }
+            return top;
+        }
+
+        private List<Map.Entry<String, Long>> sort() {
+            List<Map.Entry<String, Long>> entries = new ArrayList<>(candidates.entrySet());
+            entries.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+            return entries;
+        }
+    }
+
+}
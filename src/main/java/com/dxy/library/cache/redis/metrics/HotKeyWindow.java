@@ -0,0 +1,43 @@
+package com.dxy.library.cache.redis.metrics;
+
+import java.util.List;
+
+/**
+ * 单个时间窗口内的热点key，按次数倒序
+ * @author duanxinyuan
+ * 2020/6/25 11:30
+ */
+public class HotKeyWindow {
+
+    //窗口开始的时间戳
+    private final long startTime;
+
+    //窗口结束的时间戳，当前窗口为统计时的时间
+    private final long endTime;
+
+    private final List<HotKey> hotKeys;
+
+    public HotKeyWindow(long startTime, long endTime, List<HotKey> hotKeys) {
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.hotKeys = hotKeys;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public List<HotKey> getHotKeys() {
+        return hotKeys;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + startTime + ", " + endTime + "): " + hotKeys;
+    }
+
+}
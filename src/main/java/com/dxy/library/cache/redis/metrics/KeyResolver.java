@@ -0,0 +1,31 @@
+package com.dxy.library.cache.redis.metrics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * 解析命令调用处传入的key，支持单个key、key数组和key集合
+ * @author duanxinyuan
+ * 2020/6/25 11:30
+ */
+public class KeyResolver {
+
+    /**
+     * 解析命令的key，无法解析时返回空集合
+     * @param keys 命令的key（字符串、字符串数组或集合），没有key时为null
+     */
+    public static Collection<?> keys(Object keys) {
+        if (keys instanceof String) {
+            return Collections.singletonList(keys);
+        }
+        if (keys instanceof String[]) {
+            return Arrays.asList((String[]) keys);
+        }
+        if (keys instanceof Collection) {
+            return (Collection<?>) keys;
+        }
+        return Collections.emptyList();
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.dxy.library.cache.redis.metrics;
+
+/**
+ * 监控指标上报的扩展点，按 cache.redis.metrics.report.interval.millis 的间隔定时调用
+ * 实现类可以通过 META-INF/services/com.dxy.library.cache.redis.metrics.MetricsReporter 注册，或调用 CacheMetrics.addReporter 注册
+ * @author duanxinyuan
+ * 2020/6/23 10:15
+ */
+public interface MetricsReporter {
+
+    /**
+     * 上报监控指标快照
+     */
+    void report(CacheMetricsSnapshot snapshot);
+
+}
@@ -0,0 +1,92 @@
+package com.dxy.library.cache.redis.metrics;
+
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 估算命令的数据量，Jedis没有暴露连接上读写的字节数，按参数值和返回值估算
+ * 请求数据量由执行器按序列化后的参数值计算，在命令开始时写入CommandContext，响应数据量按返回值计算
+ * 集合和Map只计算前 SAMPLE_SIZE 个元素，再按元素个数估算总量，避免在调用线程上遍历大集合
+ * @author duanxinyuan
+ * 2020/6/23 10:15
+ */
+public class PayloadSize {
+
+    //集合和Map计算数据量的最大元素个数
+    private static final int SAMPLE_SIZE = 32;
+
+    /**
+     * 估算返回值的数据量，字符串按字符数计算
+     */
+    public static long of(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return 8;
+        }
+        if (value instanceof Tuple) {
+            return ((Tuple) value).getBinaryElement().length + 8;
+        }
+        if (value instanceof ScanResult) {
+            return of(((ScanResult<?>) value).getResult());
+        }
+        if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            long size = 0;
+            int sampled = Math.min(array.length, SAMPLE_SIZE);
+            for (int i = 0; i < sampled; i++) {
+                size += of(array[i]);
+            }
+            return estimate(size, sampled, array.length);
+        }
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            long size = 0;
+            int sampled = 0;
+            for (Iterator<?> iterator = collection.iterator(); iterator.hasNext() && sampled < SAMPLE_SIZE; sampled++) {
+                size += of(iterator.next());
+            }
+            return estimate(size, sampled, collection.size());
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            long size = 0;
+            int sampled = 0;
+            for (Iterator<? extends Map.Entry<?, ?>> iterator = map.entrySet().iterator(); iterator.hasNext() && sampled < SAMPLE_SIZE; sampled++) {
+                Map.Entry<?, ?> entry = iterator.next();
+                size += of(entry.getKey()) + of(entry.getValue());
+            }
+            return estimate(size, sampled, map.size());
+        }
+        return 0;
+    }
+
+    /**
+     * 多个参数值的数据量之和
+     */
+    public static long of(Object first, Object second) {
+        return of(first) + of(second);
+    }
+
+    /**
+     * 按已计算元素的平均数据量估算全部元素的数据量
+     */
+    private static long estimate(long sampledSize, int sampled, int total) {
+        if (sampled == 0 || sampled >= total) {
+            return sampledSize;
+        }
+        return sampledSize * total / sampled;
+    }
+
+}
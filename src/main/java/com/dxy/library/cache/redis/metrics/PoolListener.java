@@ -0,0 +1,25 @@
+package com.dxy.library.cache.redis.metrics;
+
+/**
+ * 连接池饱和的回调，借出连接数占比达到 cache.redis.pool.usage.threshold 或等待线程数达到 cache.redis.pool.waiters.threshold 时视为饱和
+ * 按 cache.redis.pool.monitor.interval.millis 的间隔检查，每个节点只在进入和离开饱和状态时各回调一次
+ * 通过 CacheMetrics.addPoolListener 注册
+ * @author duanxinyuan
+ * 2020/6/28 14:20
+ */
+public interface PoolListener {
+
+    /**
+     * 连接池进入饱和状态
+     * @param name 配置名称
+     */
+    void onSaturated(String name, PoolSnapshot snapshot);
+
+    /**
+     * 连接池离开饱和状态
+     * @param name 配置名称
+     */
+    default void onRecovered(String name, PoolSnapshot snapshot) {
+    }
+
+}
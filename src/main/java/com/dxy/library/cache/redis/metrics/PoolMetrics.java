@@ -0,0 +1,147 @@
+package com.dxy.library.cache.redis.metrics;
+
+import com.dxy.library.cache.redis.properties.RedisProperties;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.util.Pool;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * 每个节点连接池的状态、获取连接的等待时间分布，以及连接池饱和的检查
+ * 连接池在主从切换、刷新从节点或槽位后会被替换，等待时间按连接池对象记录，连接池被回收后一并回收
+ * @author duanxinyuan
+ * 2020/6/28 14:20
+ */
+@Slf4j
+public class PoolMetrics {
+
+    private final String name;
+
+    //获取当前所有连接池，key为节点
+    private final Supplier<Map<String, Pool<?>>> poolSupplier;
+
+    private final double usageThreshold;
+
+    private final int waitersThreshold;
+
+    private final Cache<Pool<?>, LatencyHistogram> borrowWaits = CacheBuilder.newBuilder().weakKeys().build();
+
+    //处于饱和状态的节点
+    private final Set<String> saturatedNodes = ConcurrentHashMap.newKeySet();
+
+    private final List<PoolListener> listeners = new CopyOnWriteArrayList<>();
+
+    public PoolMetrics(RedisProperties redisProperties, Supplier<Map<String, Pool<?>>> poolSupplier) {
+        this.name = redisProperties.getName();
+        this.poolSupplier = poolSupplier;
+        this.usageThreshold = redisProperties.getPoolUsageThreshold();
+        this.waitersThreshold = redisProperties.getPoolWaitersThreshold();
+    }
+
+    public void addListener(PoolListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(PoolListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 记录一次获取连接的等待时间（纳秒）
+     */
+    public void recordBorrowWait(Pool<?> pool, long nanos) {
+        LatencyHistogram histogram = borrowWaits.getIfPresent(pool);
+        if (histogram == null) {
+            histogram = borrowWaits.asMap().computeIfAbsent(pool, p -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * 所有节点连接池的状态，key为节点
+     */
+    public Map<String, PoolSnapshot> getPools() {
+        Map<String, PoolSnapshot> snapshots = new TreeMap<>();
+        pools().forEach((node, pool) -> snapshots.put(node, snapshot(node, pool)));
+        return snapshots;
+    }
+
+    /**
+     * 连接池的状态，节点为连接池在当前连接池列表中的key，不在列表中时为unknown
+     */
+    public PoolSnapshot getPool(Pool<?> pool) {
+        for (Map.Entry<String, Pool<?>> entry : pools().entrySet()) {
+            if (entry.getValue() == pool) {
+                return snapshot(entry.getKey(), pool);
+            }
+        }
+        return snapshot("unknown", pool);
+    }
+
+    /**
+     * 检查所有节点的连接池，进入或离开饱和状态时回调
+     */
+    public void check() {
+        Map<String, PoolSnapshot> snapshots = getPools();
+        saturatedNodes.retainAll(snapshots.keySet());
+        snapshots.forEach((node, snapshot) -> {
+            if (isSaturated(snapshot)) {
+                if (saturatedNodes.add(node)) {
+                    log.warn("redis pool saturated, name: {}, {}", name, snapshot);
+                    notify(snapshot, true);
+                }
+            } else if (saturatedNodes.remove(node)) {
+                log.info("redis pool recovered, name: {}, {}", name, snapshot);
+                notify(snapshot, false);
+            }
+        });
+    }
+
+    public void reset() {
+        borrowWaits.asMap().values().forEach(LatencyHistogram::reset);
+    }
+
+    private boolean isSaturated(PoolSnapshot snapshot) {
+        return (usageThreshold > 0 && snapshot.getUsage() >= usageThreshold)
+                || (waitersThreshold > 0 && snapshot.getWaiters() >= waitersThreshold);
+    }
+
+    private void notify(PoolSnapshot snapshot, boolean saturated) {
+        for (PoolListener listener : listeners) {
+            try {
+                if (saturated) {
+                    listener.onSaturated(name, snapshot);
+                } else {
+                    listener.onRecovered(name, snapshot);
+                }
+            } catch (Exception e) {
+                log.error("redis pool listener failed, listener: {}", listener.getClass().getName(), e);
+            }
+        }
+    }
+
+    private PoolSnapshot snapshot(String node, Pool<?> pool) {
+        LatencyHistogram histogram = borrowWaits.getIfPresent(pool);
+        return PoolSnapshot.of(node, pool, histogram != null ? histogram.snapshot() : new HistogramSnapshot(0, 0, 0, 0, 0, 0, 0));
+    }
+
+    private Map<String, Pool<?>> pools() {
+        try {
+            Map<String, Pool<?>> pools = poolSupplier.get();
+            return pools != null ? pools : Collections.emptyMap();
+        } catch (Exception e) {
+            log.warn("redis pools get failed, name: {}", name, e);
+            return Collections.emptyMap();
+        }
+    }
+
+}
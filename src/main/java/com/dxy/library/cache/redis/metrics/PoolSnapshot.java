@@ -0,0 +1,160 @@
+package com.dxy.library.cache.redis.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import redis.clients.jedis.util.Pool;
+
+import java.lang.reflect.Field;
+
+/**
+ * 单个节点连接池的状态快照，连接数为当前值，创建/销毁/借出次数为累计值
+ * 集群节点的连接池由JedisCluster创建，同样从连接池内部的GenericObjectPool读取
+ * @author duanxinyuan
+ * 2020/6/28 14:20
+ */
+@Slf4j
+public class PoolSnapshot {
+
+    //Pool中的GenericObjectPool，Jedis只开放了部分统计方法
+    private static final Field INTERNAL_POOL = internalPoolField();
+
+    private final String node;
+
+    private final int maxTotal;
+
+    private final int active;
+
+    private final int idle;
+
+    private final int waiters;
+
+    private final long created;
+
+    private final long destroyed;
+
+    private final long borrowed;
+
+    //最近100次获取连接的平均等待毫秒数，由GenericObjectPool统计
+    private final long meanBorrowWaitMillis;
+
+    private final long maxBorrowWaitMillis;
+
+    //通过执行器获取连接的等待时间分布，集群节点的连接由JedisCluster获取，不记录
+    private final HistogramSnapshot borrowWait;
+
+    public PoolSnapshot(String node, int maxTotal, int active, int idle, int waiters, long created, long destroyed, long borrowed,
+                        long meanBorrowWaitMillis, long maxBorrowWaitMillis, HistogramSnapshot borrowWait) {
+        this.node = node;
+        this.maxTotal = maxTotal;
+        this.active = active;
+        this.idle = idle;
+        this.waiters = waiters;
+        this.created = created;
+        this.destroyed = destroyed;
+        this.borrowed = borrowed;
+        this.meanBorrowWaitMillis = meanBorrowWaitMillis;
+        this.maxBorrowWaitMillis = maxBorrowWaitMillis;
+        this.borrowWait = borrowWait;
+    }
+
+    /**
+     * 读取连接池的状态，连接池已关闭时连接数均为0
+     */
+    public static PoolSnapshot of(String node, Pool<?> pool, HistogramSnapshot borrowWait) {
+        GenericObjectPool<?> internalPool = internalPool(pool);
+        if (internalPool == null) {
+            return new PoolSnapshot(node, -1, pool.getNumActive(), pool.getNumIdle(), pool.getNumWaiters(), -1, -1, -1,
+                    pool.getMeanBorrowWaitTimeMillis(), pool.getMaxBorrowWaitTimeMillis(), borrowWait);
+        }
+        return new PoolSnapshot(node, internalPool.getMaxTotal(), internalPool.getNumActive(), internalPool.getNumIdle(),
+                internalPool.getNumWaiters(), internalPool.getCreatedCount(), internalPool.getDestroyedCount(), internalPool.getBorrowedCount(),
+                internalPool.getMeanBorrowWaitTimeMillis(), internalPool.getMaxBorrowWaitTimeMillis(), borrowWait);
+    }
+
+    private static GenericObjectPool<?> internalPool(Pool<?> pool) {
+        if (INTERNAL_POOL == null) {
+            return null;
+        }
+        try {
+            return (GenericObjectPool<?>) INTERNAL_POOL.get(pool);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static Field internalPoolField() {
+        try {
+            Field field = Pool.class.getDeclaredField("internalPool");
+            field.setAccessible(true);
+            return field;
+        } catch (Exception e) {
+            log.warn("redis pool internalPool not accessible, pool created/destroyed counts not available", e);
+            return null;
+        }
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * 最大连接数，无法读取时为-1
+     */
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * 等待获取连接的线程数
+     */
+    public int getWaiters() {
+        return waiters;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getDestroyed() {
+        return destroyed;
+    }
+
+    public long getBorrowed() {
+        return borrowed;
+    }
+
+    public long getMeanBorrowWaitMillis() {
+        return meanBorrowWaitMillis;
+    }
+
+    public long getMaxBorrowWaitMillis() {
+        return maxBorrowWaitMillis;
+    }
+
+    public HistogramSnapshot getBorrowWait() {
+        return borrowWait;
+    }
+
+    /**
+     * 借出的连接数占最大连接数的比例，无法读取最大连接数时为0
+     */
+    public double getUsage() {
+        return maxTotal > 0 ? (double) active / maxTotal : 0;
+    }
+
+    @Override
+    public String toString() {
+        return node + ": active=" + active + "/" + maxTotal + ", idle=" + idle + ", waiters=" + waiters + ", created=" + created
+                + ", destroyed=" + destroyed + ", borrowed=" + borrowed + ", meanBorrowWait=" + meanBorrowWaitMillis
+                + "ms, maxBorrowWait=" + maxBorrowWaitMillis + "ms, borrowWait={" + borrowWait + "}";
+    }
+
+}
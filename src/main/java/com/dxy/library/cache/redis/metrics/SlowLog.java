@@ -0,0 +1,106 @@
+package com.dxy.library.cache.redis.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 客户端慢命令记录，固定大小的环形缓冲区，超过容量时覆盖最早的记录
+ * 写入只有一次原子自增和一次数组写入，不阻塞命令执行，读取时按编号倒序返回
+ * @author duanxinyuan
+ * 2020/6/24 10:20
+ */
+public class SlowLog {
+
+    //key的最大记录长度，超过时截断
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final long thresholdNanos;
+
+    private final AtomicReferenceArray<SlowLogEntry> entries;
+
+    //已记录的慢命令总数，也是最新一条记录的编号
+    private final AtomicLong count = new AtomicLong();
+
+    public SlowLog(long thresholdMillis, int maxSize) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.entries = new AtomicReferenceArray<>(Math.max(1, maxSize));
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return thresholdNanos > 0 && elapsedNanos >= thresholdNanos;
+    }
+
+    /**
+     * 记录一条慢命令
+     * @param keys 命令的key（字符串、字符串数组或集合），没有key时为null
+     */
+    public void add(String command, Object keys, boolean success, long elapsedNanos, long poolWaitNanos,
+                    long deserializeNanos, long requestBytes, long responseBytes) {
+        long id = count.incrementAndGet();
+        SlowLogEntry entry = new SlowLogEntry(id, System.currentTimeMillis(), command, keyOf(keys), success,
+                elapsedNanos, poolWaitNanos, deserializeNanos, requestBytes, responseBytes);
+        entries.set((int) ((id - 1) % entries.length()), entry);
+    }
+
+    /**
+     * 获取所有慢命令记录，最新的在前
+     */
+    public List<SlowLogEntry> getEntries() {
+        return getEntries(entries.length());
+    }
+
+    /**
+     * 获取最近的limit条慢命令记录，最新的在前
+     */
+    public List<SlowLogEntry> getEntries(int limit) {
+        List<SlowLogEntry> list = new ArrayList<>(Math.min(limit, entries.length()));
+        for (int i = 0; i < entries.length(); i++) {
+            SlowLogEntry entry = entries.get(i);
+            if (entry != null) {
+                list.add(entry);
+            }
+        }
+        list.sort((e1, e2) -> Long.compare(e2.getId(), e1.getId()));
+        return list.size() > limit ? new ArrayList<>(list.subList(0, limit)) : list;
+    }
+
+    /**
+     * 已记录的慢命令总数，包括已被覆盖的记录
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+
+    /**
+     * 解析命令的key，多个key时只记录第一个和key的个数，只在记录慢命令时执行
+     */
+    private static String keyOf(Object keys) {
+        Collection<?> keyList = KeyResolver.keys(keys);
+        if (keyList.isEmpty()) {
+            return null;
+        }
+        Object first = keyList.iterator().next();
+        if (!(first instanceof String)) {
+            return null;
+        }
+        return keyList.size() > 1 ? truncate((String) first) + " (+" + (keyList.size() - 1) + ")" : truncate((String) first);
+    }
+
+    private static String truncate(String key) {
+        if (key == null || key.length() <= MAX_KEY_LENGTH) {
+            return key;
+        }
+        return key.substring(0, MAX_KEY_LENGTH) + "...";
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.dxy.library.cache.redis.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单条慢命令记录，耗时为纳秒
+ * 执行耗时为总耗时减去获取连接的等待耗时和反序列化耗时，包括序列化、网络传输和Redis执行的耗时
+ * @author duanxinyuan
+ * 2020/6/24 10:20
+ */
+public class SlowLogEntry {
+
+    //记录编号，从1开始递增
+    private final long id;
+
+    //命令完成的时间戳
+    private final long timestamp;
+
+    private final String command;
+
+    //命令lambda捕获的第一个字符串参数，通常为key，无法解析时为null
+    private final String key;
+
+    private final boolean success;
+
+    private final long elapsedNanos;
+
+    private final long poolWaitNanos;
+
+    private final long executeNanos;
+
+    private final long deserializeNanos;
+
+    private final long requestBytes;
+
+    private final long responseBytes;
+
+    public SlowLogEntry(long id, long timestamp, String command, String key, boolean success, long elapsedNanos,
+                        long poolWaitNanos, long deserializeNanos, long requestBytes, long responseBytes) {
+        this.id = id;
+        this.timestamp = timestamp;
+        this.command = command;
+        this.key = key;
+        this.success = success;
+        this.elapsedNanos = elapsedNanos;
+        this.poolWaitNanos = poolWaitNanos;
+        this.executeNanos = Math.max(0, elapsedNanos - poolWaitNanos - deserializeNanos);
+        this.deserializeNanos = deserializeNanos;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getPoolWaitNanos() {
+        return poolWaitNanos;
+    }
+
+    public long getExecuteNanos() {
+        return executeNanos;
+    }
+
+    public long getDeserializeNanos() {
+        return deserializeNanos;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + id + " " + command + " " + key + ": elapsed=" + toMicros(elapsedNanos) + "us, poolWait=" + toMicros(poolWaitNanos)
+                + "us, execute=" + toMicros(executeNanos) + "us, deserialize=" + toMicros(deserializeNanos)
+                + "us, requestBytes=" + requestBytes + ", responseBytes=" + responseBytes + (success ? "" : ", failed");
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.dxy.library.cache.redis.pool;
+
+import com.dxy.library.cache.redis.constant.HealthCheckStrategy;
+import com.dxy.library.cache.redis.properties.RedisProperties;
+import lombok.Getter;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectState;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接健康检查器，按策略决定获取连接时是否需要发送PING校验，并统计校验次数和断开的连接数
+ * @author duanxinyuan
+ * 2020/6/4 10:30
+ */
+public class ConnectionHealthChecker {
+
+    @Getter
+    private final HealthCheckStrategy strategy;
+
+    //idleTime策略下，连接空闲超过该毫秒数时才在获取时校验
+    @Getter
+    private final long idleMillis;
+
+    //failure策略下，发生连接异常后该毫秒数内获取的连接都需要校验
+    @Getter
+    private final long failureWindowMillis;
+
+    //failure策略下，获取连接时需要校验的截止时间
+    private volatile long validateUntil;
+
+    //发送PING校验的次数
+    private final LongAdder validations = new LongAdder();
+
+    //PING校验失败的次数
+    private final LongAdder validationFailures = new LongAdder();
+
+    //按策略跳过校验的次数
+    private final LongAdder skippedValidations = new LongAdder();
+
+    //执行命令时发生连接异常的次数
+    private final LongAdder brokenConnections = new LongAdder();
+
+    public ConnectionHealthChecker(RedisProperties redisProperties) {
+        this.strategy = HealthCheckStrategy.getStrategy(redisProperties.getHealthCheckStrategy());
+        this.idleMillis = redisProperties.getHealthCheckIdleMillis();
+        this.failureWindowMillis = redisProperties.getHealthCheckFailureWindowMillis();
+    }
+
+    /**
+     * 连接池获取连接时是否调用校验，idle策略下不调用，其他策略由shouldValidate决定是否发送PING
+     */
+    public boolean isTestOnBorrow() {
+        return strategy != HealthCheckStrategy.idle;
+    }
+
+    /**
+     * 是否需要发送PING校验连接
+     */
+    public boolean shouldValidate(PooledObject<?> pooledObject) {
+        //非获取连接时的校验（后台驱逐线程、归还连接）始终执行
+        if (pooledObject.getState() != PooledObjectState.ALLOCATED) {
+            return true;
+        }
+        boolean validate;
+        switch (strategy) {
+            case borrow:
+                validate = true;
+                break;
+            case failure:
+                validate = System.currentTimeMillis() < validateUntil;
+                break;
+            case idleTime:
+                validate = System.currentTimeMillis() - pooledObject.getLastReturnTime() > idleMillis;
+                break;
+            default:
+                validate = false;
+        }
+        if (!validate) {
+            skippedValidations.increment();
+        }
+        return validate;
+    }
+
+    /**
+     * 记录一次PING校验的结果
+     */
+    public void onValidated(boolean valid) {
+        validations.increment();
+        if (!valid) {
+            validationFailures.increment();
+        }
+    }
+
+    /**
+     * 执行命令发生异常时调用，连接异常时打开failure策略的校验窗口
+     */
+    public void onException(Exception e) {
+        if (e instanceof JedisConnectionException || e.getCause() instanceof JedisConnectionException) {
+            brokenConnections.increment();
+            validateUntil = System.currentTimeMillis() + failureWindowMillis;
+        }
+    }
+
+    public long getValidationCount() {
+        return validations.sum();
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailures.sum();
+    }
+
+    public long getSkippedValidationCount() {
+        return skippedValidations.sum();
+    }
+
+    public long getBrokenConnectionCount() {
+        return brokenConnections.sum();
+    }
+
+}
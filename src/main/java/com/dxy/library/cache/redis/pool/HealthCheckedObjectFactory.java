@@ -0,0 +1,57 @@
+package com.dxy.library.cache.redis.pool;
+
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+
+/**
+ * 按健康检查策略校验连接的连接工厂
+ * 连接已断开时直接判定为无效，只有健康检查器判定需要时才发送PING
+ * @author duanxinyuan
+ * 2020/6/4 11:05
+ */
+public abstract class HealthCheckedObjectFactory<T> implements PooledObjectFactory<T> {
+
+    private final ConnectionHealthChecker healthChecker;
+
+    public HealthCheckedObjectFactory(ConnectionHealthChecker healthChecker) {
+        this.healthChecker = healthChecker;
+    }
+
+    public ConnectionHealthChecker getHealthChecker() {
+        return healthChecker;
+    }
+
+    @Override
+    public boolean validateObject(PooledObject<T> pooledObject) {
+        T object = pooledObject.getObject();
+        try {
+            if (!isConnected(object)) {
+                return false;
+            }
+        } catch (Exception e) {
+            return false;
+        }
+        if (!healthChecker.shouldValidate(pooledObject)) {
+            return true;
+        }
+        boolean valid;
+        try {
+            valid = ping(object);
+        } catch (Exception e) {
+            valid = false;
+        }
+        healthChecker.onValidated(valid);
+        return valid;
+    }
+
+    /**
+     * 不产生网络往返的连接状态检查
+     */
+    protected abstract boolean isConnected(T object);
+
+    /**
+     * 发送PING校验连接
+     */
+    protected abstract boolean ping(T object);
+
+}
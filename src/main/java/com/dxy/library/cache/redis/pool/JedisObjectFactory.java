@@ -0,0 +1,110 @@
+package com.dxy.library.cache.redis.pool;
+
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.function.Supplier;
+
+/**
+ * Jedis连接工厂，单机和哨兵模式使用
+ * @author duanxinyuan
+ * 2020/6/4 11:20
+ */
+public class JedisObjectFactory extends HealthCheckedObjectFactory<Jedis> {
+
+    //当前连接的节点，哨兵模式下主从切换后会变化
+    private final Supplier<HostAndPort> hostAndPort;
+
+    private final int connectionTimeout;
+
+    private final int soTimeout;
+
+    private final String password;
+
+    private final int database;
+
+    //是否以READONLY模式连接，集群模式下从节点的连接需要开启才能读取数据
+    private final boolean readonly;
+
+    public JedisObjectFactory(Supplier<HostAndPort> hostAndPort, int connectionTimeout, int soTimeout, String password, int database,
+                              ConnectionHealthChecker healthChecker) {
+        this(hostAndPort, connectionTimeout, soTimeout, password, database, false, healthChecker);
+    }
+
+    public JedisObjectFactory(Supplier<HostAndPort> hostAndPort, int connectionTimeout, int soTimeout, String password, int database,
+                              boolean readonly, ConnectionHealthChecker healthChecker) {
+        super(healthChecker);
+        this.hostAndPort = hostAndPort;
+        this.connectionTimeout = connectionTimeout;
+        this.soTimeout = soTimeout;
+        this.password = password;
+        this.database = database;
+        this.readonly = readonly;
+    }
+
+    @Override
+    public PooledObject<Jedis> makeObject() {
+        HostAndPort hp = hostAndPort.get();
+        Jedis jedis = new Jedis(hp.getHost(), hp.getPort(), connectionTimeout, soTimeout);
+        try {
+            jedis.connect();
+            if (password != null) {
+                jedis.auth(password);
+            }
+            if (database != 0) {
+                jedis.select(database);
+            }
+            if (readonly) {
+                jedis.readonly();
+            }
+        } catch (JedisException e) {
+            jedis.close();
+            throw e;
+        }
+        return new DefaultPooledObject<>(jedis);
+    }
+
+    @Override
+    public void destroyObject(PooledObject<Jedis> pooledObject) {
+        Jedis jedis = pooledObject.getObject();
+        if (jedis.isConnected()) {
+            try {
+                try {
+                    jedis.quit();
+                } catch (Exception ignored) {
+                }
+                jedis.disconnect();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    @Override
+    public void activateObject(PooledObject<Jedis> pooledObject) {
+        Jedis jedis = pooledObject.getObject();
+        if (jedis.getDB() != database) {
+            jedis.select(database);
+        }
+    }
+
+    @Override
+    public void passivateObject(PooledObject<Jedis> pooledObject) {
+    }
+
+    @Override
+    protected boolean isConnected(Jedis jedis) {
+        //主从切换后，连接旧主节点的连接视为无效
+        HostAndPort hp = hostAndPort.get();
+        return hp.getHost().equals(jedis.getClient().getHost()) && hp.getPort() == jedis.getClient().getPort()
+                && jedis.isConnected() && !jedis.getClient().isBroken();
+    }
+
+    @Override
+    protected boolean ping(Jedis jedis) {
+        return "PONG".equals(jedis.ping());
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.dxy.library.cache.redis.pool;
+
+import com.dxy.library.cache.redis.inter.RedisFunction;
+import lombok.Getter;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 可读节点（从节点，集群模式下按响应时间选择时也包括主节点）及其连接池
+ * @author duanxinyuan
+ * 2020/6/8 14:25
+ */
+@Getter
+public class ReplicaNode {
+
+    private final HostAndPort hostAndPort;
+
+    private final JedisPool jedisPool;
+
+    //正在执行的命令数
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    //命令响应时间的指数加权移动平均微秒数，未执行过命令时为0
+    private volatile long latencyMicros;
+
+    public ReplicaNode(HostAndPort hostAndPort, JedisPool jedisPool) {
+        this.hostAndPort = hostAndPort;
+        this.jedisPool = jedisPool;
+    }
+
+    /**
+     * 在从节点上执行命令
+     */
+    public <T> T execute(RedisFunction<Jedis, T> function) throws Exception {
+        outstanding.incrementAndGet();
+        long start = System.nanoTime();
+        try (Jedis jedis = jedisPool.getResource()) {
+            return function.apply(jedis);
+        } finally {
+            outstanding.decrementAndGet();
+            recordLatency(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    private void recordLatency(long micros) {
+        long latency = latencyMicros;
+        //权重1/8，并发更新时允许丢失个别样本
+        latencyMicros = latency == 0 ? Math.max(micros, 1) : latency + (micros - latency) / 8;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.dxy.library.cache.redis.pool;
+
+import com.dxy.library.cache.redis.constant.ReadPolicy;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按读策略选择从节点
+ * @author duanxinyuan
+ * 2020/6/8 14:40
+ */
+public class ReplicaSelector {
+
+    @Getter
+    private final ReadPolicy policy;
+
+    //按响应时间选择时，每隔多少次轮询选择一次，避免响应时间变慢过的节点再也不被选中
+    private static final int LATENCY_PROBE_INTERVAL = 16;
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    public ReplicaSelector(ReadPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * 选择从节点，读主节点或没有可用的从节点时返回null
+     */
+    public ReplicaNode select(List<ReplicaNode> replicas) {
+        if (policy == ReadPolicy.master || replicas == null || replicas.isEmpty()) {
+            return null;
+        }
+        int size = replicas.size();
+        int count = counter.getAndIncrement() & Integer.MAX_VALUE;
+        int start = count % size;
+        if (policy == ReadPolicy.roundRobin || (policy == ReadPolicy.latency && count % LATENCY_PROBE_INTERVAL == 0)) {
+            return replicas.get(start);
+        }
+        //从轮询位置开始查找，指标相同时分散到不同的节点
+        ReplicaNode selected = null;
+        for (int i = 0; i < size; i++) {
+            ReplicaNode replica = replicas.get((start + i) % size);
+            if (selected == null || compare(replica, selected) < 0) {
+                selected = replica;
+            }
+        }
+        return selected;
+    }
+
+    private int compare(ReplicaNode replica, ReplicaNode other) {
+        if (policy == ReadPolicy.latency) {
+            return Long.compare(replica.getLatencyMicros(), other.getLatencyMicros());
+        }
+        return Integer.compare(replica.getOutstanding().get(), other.getOutstanding().get());
+    }
+
+}
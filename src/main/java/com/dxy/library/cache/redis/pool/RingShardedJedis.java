@@ -0,0 +1,30 @@
+package com.dxy.library.cache.redis.pool;
+
+import com.dxy.library.cache.redis.util.KetamaRing;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.ShardedJedis;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 支持ketama哈希环的ShardedJedis，ring为null时使用Jedis默认的哈希环
+ * hash tag只在String类型key的getShardInfo中提取，命令需要使用String类型key的方法，否则开启hash tag时会路由到不同的分片
+ * @author duanxinyuan
+ * 2020/6/15 11:50
+ */
+public class RingShardedJedis extends ShardedJedis {
+
+    private final KetamaRing ring;
+
+    public RingShardedJedis(List<JedisShardInfo> shards, Pattern keyTagPattern, KetamaRing ring) {
+        super(shards, keyTagPattern);
+        this.ring = ring;
+    }
+
+    @Override
+    public JedisShardInfo getShardInfo(byte[] key) {
+        return ring != null ? ring.get(key) : super.getShardInfo(key);
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.dxy.library.cache.redis.pool;
+
+import com.dxy.library.cache.redis.util.KetamaRing;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.ShardedJedis;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * ShardedJedis连接工厂，分片模式使用
+ * @author duanxinyuan
+ * 2020/6/4 11:40
+ */
+public class ShardedJedisObjectFactory extends HealthCheckedObjectFactory<ShardedJedis> {
+
+    private final List<JedisShardInfo> shards;
+
+    //hash tag的匹配规则，为null时不支持hash tag
+    private final Pattern keyTagPattern;
+
+    //ketama哈希环，所有连接共用，为null时使用Jedis默认的哈希环
+    private final KetamaRing ring;
+
+    public ShardedJedisObjectFactory(List<JedisShardInfo> shards, ConnectionHealthChecker healthChecker) {
+        this(shards, null, null, healthChecker);
+    }
+
+    public ShardedJedisObjectFactory(List<JedisShardInfo> shards, Pattern keyTagPattern, KetamaRing ring, ConnectionHealthChecker healthChecker) {
+        super(healthChecker);
+        this.shards = shards;
+        this.keyTagPattern = keyTagPattern;
+        this.ring = ring;
+    }
+
+    @Override
+    public PooledObject<ShardedJedis> makeObject() {
+        return new DefaultPooledObject<>(new RingShardedJedis(shards, keyTagPattern, ring));
+    }
+
+    @Override
+    public void destroyObject(PooledObject<ShardedJedis> pooledObject) {
+        for (Jedis jedis : pooledObject.getObject().getAllShards()) {
+            if (jedis.isConnected()) {
+                try {
+                    try {
+                        jedis.quit();
+                    } catch (Exception ignored) {
+                    }
+                    jedis.disconnect();
+                } catch (Exception ignored) {
+                }
+            }
+        }
+    }
+
+    @Override
+    public void activateObject(PooledObject<ShardedJedis> pooledObject) {
+    }
+
+    @Override
+    public void passivateObject(PooledObject<ShardedJedis> pooledObject) {
+    }
+
+    @Override
+    protected boolean isConnected(ShardedJedis shardedJedis) {
+        //分片连接在首次使用时才建立，这里只排除已损坏的连接
+        for (Jedis jedis : shardedJedis.getAllShards()) {
+            if (jedis.getClient().isBroken()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean ping(ShardedJedis shardedJedis) {
+        for (Jedis jedis : shardedJedis.getAllShards()) {
+            if (!"PONG".equals(jedis.ping())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
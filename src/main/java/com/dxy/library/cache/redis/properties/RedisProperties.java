@@ -3,11 +3,14 @@ package com.dxy.library.cache.redis.properties;
 import com.dxy.library.util.config.ConfigUtils;
 import com.dxy.library.util.config.dto.Config;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import lombok.Data;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Redis配置
@@ -17,7 +20,13 @@ import java.util.List;
 @Data
 public class RedisProperties {
 
-    //Redis缓存类型，single/sentinel/sharded/cluster，必须配置
+    //限制单次读取元素个数的命令
+    public static final List<String> BIG_KEY_COMMANDS = Lists.newArrayList("lrangeAll", "hgetAll", "hkeys", "hvals", "smembers");
+
+    //配置名称，多个Redis连接配置时用于区分监控指标
+    private String name;
+
+    //Redis缓存类型，single/sentinel/sharded/shardedSentinel/cluster，必须配置
     private String type;
 
     //最大连接数，建议配置，默认为100
@@ -26,26 +35,168 @@ public class RedisProperties {
     //最大空闲连接数，建议配置，默认为50
     private int maxIdle = 50;
 
+    //最小空闲连接数，开启预热时启动阶段为每个节点创建的连接数，可不配置，默认为0
+    private int minIdle = 0;
+
     //获取连接时的最大等待毫秒数，可不配置，默认为5000
     private long maxWaitMillis = 5000;
 
-    //Redis节点信息列表，多个使用逗号隔开，必须配置
+    //连接耗尽时获取连接是否阻塞等待，为false时直接抛出异常，可不配置，默认为true
+    private boolean blockWhenExhausted = true;
+
+    //空闲连接是否后进先出，为false时先进先出，可不配置，默认为true
+    private boolean lifo = true;
+
+    //获取连接时是否按等待顺序公平分配，可不配置，默认为false
+    private boolean fairness = false;
+
+    //空闲连接驱逐线程的运行间隔毫秒数，小于等于0时不运行，可不配置，默认为30000
+    private long timeBetweenEvictionRunsMillis = 30000;
+
+    //连接空闲超过该毫秒数后可被驱逐，可不配置，默认为60000
+    private long minEvictableIdleTimeMillis = 60000;
+
+    //每次驱逐检查的连接数，负数表示检查空闲连接的 1/n，可不配置，默认为-1（检查全部空闲连接）
+    private int numTestsPerEvictionRun = -1;
+
+    //Redis节点信息列表，多个使用逗号隔开，分片模式下可以使用 host:port:weight 配置节点权重，必须配置
     private List<String> nodes;
 
+    //分片模式的key分布策略，murmur/ketama，可不配置，默认为murmur
+    private String shardingStrategy = "murmur";
+
+    //ketama策略下每个节点（权重为1时）的虚拟节点数，可不配置，默认为160
+    private int shardingVirtualNodes = 160;
+
+    //分片模式是否支持 {tag} 形式的hash tag，只按大括号中的内容计算分片，可不配置，默认为false
+    private boolean shardingHashTag = false;
+
+    //分片模式在线迁移前的节点列表，多个使用逗号隔开，配置后开启在线迁移，迁移完成后移除，可不配置
+    private List<String> shardingMigrationNodes;
+
+    //在线迁移每批SCAN的key数量，可不配置，默认为100
+    private int shardingMigrationBatchSize = 100;
+
+    //在线迁移每秒最多迁移的key数量，小于等于0表示不限速，可不配置，默认为1000
+    private int shardingMigrationMaxOpsPerSecond = 1000;
+
+    //哨兵模式的主节点名称，shardedSentinel模式下多个使用逗号隔开，可不配置，默认为CacheMaster
+    private List<String> sentinelMasters = Lists.newArrayList("CacheMaster");
+
     //Redis密码，没有密码不需要配置
     private String password;
 
+    //哨兵的密码，哨兵开启认证（requirepass）时需要配置，可不配置
+    private String sentinelPassword;
+
     //Redis database，只有单机和哨兵模式支持，可不配置，默认为0
     private int database = 0;
 
     //连接超时毫秒数 和 读取数据超时毫秒数，可不配置，默认2000
     private int timeoutMillis = 2000;
 
+    //连接超时毫秒数，可不配置，默认使用timeoutMillis
+    private int connectionTimeoutMillis;
+
+    //读取数据超时毫秒数，可不配置，默认使用timeoutMillis
+    private int soTimeoutMillis;
+
+    //集群模式下命令失败（连接异常、MOVED/ASK重定向）的最大尝试次数，可不配置，默认为5
+    private int maxAttempts = 5;
+
+    //连接健康检查策略，borrow/idle/failure/idleTime，可不配置，默认为idleTime
+    private String healthCheckStrategy = "idleTime";
+
+    //idleTime策略下，连接空闲超过该毫秒数才在获取时校验，可不配置，默认为30000
+    private long healthCheckIdleMillis = 30000;
+
+    //failure策略下，发生连接异常后该毫秒数内获取的连接都会校验，可不配置，默认为3000
+    private long healthCheckFailureWindowMillis = 3000;
+
+    //读命令的路由策略，master/roundRobin/leastOutstanding/latency，只有哨兵和集群模式支持，可不配置，默认为master
+    private String readPolicy = "master";
+
+    //从节点读取发生连接异常时是否改为读主节点，可不配置，默认为true
+    private boolean readFallbackMaster = true;
+
+    //从节点列表（集群模式下为slot信息）的刷新间隔毫秒数，可不配置，默认为10000
+    private long replicaRefreshMillis = 10000;
+
+    //是否在启动时预热连接池，可不配置，默认为false
+    private boolean warmUpEnabled = false;
+
+    //初始化时是否等待预热完成，可不配置，默认为true
+    private boolean warmUpBlocking = true;
+
+    //初始化时等待预热完成的最大毫秒数，可不配置，默认为10000
+    private long warmUpTimeoutMillis = 10000;
+
+    //是否统计每个命令的耗时、错误数和数据量，可不配置，默认为true
+    private boolean metricsEnabled = true;
+
+    //是否将监控指标注册到JMX，可不配置，默认为true
+    private boolean metricsJmxEnabled = true;
+
+    //监控指标上报（MetricsReporter）的间隔毫秒数，可不配置，默认为60000
+    private long metricsReportIntervalMillis = 60000;
+
+    //响应数据量的采样比例，[0, 1]，为0时不统计响应数据量（慢命令除外），可不配置，默认为0.01
+    private double metricsPayloadSampleRatio = 0.01;
+
+    //连接池饱和检查的间隔毫秒数，小于等于0时不检查，需开启监控指标统计，可不配置，默认为1000
+    private long poolMonitorIntervalMillis = 1000;
+
+    //借出连接数占最大连接数的比例达到该值时视为饱和，小于等于0时不按比例检查，可不配置，默认为0.9
+    private double poolUsageThreshold = 0.9;
+
+    //等待获取连接的线程数达到该值时视为饱和，小于等于0时不按等待线程数检查，可不配置，默认为1
+    private int poolWaitersThreshold = 1;
+
+    //慢命令的耗时阈值毫秒数，小于等于0时不记录慢命令，需开启监控指标统计，可不配置，默认为100
+    private long slowLogThresholdMillis = 100;
+
+    //慢命令记录的最大条数，超过时覆盖最早的记录，可不配置，默认为128
+    private int slowLogMaxSize = 128;
+
+    //是否统计热点key，需开启监控指标统计，可不配置，默认为false
+    private boolean hotKeyEnabled = false;
+
+    //热点key统计的采样比例，(0, 1]，可不配置，默认为0.1
+    private double hotKeySampleRatio = 0.1;
+
+    //每个时间窗口记录的热点key个数，可不配置，默认为20
+    private int hotKeyTopSize = 20;
+
+    //热点key统计的时间窗口秒数，可不配置，默认为60
+    private int hotKeyWindowSeconds = 60;
+
+    //保留的历史时间窗口个数，可不配置，默认为5
+    private int hotKeyWindowCount = 5;
+
+    //复制到多个副本（位于不同的主节点）的热点key列表，只支持string和hash类型，多个使用逗号隔开，只有集群模式支持，可不配置
+    private List<String> hotKeyReplicaKeys;
+
+    //每个热点key的副本数，不超过除原key所在节点外的主节点数，可不配置，默认为3
+    private int hotKeyReplicaCount = 3;
+
+    //lrangeAll/hgetAll/hkeys/hvals/smembers单次读取的最大元素个数，小于等于0时不限制，可不配置，默认为0
+    private int bigKeyMaxElements = 0;
+
+    //单个命令的最大元素个数，覆盖bigKeyMaxElements，key为命令名称
+    private Map<String, Integer> bigKeyCommandMaxElements = Maps.newHashMap();
+
+    //元素个数超过上限时的处理策略，chunk/reject，可不配置，默认为chunk
+    private String bigKeyPolicy = "chunk";
+
+    //分块读取时每块的元素个数，可不配置，默认为1000
+    private int bigKeyChunkSize = 1000;
+
     public RedisProperties() {
         this(Config.DEFAULT_NAME);
     }
 
     public RedisProperties(String name) {
+        this.name = name;
         Config<String> cacheTypeConfig = ConfigUtils.getConfig("cache.redis.type", name);
         if (cacheTypeConfig != null) {
             this.type = cacheTypeConfig.getValue();
@@ -58,18 +209,78 @@ public class RedisProperties {
         if (maxIdleConfig != null) {
             this.maxIdle = NumberUtils.toInt(maxIdleConfig.getValue());
         }
+        Config<String> minIdleConfig = ConfigUtils.getConfig("cache.redis.connection.min.idle", name);
+        if (minIdleConfig != null) {
+            this.minIdle = NumberUtils.toInt(minIdleConfig.getValue());
+        }
         Config<String> maxWaitMillisConfig = ConfigUtils.getConfig("cache.redis.max.wait.millis", name);
         if (maxWaitMillisConfig != null) {
             this.maxWaitMillis = NumberUtils.toInt(maxWaitMillisConfig.getValue());
         }
+        Config<String> blockWhenExhaustedConfig = ConfigUtils.getConfig("cache.redis.block.when.exhausted", name);
+        if (blockWhenExhaustedConfig != null) {
+            this.blockWhenExhausted = BooleanUtils.toBoolean(blockWhenExhaustedConfig.getValue());
+        }
+        Config<String> lifoConfig = ConfigUtils.getConfig("cache.redis.connection.lifo", name);
+        if (lifoConfig != null) {
+            this.lifo = BooleanUtils.toBoolean(lifoConfig.getValue());
+        }
+        Config<String> fairnessConfig = ConfigUtils.getConfig("cache.redis.connection.fairness", name);
+        if (fairnessConfig != null) {
+            this.fairness = BooleanUtils.toBoolean(fairnessConfig.getValue());
+        }
+        Config<String> timeBetweenEvictionRunsMillisConfig = ConfigUtils.getConfig("cache.redis.eviction.interval.millis", name);
+        if (timeBetweenEvictionRunsMillisConfig != null) {
+            this.timeBetweenEvictionRunsMillis = NumberUtils.toLong(timeBetweenEvictionRunsMillisConfig.getValue());
+        }
+        Config<String> minEvictableIdleTimeMillisConfig = ConfigUtils.getConfig("cache.redis.eviction.min.idle.millis", name);
+        if (minEvictableIdleTimeMillisConfig != null) {
+            this.minEvictableIdleTimeMillis = NumberUtils.toLong(minEvictableIdleTimeMillisConfig.getValue());
+        }
+        Config<String> numTestsPerEvictionRunConfig = ConfigUtils.getConfig("cache.redis.eviction.num.tests", name);
+        if (numTestsPerEvictionRunConfig != null) {
+            this.numTestsPerEvictionRun = NumberUtils.toInt(numTestsPerEvictionRunConfig.getValue());
+        }
         Config<String> nodesConfig = ConfigUtils.getConfig("cache.redis.nodes", name);
         if (nodesConfig != null) {
             this.nodes = Lists.newArrayList(nodesConfig.getValue().split(","));
         }
+        Config<String> shardingStrategyConfig = ConfigUtils.getConfig("cache.redis.sharding.strategy", name);
+        if (shardingStrategyConfig != null) {
+            this.shardingStrategy = shardingStrategyConfig.getValue();
+        }
+        Config<String> shardingVirtualNodesConfig = ConfigUtils.getConfig("cache.redis.sharding.virtual.nodes", name);
+        if (shardingVirtualNodesConfig != null) {
+            this.shardingVirtualNodes = NumberUtils.toInt(shardingVirtualNodesConfig.getValue(), 160);
+        }
+        Config<String> shardingHashTagConfig = ConfigUtils.getConfig("cache.redis.sharding.hash.tag", name);
+        if (shardingHashTagConfig != null) {
+            this.shardingHashTag = BooleanUtils.toBoolean(shardingHashTagConfig.getValue());
+        }
+        Config<String> shardingMigrationNodesConfig = ConfigUtils.getConfig("cache.redis.sharding.migration.nodes", name);
+        if (shardingMigrationNodesConfig != null && StringUtils.isNotBlank(shardingMigrationNodesConfig.getValue())) {
+            this.shardingMigrationNodes = Lists.newArrayList(shardingMigrationNodesConfig.getValue().split(","));
+        }
+        Config<String> shardingMigrationBatchSizeConfig = ConfigUtils.getConfig("cache.redis.sharding.migration.batch.size", name);
+        if (shardingMigrationBatchSizeConfig != null) {
+            this.shardingMigrationBatchSize = NumberUtils.toInt(shardingMigrationBatchSizeConfig.getValue(), 100);
+        }
+        Config<String> shardingMigrationMaxOpsConfig = ConfigUtils.getConfig("cache.redis.sharding.migration.max.ops", name);
+        if (shardingMigrationMaxOpsConfig != null) {
+            this.shardingMigrationMaxOpsPerSecond = NumberUtils.toInt(shardingMigrationMaxOpsConfig.getValue(), 1000);
+        }
+        Config<String> sentinelMastersConfig = ConfigUtils.getConfig("cache.redis.sentinel.master", name);
+        if (sentinelMastersConfig != null && StringUtils.isNotBlank(sentinelMastersConfig.getValue())) {
+            this.sentinelMasters = Lists.newArrayList(sentinelMastersConfig.getValue().split(","));
+        }
         Config<String> passwordConfig = ConfigUtils.getConfig("cache.redis.password", name);
         if (passwordConfig != null && StringUtils.isNotBlank(passwordConfig.getValue()) && !"null".equals(passwordConfig.getValue())) {
             this.password = passwordConfig.getValue();
         }
+        Config<String> sentinelPasswordConfig = ConfigUtils.getConfig("cache.redis.sentinel.password", name);
+        if (sentinelPasswordConfig != null && StringUtils.isNotBlank(sentinelPasswordConfig.getValue()) && !"null".equals(sentinelPasswordConfig.getValue())) {
+            this.sentinelPassword = sentinelPasswordConfig.getValue();
+        }
         Config<String> databaseConfig = ConfigUtils.getConfig("cache.redis.database", name);
         if (databaseConfig != null) {
             this.database = NumberUtils.toInt(databaseConfig.getValue());
@@ -78,6 +289,151 @@ public class RedisProperties {
         if (timeoutMillisConfig != null) {
             this.timeoutMillis = NumberUtils.toInt(timeoutMillisConfig.getValue());
         }
+        Config<String> connectionTimeoutMillisConfig = ConfigUtils.getConfig("cache.redis.connection.timeout.millis", name);
+        if (connectionTimeoutMillisConfig != null) {
+            this.connectionTimeoutMillis = NumberUtils.toInt(connectionTimeoutMillisConfig.getValue());
+        }
+        Config<String> soTimeoutMillisConfig = ConfigUtils.getConfig("cache.redis.so.timeout.millis", name);
+        if (soTimeoutMillisConfig != null) {
+            this.soTimeoutMillis = NumberUtils.toInt(soTimeoutMillisConfig.getValue());
+        }
+        Config<String> maxAttemptsConfig = ConfigUtils.getConfig("cache.redis.cluster.max.attempts", name);
+        if (maxAttemptsConfig != null) {
+            this.maxAttempts = NumberUtils.toInt(maxAttemptsConfig.getValue());
+        }
+        Config<String> healthCheckStrategyConfig = ConfigUtils.getConfig("cache.redis.health.check.strategy", name);
+        if (healthCheckStrategyConfig != null) {
+            this.healthCheckStrategy = healthCheckStrategyConfig.getValue();
+        }
+        Config<String> healthCheckIdleMillisConfig = ConfigUtils.getConfig("cache.redis.health.check.idle.millis", name);
+        if (healthCheckIdleMillisConfig != null) {
+            this.healthCheckIdleMillis = NumberUtils.toLong(healthCheckIdleMillisConfig.getValue());
+        }
+        Config<String> healthCheckFailureWindowMillisConfig = ConfigUtils.getConfig("cache.redis.health.check.failure.window.millis", name);
+        if (healthCheckFailureWindowMillisConfig != null) {
+            this.healthCheckFailureWindowMillis = NumberUtils.toLong(healthCheckFailureWindowMillisConfig.getValue());
+        }
+        Config<String> readPolicyConfig = ConfigUtils.getConfig("cache.redis.read.policy", name);
+        if (readPolicyConfig != null) {
+            this.readPolicy = readPolicyConfig.getValue();
+        }
+        Config<String> readFallbackMasterConfig = ConfigUtils.getConfig("cache.redis.read.fallback.master", name);
+        if (readFallbackMasterConfig != null) {
+            this.readFallbackMaster = BooleanUtils.toBoolean(readFallbackMasterConfig.getValue());
+        }
+        Config<String> replicaRefreshMillisConfig = ConfigUtils.getConfig("cache.redis.replica.refresh.millis", name);
+        if (replicaRefreshMillisConfig != null) {
+            this.replicaRefreshMillis = NumberUtils.toLong(replicaRefreshMillisConfig.getValue());
+        }
+        Config<String> warmUpEnabledConfig = ConfigUtils.getConfig("cache.redis.warmup.enabled", name);
+        if (warmUpEnabledConfig != null) {
+            this.warmUpEnabled = BooleanUtils.toBoolean(warmUpEnabledConfig.getValue());
+        }
+        Config<String> warmUpBlockingConfig = ConfigUtils.getConfig("cache.redis.warmup.blocking", name);
+        if (warmUpBlockingConfig != null) {
+            this.warmUpBlocking = BooleanUtils.toBoolean(warmUpBlockingConfig.getValue());
+        }
+        Config<String> warmUpTimeoutMillisConfig = ConfigUtils.getConfig("cache.redis.warmup.timeout.millis", name);
+        if (warmUpTimeoutMillisConfig != null) {
+            this.warmUpTimeoutMillis = NumberUtils.toLong(warmUpTimeoutMillisConfig.getValue());
+        }
+        Config<String> metricsEnabledConfig = ConfigUtils.getConfig("cache.redis.metrics.enabled", name);
+        if (metricsEnabledConfig != null) {
+            this.metricsEnabled = BooleanUtils.toBoolean(metricsEnabledConfig.getValue());
+        }
+        Config<String> metricsJmxEnabledConfig = ConfigUtils.getConfig("cache.redis.metrics.jmx.enabled", name);
+        if (metricsJmxEnabledConfig != null) {
+            this.metricsJmxEnabled = BooleanUtils.toBoolean(metricsJmxEnabledConfig.getValue());
+        }
+        Config<String> metricsReportIntervalConfig = ConfigUtils.getConfig("cache.redis.metrics.report.interval.millis", name);
+        if (metricsReportIntervalConfig != null) {
+            this.metricsReportIntervalMillis = NumberUtils.toLong(metricsReportIntervalConfig.getValue(), 60000);
+        }
+        Config<String> metricsPayloadSampleRatioConfig = ConfigUtils.getConfig("cache.redis.metrics.payload.sample.ratio", name);
+        if (metricsPayloadSampleRatioConfig != null) {
+            this.metricsPayloadSampleRatio = NumberUtils.toDouble(metricsPayloadSampleRatioConfig.getValue(), 0.01);
+        }
+        Config<String> poolMonitorIntervalMillisConfig = ConfigUtils.getConfig("cache.redis.pool.monitor.interval.millis", name);
+        if (poolMonitorIntervalMillisConfig != null) {
+            this.poolMonitorIntervalMillis = NumberUtils.toLong(poolMonitorIntervalMillisConfig.getValue(), 1000);
+        }
+        Config<String> poolUsageThresholdConfig = ConfigUtils.getConfig("cache.redis.pool.usage.threshold", name);
+        if (poolUsageThresholdConfig != null) {
+            this.poolUsageThreshold = NumberUtils.toDouble(poolUsageThresholdConfig.getValue(), 0.9);
+        }
+        Config<String> poolWaitersThresholdConfig = ConfigUtils.getConfig("cache.redis.pool.waiters.threshold", name);
+        if (poolWaitersThresholdConfig != null) {
+            this.poolWaitersThreshold = NumberUtils.toInt(poolWaitersThresholdConfig.getValue(), 1);
+        }
+        Config<String> slowLogThresholdMillisConfig = ConfigUtils.getConfig("cache.redis.slowlog.threshold.millis", name);
+        if (slowLogThresholdMillisConfig != null) {
+            this.slowLogThresholdMillis = NumberUtils.toLong(slowLogThresholdMillisConfig.getValue(), 100);
+        }
+        Config<String> slowLogMaxSizeConfig = ConfigUtils.getConfig("cache.redis.slowlog.max.size", name);
+        if (slowLogMaxSizeConfig != null) {
+            this.slowLogMaxSize = NumberUtils.toInt(slowLogMaxSizeConfig.getValue(), 128);
+        }
+        Config<String> hotKeyEnabledConfig = ConfigUtils.getConfig("cache.redis.hotkey.enabled", name);
+        if (hotKeyEnabledConfig != null) {
+            this.hotKeyEnabled = BooleanUtils.toBoolean(hotKeyEnabledConfig.getValue());
+        }
+        Config<String> hotKeySampleRatioConfig = ConfigUtils.getConfig("cache.redis.hotkey.sample.ratio", name);
+        if (hotKeySampleRatioConfig != null) {
+            this.hotKeySampleRatio = NumberUtils.toDouble(hotKeySampleRatioConfig.getValue(), 0.1);
+        }
+        Config<String> hotKeyTopSizeConfig = ConfigUtils.getConfig("cache.redis.hotkey.top.size", name);
+        if (hotKeyTopSizeConfig != null) {
+            this.hotKeyTopSize = NumberUtils.toInt(hotKeyTopSizeConfig.getValue(), 20);
+        }
+        Config<String> hotKeyWindowSecondsConfig = ConfigUtils.getConfig("cache.redis.hotkey.window.seconds", name);
+        if (hotKeyWindowSecondsConfig != null) {
+            this.hotKeyWindowSeconds = NumberUtils.toInt(hotKeyWindowSecondsConfig.getValue(), 60);
+        }
+        Config<String> hotKeyWindowCountConfig = ConfigUtils.getConfig("cache.redis.hotkey.window.count", name);
+        if (hotKeyWindowCountConfig != null) {
+            this.hotKeyWindowCount = NumberUtils.toInt(hotKeyWindowCountConfig.getValue(), 5);
+        }
+        Config<String> hotKeyReplicaKeysConfig = ConfigUtils.getConfig("cache.redis.hotkey.replica.keys", name);
+        if (hotKeyReplicaKeysConfig != null && StringUtils.isNotBlank(hotKeyReplicaKeysConfig.getValue())) {
+            this.hotKeyReplicaKeys = Lists.newArrayList(hotKeyReplicaKeysConfig.getValue().split(","));
+        }
+        Config<String> hotKeyReplicaCountConfig = ConfigUtils.getConfig("cache.redis.hotkey.replica.count", name);
+        if (hotKeyReplicaCountConfig != null) {
+            this.hotKeyReplicaCount = NumberUtils.toInt(hotKeyReplicaCountConfig.getValue(), 3);
+        }
+        Config<String> bigKeyMaxElementsConfig = ConfigUtils.getConfig("cache.redis.bigkey.max.elements", name);
+        if (bigKeyMaxElementsConfig != null) {
+            this.bigKeyMaxElements = NumberUtils.toInt(bigKeyMaxElementsConfig.getValue());
+        }
+        for (String command : BIG_KEY_COMMANDS) {
+            Config<String> commandMaxElementsConfig = ConfigUtils.getConfig("cache.redis.bigkey.max.elements." + command, name);
+            if (commandMaxElementsConfig != null) {
+                this.bigKeyCommandMaxElements.put(command, NumberUtils.toInt(commandMaxElementsConfig.getValue()));
+            }
+        }
+        Config<String> bigKeyPolicyConfig = ConfigUtils.getConfig("cache.redis.bigkey.policy", name);
+        if (bigKeyPolicyConfig != null) {
+            this.bigKeyPolicy = bigKeyPolicyConfig.getValue();
+        }
+        Config<String> bigKeyChunkSizeConfig = ConfigUtils.getConfig("cache.redis.bigkey.chunk.size", name);
+        if (bigKeyChunkSizeConfig != null) {
+            this.bigKeyChunkSize = NumberUtils.toInt(bigKeyChunkSizeConfig.getValue(), 1000);
+        }
+    }
+
+    /**
+     * 命令单次读取的最大元素个数，小于等于0时不限制
+     */
+    public int getBigKeyMaxElements(String command) {
+        return bigKeyCommandMaxElements.getOrDefault(command, bigKeyMaxElements);
+    }
+
+    public int getConnectionTimeoutMillis() {
+        return connectionTimeoutMillis > 0 ? connectionTimeoutMillis : timeoutMillis;
+    }
+
+    public int getSoTimeoutMillis() {
+        return soTimeoutMillis > 0 ? soTimeoutMillis : timeoutMillis;
     }
 
 }
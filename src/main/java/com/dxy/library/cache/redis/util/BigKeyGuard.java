@@ -0,0 +1,164 @@
+package com.dxy.library.cache.redis.util;
+
+import com.dxy.library.cache.redis.constant.BigKeyPolicy;
+import com.dxy.library.cache.redis.exception.BigKeyException;
+import com.dxy.library.cache.redis.metrics.CacheMetrics;
+import com.dxy.library.cache.redis.properties.RedisProperties;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 限制lrangeAll/hgetAll/hkeys/hvals/smembers单次读取的元素个数
+ * 元素个数（LLEN/HLEN/SCARD）与第一次读取（LRANGE/HSCAN/SSCAN，最多读取上限个元素）在同一个pipeline中发送，未超过上限时只需一次往返
+ * 超过上限时记录到监控指标，并按策略分块读取剩余的元素或抛出BigKeyException
+ * @author duanxinyuan
+ * 2020/6/27 10:05
+ */
+public class BigKeyGuard {
+
+    private final RedisProperties redisProperties;
+
+    private final BigKeyPolicy policy;
+
+    private final int chunkSize;
+
+    private final CacheMetrics metrics;
+
+    public BigKeyGuard(RedisProperties redisProperties, CacheMetrics metrics) {
+        this.redisProperties = redisProperties;
+        this.policy = BigKeyPolicy.getPolicy(redisProperties.getBigKeyPolicy());
+        this.chunkSize = Math.max(1, redisProperties.getBigKeyChunkSize());
+        this.metrics = metrics;
+    }
+
+    public List<String> lrangeAll(Jedis jedis, String key) {
+        int limit = redisProperties.getBigKeyMaxElements("lrangeAll");
+        if (limit <= 0) {
+            return jedis.lrange(key, 0, -1);
+        }
+        Pipeline pipeline = jedis.pipelined();
+        Response<Long> llen = pipeline.llen(key);
+        Response<List<String>> head = pipeline.lrange(key, 0, limit - 1);
+        pipeline.sync();
+        List<String> values = head.get();
+        if (llen.get() <= limit) {
+            return values;
+        }
+        check("lrangeAll", key, llen.get(), limit);
+        List<String> all = new ArrayList<>((int) Math.min(llen.get(), Integer.MAX_VALUE - 8));
+        all.addAll(values);
+        while (true) {
+            List<String> page = jedis.lrange(key, all.size(), all.size() + chunkSize - 1);
+            all.addAll(page);
+            if (page.size() < chunkSize) {
+                return all;
+            }
+        }
+    }
+
+    public Map<String, String> hgetAll(Jedis jedis, String key) {
+        int limit = redisProperties.getBigKeyMaxElements("hgetAll");
+        return limit <= 0 ? jedis.hgetAll(key) : readHash(jedis, key, "hgetAll", limit);
+    }
+
+    public Set<String> hkeys(Jedis jedis, String key) {
+        int limit = redisProperties.getBigKeyMaxElements("hkeys");
+        return limit <= 0 ? jedis.hkeys(key) : new LinkedHashSet<>(readHash(jedis, key, "hkeys", limit).keySet());
+    }
+
+    public List<String> hvals(Jedis jedis, String key) {
+        int limit = redisProperties.getBigKeyMaxElements("hvals");
+        return limit <= 0 ? jedis.hvals(key) : new ArrayList<>(readHash(jedis, key, "hvals", limit).values());
+    }
+
+    public Set<String> smembers(Jedis jedis, String key) {
+        int limit = redisProperties.getBigKeyMaxElements("smembers");
+        if (limit <= 0) {
+            return jedis.smembers(key);
+        }
+        Pipeline pipeline = jedis.pipelined();
+        Response<Long> scard = pipeline.scard(key);
+        Response<Object> scan = pipeline.sendCommand(Protocol.Command.SSCAN, key, ScanParams.SCAN_POINTER_START,
+                Protocol.Keyword.COUNT.name(), String.valueOf(limit));
+        pipeline.sync();
+        @SuppressWarnings("unchecked")
+        List<Object> reply = (List<Object>) scan.get();
+        String cursor = SafeEncoder.encode((byte[]) reply.get(0));
+        Set<String> members = new LinkedHashSet<>();
+        @SuppressWarnings("unchecked")
+        List<byte[]> scanned = (List<byte[]>) reply.get(1);
+        scanned.forEach(member -> members.add(SafeEncoder.encode(member)));
+        if (ScanParams.SCAN_POINTER_START.equals(cursor)) {
+            return members;
+        }
+        if (scard.get() <= limit) {
+            return jedis.smembers(key);
+        }
+        check("smembers", key, scard.get(), limit);
+        ScanParams params = new ScanParams().count(chunkSize);
+        do {
+            ScanResult<String> scanResult = jedis.sscan(key, cursor, params);
+            members.addAll(scanResult.getResult());
+            cursor = scanResult.getCursor();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+        return members;
+    }
+
+    /**
+     * 读取hash的所有元素，HSCAN可能返回重复的field，按field去重
+     */
+    private Map<String, String> readHash(Jedis jedis, String key, String command, int limit) {
+        Pipeline pipeline = jedis.pipelined();
+        Response<Long> hlen = pipeline.hlen(key);
+        Response<Object> scan = pipeline.sendCommand(Protocol.Command.HSCAN, key, ScanParams.SCAN_POINTER_START,
+                Protocol.Keyword.COUNT.name(), String.valueOf(limit));
+        pipeline.sync();
+        @SuppressWarnings("unchecked")
+        List<Object> reply = (List<Object>) scan.get();
+        String cursor = SafeEncoder.encode((byte[]) reply.get(0));
+        Map<String, String> hash = new LinkedHashMap<>();
+        @SuppressWarnings("unchecked")
+        List<byte[]> entries = (List<byte[]>) reply.get(1);
+        for (int i = 0; i + 1 < entries.size(); i += 2) {
+            hash.put(SafeEncoder.encode(entries.get(i)), SafeEncoder.encode(entries.get(i + 1)));
+        }
+        //编码为ziplist的小hash一次返回所有元素
+        if (ScanParams.SCAN_POINTER_START.equals(cursor)) {
+            return hash;
+        }
+        if (hlen.get() <= limit) {
+            return jedis.hgetAll(key);
+        }
+        check(command, key, hlen.get(), limit);
+        ScanParams params = new ScanParams().count(chunkSize);
+        do {
+            ScanResult<Map.Entry<String, String>> scanResult = jedis.hscan(key, cursor, params);
+            scanResult.getResult().forEach(entry -> hash.put(entry.getKey(), entry.getValue()));
+            cursor = scanResult.getCursor();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+        return hash;
+    }
+
+    /**
+     * 元素个数超过上限，记录到监控指标，策略为reject时抛出异常
+     */
+    private void check(String command, String key, long size, int limit) {
+        metrics.recordBigKey(command, key, size);
+        if (policy == BigKeyPolicy.reject) {
+            throw new BigKeyException(command, key, size, limit);
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.dxy.library.cache.redis.util;
+
+import com.dxy.library.cache.redis.exception.RedisCacheException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import redis.clients.jedis.BitOP;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 在客户端模拟BITOP，用于源key分布在不同节点的情况
+ * 按块并行拉取每个源key的GETRANGE，以long为单位做位运算后SETRANGE写入目标key，内存中只保留一个块的数据
+ * 模拟过程不是原子的，执行期间源key的修改可能只有部分生效
+ * @author duanxinyuan
+ * 2020/6/19 10:40
+ */
+public class BitOpEmulator {
+
+    /**
+     * 每块的字节数
+     */
+    public static final int CHUNK_BYTES = 1024 * 1024;
+
+    /**
+     * 并行拉取的线程池，线程数达到上限时由调用线程同步执行
+     */
+    private static final ExecutorService FETCH_EXECUTOR = new ThreadPoolExecutor(0, Runtime.getRuntime().availableProcessors() * 2,
+            60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("redis-bitop-fetch-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    /**
+     * 位图的读写操作，由各模式按key所在的节点实现
+     */
+    public interface BitmapStore {
+
+        /**
+         * 批量获取key的长度
+         */
+        Map<String, Long> strlen(List<String> keys);
+
+        /**
+         * 批量获取key在 [start, end] 范围内的字节，不同节点的key应并行获取
+         */
+        Map<String, byte[]> getrange(List<String> keys, long start, long end);
+
+        void setrange(String key, long offset, byte[] value);
+
+        void del(String key);
+    }
+
+    /**
+     * 执行BITOP，返回目标key的长度
+     */
+    public static long bitop(BitOP op, String destKey, List<String> srcKeys, BitmapStore store) {
+        if (srcKeys.isEmpty()) {
+            throw new RedisCacheException("ERR wrong number of arguments for 'bitop' command");
+        }
+        if (op == BitOP.NOT && srcKeys.size() != 1) {
+            throw new RedisCacheException("ERR BITOP NOT must be called with a single source key.");
+        }
+        long length = store.strlen(srcKeys).values().stream().mapToLong(Long::longValue).max().orElse(0);
+        //目标key同时是源key时按块原地覆盖，每块只依赖源key的相同范围，结果不受影响
+        if (length == 0 || !srcKeys.contains(destKey)) {
+            store.del(destKey);
+        }
+        if (length == 0) {
+            return 0;
+        }
+        for (long offset = 0; offset < length; offset += CHUNK_BYTES) {
+            int chunkLength = (int) Math.min(CHUNK_BYTES, length - offset);
+            Map<String, byte[]> chunks = store.getrange(srcKeys, offset, offset + chunkLength - 1);
+            long[] words = null;
+            for (String srcKey : srcKeys) {
+                long[] srcWords = toWords(chunks.get(srcKey), chunkLength);
+                if (words == null) {
+                    words = srcWords;
+                } else {
+                    combine(op, words, srcWords);
+                }
+            }
+            if (op == BitOP.NOT) {
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = ~words[i];
+                }
+            }
+            store.setrange(destKey, offset, toBytes(words, chunkLength));
+        }
+        return length;
+    }
+
+    /**
+     * 并行执行任务并按顺序返回结果
+     */
+    public static <T> List<T> parallel(List<Supplier<T>> tasks) {
+        if (tasks.size() == 1) {
+            return Collections.singletonList(tasks.get(0).get());
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(tasks.size());
+        tasks.forEach(task -> futures.add(CompletableFuture.supplyAsync(task, FETCH_EXECUTOR)));
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            futures.forEach(future -> results.add(future.join()));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RedisCacheException(e.getCause());
+        }
+        return results;
+    }
+
+    private static void combine(BitOP op, long[] words, long[] srcWords) {
+        switch (op) {
+            case AND:
+                for (int i = 0; i < words.length; i++) {
+                    words[i] &= srcWords[i];
+                }
+                break;
+            case OR:
+                for (int i = 0; i < words.length; i++) {
+                    words[i] |= srcWords[i];
+                }
+                break;
+            case XOR:
+                for (int i = 0; i < words.length; i++) {
+                    words[i] ^= srcWords[i];
+                }
+                break;
+            default:
+                throw new RedisCacheException("ERR syntax error");
+        }
+    }
+
+    /**
+     * 转换为long数组，源key较短时不足的部分补0
+     */
+    private static long[] toWords(byte[] bytes, int chunkLength) {
+        long[] words = new long[(chunkLength + 7) / 8];
+        if (bytes == null || bytes.length == 0) {
+            return words;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * 8);
+        buffer.put(bytes, 0, Math.min(bytes.length, chunkLength));
+        buffer.clear();
+        buffer.asLongBuffer().get(words);
+        return words;
+    }
+
+    private static byte[] toBytes(long[] words, int chunkLength) {
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * 8);
+        buffer.asLongBuffer().put(words);
+        byte[] bytes = new byte[chunkLength];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+}
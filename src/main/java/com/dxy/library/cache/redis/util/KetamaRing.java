@@ -0,0 +1,65 @@
+package com.dxy.library.cache.redis.util;
+
+import com.dxy.library.cache.redis.exception.RedisCacheException;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ketama一致性哈希环
+ * 每个节点按 虚拟节点数 * 权重 生成虚拟节点，每个MD5摘要生成4个虚拟节点，节点有名称时按名称计算，否则按 host:port 计算
+ * @author duanxinyuan
+ * 2020/6/15 11:20
+ */
+public class KetamaRing {
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RedisCacheException(e);
+        }
+    });
+
+    private final TreeMap<Long, JedisShardInfo> nodes = new TreeMap<>();
+
+    public KetamaRing(List<JedisShardInfo> shards, int virtualNodes) {
+        for (JedisShardInfo shard : shards) {
+            String node = shard.getName() != null ? shard.getName() : shard.getHost() + ":" + shard.getPort();
+            int digests = Math.max(virtualNodes * shard.getWeight() / 4, 1);
+            for (int i = 0; i < digests; i++) {
+                byte[] digest = md5(SafeEncoder.encode(node + "-" + i));
+                for (int h = 0; h < 4; h++) {
+                    nodes.put(hash(digest, h), shard);
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取key所在的节点
+     */
+    public JedisShardInfo get(byte[] key) {
+        Map.Entry<Long, JedisShardInfo> entry = nodes.ceilingEntry(hash(md5(key), 0));
+        return entry != null ? entry.getValue() : nodes.firstEntry().getValue();
+    }
+
+    private static byte[] md5(byte[] bytes) {
+        MessageDigest md5 = MD5.get();
+        md5.reset();
+        return md5.digest(bytes);
+    }
+
+    private static long hash(byte[] digest, int index) {
+        return ((long) (digest[3 + index * 4] & 0xFF) << 24)
+                | ((long) (digest[2 + index * 4] & 0xFF) << 16)
+                | ((long) (digest[1 + index * 4] & 0xFF) << 8)
+                | (digest[index * 4] & 0xFF);
+    }
+
+}
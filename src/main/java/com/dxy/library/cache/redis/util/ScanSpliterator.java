@@ -0,0 +1,133 @@
+package com.dxy.library.cache.redis.util;
+
+import com.dxy.library.cache.redis.exception.RedisCacheException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 基于游标的惰性迭代器（hscan/sscan/zscan）
+ * 首次读取时才拉取第一页，调用方处理当前页时，后台线程预取并反序列化下一页，内存中最多只保留两页数据
+ * 反序列化的结果可能为null（如成员为JSON的null），因此不声明NONNULL
+ * @author duanxinyuan
+ * 2020/6/2 15:20
+ */
+public class ScanSpliterator<R, T> extends Spliterators.AbstractSpliterator<T> implements AutoCloseable {
+
+    /**
+     * 预取线程池，线程数达到上限时由调用线程同步拉取
+     */
+    private static final ExecutorService PREFETCH_EXECUTOR = new ThreadPoolExecutor(0, Runtime.getRuntime().availableProcessors() * 2,
+            60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("redis-scan-prefetch-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    //根据游标拉取一页数据
+    private final Function<String, ScanResult<R>> scanner;
+
+    //按批反序列化一页数据
+    private final Function<List<R>, List<T>> decoder;
+
+    private Iterator<T> current = Collections.emptyIterator();
+
+    private CompletableFuture<Page<T>> next;
+
+    //是否已开始拉取第一页
+    private boolean started;
+
+    private volatile boolean closed;
+
+    public ScanSpliterator(Function<String, ScanResult<R>> scanner, Function<List<R>, List<T>> decoder) {
+        super(Long.MAX_VALUE, 0);
+        this.scanner = scanner;
+        this.decoder = decoder;
+    }
+
+    /**
+     * 创建游标迭代的Stream，Stream关闭时取消未完成的预取
+     */
+    public static <R, T> Stream<T> stream(Function<String, ScanResult<R>> scanner, Function<List<R>, List<T>> decoder) {
+        ScanSpliterator<R, T> spliterator = new ScanSpliterator<>(scanner, decoder);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (!started) {
+            started = true;
+            if (!closed) {
+                next = prefetch(ScanParams.SCAN_POINTER_START);
+            }
+        }
+        while (!current.hasNext()) {
+            if (closed || next == null) {
+                return false;
+            }
+            Page<T> page = await(next);
+            next = ScanParams.SCAN_POINTER_START.equals(page.cursor) ? null : prefetch(page.cursor);
+            current = page.values.iterator();
+        }
+        action.accept(current.next());
+        return true;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (next != null) {
+            next.cancel(true);
+            next = null;
+        }
+    }
+
+    private CompletableFuture<Page<T>> prefetch(String cursor) {
+        return CompletableFuture.supplyAsync(() -> {
+            ScanResult<R> scanResult = scanner.apply(cursor);
+            List<R> result = scanResult.getResult();
+            List<T> values = result == null || result.isEmpty() ? Collections.emptyList() : decoder.apply(result);
+            return new Page<>(scanResult.getCursor(), values);
+        }, PREFETCH_EXECUTOR);
+    }
+
+    private Page<T> await(CompletableFuture<Page<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisCacheException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RedisCacheException) {
+                throw (RedisCacheException) e.getCause();
+            }
+            throw new RedisCacheException(e.getCause());
+        }
+    }
+
+    private static class Page<T> {
+
+        private final String cursor;
+
+        private final List<T> values;
+
+        private Page(String cursor, List<T> values) {
+            this.cursor = cursor;
+            this.values = values;
+        }
+    }
+
+}
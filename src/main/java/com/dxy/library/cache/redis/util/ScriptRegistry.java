@@ -0,0 +1,71 @@
+package com.dxy.library.cache.redis.util;
+
+import com.dxy.library.cache.redis.exception.RedisCacheException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.BaseEncoding;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Lua脚本缓存，每个脚本的SHA1只计算一次，执行时使用EVALSHA只发送SHA1
+ * 节点上不存在脚本（NOSCRIPT，如节点重启或主从切换）时通过SCRIPT LOAD加载后重试
+ * @author duanxinyuan
+ * 2020/6/20 15:10
+ */
+public class ScriptRegistry {
+
+    /**
+     * 脚本与SHA1的缓存，脚本应为常量，动态拼接的脚本超过上限后按LRU淘汰
+     */
+    private static final Cache<String, String> SHA1_CACHE = CacheBuilder.newBuilder().maximumSize(10000).build();
+
+    /**
+     * 获取脚本的SHA1
+     */
+    public static String sha1(String script) {
+        String sha1 = SHA1_CACHE.getIfPresent(script);
+        if (sha1 == null) {
+            sha1 = hex(digest(script));
+            SHA1_CACHE.put(script, sha1);
+        }
+        return sha1;
+    }
+
+    private static byte[] digest(String script) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RedisCacheException(e);
+        }
+    }
+
+    /**
+     * 转为小写十六进制，与Redis返回的SHA1格式一致
+     */
+    private static String hex(byte[] bytes) {
+        return BaseEncoding.base16().lowerCase().encode(bytes);
+    }
+
+    /**
+     * 使用EVALSHA执行脚本，NOSCRIPT时加载脚本后重试一次
+     * @param script 脚本
+     * @param evalsha 根据SHA1执行脚本
+     * @param scriptLoad 在执行脚本的节点上加载脚本
+     */
+    public static <T> T evalsha(String script, Function<String, T> evalsha, Consumer<String> scriptLoad) {
+        String sha1 = sha1(script);
+        try {
+            return evalsha.apply(sha1);
+        } catch (JedisNoScriptException e) {
+            scriptLoad.accept(script);
+            return evalsha.apply(sha1);
+        }
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.dxy.library.cache.redis.util;
 
 import com.google.common.collect.Lists;
+import com.dxy.library.cache.redis.metrics.CommandContext;
 import com.dxy.library.json.jackson.JacksonUtil;
 
 import java.util.List;
@@ -85,12 +86,16 @@ public class Serializer {
         }
         if (value.getClass() == type) {
             return (T) value;
-        } else {
+        }
+        long startNanos = System.nanoTime();
+        try {
             if (value instanceof String) {
                 return JacksonUtil.from((String) value, type);
             } else {
                 return JacksonUtil.from(JacksonUtil.to(value), type);
             }
+        } finally {
+            CommandContext.addDeserializeNanos(System.nanoTime() - startNanos);
         }
     }
 
@@ -100,8 +105,12 @@ public class Serializer {
         }
         if (type == String.class) {
             return (T) value;
-        } else {
+        }
+        long startNanos = System.nanoTime();
+        try {
             return JacksonUtil.from(value, type);
+        } finally {
+            CommandContext.addDeserializeNanos(System.nanoTime() - startNanos);
         }
     }
 
@@ -1,7 +1,10 @@
 import com.dxy.library.cache.redis.RedisCache;
+import com.dxy.library.cache.redis.batch.RedisBatch;
 import com.dxy.library.cache.redis.inter.RedisConsumer;
 import com.dxy.library.cache.redis.inter.RedisFunction;
+import com.dxy.library.cache.redis.metrics.CommandSnapshot;
 import com.dxy.library.json.jackson.JacksonUtil;
+import com.dxy.library.util.config.dto.Config;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang3.math.NumberUtils;
@@ -9,11 +12,15 @@ import org.junit.Assert;
 import org.junit.Test;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.ScanParams;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author duanxinyuan
@@ -68,6 +75,33 @@ public class RedisCacheTest {
         });
     }
 
+    @Test
+    public void testBatch() {
+        RedisBatch batch = RedisCache.batch();
+        CompletableFuture<String> set = batch.setex("test:dxy_batch1", timeout, 123);
+        CompletableFuture<Long> incr = batch.incrBy("test:dxy_batch2", 5);
+        CompletableFuture<Integer> get = batch.get("test:dxy_batch1", Integer.class);
+        CompletableFuture<Long> hincrBy = batch.hincrBy("test:dxy_batch3", "count", 2);
+        batch.execute();
+        Assert.assertEquals("OK", set.join());
+        Assert.assertEquals(5, incr.join().longValue());
+        Assert.assertEquals(123, get.join().intValue());
+        Assert.assertEquals(2, hincrBy.join().longValue());
+        RedisCache.del("test:dxy_batch1", "test:dxy_batch2", "test:dxy_batch3");
+    }
+
+    @Test
+    public void testMetrics() {
+        RedisCache.metrics().reset();
+        RedisCache.setex("test:dxy_metrics", timeout, "1");
+        RedisCache.get("test:dxy_metrics");
+        RedisCache.del("test:dxy_metrics");
+        CommandSnapshot get = RedisCache.metrics().getCommands().get("get");
+        Assert.assertNotNull(get);
+        Assert.assertEquals(1, get.getLatency().getCount());
+        Assert.assertEquals(0, get.getErrors());
+    }
+
     @Test
     public void testMsetAndMget() {
         String name = "abc";
@@ -268,6 +302,28 @@ public class RedisCacheTest {
         System.out.println("del: " + RedisCache.del(key));
     }
 
+    @Test
+    public void testScanStream() {
+        String key = "test:dxy_hscan";
+        RedisCache.del(key);
+        Map<String, Integer> hash = Maps.newHashMap();
+        for (int i = 0; i < 1000; i++) {
+            hash.put("k" + i, i);
+        }
+        RedisCache.hmset(key, hash);
+        try (Stream<Map.Entry<String, Integer>> stream = RedisCache.hscanStream(key, new ScanParams().count(100), Integer.class)) {
+            Map<String, Integer> result = stream.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (v1, v2) -> v1));
+            Assert.assertEquals(hash, result);
+        }
+        System.out.println("del: " + RedisCache.del(key));
+    }
+
+    @Test
+    public void testWarmUp() {
+        RedisCache.name(Config.DEFAULT_NAME).warmUp().join();
+        Assert.assertTrue(RedisCache.isReady());
+    }
+
     @Test
     public void testPf() {
         String key = "test:dxy_pf";
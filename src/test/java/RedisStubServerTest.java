@@ -0,0 +1,651 @@
+import com.dxy.library.cache.redis.batch.RedisBatch;
+import com.dxy.library.cache.redis.exception.PoolExhaustedException;
+import com.dxy.library.cache.redis.exception.RedisCacheException;
+import com.dxy.library.cache.redis.executor.AbstractExecutor;
+import com.dxy.library.cache.redis.executor.cluster.RedisClusterExecutor;
+import com.dxy.library.cache.redis.executor.sentinel.RedisSentinelExecutor;
+import com.dxy.library.cache.redis.executor.sharded.RedisShardedExecutor;
+import com.dxy.library.cache.redis.executor.sharded.ShardMigration;
+import com.dxy.library.cache.redis.executor.single.RedisSingleExecutor;
+import com.dxy.library.cache.redis.metrics.CacheMetrics;
+import com.dxy.library.cache.redis.metrics.HotKey;
+import com.dxy.library.cache.redis.metrics.HotKeyDetector;
+import com.dxy.library.cache.redis.metrics.HotKeyWindow;
+import com.dxy.library.cache.redis.metrics.MetricsReporter;
+import com.dxy.library.cache.redis.metrics.PoolSnapshot;
+import com.dxy.library.cache.redis.pool.ConnectionHealthChecker;
+import com.dxy.library.cache.redis.properties.RedisProperties;
+import com.dxy.library.cache.redis.stub.RespCluster;
+import com.dxy.library.cache.redis.stub.RespServer;
+import com.dxy.library.cache.redis.util.ScriptRegistry;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+import redis.clients.jedis.BitOP;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 使用进程内的RESP服务端测试四种模式的缓存器，不需要启动Redis
+ * @author duanxinyuan
+ * 2020/6/27 10:10
+ */
+public class RedisStubServerTest {
+
+    @Test
+    public void testSingle() {
+        try (RespServer server = RespServer.startNew();
+             RedisSingleExecutor executor = new RedisSingleExecutor(properties("single", server.getAddress()))) {
+            testCommands(executor);
+        }
+    }
+
+    @Test
+    public void testSentinel() throws InterruptedException {
+        try (RespServer master = RespServer.startNew(); RespServer newMaster = RespServer.startNew(); RespServer sentinel = RespServer.startNew()) {
+            sentinel.monitor("CacheMaster", master);
+            RedisSentinelExecutor executor = new RedisSentinelExecutor(properties("sentinel", sentinel.getAddress()));
+            testCommands(executor);
+
+            //主从切换后写入新的主节点
+            sentinel.failover("CacheMaster", newMaster);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (executor.getJedisSentinelPool().getCurrentHostMaster().getPort() != newMaster.getPort() && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+            executor.set("test:stub:failover", "1");
+            Assert.assertEquals(1, newMaster.getStore().size(0));
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testSharded() {
+        try (RespServer first = RespServer.startNew(); RespServer second = RespServer.startNew();
+             RedisShardedExecutor executor = new RedisShardedExecutor(properties("sharded", first.getAddress() + "," + second.getAddress()))) {
+            testCommands(executor);
+
+            for (int i = 0; i < 100; i++) {
+                executor.set("test:stub:shard:" + i, i);
+            }
+            Assert.assertTrue(first.getStore().size(0) > 0);
+            Assert.assertTrue(second.getStore().size(0) > 0);
+        }
+    }
+
+    @Test
+    public void testCrossNodeBitop() {
+        try (RespServer first = RespServer.startNew(); RespServer second = RespServer.startNew();
+             RedisShardedExecutor executor = new RedisShardedExecutor(properties("sharded", first.getAddress() + "," + second.getAddress()))) {
+            //源key分布在不同的分片上
+            String a = null;
+            String b = null;
+            for (int i = 0; a == null || b == null; i++) {
+                String key = "test:stub:bitop:" + i;
+                executor.set(key, "");
+                if (first.getStore().get(0, key) != null) {
+                    a = a == null ? key : a;
+                } else {
+                    b = b == null ? key : b;
+                }
+                executor.del(key);
+            }
+            testBitop(executor, a, b);
+        }
+        try (RespCluster cluster = RespCluster.start(3, 0);
+             RedisClusterExecutor executor = new RedisClusterExecutor(properties("cluster", cluster.getAddresses()))) {
+            //源key位于不同的主节点上
+            String a = "test:stub:bitop:0";
+            String b = null;
+            for (int i = 1; b == null; i++) {
+                if (cluster.getMaster("test:stub:bitop:" + i) != cluster.getMaster(a)) {
+                    b = "test:stub:bitop:" + i;
+                }
+            }
+            testBitop(executor, a, b);
+        }
+    }
+
+    /**
+     * 源key a的位为 {1, 9, 100}（13字节），b的位为 {1, 50, 300}（38字节），按BITOP的语义校验结果
+     */
+    private void testBitop(AbstractExecutor<?> executor, String a, String b) {
+        List<Integer> aBits = Lists.newArrayList(1, 9, 100);
+        List<Integer> bBits = Lists.newArrayList(1, 50, 300);
+        aBits.forEach(bit -> executor.setbit(a, bit, true));
+        bBits.forEach(bit -> executor.setbit(b, bit, true));
+
+        assertBits(executor, "test:stub:bitop:and", 38, Lists.newArrayList(1), () -> executor.bitop(BitOP.AND, "test:stub:bitop:and", a, b));
+        assertBits(executor, "test:stub:bitop:or", 38, Lists.newArrayList(1, 9, 50, 100, 300), () -> executor.bitop(BitOP.OR, "test:stub:bitop:or", a, b));
+        assertBits(executor, "test:stub:bitop:xor", 38, Lists.newArrayList(9, 50, 100, 300), () -> executor.bitop(BitOP.XOR, "test:stub:bitop:xor", a, b));
+        List<Integer> notBits = new ArrayList<>();
+        for (int bit = 0; bit < 13 * 8; bit++) {
+            if (!aBits.contains(bit)) {
+                notBits.add(bit);
+            }
+        }
+        assertBits(executor, "test:stub:bitop:not", 13, notBits, () -> executor.bitop(BitOP.NOT, "test:stub:bitop:not", a));
+
+        //目标key同时是源key
+        assertBits(executor, b, 38, Lists.newArrayList(1, 9, 50, 100, 300), () -> executor.bitop(BitOP.OR, b, a, b));
+        //源key都不存在时删除目标key
+        executor.set("test:stub:bitop:empty", "1");
+        Assert.assertEquals(Long.valueOf(0), executor.bitop(BitOP.OR, "test:stub:bitop:empty", "test:stub:bitop:none1", "test:stub:bitop:none2"));
+        Assert.assertFalse(executor.exists("test:stub:bitop:empty"));
+    }
+
+    private void assertBits(AbstractExecutor<?> executor, String destKey, long length, List<Integer> bits, Supplier<Long> bitop) {
+        Assert.assertEquals(Long.valueOf(length), bitop.get());
+        Assert.assertEquals(Long.valueOf(length), executor.strlen(destKey));
+        Assert.assertEquals(Long.valueOf(bits.size()), executor.bitcount(destKey));
+        bits.forEach(bit -> Assert.assertTrue(executor.getbit(destKey, bit)));
+    }
+
+    @Test
+    public void testKetamaRing() {
+        try (RespServer first = RespServer.startNew(); RespServer second = RespServer.startNew(); RespServer third = RespServer.startNew();
+             RespServer fourth = RespServer.startNew()) {
+            List<RespServer> servers = Lists.newArrayList(first, second, third);
+            String nodes = servers.stream().map(RespServer::getAddress).collect(Collectors.joining(","));
+            RedisProperties redisProperties = properties("sharded", nodes);
+            redisProperties.setShardingStrategy("ketama");
+            try (RedisShardedExecutor executor = new RedisShardedExecutor(redisProperties)) {
+                for (int i = 0; i < 1000; i++) {
+                    executor.set("test:stub:ketama:" + i, "old");
+                }
+            }
+            servers.forEach(server -> Assert.assertTrue(server.getStore().size(0) > 200));
+
+            //增加节点后重新写入，只有分布到新节点的key发生变化
+            redisProperties = properties("sharded", nodes + "," + fourth.getAddress());
+            redisProperties.setShardingStrategy("ketama");
+            try (RedisShardedExecutor executor = new RedisShardedExecutor(redisProperties)) {
+                for (int i = 0; i < 1000; i++) {
+                    executor.set("test:stub:ketama:" + i, "new");
+                }
+            }
+            int moved = fourth.getStore().size(0);
+            Assert.assertTrue(moved > 150 && moved < 350);
+            for (int i = 0; i < 1000; i++) {
+                String key = "test:stub:ketama:" + i;
+                boolean onNewNode = fourth.getStore().get(0, key) != null;
+                long oldNodes = servers.stream().filter(server -> server.getStore().get(0, key) != null).count();
+                Assert.assertEquals(1, oldNodes);
+                RespServer oldNode = servers.stream().filter(server -> server.getStore().get(0, key) != null).findFirst().get();
+                Assert.assertEquals(onNewNode ? "old" : "new", oldNode.getStore().get(0, key).getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testShardMigration() throws InterruptedException {
+        try (RespServer first = RespServer.startNew(); RespServer second = RespServer.startNew(); RespServer third = RespServer.startNew()) {
+            String oldNodes = first.getAddress() + "," + second.getAddress();
+            try (RedisShardedExecutor oldExecutor = new RedisShardedExecutor(properties("sharded", oldNodes))) {
+                for (int i = 0; i < 100; i++) {
+                    oldExecutor.set("test:stub:migration:" + i, i);
+                }
+            }
+            //后台迁移的SCAN失败
+            first.setFailingCommands("scan");
+            second.setFailingCommands("scan");
+            RedisProperties redisProperties = properties("sharded", oldNodes + "," + third.getAddress());
+            redisProperties.setShardingMigrationNodes(Lists.newArrayList(oldNodes.split(",")));
+            redisProperties.setShardingMigrationBatchSize(10);
+            try (RedisShardedExecutor executor = new RedisShardedExecutor(redisProperties)) {
+                ShardMigration migration = executor.getMigration();
+                long deadline = System.currentTimeMillis() + 5000;
+                while (migration.getRetries() == 0 && System.currentTimeMillis() < deadline) {
+                    TimeUnit.MILLISECONDS.sleep(20);
+                }
+                Assert.assertTrue(migration.getRetries() > 0);
+                Assert.assertFalse(migration.isFinished());
+                List<String> movedKeys = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    if (migration.isMoved("test:stub:migration:" + i)) {
+                        movedKeys.add("test:stub:migration:" + i);
+                    }
+                }
+                Assert.assertTrue(movedKeys.size() > 2);
+                Assert.assertEquals(0, third.getStore().size(0));
+
+                //迁移失败后仍回退到旧节点读取
+                String readKey = movedKeys.get(0);
+                Assert.assertEquals(readKey.substring(readKey.lastIndexOf(':') + 1), executor.get(readKey));
+                Assert.assertTrue(migration.getFallbackReads() > 0);
+                Assert.assertEquals(0, third.getStore().size(0));
+
+                //写入前先迁移该key，INCR在迁移后的值上执行
+                String writeKey = movedKeys.get(1);
+                long value = Long.parseLong(writeKey.substring(writeKey.lastIndexOf(':') + 1));
+                Assert.assertEquals(Long.valueOf(value + 1), executor.incr(writeKey));
+                Assert.assertNotNull(third.getStore().get(0, writeKey));
+                Assert.assertNull(first.getStore().get(0, writeKey));
+                Assert.assertNull(second.getStore().get(0, writeKey));
+
+                //删除后不会回退读取到旧节点上的数据
+                String deleteKey = movedKeys.get(2);
+                executor.del(deleteKey);
+                Assert.assertNull(executor.get(deleteKey));
+
+                //SCAN恢复后继续迁移
+                first.setFailingCommands();
+                second.setFailingCommands();
+                deadline = System.currentTimeMillis() + 10000;
+                while (!migration.isFinished() && System.currentTimeMillis() < deadline) {
+                    TimeUnit.MILLISECONDS.sleep(50);
+                }
+                Assert.assertTrue(migration.isFinished());
+                Assert.assertEquals(movedKeys.size() - 1, third.getStore().size(0));
+                for (int i = 0; i < 100; i++) {
+                    String key = "test:stub:migration:" + i;
+                    if (!key.equals(deleteKey)) {
+                        Assert.assertEquals(key.equals(writeKey) ? String.valueOf(value + 1) : String.valueOf(i), executor.get(key));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCluster() {
+        try (RespCluster cluster = RespCluster.start(3, 1);
+             RedisClusterExecutor executor = new RedisClusterExecutor(properties("cluster", cluster.getAddresses()))) {
+            testCommands(executor);
+
+            //迁移槽位后按MOVED重定向
+            String key = "test:stub:moved";
+            executor.set(key, "1");
+            RespServer target = cluster.getMasters().stream().filter(master -> master != cluster.getMaster(key)).findFirst().get();
+            cluster.moveSlot(RespCluster.slot(key), target);
+            Assert.assertEquals("1", executor.get(key));
+            Assert.assertEquals(target, cluster.getMaster(key));
+
+            //不同槽位的key
+            executor.set("test:stub:a", "1");
+            executor.set("test:stub:b", "2");
+            Assert.assertEquals(Lists.newArrayList("1", "2"), executor.mget("test:stub:a", "test:stub:b"));
+            executor.setbit("test:stub:bit:a", 1, true);
+            executor.setbit("test:stub:bit:b", 2, true);
+            executor.bitop(BitOP.OR, "test:stub:bit:c", "test:stub:bit:a", "test:stub:bit:b");
+            Assert.assertTrue(executor.getbit("test:stub:bit:c", 1));
+            Assert.assertTrue(executor.getbit("test:stub:bit:c", 2));
+
+            //在所有主节点上执行脚本，不包括从节点
+            String script = "return redis.call('dbsize')";
+            cluster.getMasters().forEach(master -> master.registerScript(script, (redis, keys, args) -> 1L));
+            Map<String, Long> results = executor.evalOnAllMasters(script, Collections.emptyList(), Long.class);
+            Assert.assertEquals(cluster.getMasters().stream().map(RespServer::getAddress).collect(Collectors.toSet()), results.keySet());
+            Assert.assertEquals(Long.valueOf(3), executor.evalOnAllMasters(script, Collections.emptyList(), Long.class, Long::sum));
+
+            //key个数大于参数个数
+            try {
+                executor.eval(script, 2, Lists.newArrayList("test:stub:a"), Long.class);
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage().contains("keyCount"));
+            }
+        }
+    }
+
+    @Test
+    public void testScriptReload() {
+        String script = "return 1";
+        //与Redis的 SCRIPT LOAD "return 1" 返回值相同
+        Assert.assertEquals("e0e1f9fabfc9d4800c877a703b823ac0578ff8db", ScriptRegistry.sha1(script));
+        try (RespServer server = RespServer.startNew();
+             RedisSingleExecutor executor = new RedisSingleExecutor(properties("single", server.getAddress()))) {
+            testScriptReload(executor, Lists.newArrayList(server), script);
+        }
+        try (RespServer first = RespServer.startNew(); RespServer second = RespServer.startNew();
+             RedisShardedExecutor executor = new RedisShardedExecutor(properties("sharded", first.getAddress() + "," + second.getAddress()))) {
+            testScriptReload(executor, Lists.newArrayList(first, second), script);
+        }
+        try (RespCluster cluster = RespCluster.start(3, 0);
+             RedisClusterExecutor executor = new RedisClusterExecutor(properties("cluster", cluster.getAddresses()))) {
+            testScriptReload(executor, cluster.getMasters(), script);
+        }
+    }
+
+    /**
+     * 节点清空脚本（模拟重启或主从切换）后，EVALSHA返回NOSCRIPT时重新加载脚本并重试
+     */
+    private void testScriptReload(AbstractExecutor<?> executor, List<RespServer> servers, String script) {
+        servers.forEach(server -> server.registerScript(script, (redis, keys, args) -> 1L));
+        List<String> keys = Lists.newArrayList("test:stub:script");
+        Assert.assertEquals(Long.valueOf(1), executor.eval(script, keys, Collections.emptyList(), Long.class));
+        Assert.assertTrue(servers.stream().anyMatch(server -> server.getScript(ScriptRegistry.sha1(script)) != null));
+
+        servers.forEach(RespServer::flushScripts);
+        Assert.assertEquals(Long.valueOf(1), executor.eval(script, keys, Collections.emptyList(), Long.class));
+        Assert.assertTrue(servers.stream().anyMatch(server -> server.getScript(ScriptRegistry.sha1(script)) != null));
+        Assert.assertEquals(Long.valueOf(1), executor.eval(script, keys, Collections.emptyList(), Long.class));
+    }
+
+    @Test
+    public void testDeleteByPattern() {
+        try (RespServer server = RespServer.startNew();
+             RedisSingleExecutor executor = new RedisSingleExecutor(properties("single", server.getAddress()))) {
+            testDeleteByPattern(executor);
+        }
+        try (RespServer first = RespServer.startNew(); RespServer second = RespServer.startNew();
+             RedisShardedExecutor executor = new RedisShardedExecutor(properties("sharded", first.getAddress() + "," + second.getAddress()))) {
+            testDeleteByPattern(executor);
+        }
+        try (RespCluster cluster = RespCluster.start(3, 1);
+             RedisClusterExecutor executor = new RedisClusterExecutor(properties("cluster", cluster.getAddresses()))) {
+            testDeleteByPattern(executor);
+        }
+    }
+
+    private void testDeleteByPattern(AbstractExecutor<?> executor) {
+        for (int i = 0; i < 300; i++) {
+            executor.set("test:stub:pattern:" + i, i);
+        }
+        executor.set("test:stub:other", 1);
+        List<Long> progress = new ArrayList<>();
+        Assert.assertEquals(Long.valueOf(300), executor.deleteByPattern("test:stub:pattern:*", 50, 0, progress::add));
+        //每批删除后回调累计的删除数量
+        Assert.assertTrue(progress.size() > 1);
+        Assert.assertEquals(Long.valueOf(300), progress.get(progress.size() - 1));
+        for (int i = 1; i < progress.size(); i++) {
+            Assert.assertTrue(progress.get(i) > progress.get(i - 1));
+        }
+        for (int i = 0; i < 300; i++) {
+            Assert.assertFalse(executor.exists("test:stub:pattern:" + i));
+        }
+        Assert.assertTrue(executor.exists("test:stub:other"));
+        Assert.assertEquals(Long.valueOf(0), executor.deleteByPattern("test:stub:pattern:*", 50, 0));
+        try {
+            executor.deleteByPattern("test:stub:pattern:*", 0, 0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("batchSize"));
+        }
+    }
+
+    @Test
+    public void testHealthChecker() throws InterruptedException {
+        try (RespServer server = RespServer.startNew()) {
+            RedisProperties redisProperties = properties("single", server.getAddress());
+            redisProperties.setHealthCheckStrategy("failure");
+            try (RedisSingleExecutor executor = new RedisSingleExecutor(redisProperties)) {
+                ConnectionHealthChecker healthChecker = executor.getHealthChecker();
+                executor.set("test:stub:health", "1");
+                for (int i = 0; i < 20; i++) {
+                    Assert.assertEquals("1", executor.get("test:stub:health"));
+                }
+                //没有连接异常时获取连接不发送PING
+                Assert.assertEquals(0, healthChecker.getValidationCount());
+                Assert.assertTrue(healthChecker.getSkippedValidationCount() >= 21);
+
+                server.killClients();
+                TimeUnit.MILLISECONDS.sleep(50);
+                try {
+                    executor.get("test:stub:health");
+                } catch (RedisCacheException ignored) {
+                }
+                Assert.assertTrue(healthChecker.getBrokenConnectionCount() > 0);
+
+                //连接异常后的窗口内获取连接时校验，池中其他已断开的连接校验失败后被销毁
+                Assert.assertEquals("1", executor.get("test:stub:health"));
+                Assert.assertTrue(healthChecker.getValidationCount() > healthChecker.getValidationFailureCount());
+            }
+        }
+    }
+
+    @Test
+    public void testHotKeyDetector() throws InterruptedException {
+        try (RespCluster cluster = RespCluster.start(3, 0)) {
+            RedisProperties redisProperties = properties("cluster", cluster.getAddresses());
+            redisProperties.setHotKeyEnabled(true);
+            redisProperties.setHotKeySampleRatio(1);
+            redisProperties.setHotKeyTopSize(3);
+            redisProperties.setHotKeyWindowSeconds(3);
+            try (RedisClusterExecutor executor = new RedisClusterExecutor(redisProperties)) {
+                HotKeyDetector detector = executor.getMetrics().hotKeys();
+                detector.reset();
+                //冷key超过topSize的2倍，裁剪后只保留次数最多的key
+                for (int i = 0; i < 500; i++) {
+                    executor.get("test:stub:cold:" + i);
+                    if (i < 300) {
+                        executor.get("test:stub:hot:a");
+                    }
+                    if (i < 200) {
+                        executor.get("test:stub:hot:b");
+                    }
+                    if (i < 100) {
+                        executor.get("test:stub:hot:c");
+                    }
+                }
+                List<HotKey> hotKeys = detector.getHotKeys();
+                Assert.assertEquals(Lists.newArrayList("test:stub:hot:a", "test:stub:hot:b", "test:stub:hot:c"),
+                        hotKeys.stream().map(HotKey::getKey).collect(Collectors.toList()));
+                //Count-Min Sketch只会高估，冷key的冲突很少
+                long[] counts = {300, 200, 100};
+                for (int i = 0; i < counts.length; i++) {
+                    Assert.assertTrue(hotKeys.get(i).getCount() >= counts[i] && hotKeys.get(i).getCount() <= counts[i] + 5);
+                    Assert.assertEquals(cluster.getMaster(hotKeys.get(i).getKey()).getAddress(), hotKeys.get(i).getNode());
+                }
+                Assert.assertEquals(3, detector.getHotKeysByNode().values().stream().mapToInt(List::size).sum());
+
+                //时间窗口结束后保留到历史窗口，新窗口重新统计
+                TimeUnit.MILLISECONDS.sleep(3100);
+                executor.get("test:stub:hot:c");
+                List<HotKeyWindow> windows = detector.getWindows();
+                Assert.assertEquals(2, windows.size());
+                Assert.assertEquals(Lists.newArrayList("test:stub:hot:c"), windows.get(0).getHotKeys().stream().map(HotKey::getKey).collect(Collectors.toList()));
+                Assert.assertEquals("test:stub:hot:a", windows.get(1).getHotKeys().get(0).getKey());
+            }
+        }
+    }
+
+    @Test
+    public void testHotKeyReplicas() throws InterruptedException {
+        try (RespCluster cluster = RespCluster.start(4, 0);
+             RedisClusterExecutor executor = new RedisClusterExecutor(properties("cluster", cluster.getAddresses()))) {
+            String key = "{test:stub:hot}";
+            executor.set(key, "1");
+            executor.registerHotKey(key, 3);
+
+            //副本分布在原key所在节点之外的3个主节点上
+            List<RespServer> replicaMasters = cluster.getMasters().stream()
+                    .filter(master -> master.getStore().keys(0).stream().anyMatch(k -> isReplicaKey(k, key)))
+                    .collect(Collectors.toList());
+            Assert.assertEquals(3, replicaMasters.size());
+            Assert.assertFalse(replicaMasters.contains(cluster.getMaster(key)));
+
+            //写入返回后不会读到副本中的旧数据
+            executor.set(key, "2");
+            Assert.assertEquals(0, countReplicas(cluster, key));
+            for (int i = 0; i < 50; i++) {
+                Assert.assertEquals("2", executor.get(key));
+            }
+            awaitReplicas(executor, cluster, key, 3);
+            for (int i = 0; i < 50; i++) {
+                Assert.assertEquals("2", executor.get(key));
+            }
+
+            executor.del(key);
+            for (int i = 0; i < 50; i++) {
+                Assert.assertNull(executor.get(key));
+            }
+
+            executor.set(key, "3");
+            awaitReplicas(executor, cluster, key, 3);
+            RedisBatch batch = new RedisBatch(executor);
+            batch.set(key, "4");
+            batch.execute();
+            for (int i = 0; i < 50; i++) {
+                Assert.assertEquals("4", executor.get(key));
+            }
+
+            executor.set(key + ":new", "5");
+            executor.rename(key + ":new", key);
+            for (int i = 0; i < 50; i++) {
+                Assert.assertEquals("5", executor.get(key));
+            }
+
+            executor.unregisterHotKey(key);
+            Assert.assertEquals(0, countReplicas(cluster, key));
+        }
+    }
+
+    private long countReplicas(RespCluster cluster, String key) {
+        return cluster.getMasters().stream().flatMap(master -> master.getStore().keys(0).stream()).filter(k -> isReplicaKey(k, key)).count();
+    }
+
+    /**
+     * 带hash tag的key的副本为 {#i}key
+     */
+    private boolean isReplicaKey(String replicaKey, String key) {
+        return replicaKey.startsWith("{#") && replicaKey.endsWith("}" + key);
+    }
+
+    /**
+     * 读取热点key直到副本重新复制完成，读取原key时不会触发复制
+     */
+    private void awaitReplicas(RedisClusterExecutor executor, RespCluster cluster, String key, int copies) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (countReplicas(cluster, key) < copies && System.currentTimeMillis() < deadline) {
+            executor.get(key);
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+        Assert.assertEquals(copies, countReplicas(cluster, key));
+    }
+
+    @Test
+    public void testLatency() {
+        try (RespServer server = RespServer.startNew();
+             RedisSingleExecutor executor = new RedisSingleExecutor(properties("single", server.getAddress()))) {
+            executor.set("test:stub:latency", "1");
+            server.setLatency(20, TimeUnit.MILLISECONDS);
+            long start = System.nanoTime();
+            Assert.assertEquals("1", executor.get("test:stub:latency"));
+            Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        }
+    }
+
+    @Test
+    public void testPoolMetrics() throws InterruptedException {
+        try (RespServer server = RespServer.startNew()) {
+            RedisProperties redisProperties = properties("single", server.getAddress());
+            redisProperties.setMaxTotal(1);
+            redisProperties.setMaxWaitMillis(100);
+            redisProperties.setPoolMonitorIntervalMillis(50);
+            RedisSingleExecutor executor = new RedisSingleExecutor(redisProperties);
+            List<PoolSnapshot> saturated = new CopyOnWriteArrayList<>();
+            executor.getMetrics().addPoolListener((name, snapshot) -> saturated.add(snapshot));
+            executor.set("test:stub:pool", "1");
+
+            //唯一的连接被慢命令占用，其他线程获取连接超时
+            server.setLatency(500, TimeUnit.MILLISECONDS);
+            CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> executor.get("test:stub:pool"));
+            TimeUnit.MILLISECONDS.sleep(200);
+            try {
+                executor.get("test:stub:pool");
+                Assert.fail();
+            } catch (PoolExhaustedException e) {
+                Assert.assertEquals(server.getAddress(), e.getPool().getNode());
+                Assert.assertEquals(1, e.getPool().getActive());
+            }
+            Assert.assertEquals("1", slow.join());
+            Assert.assertFalse(saturated.isEmpty());
+            Assert.assertEquals(server.getAddress(), saturated.get(0).getNode());
+
+            PoolSnapshot pool = executor.getMetrics().getPools().get(server.getAddress());
+            Assert.assertEquals(1, pool.getMaxTotal());
+            Assert.assertEquals(1, pool.getCreated());
+            Assert.assertEquals(3, pool.getBorrowWait().getCount());
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testMetricsClose() throws InterruptedException {
+        List<String> reported = new CopyOnWriteArrayList<>();
+        MetricsReporter reporter = snapshot -> reported.add(snapshot.getName());
+        CacheMetrics.addReporter(reporter);
+        try (RespServer server = RespServer.startNew()) {
+            RedisProperties redisProperties = properties("single", server.getAddress());
+            redisProperties.setMetricsReportIntervalMillis(20);
+            RedisSingleExecutor executor = new RedisSingleExecutor(redisProperties);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!reported.contains("stub") && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+            Assert.assertTrue(reported.contains("stub"));
+
+            //关闭后不再定时上报
+            executor.close();
+            TimeUnit.MILLISECONDS.sleep(50);
+            reported.clear();
+            TimeUnit.MILLISECONDS.sleep(200);
+            Assert.assertFalse(reported.contains("stub"));
+        } finally {
+            CacheMetrics.removeReporter(reporter);
+        }
+    }
+
+    private void testCommands(AbstractExecutor<?> executor) {
+        Assert.assertEquals("OK", executor.set("test:stub:string", "abc"));
+        Assert.assertEquals("abc", executor.get("test:stub:string"));
+        Assert.assertEquals(Long.valueOf(1), executor.incr("test:stub:number"));
+
+        executor.hset("test:stub:hash", "a", 1);
+        executor.hset("test:stub:hash", "b", 2);
+        Assert.assertEquals(Integer.valueOf(2), executor.hget("test:stub:hash", "b", Integer.class));
+        Map<String, Integer> hash = executor.hgetAll("test:stub:hash", Integer.class);
+        Assert.assertEquals(2, hash.size());
+
+        executor.rpush("test:stub:list", 1, 2, 3, 4, 5);
+        Assert.assertEquals(Lists.newArrayList(1, 2, 3, 4, 5), executor.lrangeAll("test:stub:list", Integer.class));
+        List<List<Integer>> pages = new ArrayList<>();
+        executor.lrangeAll("test:stub:list", 2, Integer.class, pages::add);
+        Assert.assertEquals(3, pages.size());
+
+        executor.sadd("test:stub:set", "a", "b", "a");
+        Assert.assertEquals(2, executor.smembers("test:stub:set").size());
+
+        executor.zadd("test:stub:zset", 2, "b");
+        executor.zadd("test:stub:zset", 1, "a");
+        Assert.assertEquals(Lists.newArrayList("a", "b"), new ArrayList<>(executor.zrange("test:stub:zset", 0, -1)));
+
+        executor.pfadd("test:stub:hll", "a", "b", "c");
+        Assert.assertEquals(Long.valueOf(3), executor.pfcount("test:stub:hll"));
+
+        executor.setbit("test:stub:bit", 7, true);
+        Assert.assertTrue(executor.getbit("test:stub:bit", 7));
+
+        Assert.assertTrue(executor.getDistributedLock("test:stub:lock", "request", 10000));
+        Assert.assertFalse(executor.releaseDistributedLock("test:stub:lock", "other"));
+        Assert.assertTrue(executor.releaseDistributedLock("test:stub:lock", "request"));
+
+        RedisBatch batch = new RedisBatch(executor);
+        CompletableFuture<String> get = batch.get("test:stub:string");
+        CompletableFuture<Long> incr = batch.incr("test:stub:number");
+        batch.execute();
+        Assert.assertEquals("abc", get.join());
+        Assert.assertEquals(Long.valueOf(2), incr.join());
+
+        executor.del("test:stub:string");
+        Assert.assertFalse(executor.exists("test:stub:string"));
+    }
+
+    private RedisProperties properties(String type, String nodes) {
+        RedisProperties redisProperties = new RedisProperties("stub");
+        redisProperties.setType(type);
+        redisProperties.setNodes(Lists.newArrayList(nodes.split(",")));
+        redisProperties.setPassword(null);
+        return redisProperties;
+    }
+
+}
@@ -0,0 +1,224 @@
+package com.dxy.library.cache.redis.stub;
+
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 进程内的Redis集群，由多个RespServer组成，槽位平均分配给主节点
+ * 节点返回CLUSTER SLOTS，key不在当前节点时返回MOVED，多个key不在同一槽位时返回CROSSSLOT
+ * 可以在运行时迁移槽位，测试客户端的重定向和槽位刷新
+ * @author duanxinyuan
+ * 2020/6/27 10:10
+ */
+public class RespCluster implements Closeable {
+
+    public static final int SLOTS = 16384;
+
+    private final List<RespServer> masters = new ArrayList<>();
+
+    //每个槽位所在的主节点
+    private final RespServer[] slots = new RespServer[SLOTS];
+
+    /**
+     * @param masterCount 主节点数量
+     * @param replicasPerMaster 每个主节点的从节点数量
+     */
+    public RespCluster(int masterCount, int replicasPerMaster) {
+        if (masterCount <= 0) {
+            throw new IllegalArgumentException("masterCount must be greater than 0");
+        }
+        for (int i = 0; i < masterCount; i++) {
+            RespServer master = new RespServer();
+            masters.add(master);
+            int start = SLOTS * i / masterCount;
+            int end = SLOTS * (i + 1) / masterCount;
+            for (int slot = start; slot < end; slot++) {
+                slots[slot] = master;
+            }
+        }
+        for (RespServer master : masters) {
+            master.setCluster(this);
+            master.start();
+            for (int i = 0; i < replicasPerMaster; i++) {
+                master.startReplica().setCluster(this);
+            }
+        }
+    }
+
+    /**
+     * 创建并启动集群
+     */
+    public static RespCluster start(int masterCount, int replicasPerMaster) {
+        return new RespCluster(masterCount, replicasPerMaster);
+    }
+
+    public static int slot(String key) {
+        return JedisClusterCRC16.getSlot(key);
+    }
+
+    public List<RespServer> getMasters() {
+        return masters;
+    }
+
+    /**
+     * 所有节点，包括从节点
+     */
+    public List<RespServer> getNodes() {
+        List<RespServer> nodes = new ArrayList<>();
+        for (RespServer master : masters) {
+            nodes.add(master);
+            nodes.addAll(master.getReplicas());
+        }
+        return nodes;
+    }
+
+    /**
+     * 主节点的地址，多个使用逗号隔开，可直接作为 cache.redis.nodes 的配置
+     */
+    public String getAddresses() {
+        return masters.stream().map(RespServer::getAddress).collect(Collectors.joining(","));
+    }
+
+    /**
+     * key所在的主节点
+     */
+    public synchronized RespServer getMaster(String key) {
+        return slots[slot(key)];
+    }
+
+    public void setLatency(long latency, TimeUnit unit) {
+        masters.forEach(master -> master.setLatency(latency, unit));
+    }
+
+    public void registerScript(String script, ScriptHandler handler) {
+        masters.forEach(master -> master.registerScript(script, handler));
+    }
+
+    public void flushAll() {
+        masters.forEach(RespServer::flushAll);
+    }
+
+    /**
+     * 将槽位及槽位中的键迁移到目标主节点，之后访问原节点的请求返回MOVED
+     */
+    public void moveSlot(int slot, RespServer target) {
+        if (!masters.contains(target)) {
+            throw new IllegalArgumentException("target is not a master of this cluster");
+        }
+        RespServer source;
+        synchronized (this) {
+            source = slots[slot];
+        }
+        if (source == target) {
+            return;
+        }
+        //按端口顺序加锁，避免并发迁移时死锁
+        RespStore first = source.getPort() < target.getPort() ? source.getStore() : target.getStore();
+        RespStore second = first == source.getStore() ? target.getStore() : source.getStore();
+        synchronized (first) {
+            synchronized (second) {
+                source.getStore().moveTo(target.getStore(), slot);
+                synchronized (this) {
+                    slots[slot] = target;
+                }
+            }
+        }
+    }
+
+    /**
+     * 检查命令的key是否由当前节点处理，返回需要发送给客户端的MOVED/CROSSSLOT错误，由当前节点处理时返回null
+     * 从节点在连接执行了READONLY后处理读命令
+     */
+    RespError route(RespServer server, RespConnection connection, List<String> keys, boolean write) {
+        if (keys.isEmpty()) {
+            return null;
+        }
+        int slot = slot(keys.get(0));
+        for (String key : keys.subList(1, keys.size())) {
+            if (slot(key) != slot) {
+                return new RespError("CROSSSLOT Keys in request don't hash to the same slot");
+            }
+        }
+        RespServer owner;
+        synchronized (this) {
+            owner = slots[slot];
+        }
+        RespServer master = server.getMaster() == null ? server : server.getMaster();
+        if (owner == master && (server == master || (!write && connection.isReadonly()))) {
+            return null;
+        }
+        return new RespError("MOVED " + slot + " " + owner.getAddress());
+    }
+
+    /**
+     * CLUSTER SLOTS的返回值，连续且属于同一主节点的槽位合并为一个范围
+     */
+    synchronized List<Object> slots() {
+        List<Object> ranges = new ArrayList<>();
+        int start = 0;
+        for (int slot = 1; slot <= SLOTS; slot++) {
+            if (slot < SLOTS && slots[slot] == slots[start]) {
+                continue;
+            }
+            RespServer master = slots[start];
+            List<Object> range = new ArrayList<>();
+            range.add((long) start);
+            range.add((long) slot - 1);
+            range.add(node(master));
+            master.getReplicas().forEach(replica -> range.add(node(replica)));
+            ranges.add(range);
+            start = slot;
+        }
+        return ranges;
+    }
+
+    /**
+     * CLUSTER NODES的返回值
+     */
+    synchronized String nodes(RespServer myself) {
+        StringBuilder builder = new StringBuilder();
+        for (RespServer master : masters) {
+            builder.append(master.getNodeId()).append(' ').append(master.getAddress()).append('@').append(master.getPort() + 10000)
+                    .append(master == myself ? " myself,master" : " master").append(" - 0 0 0 connected");
+            int start = -1;
+            for (int slot = 0; slot <= SLOTS; slot++) {
+                boolean owned = slot < SLOTS && slots[slot] == master;
+                if (owned && start < 0) {
+                    start = slot;
+                } else if (!owned && start >= 0) {
+                    builder.append(' ').append(start == slot - 1 ? String.valueOf(start) : start + "-" + (slot - 1));
+                    start = -1;
+                }
+            }
+            builder.append('\n');
+            for (RespServer replica : master.getReplicas()) {
+                builder.append(replica.getNodeId()).append(' ').append(replica.getAddress()).append('@').append(replica.getPort() + 10000)
+                        .append(replica == myself ? " myself,slave " : " slave ").append(master.getNodeId()).append(" 0 0 0 connected\n");
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 与Redis集群相同，消息发布到所有节点
+     */
+    long publish(String channel, String message) {
+        return getNodes().stream().mapToLong(node -> node.publish(channel, message)).sum();
+    }
+
+    private static List<Object> node(RespServer server) {
+        return Arrays.asList(server.getHost(), (long) server.getPort(), server.getNodeId());
+    }
+
+    @Override
+    public void close() {
+        masters.forEach(RespServer::close);
+    }
+
+}
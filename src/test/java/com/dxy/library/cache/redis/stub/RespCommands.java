@@ -0,0 +1,1664 @@
+package com.dxy.library.cache.redis.stub;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 命令的实现，与Redis 5.0的行为保持一致，不支持的命令返回 unknown command
+ * 调用方需要持有键空间的锁
+ * @author duanxinyuan
+ * 2020/6/27 10:10
+ */
+public class RespCommands {
+
+    /**
+     * 不包含key的命令
+     */
+    private static final Set<String> NO_KEY_COMMANDS = ImmutableSet.of("ping", "echo", "select", "auth", "quit", "readonly", "readwrite",
+            "client", "info", "dbsize", "flushdb", "flushall", "time", "command", "config", "cluster", "sentinel", "script", "publish",
+            "subscribe", "psubscribe", "unsubscribe", "punsubscribe", "pubsub", "keys", "scan", "randomkey");
+
+    /**
+     * key的位置，{第一个key, 最后一个key（负数表示从末尾开始）, 步长}，未配置的命令只有第一个参数是key
+     */
+    private static final Map<String, int[]> KEY_SPECS = ImmutableMap.<String, int[]>builder()
+            .put("del", new int[]{1, -1, 1})
+            .put("unlink", new int[]{1, -1, 1})
+            .put("exists", new int[]{1, -1, 1})
+            .put("mget", new int[]{1, -1, 1})
+            .put("mset", new int[]{1, -1, 2})
+            .put("msetnx", new int[]{1, -1, 2})
+            .put("pfcount", new int[]{1, -1, 1})
+            .put("pfmerge", new int[]{1, -1, 1})
+            .put("rename", new int[]{1, 2, 1})
+            .put("renamenx", new int[]{1, 2, 1})
+            .put("rpoplpush", new int[]{1, 2, 1})
+            .put("brpoplpush", new int[]{1, 2, 1})
+            .put("blpop", new int[]{1, -2, 1})
+            .put("brpop", new int[]{1, -2, 1})
+            .put("bitop", new int[]{2, -1, 1})
+            .build();
+
+    /**
+     * 写命令，从节点拒绝执行，执行后唤醒阻塞的连接
+     */
+    private static final Set<String> WRITE_COMMANDS = ImmutableSet.of("set", "setnx", "setex", "psetex", "getset", "mset", "msetnx",
+            "incr", "incrby", "incrbyfloat", "decr", "decrby", "append", "setrange", "setbit", "bitop", "del", "unlink", "expire",
+            "pexpire", "expireat", "pexpireat", "persist", "rename", "renamenx", "restore", "pfadd", "pfmerge", "hset", "hmset",
+            "hsetnx", "hdel", "hincrby", "hincrbyfloat", "lpush", "rpush", "lpushx", "rpushx", "lpop", "rpop", "lset", "linsert",
+            "lrem", "ltrim", "rpoplpush", "blpop", "brpop", "brpoplpush", "sadd", "srem", "spop", "zadd", "zincrby", "zrem",
+            "zremrangebyrank", "zremrangebyscore", "zremrangebylex", "flushdb", "flushall", "eval", "evalsha");
+
+    /**
+     * 订阅状态下允许执行的命令
+     */
+    private static final Set<String> SUBSCRIBE_COMMANDS = ImmutableSet.of("subscribe", "psubscribe", "unsubscribe", "punsubscribe", "ping", "quit");
+
+    private final RespServer server;
+
+    private final RespStore store;
+
+    public RespCommands(RespServer server, RespStore store) {
+        this.server = server;
+        this.store = store;
+    }
+
+    public static boolean isWrite(String command) {
+        return WRITE_COMMANDS.contains(command.toLowerCase());
+    }
+
+    /**
+     * 命令中的key
+     */
+    public static List<String> keys(List<String> args) {
+        String command = args.get(0).toLowerCase();
+        if (NO_KEY_COMMANDS.contains(command)) {
+            return Collections.emptyList();
+        }
+        if ("eval".equals(command) || "evalsha".equals(command)) {
+            if (args.size() < 3) {
+                return Collections.emptyList();
+            }
+            int numKeys = (int) toLong(args.get(2));
+            if (numKeys < 0 || numKeys > args.size() - 3) {
+                throw new RespError("ERR Number of keys can't be greater than number of args");
+            }
+            return args.subList(3, 3 + numKeys);
+        }
+        int[] spec = KEY_SPECS.getOrDefault(command, new int[]{1, 1, 1});
+        int last = spec[1] < 0 ? args.size() + spec[1] : Math.min(spec[1], args.size() - 1);
+        List<String> keys = new ArrayList<>();
+        for (int i = spec[0]; i <= last; i += spec[2]) {
+            keys.add(args.get(i));
+        }
+        return keys;
+    }
+
+    /**
+     * 执行客户端发送的命令，集群模式下检查key所在的槽位
+     */
+    public Object execute(RespConnection connection, List<String> args) {
+        String command = args.get(0).toLowerCase();
+        if (server.isFailing(command)) {
+            throw new RespError("ERR injected failure of '" + command + "' command");
+        }
+        if (connection.isSubscribed() && !SUBSCRIBE_COMMANDS.contains(command)) {
+            throw new RespError("ERR only (P)SUBSCRIBE / (P)UNSUBSCRIBE / PING / QUIT allowed in this context");
+        }
+        boolean write = WRITE_COMMANDS.contains(command);
+        RespCluster cluster = server.getCluster();
+        if (cluster != null) {
+            RespError redirect = cluster.route(server, connection, keys(args), write);
+            if (redirect != null) {
+                return redirect;
+            }
+        } else if (write && server.getMaster() != null) {
+            throw new RespError("READONLY You can't write against a read only replica.");
+        }
+        return call(connection, connection.getDatabase(), args);
+    }
+
+    /**
+     * 执行命令，脚本中的redis.call直接调用
+     */
+    Object call(RespConnection connection, int db, List<String> args) {
+        String command = args.get(0).toLowerCase();
+        switch (command) {
+            //connection & server
+            case "ping":
+                arity(args, 1, 2);
+                if (connection.isSubscribed()) {
+                    return Arrays.asList("pong", args.size() > 1 ? args.get(1) : "");
+                }
+                return args.size() > 1 ? args.get(1) : RespProtocol.PONG;
+            case "echo":
+                arity(args, 2, 2);
+                return args.get(1);
+            case "quit":
+                connection.setClosing(true);
+                return RespProtocol.OK;
+            case "auth":
+                arity(args, 2, 3);
+                return RespProtocol.OK;
+            case "select":
+                return select(connection, args);
+            case "readonly":
+                connection.setReadonly(true);
+                return RespProtocol.OK;
+            case "readwrite":
+                connection.setReadonly(false);
+                return RespProtocol.OK;
+            case "client":
+                return client(connection, args);
+            case "info":
+                return info(db);
+            case "dbsize":
+                return (long) store.size(db);
+            case "flushdb":
+                store.flush(db);
+                return RespProtocol.OK;
+            case "flushall":
+                store.flushAll();
+                return RespProtocol.OK;
+            case "time":
+                long micros = System.currentTimeMillis() * 1000;
+                return Arrays.asList(String.valueOf(micros / 1000000), String.valueOf(micros % 1000000));
+            case "command":
+                return Collections.emptyList();
+            case "config":
+                arity(args, 2, Integer.MAX_VALUE);
+                return "get".equalsIgnoreCase(args.get(1)) ? Collections.emptyList() : RespProtocol.OK;
+            case "cluster":
+                return cluster(args);
+            case "sentinel":
+                return sentinel(args);
+            //keys
+            case "del":
+            case "unlink":
+                return del(db, args);
+            case "exists":
+                return exists(db, args);
+            case "expire":
+            case "pexpire":
+            case "expireat":
+            case "pexpireat":
+                return expire(db, args, command);
+            case "persist":
+                return persist(db, args);
+            case "ttl":
+            case "pttl":
+                return ttl(db, args, "pttl".equals(command));
+            case "type":
+                arity(args, 2, 2);
+                RespStore.Entry typeEntry = store.get(db, args.get(1));
+                return new RespProtocol.Status(typeEntry == null ? "none" : RespStore.type(typeEntry.getValue()));
+            case "rename":
+            case "renamenx":
+                return rename(db, args, "renamenx".equals(command));
+            case "keys":
+                arity(args, 2, 2);
+                Pattern keyPattern = globPattern(args.get(1));
+                return store.keys(db).stream().filter(key -> keyPattern.matcher(key).matches()).collect(Collectors.toList());
+            case "randomkey":
+                List<String> allKeys = store.keys(db);
+                return allKeys.isEmpty() ? null : allKeys.get(ThreadLocalRandom.current().nextInt(allKeys.size()));
+            case "scan":
+                return scanKeys(db, args);
+            case "dump":
+                arity(args, 2, 2);
+                RespStore.Entry dumpEntry = store.get(db, args.get(1));
+                return dumpEntry == null ? null : RespStore.dump(dumpEntry.getValue());
+            case "restore":
+                return restore(db, args);
+            //strings
+            case "get":
+                arity(args, 2, 2);
+                return store.get(db, args.get(1), String.class);
+            case "set":
+                return set(db, args);
+            case "setnx":
+                arity(args, 3, 3);
+                return set(db, Arrays.asList("set", args.get(1), args.get(2), "nx")) == null ? 0L : 1L;
+            case "setex":
+            case "psetex":
+                arity(args, 4, 4);
+                if (toLong(args.get(2)) <= 0) {
+                    throw new RespError("ERR invalid expire time in " + command);
+                }
+                return set(db, Arrays.asList("set", args.get(1), args.get(3), "setex".equals(command) ? "ex" : "px", args.get(2)));
+            case "getset":
+                arity(args, 3, 3);
+                String old = store.get(db, args.get(1), String.class);
+                store.put(db, args.get(1), args.get(2));
+                return old;
+            case "mget":
+                arity(args, 2, Integer.MAX_VALUE);
+                return args.subList(1, args.size()).stream().map(key -> {
+                    RespStore.Entry entry = store.get(db, key);
+                    return entry != null && entry.getValue() instanceof String ? (String) entry.getValue() : null;
+                }).collect(Collectors.toList());
+            case "mset":
+            case "msetnx":
+                return mset(db, args, "msetnx".equals(command));
+            case "incr":
+            case "decr":
+                arity(args, 2, 2);
+                return incrBy(db, args.get(1), "incr".equals(command) ? 1 : -1);
+            case "incrby":
+            case "decrby":
+                arity(args, 3, 3);
+                long increment = toLong(args.get(2));
+                return incrBy(db, args.get(1), "incrby".equals(command) ? increment : -increment);
+            case "incrbyfloat":
+                arity(args, 3, 3);
+                return incrByFloat(db, args.get(1), toDouble(args.get(2)));
+            case "append":
+                arity(args, 3, 3);
+                String appended = nullToEmpty(store.get(db, args.get(1), String.class)) + args.get(2);
+                putKeepTtl(db, args.get(1), appended);
+                return (long) appended.length();
+            case "strlen":
+                arity(args, 2, 2);
+                return (long) nullToEmpty(store.get(db, args.get(1), String.class)).length();
+            case "getrange":
+                return getrange(db, args);
+            case "setrange":
+                return setrange(db, args);
+            case "getbit":
+                return getbit(db, args);
+            case "setbit":
+                return setbit(db, args);
+            case "bitcount":
+                return bitcount(db, args);
+            case "bitpos":
+                return bitpos(db, args);
+            case "bitop":
+                return bitop(db, args);
+            //hyperloglog
+            case "pfadd":
+                arity(args, 2, Integer.MAX_VALUE);
+                boolean created = store.get(db, args.get(1)) == null;
+                RespStore.HyperLogLog hyperLogLog = store.getOrCreate(db, args.get(1), RespStore.HyperLogLog.class, RespStore.HyperLogLog::new);
+                boolean changed = false;
+                for (String element : args.subList(2, args.size())) {
+                    changed |= hyperLogLog.getElements().add(element);
+                }
+                return created || changed ? 1L : 0L;
+            case "pfcount":
+                arity(args, 2, Integer.MAX_VALUE);
+                return (long) union(db, args.subList(1, args.size())).size();
+            case "pfmerge":
+                arity(args, 2, Integer.MAX_VALUE);
+                Set<String> merged = union(db, args.subList(1, args.size()));
+                store.getOrCreate(db, args.get(1), RespStore.HyperLogLog.class, RespStore.HyperLogLog::new).getElements().addAll(merged);
+                return RespProtocol.OK;
+            //hashes
+            case "hset":
+            case "hmset":
+                return hset(db, args, "hmset".equals(command));
+            case "hsetnx":
+                arity(args, 4, 4);
+                Map<String, String> hsetnx = store.getOrCreateHash(db, args.get(1));
+                return hsetnx.putIfAbsent(args.get(2), args.get(3)) == null ? 1L : 0L;
+            case "hget":
+                arity(args, 3, 3);
+                return hash(db, args.get(1)).get(args.get(2));
+            case "hmget":
+                arity(args, 3, Integer.MAX_VALUE);
+                Map<String, String> hmget = hash(db, args.get(1));
+                return args.subList(2, args.size()).stream().map(hmget::get).collect(Collectors.toList());
+            case "hgetall":
+                arity(args, 2, 2);
+                List<String> all = new ArrayList<>();
+                hash(db, args.get(1)).forEach((field, value) -> {
+                    all.add(field);
+                    all.add(value);
+                });
+                return all;
+            case "hdel":
+                arity(args, 3, Integer.MAX_VALUE);
+                Map<String, String> hdel = hash(db, args.get(1));
+                long deleted = args.subList(2, args.size()).stream().filter(field -> hdel.remove(field) != null).count();
+                store.removeIfEmpty(db, args.get(1));
+                return deleted;
+            case "hexists":
+                arity(args, 3, 3);
+                return hash(db, args.get(1)).containsKey(args.get(2)) ? 1L : 0L;
+            case "hlen":
+                arity(args, 2, 2);
+                return (long) hash(db, args.get(1)).size();
+            case "hkeys":
+                arity(args, 2, 2);
+                return new ArrayList<>(hash(db, args.get(1)).keySet());
+            case "hvals":
+                arity(args, 2, 2);
+                return new ArrayList<>(hash(db, args.get(1)).values());
+            case "hstrlen":
+                arity(args, 3, 3);
+                return (long) nullToEmpty(hash(db, args.get(1)).get(args.get(2))).length();
+            case "hincrby":
+                arity(args, 4, 4);
+                Map<String, String> hincrby = store.getOrCreateHash(db, args.get(1));
+                long hashValue = Math.addExact(toLong(hincrby.getOrDefault(args.get(2), "0"), "ERR hash value is not an integer"), toLong(args.get(3)));
+                hincrby.put(args.get(2), String.valueOf(hashValue));
+                return hashValue;
+            case "hincrbyfloat":
+                arity(args, 4, 4);
+                Map<String, String> hincrbyfloat = store.getOrCreateHash(db, args.get(1));
+                String floatValue = RespProtocol.formatDouble(toDouble(hincrbyfloat.getOrDefault(args.get(2), "0")) + toDouble(args.get(3)));
+                hincrbyfloat.put(args.get(2), floatValue);
+                return floatValue;
+            case "hscan":
+                return hscan(db, args);
+            //lists
+            case "lpush":
+            case "rpush":
+            case "lpushx":
+            case "rpushx":
+                return push(db, args, command.startsWith("l"), command.endsWith("x"));
+            case "lpop":
+            case "rpop":
+                arity(args, 2, 2);
+                return pop(db, args.get(1), "lpop".equals(command));
+            case "llen":
+                arity(args, 2, 2);
+                return (long) list(db, args.get(1)).size();
+            case "lrange":
+                arity(args, 4, 4);
+                List<String> lrange = list(db, args.get(1));
+                int[] range = range(lrange.size(), toLong(args.get(2)), toLong(args.get(3)));
+                return range == null ? Collections.emptyList() : new ArrayList<>(lrange.subList(range[0], range[1] + 1));
+            case "lindex":
+                arity(args, 3, 3);
+                List<String> lindex = list(db, args.get(1));
+                long index = toLong(args.get(2));
+                index = index < 0 ? lindex.size() + index : index;
+                return index < 0 || index >= lindex.size() ? null : lindex.get((int) index);
+            case "lset":
+                return lset(db, args);
+            case "linsert":
+                return linsert(db, args);
+            case "lrem":
+                return lrem(db, args);
+            case "ltrim":
+                return ltrim(db, args);
+            case "rpoplpush":
+                arity(args, 3, 3);
+                return popBlocked(db, Collections.singletonList(args.get(1)), false, args.get(2));
+            case "blpop":
+            case "brpop":
+                arity(args, 3, Integer.MAX_VALUE);
+                return blockingPop(connection, db, args.subList(1, args.size() - 1), "blpop".equals(command), null, args.get(args.size() - 1));
+            case "brpoplpush":
+                arity(args, 4, 4);
+                return blockingPop(connection, db, Collections.singletonList(args.get(1)), false, args.get(2), args.get(3));
+            //sets
+            case "sadd":
+                arity(args, 3, Integer.MAX_VALUE);
+                Set<String> sadd = store.getOrCreateSet(db, args.get(1));
+                return args.subList(2, args.size()).stream().filter(sadd::add).count();
+            case "srem":
+                arity(args, 3, Integer.MAX_VALUE);
+                Set<String> srem = set(db, args.get(1));
+                long removed = args.subList(2, args.size()).stream().filter(srem::remove).count();
+                store.removeIfEmpty(db, args.get(1));
+                return removed;
+            case "smembers":
+                arity(args, 2, 2);
+                return new ArrayList<>(set(db, args.get(1)));
+            case "sismember":
+                arity(args, 3, 3);
+                return set(db, args.get(1)).contains(args.get(2)) ? 1L : 0L;
+            case "scard":
+                arity(args, 2, 2);
+                return (long) set(db, args.get(1)).size();
+            case "spop":
+                return spop(db, args);
+            case "srandmember":
+                return srandmember(db, args);
+            case "sscan":
+                arity(args, 3, Integer.MAX_VALUE);
+                return scan(set(db, args.get(1)), args.get(2), args.subList(3, args.size()), null);
+            //sorted sets
+            case "zadd":
+                return zadd(db, args);
+            case "zincrby":
+                arity(args, 4, 4);
+                return zadd(db, Arrays.asList("zadd", args.get(1), "incr", args.get(2), args.get(3)));
+            case "zscore":
+                arity(args, 3, 3);
+                return zset(db, args.get(1)).score(args.get(2));
+            case "zcard":
+                arity(args, 2, 2);
+                return (long) zset(db, args.get(1)).size();
+            case "zcount":
+                arity(args, 4, 4);
+                return (long) zrangeByScore(db, args.get(1), args.get(2), args.get(3), false).size();
+            case "zrange":
+            case "zrevrange":
+                return zrange(db, args, "zrevrange".equals(command));
+            case "zrangebyscore":
+            case "zrevrangebyscore":
+                return zrangeByScore(db, args, "zrevrangebyscore".equals(command));
+            case "zrank":
+            case "zrevrank":
+                arity(args, 3, 3);
+                List<RespStore.ZEntry> ranked = zset(db, args.get(1)).list();
+                for (int i = 0; i < ranked.size(); i++) {
+                    if (ranked.get(i).getMember().equals(args.get(2))) {
+                        return (long) ("zrank".equals(command) ? i : ranked.size() - 1 - i);
+                    }
+                }
+                return null;
+            case "zrem":
+                arity(args, 3, Integer.MAX_VALUE);
+                RespStore.ZSet zrem = zset(db, args.get(1));
+                long zremoved = args.subList(2, args.size()).stream().filter(zrem::remove).count();
+                store.removeIfEmpty(db, args.get(1));
+                return zremoved;
+            case "zremrangebyrank":
+                arity(args, 4, 4);
+                RespStore.ZSet byRank = zset(db, args.get(1));
+                int[] rankRange = range(byRank.size(), toLong(args.get(2)), toLong(args.get(3)));
+                return zremove(db, args.get(1), rankRange == null ? Collections.emptyList() : byRank.list().subList(rankRange[0], rankRange[1] + 1));
+            case "zremrangebyscore":
+                arity(args, 4, 4);
+                return zremove(db, args.get(1), zrangeByScore(db, args.get(1), args.get(2), args.get(3), false));
+            case "zlexcount":
+                arity(args, 4, 4);
+                return (long) zrangeByLex(db, args.get(1), args.get(2), args.get(3), false).size();
+            case "zrangebylex":
+            case "zrevrangebylex":
+                return zrangeByLex(db, args, "zrevrangebylex".equals(command));
+            case "zremrangebylex":
+                arity(args, 4, 4);
+                return zremove(db, args.get(1), zrangeByLex(db, args.get(1), args.get(2), args.get(3), false));
+            case "zscan":
+                arity(args, 3, Integer.MAX_VALUE);
+                RespStore.ZSet zscan = zset(db, args.get(1));
+                return scan(zscan.list().stream().map(RespStore.ZEntry::getMember).collect(Collectors.toList()), args.get(2),
+                        args.subList(3, args.size()), member -> RespProtocol.formatDouble(zscan.score(member)));
+            //scripting
+            case "eval":
+            case "evalsha":
+                return eval(connection, db, args, "evalsha".equals(command));
+            case "script":
+                return script(args);
+            //pub/sub
+            case "publish":
+                arity(args, 3, 3);
+                RespCluster cluster = server.getCluster();
+                return cluster == null ? server.publish(args.get(1), args.get(2)) : cluster.publish(args.get(1), args.get(2));
+            case "subscribe":
+            case "psubscribe":
+                return subscribe(connection, args, "psubscribe".equals(command));
+            case "unsubscribe":
+            case "punsubscribe":
+                return unsubscribe(connection, args, "punsubscribe".equals(command));
+            case "pubsub":
+                return pubsub(args);
+            default:
+                throw new RespError("ERR unknown command '" + args.get(0) + "'");
+        }
+    }
+
+    private Object select(RespConnection connection, List<String> args) {
+        arity(args, 2, 2);
+        long index = toLong(args.get(1));
+        if (server.getCluster() != null && index != 0) {
+            throw new RespError("ERR SELECT is not allowed in cluster mode");
+        }
+        if (index < 0 || index >= RespStore.DATABASES) {
+            throw new RespError("ERR DB index is out of range");
+        }
+        connection.setDatabase((int) index);
+        return RespProtocol.OK;
+    }
+
+    private Object client(RespConnection connection, List<String> args) {
+        arity(args, 2, Integer.MAX_VALUE);
+        switch (args.get(1).toLowerCase()) {
+            case "setname":
+                arity(args, 3, 3);
+                connection.setName(args.get(2));
+                return RespProtocol.OK;
+            case "getname":
+                return connection.getName();
+            case "list":
+                return "id=1 addr=" + server.getAddress() + " name=" + nullToEmpty(connection.getName()) + " db=" + connection.getDatabase() + "\n";
+            default:
+                return RespProtocol.OK;
+        }
+    }
+
+    private Object info(int db) {
+        RespServer master = server.getMaster();
+        StringBuilder builder = new StringBuilder();
+        builder.append("# Server\r\n");
+        builder.append("redis_version:5.0.0\r\n");
+        builder.append("redis_mode:").append(server.getCluster() != null ? "cluster" : "standalone").append("\r\n");
+        builder.append("tcp_port:").append(server.getPort()).append("\r\n");
+        builder.append("\r\n# Replication\r\n");
+        if (master == null) {
+            builder.append("role:master\r\n");
+            builder.append("connected_slaves:").append(server.getReplicas().size()).append("\r\n");
+            for (int i = 0; i < server.getReplicas().size(); i++) {
+                RespServer replica = server.getReplicas().get(i);
+                builder.append("slave").append(i).append(":ip=").append(replica.getHost()).append(",port=").append(replica.getPort())
+                        .append(",state=online,offset=0,lag=0\r\n");
+            }
+        } else {
+            builder.append("role:slave\r\n");
+            builder.append("master_host:").append(master.getHost()).append("\r\n");
+            builder.append("master_port:").append(master.getPort()).append("\r\n");
+            builder.append("master_link_status:up\r\n");
+        }
+        builder.append("\r\n# Keyspace\r\n");
+        builder.append("db").append(db).append(":keys=").append(store.size(db)).append(",expires=0,avg_ttl=0\r\n");
+        return builder.toString();
+    }
+
+    private Object cluster(List<String> args) {
+        arity(args, 2, Integer.MAX_VALUE);
+        RespCluster cluster = server.getCluster();
+        if (cluster == null) {
+            throw new RespError("ERR This instance has cluster support disabled");
+        }
+        switch (args.get(1).toLowerCase()) {
+            case "slots":
+                return cluster.slots();
+            case "nodes":
+                return cluster.nodes(server);
+            case "keyslot":
+                arity(args, 3, 3);
+                return (long) RespCluster.slot(args.get(2));
+            case "myid":
+                return server.getNodeId();
+            case "info":
+                return "cluster_state:ok\r\ncluster_slots_assigned:" + RespCluster.SLOTS + "\r\ncluster_slots_ok:" + RespCluster.SLOTS
+                        + "\r\ncluster_known_nodes:" + cluster.getNodes().size() + "\r\ncluster_size:" + cluster.getMasters().size() + "\r\n";
+            default:
+                throw new RespError("ERR Unknown subcommand or wrong number of arguments for '" + args.get(1) + "'. Try CLUSTER HELP.");
+        }
+    }
+
+    private Object sentinel(List<String> args) {
+        arity(args, 2, Integer.MAX_VALUE);
+        switch (args.get(1).toLowerCase()) {
+            case "get-master-addr-by-name":
+                arity(args, 3, 3);
+                RespServer master = server.getMonitoredMaster(args.get(2));
+                return master == null ? RespProtocol.NULL_ARRAY : Arrays.asList(master.getHost(), String.valueOf(master.getPort()));
+            case "masters":
+                List<Object> masters = new ArrayList<>();
+                server.getMonitoredMasters().forEach((name, monitored) -> masters.add(Arrays.asList("name", name, "ip", monitored.getHost(),
+                        "port", String.valueOf(monitored.getPort()), "runid", monitored.getNodeId(), "flags", "master",
+                        "num-slaves", String.valueOf(monitored.getReplicas().size()))));
+                return masters;
+            case "slaves":
+            case "replicas":
+                arity(args, 3, 3);
+                RespServer monitored = server.getMonitoredMaster(args.get(2));
+                if (monitored == null) {
+                    throw new RespError("ERR No such master with that name");
+                }
+                List<Object> replicas = new ArrayList<>();
+                for (RespServer replica : monitored.getReplicas()) {
+                    replicas.add(Arrays.asList("name", replica.getAddress(), "ip", replica.getHost(), "port", String.valueOf(replica.getPort()),
+                            "runid", replica.getNodeId(), "flags", "slave", "master-link-status", "ok",
+                            "master-host", monitored.getHost(), "master-port", String.valueOf(monitored.getPort())));
+                }
+                return replicas;
+            case "sentinels":
+                return Collections.emptyList();
+            default:
+                throw new RespError("ERR Unknown sentinel subcommand '" + args.get(1) + "'");
+        }
+    }
+
+    private Object del(int db, List<String> args) {
+        arity(args, 2, Integer.MAX_VALUE);
+        return args.subList(1, args.size()).stream().filter(key -> store.remove(db, key) != null).count();
+    }
+
+    private Object exists(int db, List<String> args) {
+        arity(args, 2, Integer.MAX_VALUE);
+        return args.subList(1, args.size()).stream().filter(key -> store.get(db, key) != null).count();
+    }
+
+    private Object expire(int db, List<String> args, String command) {
+        arity(args, 3, 3);
+        RespStore.Entry entry = store.get(db, args.get(1));
+        if (entry == null) {
+            return 0L;
+        }
+        long value = toLong(args.get(2));
+        long now = System.currentTimeMillis();
+        long expireAt;
+        switch (command) {
+            case "expire":
+                expireAt = now + value * 1000;
+                break;
+            case "pexpire":
+                expireAt = now + value;
+                break;
+            case "expireat":
+                expireAt = value * 1000;
+                break;
+            default:
+                expireAt = value;
+                break;
+        }
+        if (expireAt <= now) {
+            store.remove(db, args.get(1));
+        } else {
+            entry.setExpireAt(expireAt);
+        }
+        return 1L;
+    }
+
+    private Object persist(int db, List<String> args) {
+        arity(args, 2, 2);
+        RespStore.Entry entry = store.get(db, args.get(1));
+        if (entry == null || entry.getExpireAt() < 0) {
+            return 0L;
+        }
+        entry.setExpireAt(-1);
+        return 1L;
+    }
+
+    private Object ttl(int db, List<String> args, boolean millis) {
+        arity(args, 2, 2);
+        RespStore.Entry entry = store.get(db, args.get(1));
+        if (entry == null) {
+            return -2L;
+        }
+        if (entry.getExpireAt() < 0) {
+            return -1L;
+        }
+        long ttl = Math.max(0, entry.getExpireAt() - System.currentTimeMillis());
+        return millis ? ttl : (ttl + 500) / 1000;
+    }
+
+    private Object rename(int db, List<String> args, boolean nx) {
+        arity(args, 3, 3);
+        RespStore.Entry entry = store.get(db, args.get(1));
+        if (entry == null) {
+            throw RespError.NO_SUCH_KEY;
+        }
+        if (nx && store.get(db, args.get(2)) != null) {
+            return 0L;
+        }
+        store.remove(db, args.get(1));
+        store.put(db, args.get(2), entry);
+        return nx ? (Object) 1L : RespProtocol.OK;
+    }
+
+    private Object restore(int db, List<String> args) {
+        arity(args, 4, Integer.MAX_VALUE);
+        boolean replace = false;
+        boolean absTtl = false;
+        for (String option : args.subList(4, args.size())) {
+            if ("replace".equalsIgnoreCase(option)) {
+                replace = true;
+            } else if ("absttl".equalsIgnoreCase(option)) {
+                absTtl = true;
+            } else {
+                throw RespError.SYNTAX;
+            }
+        }
+        if (!replace && store.get(db, args.get(1)) != null) {
+            throw new RespError("BUSYKEY Target key name already exists.");
+        }
+        long ttl = toLong(args.get(2));
+        RespStore.Entry entry = new RespStore.Entry(RespStore.restore(args.get(3)));
+        if (ttl > 0) {
+            entry.setExpireAt(absTtl ? ttl : System.currentTimeMillis() + ttl);
+        }
+        store.put(db, args.get(1), entry);
+        return RespProtocol.OK;
+    }
+
+    private Object set(int db, List<String> args) {
+        arity(args, 3, Integer.MAX_VALUE);
+        String key = args.get(1);
+        long expireAt = -1;
+        boolean nx = false;
+        boolean xx = false;
+        boolean keepTtl = false;
+        for (int i = 3; i < args.size(); i++) {
+            String option = args.get(i).toLowerCase();
+            if ("nx".equals(option)) {
+                nx = true;
+            } else if ("xx".equals(option)) {
+                xx = true;
+            } else if ("keepttl".equals(option)) {
+                keepTtl = true;
+            } else if (("ex".equals(option) || "px".equals(option)) && i + 1 < args.size()) {
+                long value = toLong(args.get(++i));
+                if (value <= 0) {
+                    throw new RespError("ERR invalid expire time in set");
+                }
+                expireAt = System.currentTimeMillis() + ("ex".equals(option) ? value * 1000 : value);
+            } else {
+                throw RespError.SYNTAX;
+            }
+        }
+        RespStore.Entry old = store.get(db, key);
+        if ((nx && old != null) || (xx && old == null)) {
+            return null;
+        }
+        RespStore.Entry entry = new RespStore.Entry(args.get(2));
+        entry.setExpireAt(keepTtl && old != null ? old.getExpireAt() : expireAt);
+        store.put(db, key, entry);
+        return RespProtocol.OK;
+    }
+
+    private Object mset(int db, List<String> args, boolean nx) {
+        if (args.size() < 3 || args.size() % 2 == 0) {
+            throw RespError.wrongArguments(args.get(0));
+        }
+        if (nx) {
+            for (int i = 1; i < args.size(); i += 2) {
+                if (store.get(db, args.get(i)) != null) {
+                    return 0L;
+                }
+            }
+        }
+        for (int i = 1; i < args.size(); i += 2) {
+            store.put(db, args.get(i), args.get(i + 1));
+        }
+        return nx ? (Object) 1L : RespProtocol.OK;
+    }
+
+    private long incrBy(int db, String key, long increment) {
+        String old = store.get(db, key, String.class);
+        long value = old == null ? 0 : toLong(old);
+        try {
+            value = Math.addExact(value, increment);
+        } catch (ArithmeticException e) {
+            throw new RespError("ERR increment or decrement would overflow");
+        }
+        putKeepTtl(db, key, String.valueOf(value));
+        return value;
+    }
+
+    private String incrByFloat(int db, String key, double increment) {
+        String old = store.get(db, key, String.class);
+        double value = (old == null ? 0 : toDouble(old)) + increment;
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new RespError("ERR increment would produce NaN or Infinity");
+        }
+        String string = RespProtocol.formatDouble(value);
+        putKeepTtl(db, key, string);
+        return string;
+    }
+
+    /**
+     * 更新字符串的值并保留过期时间
+     */
+    private void putKeepTtl(int db, String key, String value) {
+        RespStore.Entry entry = store.get(db, key);
+        if (entry == null) {
+            store.put(db, key, value);
+        } else {
+            entry.setValue(value);
+        }
+    }
+
+    private Object getrange(int db, List<String> args) {
+        arity(args, 4, 4);
+        String value = nullToEmpty(store.get(db, args.get(1), String.class));
+        int[] range = range(value.length(), toLong(args.get(2)), toLong(args.get(3)));
+        return range == null ? "" : value.substring(range[0], range[1] + 1);
+    }
+
+    private Object setrange(int db, List<String> args) {
+        arity(args, 4, 4);
+        long offset = toLong(args.get(2));
+        if (offset < 0 || offset + args.get(3).length() > 512 * 1024 * 1024) {
+            throw new RespError("ERR offset is out of range");
+        }
+        String old = nullToEmpty(store.get(db, args.get(1), String.class));
+        if (args.get(3).isEmpty()) {
+            return (long) old.length();
+        }
+        StringBuilder builder = new StringBuilder(old);
+        while (builder.length() < offset) {
+            builder.append('\0');
+        }
+        builder.replace((int) offset, (int) Math.min(builder.length(), offset + args.get(3).length()), args.get(3));
+        putKeepTtl(db, args.get(1), builder.toString());
+        return (long) builder.length();
+    }
+
+    private Object getbit(int db, List<String> args) {
+        arity(args, 3, 3);
+        long offset = bitOffset(args.get(2));
+        byte[] bytes = bytes(store.get(db, args.get(1), String.class));
+        int index = (int) (offset >> 3);
+        return index < bytes.length && (bytes[index] & (0x80 >> (offset & 7))) != 0 ? 1L : 0L;
+    }
+
+    private Object setbit(int db, List<String> args) {
+        arity(args, 4, 4);
+        long offset = bitOffset(args.get(2));
+        if (!"0".equals(args.get(3)) && !"1".equals(args.get(3))) {
+            throw new RespError("ERR bit is not an integer or out of range");
+        }
+        byte[] bytes = bytes(store.get(db, args.get(1), String.class));
+        int index = (int) (offset >> 3);
+        if (index >= bytes.length) {
+            bytes = Arrays.copyOf(bytes, index + 1);
+        }
+        int mask = 0x80 >> (offset & 7);
+        long old = (bytes[index] & mask) != 0 ? 1L : 0L;
+        bytes[index] = (byte) ("1".equals(args.get(3)) ? bytes[index] | mask : bytes[index] & ~mask);
+        putKeepTtl(db, args.get(1), string(bytes));
+        return old;
+    }
+
+    private Object bitcount(int db, List<String> args) {
+        if (args.size() != 2 && args.size() != 4) {
+            throw RespError.SYNTAX;
+        }
+        byte[] bytes = bytes(store.get(db, args.get(1), String.class));
+        int[] range = args.size() == 4 ? range(bytes.length, toLong(args.get(2)), toLong(args.get(3))) : range(bytes.length, 0, -1);
+        if (range == null) {
+            return 0L;
+        }
+        long count = 0;
+        for (int i = range[0]; i <= range[1]; i++) {
+            count += Integer.bitCount(bytes[i] & 0xff);
+        }
+        return count;
+    }
+
+    private Object bitpos(int db, List<String> args) {
+        arity(args, 3, 5);
+        boolean bit = "1".equals(args.get(2));
+        if (!bit && !"0".equals(args.get(2))) {
+            throw new RespError("ERR The bit argument must be 1 or 0.");
+        }
+        String value = store.get(db, args.get(1), String.class);
+        if (value == null) {
+            return bit ? -1L : 0L;
+        }
+        byte[] bytes = bytes(value);
+        boolean endGiven = args.size() == 5;
+        int[] range = range(bytes.length, args.size() > 3 ? toLong(args.get(3)) : 0, endGiven ? toLong(args.get(4)) : -1);
+        if (range == null) {
+            return -1L;
+        }
+        for (int i = range[0]; i <= range[1]; i++) {
+            for (int j = 0; j < 8; j++) {
+                if (((bytes[i] & (0x80 >> j)) != 0) == bit) {
+                    return (long) i * 8 + j;
+                }
+            }
+        }
+        return !bit && !endGiven ? (long) (range[1] + 1) * 8 : -1L;
+    }
+
+    private Object bitop(int db, List<String> args) {
+        arity(args, 4, Integer.MAX_VALUE);
+        String op = args.get(1).toLowerCase();
+        if (!Arrays.asList("and", "or", "xor", "not").contains(op)) {
+            throw RespError.SYNTAX;
+        }
+        List<byte[]> sources = args.subList(3, args.size()).stream().map(key -> bytes(store.get(db, key, String.class))).collect(Collectors.toList());
+        if ("not".equals(op) && sources.size() != 1) {
+            throw new RespError("ERR BITOP NOT must be called with a single source key.");
+        }
+        int length = sources.stream().mapToInt(source -> source.length).max().orElse(0);
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            int value = i < sources.get(0).length ? sources.get(0)[i] & 0xff : 0;
+            for (byte[] source : sources.subList(1, sources.size())) {
+                int other = i < source.length ? source[i] & 0xff : 0;
+                switch (op) {
+                    case "and":
+                        value &= other;
+                        break;
+                    case "or":
+                        value |= other;
+                        break;
+                    case "xor":
+                        value ^= other;
+                        break;
+                    default:
+                        throw RespError.SYNTAX;
+                }
+            }
+            result[i] = (byte) ("not".equals(op) ? ~value : value);
+        }
+        if (length == 0) {
+            store.remove(db, args.get(2));
+        } else {
+            store.put(db, args.get(2), string(result));
+        }
+        return (long) length;
+    }
+
+    private Set<String> union(int db, List<String> keys) {
+        Set<String> union = new LinkedHashSet<>();
+        for (String key : keys) {
+            RespStore.HyperLogLog hyperLogLog = store.get(db, key, RespStore.HyperLogLog.class);
+            if (hyperLogLog != null) {
+                union.addAll(hyperLogLog.getElements());
+            }
+        }
+        return union;
+    }
+
+    private Object hset(int db, List<String> args, boolean hmset) {
+        if (args.size() < 4 || args.size() % 2 != 0) {
+            throw RespError.wrongArguments(args.get(0));
+        }
+        Map<String, String> hash = store.getOrCreateHash(db, args.get(1));
+        long added = 0;
+        for (int i = 2; i < args.size(); i += 2) {
+            if (hash.put(args.get(i), args.get(i + 1)) == null) {
+                added++;
+            }
+        }
+        return hmset ? RespProtocol.OK : (Object) added;
+    }
+
+    private Object hscan(int db, List<String> args) {
+        arity(args, 3, Integer.MAX_VALUE);
+        Map<String, String> hash = hash(db, args.get(1));
+        return scan(hash.keySet(), args.get(2), args.subList(3, args.size()), hash::get);
+    }
+
+    private Object push(int db, List<String> args, boolean left, boolean exists) {
+        arity(args, 3, Integer.MAX_VALUE);
+        if (exists && store.getList(db, args.get(1)) == null) {
+            return 0L;
+        }
+        LinkedList<String> list = store.getOrCreateList(db, args.get(1));
+        for (String value : args.subList(2, args.size())) {
+            if (left) {
+                list.addFirst(value);
+            } else {
+                list.addLast(value);
+            }
+        }
+        return (long) list.size();
+    }
+
+    private String pop(int db, String key, boolean left) {
+        LinkedList<String> list = store.getList(db, key);
+        if (list == null || list.isEmpty()) {
+            return null;
+        }
+        String value = left ? list.removeFirst() : list.removeLast();
+        store.removeIfEmpty(db, key);
+        return value;
+    }
+
+    private Object lset(int db, List<String> args) {
+        arity(args, 4, 4);
+        LinkedList<String> list = store.getList(db, args.get(1));
+        if (list == null) {
+            throw RespError.NO_SUCH_KEY;
+        }
+        long index = toLong(args.get(2));
+        index = index < 0 ? list.size() + index : index;
+        if (index < 0 || index >= list.size()) {
+            throw RespError.INDEX_OUT_OF_RANGE;
+        }
+        list.set((int) index, args.get(3));
+        return RespProtocol.OK;
+    }
+
+    private Object linsert(int db, List<String> args) {
+        arity(args, 5, 5);
+        boolean before = "before".equalsIgnoreCase(args.get(2));
+        if (!before && !"after".equalsIgnoreCase(args.get(2))) {
+            throw RespError.SYNTAX;
+        }
+        LinkedList<String> list = store.getList(db, args.get(1));
+        if (list == null) {
+            return 0L;
+        }
+        int index = list.indexOf(args.get(3));
+        if (index < 0) {
+            return -1L;
+        }
+        list.add(before ? index : index + 1, args.get(4));
+        return (long) list.size();
+    }
+
+    private Object lrem(int db, List<String> args) {
+        arity(args, 4, 4);
+        LinkedList<String> list = store.getList(db, args.get(1));
+        if (list == null) {
+            return 0L;
+        }
+        long count = toLong(args.get(2));
+        long limit = count == 0 ? Long.MAX_VALUE : Math.abs(count);
+        long removed = 0;
+        Iterator<String> iterator = count < 0 ? list.descendingIterator() : list.iterator();
+        while (iterator.hasNext() && removed < limit) {
+            if (iterator.next().equals(args.get(3))) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        store.removeIfEmpty(db, args.get(1));
+        return removed;
+    }
+
+    private Object ltrim(int db, List<String> args) {
+        arity(args, 4, 4);
+        LinkedList<String> list = store.getList(db, args.get(1));
+        if (list == null) {
+            return RespProtocol.OK;
+        }
+        int[] range = range(list.size(), toLong(args.get(2)), toLong(args.get(3)));
+        if (range == null) {
+            list.clear();
+        } else {
+            List<String> kept = new ArrayList<>(list.subList(range[0], range[1] + 1));
+            list.clear();
+            list.addAll(kept);
+        }
+        store.removeIfEmpty(db, args.get(1));
+        return RespProtocol.OK;
+    }
+
+    /**
+     * 从多个列表中依次尝试弹出一个元素，列表都为空时返回null
+     * @param target 不为null时将弹出的元素放入目标列表的头部并返回该元素，否则返回 [key, value]
+     */
+    Object popBlocked(int db, List<String> keys, boolean left, String target) {
+        for (String key : keys) {
+            if (target != null) {
+                //先检查目标列表的类型，类型错误时不弹出元素
+                store.getList(db, target);
+                String value = pop(db, key, left);
+                if (value != null) {
+                    store.getOrCreateList(db, target).addFirst(value);
+                }
+                return value;
+            }
+            String value = pop(db, key, left);
+            if (value != null) {
+                return Arrays.asList(key, value);
+            }
+        }
+        return null;
+    }
+
+    private Object blockingPop(RespConnection connection, int db, List<String> keys, boolean left, String target, String timeout) {
+        double seconds = toDouble(timeout, "ERR timeout is not a float or out of range");
+        if (seconds < 0) {
+            throw new RespError("ERR timeout is negative");
+        }
+        Object reply = popBlocked(db, keys, left, target);
+        if (reply != null) {
+            return reply;
+        }
+        server.block(connection, new ArrayList<>(keys), left, target, seconds);
+        return RespProtocol.NO_REPLY;
+    }
+
+    private Object spop(int db, List<String> args) {
+        arity(args, 2, 3);
+        Set<String> set = set(db, args.get(1));
+        List<String> members = new ArrayList<>(set);
+        Collections.shuffle(members);
+        if (args.size() == 2) {
+            if (members.isEmpty()) {
+                return null;
+            }
+            set.remove(members.get(0));
+            store.removeIfEmpty(db, args.get(1));
+            return members.get(0);
+        }
+        long count = toLong(args.get(2));
+        if (count < 0) {
+            throw new RespError("ERR index out of range");
+        }
+        List<String> popped = members.subList(0, (int) Math.min(count, members.size()));
+        set.removeAll(popped);
+        store.removeIfEmpty(db, args.get(1));
+        return new ArrayList<>(popped);
+    }
+
+    private Object srandmember(int db, List<String> args) {
+        arity(args, 2, 3);
+        List<String> members = new ArrayList<>(set(db, args.get(1)));
+        if (args.size() == 2) {
+            return members.isEmpty() ? null : members.get(ThreadLocalRandom.current().nextInt(members.size()));
+        }
+        long count = toLong(args.get(2));
+        if (count >= 0) {
+            Collections.shuffle(members);
+            return new ArrayList<>(members.subList(0, (int) Math.min(count, members.size())));
+        }
+        List<String> result = new ArrayList<>();
+        for (long i = 0; i < -count && !members.isEmpty(); i++) {
+            result.add(members.get(ThreadLocalRandom.current().nextInt(members.size())));
+        }
+        return result;
+    }
+
+    private Object zadd(int db, List<String> args) {
+        arity(args, 4, Integer.MAX_VALUE);
+        boolean nx = false;
+        boolean xx = false;
+        boolean ch = false;
+        boolean incr = false;
+        int i = 2;
+        for (; i < args.size(); i++) {
+            String option = args.get(i).toLowerCase();
+            if ("nx".equals(option)) {
+                nx = true;
+            } else if ("xx".equals(option)) {
+                xx = true;
+            } else if ("ch".equals(option)) {
+                ch = true;
+            } else if ("incr".equals(option)) {
+                incr = true;
+            } else {
+                break;
+            }
+        }
+        if ((args.size() - i) % 2 != 0 || args.size() == i) {
+            throw RespError.SYNTAX;
+        }
+        if (nx && xx) {
+            throw new RespError("ERR XX and NX options at the same time are not compatible");
+        }
+        if (incr && args.size() - i != 2) {
+            throw new RespError("ERR INCR option supports a single increment-element pair");
+        }
+        List<Double> scores = new ArrayList<>();
+        for (int j = i; j < args.size(); j += 2) {
+            scores.add(toDouble(args.get(j)));
+        }
+        RespStore.ZSet zset = store.get(db, args.get(1), RespStore.ZSet.class);
+        if (zset == null) {
+            if (xx) {
+                return incr ? null : (Object) 0L;
+            }
+            zset = store.getOrCreate(db, args.get(1), RespStore.ZSet.class, RespStore.ZSet::new);
+        }
+        long added = 0;
+        long changed = 0;
+        Double result = null;
+        for (int j = i; j < args.size(); j += 2) {
+            String member = args.get(j + 1);
+            double score = scores.get((j - i) / 2);
+            Double old = zset.score(member);
+            if ((nx && old != null) || (xx && old == null)) {
+                continue;
+            }
+            if (incr) {
+                score += old == null ? 0 : old;
+                if (Double.isNaN(score)) {
+                    throw new RespError("ERR resulting score is not a number (NaN)");
+                }
+                result = score;
+            }
+            if (zset.put(member, score)) {
+                added++;
+            } else if (old != score) {
+                changed++;
+            }
+        }
+        store.removeIfEmpty(db, args.get(1));
+        if (incr) {
+            return result;
+        }
+        return ch ? added + changed : added;
+    }
+
+    private Object zrange(int db, List<String> args, boolean reverse) {
+        arity(args, 4, 5);
+        boolean withScores = args.size() == 5;
+        if (withScores && !"withscores".equalsIgnoreCase(args.get(4))) {
+            throw RespError.SYNTAX;
+        }
+        List<RespStore.ZEntry> entries = zset(db, args.get(1)).list();
+        if (reverse) {
+            Collections.reverse(entries);
+        }
+        int[] range = range(entries.size(), toLong(args.get(2)), toLong(args.get(3)));
+        return range == null ? Collections.emptyList() : zreply(entries.subList(range[0], range[1] + 1), withScores);
+    }
+
+    private Object zrangeByScore(int db, List<String> args, boolean reverse) {
+        arity(args, 4, Integer.MAX_VALUE);
+        boolean withScores = false;
+        long offset = 0;
+        long count = -1;
+        for (int i = 4; i < args.size(); i++) {
+            if ("withscores".equalsIgnoreCase(args.get(i))) {
+                withScores = true;
+            } else if ("limit".equalsIgnoreCase(args.get(i)) && i + 2 < args.size()) {
+                offset = toLong(args.get(++i));
+                count = toLong(args.get(++i));
+            } else {
+                throw RespError.SYNTAX;
+            }
+        }
+        List<RespStore.ZEntry> entries = reverse ? zrangeByScore(db, args.get(1), args.get(3), args.get(2), true)
+                : zrangeByScore(db, args.get(1), args.get(2), args.get(3), false);
+        return zreply(limit(entries, offset, count), withScores);
+    }
+
+    private List<RespStore.ZEntry> zrangeByScore(int db, String key, String min, String max, boolean reverse) {
+        double minScore = toScore(min);
+        double maxScore = toScore(max);
+        boolean minExclusive = min.startsWith("(");
+        boolean maxExclusive = max.startsWith("(");
+        List<RespStore.ZEntry> entries = zset(db, key).list().stream().filter(entry -> (minExclusive ? entry.getScore() > minScore : entry.getScore() >= minScore)
+                && (maxExclusive ? entry.getScore() < maxScore : entry.getScore() <= maxScore)).collect(Collectors.toList());
+        if (reverse) {
+            Collections.reverse(entries);
+        }
+        return entries;
+    }
+
+    private Object zrangeByLex(int db, List<String> args, boolean reverse) {
+        arity(args, 4, 7);
+        long offset = 0;
+        long count = -1;
+        if (args.size() > 4) {
+            if (args.size() != 7 || !"limit".equalsIgnoreCase(args.get(4))) {
+                throw RespError.SYNTAX;
+            }
+            offset = toLong(args.get(5));
+            count = toLong(args.get(6));
+        }
+        List<RespStore.ZEntry> entries = reverse ? zrangeByLex(db, args.get(1), args.get(3), args.get(2), true)
+                : zrangeByLex(db, args.get(1), args.get(2), args.get(3), false);
+        return zreply(limit(entries, offset, count), false);
+    }
+
+    private List<RespStore.ZEntry> zrangeByLex(int db, String key, String min, String max, boolean reverse) {
+        checkLex(min);
+        checkLex(max);
+        List<RespStore.ZEntry> entries = zset(db, key).list().stream().filter(entry -> {
+            String member = entry.getMember();
+            boolean aboveMin = "-".equals(min) || (!"+".equals(min) && (min.startsWith("[") ? member.compareTo(min.substring(1)) >= 0 : member.compareTo(min.substring(1)) > 0));
+            boolean belowMax = "+".equals(max) || (!"-".equals(max) && (max.startsWith("[") ? member.compareTo(max.substring(1)) <= 0 : member.compareTo(max.substring(1)) < 0));
+            return aboveMin && belowMax;
+        }).sorted(Comparator.comparing(RespStore.ZEntry::getMember)).collect(Collectors.toList());
+        if (reverse) {
+            Collections.reverse(entries);
+        }
+        return entries;
+    }
+
+    private long zremove(int db, String key, List<RespStore.ZEntry> entries) {
+        RespStore.ZSet zset = zset(db, key);
+        long removed = new ArrayList<>(entries).stream().filter(entry -> zset.remove(entry.getMember())).count();
+        store.removeIfEmpty(db, key);
+        return removed;
+    }
+
+    private List<String> zreply(List<RespStore.ZEntry> entries, boolean withScores) {
+        List<String> reply = new ArrayList<>(withScores ? entries.size() * 2 : entries.size());
+        for (RespStore.ZEntry entry : entries) {
+            reply.add(entry.getMember());
+            if (withScores) {
+                reply.add(RespProtocol.formatDouble(entry.getScore()));
+            }
+        }
+        return reply;
+    }
+
+    private Object eval(RespConnection connection, int db, List<String> args, boolean sha) {
+        arity(args, 3, Integer.MAX_VALUE);
+        String script;
+        if (sha) {
+            script = server.getScript(args.get(1));
+            if (script == null) {
+                throw new RespError("NOSCRIPT No matching script. Please use EVAL.");
+            }
+        } else {
+            script = args.get(1);
+            server.loadScript(script);
+        }
+        ScriptHandler handler = server.getScriptHandler(script);
+        if (handler == null) {
+            throw new RespError("ERR Error running script, no handler registered in stub server for: "
+                    + script.substring(0, Math.min(script.length(), 64)));
+        }
+        List<String> keys = keys(args);
+        List<String> argv = args.subList(3 + keys.size(), args.size());
+        return handler.execute(command -> call(connection, db, Lists.newArrayList(command)), keys, argv);
+    }
+
+    private Object script(List<String> args) {
+        arity(args, 2, Integer.MAX_VALUE);
+        switch (args.get(1).toLowerCase()) {
+            case "load":
+                arity(args, 3, 3);
+                return server.loadScript(args.get(2));
+            case "exists":
+                return args.subList(2, args.size()).stream().map(sha1 -> server.getScript(sha1) != null ? 1L : 0L).collect(Collectors.toList());
+            case "flush":
+                server.flushScripts();
+                return RespProtocol.OK;
+            default:
+                throw new RespError("ERR Unknown subcommand or wrong number of arguments for '" + args.get(1) + "'. Try SCRIPT HELP.");
+        }
+    }
+
+    private Object subscribe(RespConnection connection, List<String> args, boolean pattern) {
+        arity(args, 2, Integer.MAX_VALUE);
+        Set<String> subscribed = pattern ? connection.getPatterns() : connection.getChannels();
+        for (String channel : args.subList(1, args.size())) {
+            if (subscribed.add(channel)) {
+                server.subscribe(connection, channel, pattern);
+            }
+            long count = connection.getChannels().size() + connection.getPatterns().size();
+            server.send(connection, Arrays.asList(pattern ? "psubscribe" : "subscribe", channel, count));
+        }
+        return RespProtocol.NO_REPLY;
+    }
+
+    private Object unsubscribe(RespConnection connection, List<String> args, boolean pattern) {
+        Set<String> subscribed = pattern ? connection.getPatterns() : connection.getChannels();
+        List<String> channels = args.size() > 1 ? args.subList(1, args.size()) : new ArrayList<>(subscribed);
+        String type = pattern ? "punsubscribe" : "unsubscribe";
+        if (channels.isEmpty()) {
+            server.send(connection, Arrays.asList(type, null, (long) (connection.getChannels().size() + connection.getPatterns().size())));
+        }
+        for (String channel : channels) {
+            if (subscribed.remove(channel)) {
+                server.unsubscribe(connection, channel, pattern);
+            }
+            long count = connection.getChannels().size() + connection.getPatterns().size();
+            server.send(connection, Arrays.asList(type, channel, count));
+        }
+        return RespProtocol.NO_REPLY;
+    }
+
+    private Object pubsub(List<String> args) {
+        arity(args, 2, Integer.MAX_VALUE);
+        switch (args.get(1).toLowerCase()) {
+            case "channels":
+                return server.activeChannels(args.size() > 2 ? globPattern(args.get(2)) : null);
+            case "numsub":
+                List<Object> reply = new ArrayList<>();
+                List<String> active = server.activeChannels(null);
+                for (String channel : args.subList(2, args.size())) {
+                    reply.add(channel);
+                    reply.add(active.contains(channel) ? 1L : 0L);
+                }
+                return reply;
+            case "numpat":
+                return 0L;
+            default:
+                throw new RespError("ERR Unknown subcommand or wrong number of arguments for '" + args.get(1) + "'. Try PUBSUB HELP.");
+        }
+    }
+
+    private Object scanKeys(int db, List<String> args) {
+        arity(args, 2, Integer.MAX_VALUE);
+        String type = null;
+        List<String> options = new ArrayList<>();
+        for (int i = 2; i < args.size(); i++) {
+            if ("type".equalsIgnoreCase(args.get(i)) && i + 1 < args.size()) {
+                type = args.get(++i);
+            } else {
+                options.add(args.get(i));
+            }
+        }
+        List<Object> reply = scan(store.keys(db), args.get(1), options, null);
+        if (type != null) {
+            String expected = type;
+            List<?> keys = (List<?>) reply.get(1);
+            keys.removeIf(key -> !expected.equalsIgnoreCase(RespStore.type(store.get(db, (String) key).getValue())));
+        }
+        return reply;
+    }
+
+    /**
+     * 基于游标的迭代，按元素的hashCode排序，游标为下一个hashCode加1，hashCode相同的元素在同一页返回
+     * 迭代期间一直存在的元素保证返回且只返回一次，与Redis的保证相同
+     * @param values 返回元素时同时返回的值（hscan/zscan），为null时只返回元素
+     */
+    private List<Object> scan(Collection<String> items, String cursor, List<String> options, Function<String, String> values) {
+        long from = toLong(cursor, "ERR invalid cursor");
+        from = from <= 0 ? 0 : from - 1;
+        Pattern pattern = null;
+        long count = 10;
+        for (int i = 0; i < options.size(); i++) {
+            String option = options.get(i).toLowerCase();
+            if ("match".equals(option) && i + 1 < options.size()) {
+                pattern = globPattern(options.get(++i));
+            } else if ("count".equals(option) && i + 1 < options.size()) {
+                count = toLong(options.get(++i));
+                if (count < 1) {
+                    throw RespError.SYNTAX;
+                }
+            } else {
+                throw RespError.SYNTAX;
+            }
+        }
+        long start = from;
+        List<String> sorted = items.stream().filter(item -> hash(item) >= start)
+                .sorted(Comparator.<String>comparingLong(RespCommands::hash).thenComparing(Comparator.naturalOrder())).collect(Collectors.toList());
+        List<String> page = new ArrayList<>();
+        long next = 0;
+        int scanned = 0;
+        for (String item : sorted) {
+            if (scanned >= count && hash(item) != hash(sorted.get(scanned - 1))) {
+                next = hash(item) + 1;
+                break;
+            }
+            scanned++;
+            if (pattern == null || pattern.matcher(item).matches()) {
+                page.add(item);
+                if (values != null) {
+                    page.add(values.apply(item));
+                }
+            }
+        }
+        return Lists.newArrayList(String.valueOf(next), page);
+    }
+
+    private static long hash(String item) {
+        return item.hashCode() & 0x7fffffffL;
+    }
+
+    /**
+     * Redis的glob模式转换为正则表达式
+     */
+    public static Pattern globPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    regex.append(".*");
+                    break;
+                case '?':
+                    regex.append('.');
+                    break;
+                case '[':
+                    int end = glob.indexOf(']', i + 1);
+                    if (end < 0) {
+                        regex.append("\\[");
+                        break;
+                    }
+                    regex.append('[');
+                    int j = i + 1;
+                    if (j < end && glob.charAt(j) == '^') {
+                        regex.append('^');
+                        j++;
+                    }
+                    for (; j < end; j++) {
+                        char member = glob.charAt(j);
+                        if (member != '-' && !Character.isLetterOrDigit(member)) {
+                            regex.append('\\');
+                        }
+                        regex.append(member);
+                    }
+                    regex.append(']');
+                    i = end;
+                    break;
+                case '\\':
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    }
+                    break;
+                default:
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                    break;
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private Map<String, String> hash(int db, String key) {
+        Map<String, String> hash = store.getHash(db, key);
+        return hash == null ? new LinkedHashMap<>() : hash;
+    }
+
+    private LinkedList<String> list(int db, String key) {
+        LinkedList<String> list = store.getList(db, key);
+        return list == null ? new LinkedList<>() : list;
+    }
+
+    private Set<String> set(int db, String key) {
+        Set<String> set = store.getSet(db, key);
+        return set == null ? new LinkedHashSet<>() : set;
+    }
+
+    private RespStore.ZSet zset(int db, String key) {
+        RespStore.ZSet zset = store.get(db, key, RespStore.ZSet.class);
+        return zset == null ? new RespStore.ZSet() : zset;
+    }
+
+    /**
+     * 将 [start, end] 转换为有效的下标范围，支持负数下标，范围为空时返回null
+     */
+    private static int[] range(int size, long start, long end) {
+        if (start < 0) {
+            start = Math.max(0, size + start);
+        }
+        if (end < 0) {
+            end = size + end;
+        }
+        if (end >= size) {
+            end = size - 1;
+        }
+        if (start > end || start >= size) {
+            return null;
+        }
+        return new int[]{(int) start, (int) end};
+    }
+
+    private static <T> List<T> limit(List<T> list, long offset, long count) {
+        if (offset < 0 || offset >= list.size()) {
+            return offset == 0 ? list : Collections.emptyList();
+        }
+        long end = count < 0 ? list.size() : Math.min(list.size(), offset + count);
+        return list.subList((int) offset, (int) end);
+    }
+
+    private static void checkLex(String bound) {
+        if (!"-".equals(bound) && !"+".equals(bound) && !bound.startsWith("[") && !bound.startsWith("(")) {
+            throw new RespError("ERR min or max not valid string range item");
+        }
+    }
+
+    private static double toScore(String bound) {
+        String value = bound.startsWith("(") ? bound.substring(1) : bound;
+        try {
+            return toDouble(value);
+        } catch (RespError e) {
+            throw new RespError("ERR min or max is not a float");
+        }
+    }
+
+    private static long bitOffset(String offset) {
+        long value = toLong(offset, "ERR bit offset is not an integer or out of range");
+        if (value < 0 || value >= 4L * 1024 * 1024 * 1024) {
+            throw new RespError("ERR bit offset is not an integer or out of range");
+        }
+        return value;
+    }
+
+    private static void arity(List<String> args, int min, int max) {
+        if (args.size() < min || args.size() > max) {
+            throw RespError.wrongArguments(args.get(0).toLowerCase());
+        }
+    }
+
+    static long toLong(String value) {
+        return toLong(value, RespError.NOT_INTEGER.getMessage());
+    }
+
+    private static long toLong(String value, String error) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new RespError(error);
+        }
+    }
+
+    private static double toDouble(String value) {
+        return toDouble(value, RespError.NOT_FLOAT.getMessage());
+    }
+
+    private static double toDouble(String value, String error) {
+        switch (value.toLowerCase()) {
+            case "inf":
+            case "+inf":
+                return Double.POSITIVE_INFINITY;
+            case "-inf":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                try {
+                    double result = Double.parseDouble(value);
+                    if (Double.isNaN(result)) {
+                        throw new RespError(error);
+                    }
+                    return result;
+                } catch (NumberFormatException e) {
+                    throw new RespError(error);
+                }
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+}
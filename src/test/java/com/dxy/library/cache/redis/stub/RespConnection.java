@@ -0,0 +1,145 @@
+package com.dxy.library.cache.redis.stub;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 客户端连接的状态，包括未解析的输入、待发送的返回值、当前database和订阅的频道
+ * @author duanxinyuan
+ * 2020/6/27 10:10
+ */
+public class RespConnection {
+
+    private final SocketChannel channel;
+
+    //未解析的输入，[inputOffset, inputLength) 为未处理的数据
+    private byte[] input = new byte[1024];
+
+    private int inputOffset;
+
+    private int inputLength;
+
+    //待发送的返回值，可能由延迟线程或其他连接（PUBLISH）写入
+    private final Queue<ByteBuffer> output = new ConcurrentLinkedQueue<>();
+
+    //当前database
+    private int database;
+
+    //是否允许在集群从节点上读取（READONLY）
+    private boolean readonly;
+
+    //连接名称（CLIENT SETNAME）
+    private String name;
+
+    //订阅的频道
+    private final Set<String> channels = new LinkedHashSet<>();
+
+    //订阅的模式
+    private final Set<String> patterns = new LinkedHashSet<>();
+
+    //是否阻塞在BLPOP等命令上，阻塞期间不处理后续命令
+    private boolean blocked;
+
+    //发送完返回值后关闭连接（QUIT）
+    private volatile boolean closing;
+
+    public RespConnection(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * 追加读取到的数据
+     */
+    public void append(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        if (inputOffset > 0) {
+            System.arraycopy(input, inputOffset, input, 0, inputLength - inputOffset);
+            inputLength -= inputOffset;
+            inputOffset = 0;
+        }
+        if (inputLength + length > input.length) {
+            input = Arrays.copyOf(input, Math.max(input.length * 2, inputLength + length));
+        }
+        buffer.get(input, inputLength, length);
+        inputLength += length;
+    }
+
+    /**
+     * 解析下一条完整的命令，数据不完整时返回null
+     */
+    public List<String> next() {
+        int[] consumed = new int[1];
+        List<String> args = RespProtocol.parse(input, inputOffset, inputLength, consumed);
+        if (args != null) {
+            inputOffset += consumed[0];
+        }
+        return args;
+    }
+
+    public Queue<ByteBuffer> getOutput() {
+        return output;
+    }
+
+    public int getDatabase() {
+        return database;
+    }
+
+    public void setDatabase(int database) {
+        this.database = database;
+    }
+
+    public boolean isReadonly() {
+        return readonly;
+    }
+
+    public void setReadonly(boolean readonly) {
+        this.readonly = readonly;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Set<String> getChannels() {
+        return channels;
+    }
+
+    public Set<String> getPatterns() {
+        return patterns;
+    }
+
+    public boolean isSubscribed() {
+        return !channels.isEmpty() || !patterns.isEmpty();
+    }
+
+    public boolean isBlocked() {
+        return blocked;
+    }
+
+    public void setBlocked(boolean blocked) {
+        this.blocked = blocked;
+    }
+
+    public boolean isClosing() {
+        return closing;
+    }
+
+    public void setClosing(boolean closing) {
+        this.closing = closing;
+    }
+
+}
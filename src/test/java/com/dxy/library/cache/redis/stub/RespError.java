@@ -0,0 +1,32 @@
+package com.dxy.library.cache.redis.stub;
+
+/**
+ * 命令执行失败时返回给客户端的错误，消息以错误类型开头，如 ERR、WRONGTYPE、MOVED
+ * @author duanxinyuan
+ * 2020/6/27 10:10
+ */
+public class RespError extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final RespError WRONG_TYPE = new RespError("WRONGTYPE Operation against a key holding the wrong kind of value");
+
+    public static final RespError NOT_INTEGER = new RespError("ERR value is not an integer or out of range");
+
+    public static final RespError NOT_FLOAT = new RespError("ERR value is not a valid float");
+
+    public static final RespError SYNTAX = new RespError("ERR syntax error");
+
+    public static final RespError NO_SUCH_KEY = new RespError("ERR no such key");
+
+    public static final RespError INDEX_OUT_OF_RANGE = new RespError("ERR index out of range");
+
+    public RespError(String message) {
+        super(message, null, false, false);
+    }
+
+    public static RespError wrongArguments(String command) {
+        return new RespError("ERR wrong number of arguments for '" + command + "' command");
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.dxy.library.cache.redis.stub;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RESP2协议的解析与编码
+ * 参数和返回值均按ISO-8859-1在字节与字符串之间转换，每个字节对应一个字符，二进制数据不会丢失
+ * @author duanxinyuan
+ * 2020/6/27 10:10
+ */
+public class RespProtocol {
+
+    /**
+     * 空数组（*-1），如BLPOP超时
+     */
+    public static final Object NULL_ARRAY = new Object();
+
+    /**
+     * 命令已自行发送返回值或被阻塞，不需要再返回
+     */
+    public static final Object NO_REPLY = new Object();
+
+    public static final Status OK = new Status("OK");
+
+    public static final Status PONG = new Status("PONG");
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * 状态回复（+OK）
+     */
+    public static class Status {
+
+        private final String value;
+
+        public Status(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * 从buffer的offset处解析一条命令，数据不完整时返回null
+     * 支持multibulk格式（客户端使用）和inline格式（redis-cli/telnet使用）
+     * @param consumed 返回本条命令占用的字节数
+     */
+    public static List<String> parse(byte[] buffer, int offset, int limit, int[] consumed) {
+        if (offset >= limit) {
+            return null;
+        }
+        if (buffer[offset] != '*') {
+            int end = indexOfCrlf(buffer, offset, limit);
+            if (end < 0) {
+                return null;
+            }
+            consumed[0] = end + 2 - offset;
+            List<String> args = new ArrayList<>();
+            for (String arg : decode(buffer, offset, end - offset).trim().split("\\s+")) {
+                if (!arg.isEmpty()) {
+                    args.add(arg);
+                }
+            }
+            return args;
+        }
+        int end = indexOfCrlf(buffer, offset, limit);
+        if (end < 0) {
+            return null;
+        }
+        int count = parseInt(buffer, offset + 1, end);
+        int position = end + 2;
+        List<String> args = new ArrayList<>(Math.max(count, 0));
+        for (int i = 0; i < count; i++) {
+            if (position >= limit) {
+                return null;
+            }
+            if (buffer[position] != '$') {
+                throw new RespError("ERR Protocol error: expected '$', got '" + (char) buffer[position] + "'");
+            }
+            end = indexOfCrlf(buffer, position, limit);
+            if (end < 0) {
+                return null;
+            }
+            int length = parseInt(buffer, position + 1, end);
+            position = end + 2;
+            if (position + length + 2 > limit) {
+                return null;
+            }
+            args.add(decode(buffer, position, length));
+            position += length + 2;
+        }
+        consumed[0] = position - offset;
+        return args;
+    }
+
+    /**
+     * 编码返回值
+     * null为空的bulk，String为bulk，数字为integer，Double为bulk，List为数组，Status为状态，RespError为错误
+     */
+    public static byte[] encode(Object reply) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encode(reply, out);
+        return out.toByteArray();
+    }
+
+    private static void encode(Object reply, ByteArrayOutputStream out) {
+        if (reply == null) {
+            write(out, "$-1");
+        } else if (reply == NULL_ARRAY) {
+            write(out, "*-1");
+        } else if (reply instanceof String) {
+            byte[] bytes = ((String) reply).getBytes(StandardCharsets.ISO_8859_1);
+            write(out, "$" + bytes.length);
+            out.write(bytes, 0, bytes.length);
+            out.write(CRLF, 0, CRLF.length);
+        } else if (reply instanceof Long || reply instanceof Integer) {
+            write(out, ":" + reply);
+        } else if (reply instanceof Boolean) {
+            write(out, (Boolean) reply ? ":1" : ":0");
+        } else if (reply instanceof Double) {
+            encode(formatDouble((Double) reply), out);
+        } else if (reply instanceof List) {
+            List<?> list = (List<?>) reply;
+            write(out, "*" + list.size());
+            list.forEach(item -> encode(item, out));
+        } else if (reply instanceof Status) {
+            write(out, "+" + ((Status) reply).getValue());
+        } else if (reply instanceof RespError) {
+            write(out, "-" + ((RespError) reply).getMessage());
+        } else {
+            throw new IllegalArgumentException("unsupported reply type " + reply.getClass());
+        }
+    }
+
+    /**
+     * 编码客户端发送的命令，用于测试时直接发送原始命令
+     */
+    public static byte[] command(String... args) {
+        List<String> list = new ArrayList<>(args.length);
+        for (String arg : args) {
+            list.add(new String(arg.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1));
+        }
+        return encode(list);
+    }
+
+    /**
+     * 与Redis相同，整数部分的浮点数不带小数点
+     */
+    public static String formatDouble(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e17) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private static void write(ByteArrayOutputStream out, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+        out.write(bytes, 0, bytes.length);
+        out.write(CRLF, 0, CRLF.length);
+    }
+
+    private static String decode(byte[] buffer, int offset, int length) {
+        return new String(buffer, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static int indexOfCrlf(byte[] buffer, int offset, int limit) {
+        for (int i = offset; i < limit - 1; i++) {
+            if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int parseInt(byte[] buffer, int start, int end) {
+        try {
+            return Integer.parseInt(decode(buffer, start, end - start));
+        } catch (NumberFormatException e) {
+            throw new RespError("ERR Protocol error: invalid length");
+        }
+    }
+
+}
@@ -0,0 +1,620 @@
+package com.dxy.library.cache.redis.stub;
+
+import com.dxy.library.cache.redis.util.ScriptRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内的RESP2服务端，用于在没有Redis的环境中测试和压测各模式的缓存器
+ * 基于NIO单线程处理连接，命令在键空间的锁内串行执行，支持字符串、哈希、列表、集合、有序集合、位图、HyperLogLog、发布订阅、
+ * 脚本（按脚本内容注册Java实现）、主从（从节点共享主节点的键空间）、哨兵（SENTINEL命令和+switch-master通知）和集群（CLUSTER SLOTS、MOVED）
+ * 可以注入固定的网络延迟，返回值在延迟之后发送，不阻塞其他连接
+ * @author duanxinyuan
+ * 2020/6/27 10:10
+ */
+@Slf4j
+public class RespServer implements Closeable {
+
+    public static final String HOST = "127.0.0.1";
+
+    /**
+     * 分布式锁释放的脚本，默认注册
+     */
+    private static final String RELEASE_LOCK_SCRIPT = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+
+    private final RespStore store;
+
+    //主节点，为null时当前节点是主节点
+    private final RespServer master;
+
+    //从节点
+    private final List<RespServer> replicas = new CopyOnWriteArrayList<>();
+
+    private final RespCommands commands;
+
+    //脚本内容与实现
+    private final Map<String, ScriptHandler> scriptHandlers = new ConcurrentHashMap<>();
+
+    //已加载的脚本，key为SHA1
+    private final Map<String, String> scripts = new ConcurrentHashMap<>();
+
+    //频道的订阅者
+    private final Map<String, Set<RespConnection>> channels = new ConcurrentHashMap<>();
+
+    //模式的订阅者
+    private final Map<String, Set<RespConnection>> patterns = new ConcurrentHashMap<>();
+
+    //阻塞在BLPOP等命令上的连接
+    private final List<BlockedClient> blockedClients = new ArrayList<>();
+
+    //哨兵监控的主节点，key为主节点名称
+    private final Map<String, RespServer> monitoredMasters = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    //所属的集群，为null时不是集群节点
+    private volatile RespCluster cluster;
+
+    //集群节点ID
+    private final String nodeId;
+
+    //注入的网络延迟纳秒数
+    private volatile long latencyNanos;
+
+    //注入失败的命令，执行时返回错误
+    private final Set<String> failingCommands = ConcurrentHashMap.newKeySet();
+
+    private final int requestedPort;
+
+    private volatile int port;
+
+    private ServerSocketChannel serverChannel;
+
+    private Selector selector;
+
+    private Thread thread;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean running;
+
+    //有待发送数据的连接
+    private final Queue<RespConnection> dirtyConnections = new ConcurrentLinkedQueue<>();
+
+    private final Set<RespConnection> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 使用随机端口
+     */
+    public RespServer() {
+        this(0);
+    }
+
+    public RespServer(int port) {
+        this(port, new RespStore(), null);
+    }
+
+    private RespServer(int port, RespStore store, RespServer master) {
+        this.requestedPort = port;
+        this.store = store;
+        this.master = master;
+        this.commands = new RespCommands(this, store);
+        this.nodeId = String.format("%040x", System.identityHashCode(this) * 31L + System.nanoTime());
+        registerScript(RELEASE_LOCK_SCRIPT, (redis, keys, args) -> args.get(0).equals(redis.call("get", keys.get(0))) ? redis.call("del", keys.get(0)) : 0L);
+    }
+
+    /**
+     * 创建并启动一个使用随机端口的服务端
+     */
+    public static RespServer startNew() {
+        return new RespServer().start();
+    }
+
+    /**
+     * 创建并启动当前节点的从节点，从节点与主节点共享键空间，写入立即可见，从节点只读
+     */
+    public RespServer startReplica() {
+        RespServer replica = new RespServer(0, store, this);
+        scriptHandlers.forEach(replica::registerScript);
+        replicas.add(replica);
+        return replica.start();
+    }
+
+    public synchronized RespServer start() {
+        if (running) {
+            return this;
+        }
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(HOST, requestedPort));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+            port = ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException("resp stub server start failed", e);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("resp-stub-" + port + "-scheduler").setDaemon(true).build());
+        running = true;
+        thread = new Thread(this::loop, "resp-stub-" + port);
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        connections.forEach(this::closeConnection);
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            log.warn("resp stub server {} close failed", port, e);
+        }
+        scheduler.shutdownNow();
+        replicas.forEach(RespServer::close);
+    }
+
+    /**
+     * 断开所有客户端连接，继续接受新连接，模拟网络中断
+     */
+    public void killClients() {
+        connections.forEach(this::closeConnection);
+    }
+
+    public String getHost() {
+        return HOST;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * 节点地址，host:port
+     */
+    public String getAddress() {
+        return HOST + ":" + port;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public RespStore getStore() {
+        return store;
+    }
+
+    public RespServer getMaster() {
+        return master;
+    }
+
+    public List<RespServer> getReplicas() {
+        return replicas;
+    }
+
+    public RespCluster getCluster() {
+        return cluster;
+    }
+
+    void setCluster(RespCluster cluster) {
+        this.cluster = cluster;
+    }
+
+    /**
+     * 设置注入的网络延迟，每个返回值（包括发布订阅的消息）都在延迟之后发送
+     */
+    public void setLatency(long latency, TimeUnit unit) {
+        this.latencyNanos = unit.toNanos(latency);
+        replicas.forEach(replica -> replica.setLatency(latency, unit));
+    }
+
+    /**
+     * 设置注入失败的命令，执行这些命令时返回错误，不传参数时恢复正常
+     */
+    public void setFailingCommands(String... commands) {
+        failingCommands.clear();
+        Arrays.stream(commands).map(String::toLowerCase).forEach(failingCommands::add);
+    }
+
+    public boolean isFailing(String command) {
+        return failingCommands.contains(command);
+    }
+
+    /**
+     * 注册脚本的Java实现，EVAL/EVALSHA执行该脚本时调用
+     */
+    public void registerScript(String script, ScriptHandler handler) {
+        scriptHandlers.put(script, handler);
+        replicas.forEach(replica -> replica.registerScript(script, handler));
+    }
+
+    public ScriptHandler getScriptHandler(String script) {
+        return scriptHandlers.get(script);
+    }
+
+    /**
+     * 加载脚本，返回SHA1
+     */
+    public String loadScript(String script) {
+        String sha1 = ScriptRegistry.sha1(script);
+        scripts.put(sha1, script);
+        return sha1;
+    }
+
+    public String getScript(String sha1) {
+        return scripts.get(sha1.toLowerCase());
+    }
+
+    /**
+     * 清空已加载的脚本，模拟节点重启后的NOSCRIPT
+     */
+    public void flushScripts() {
+        scripts.clear();
+    }
+
+    /**
+     * 清空所有database
+     */
+    public void flushAll() {
+        synchronized (store) {
+            store.flushAll();
+        }
+    }
+
+    /**
+     * 作为哨兵监控主节点
+     */
+    public void monitor(String masterName, RespServer master) {
+        monitoredMasters.put(masterName, master);
+    }
+
+    public RespServer getMonitoredMaster(String masterName) {
+        return monitoredMasters.get(masterName);
+    }
+
+    public Map<String, RespServer> getMonitoredMasters() {
+        synchronized (monitoredMasters) {
+            return new LinkedHashMap<>(monitoredMasters);
+        }
+    }
+
+    /**
+     * 作为哨兵切换主节点，并向订阅者发布+switch-master通知
+     */
+    public void failover(String masterName, RespServer newMaster) {
+        RespServer oldMaster = monitoredMasters.put(masterName, newMaster);
+        String oldAddress = oldMaster == null ? "0.0.0.0 0" : oldMaster.getHost() + " " + oldMaster.getPort();
+        publish("+switch-master", masterName + " " + oldAddress + " " + newMaster.getHost() + " " + newMaster.getPort());
+    }
+
+    /**
+     * 发布消息，返回接收到消息的订阅者数量
+     */
+    public long publish(String channel, String message) {
+        long count = 0;
+        Set<RespConnection> subscribers = channels.get(channel);
+        if (subscribers != null) {
+            for (RespConnection subscriber : subscribers) {
+                send(subscriber, Arrays.asList("message", channel, message));
+                count++;
+            }
+        }
+        for (Map.Entry<String, Set<RespConnection>> entry : patterns.entrySet()) {
+            if (!RespCommands.globPattern(entry.getKey()).matcher(channel).matches()) {
+                continue;
+            }
+            for (RespConnection subscriber : entry.getValue()) {
+                send(subscriber, Arrays.asList("pmessage", entry.getKey(), channel, message));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    void subscribe(RespConnection connection, String channel, boolean pattern) {
+        (pattern ? patterns : channels).computeIfAbsent(channel, k -> ConcurrentHashMap.newKeySet()).add(connection);
+    }
+
+    void unsubscribe(RespConnection connection, String channel, boolean pattern) {
+        Set<RespConnection> subscribers = (pattern ? patterns : channels).get(channel);
+        if (subscribers != null) {
+            subscribers.remove(connection);
+        }
+    }
+
+    /**
+     * 当前有订阅者的频道
+     */
+    List<String> activeChannels(Pattern pattern) {
+        List<String> result = new ArrayList<>();
+        channels.forEach((channel, subscribers) -> {
+            if (!subscribers.isEmpty() && (pattern == null || pattern.matcher(channel).matches())) {
+                result.add(channel);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 阻塞连接直到列表中有元素或超时
+     * @param keys 等待的列表
+     * @param left 是否从左侧弹出
+     * @param target BRPOPLPUSH的目标列表，为null时返回 [key, value]
+     * @param timeoutSeconds 超时秒数，0表示一直阻塞
+     */
+    void block(RespConnection connection, List<String> keys, boolean left, String target, double timeoutSeconds) {
+        BlockedClient client = new BlockedClient(connection, keys, left, target);
+        connection.setBlocked(true);
+        blockedClients.add(client);
+        if (timeoutSeconds > 0) {
+            client.timeout = scheduler.schedule(() -> {
+                synchronized (store) {
+                    if (!blockedClients.remove(client)) {
+                        return;
+                    }
+                    connection.setBlocked(false);
+                    send(connection, target == null ? RespProtocol.NULL_ARRAY : null);
+                }
+                process(connection);
+            }, (long) (timeoutSeconds * 1000), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 写入列表后唤醒阻塞的连接，在键空间的锁内调用
+     */
+    private void serveBlockedClients() {
+        Iterator<BlockedClient> iterator = blockedClients.iterator();
+        while (iterator.hasNext()) {
+            BlockedClient client = iterator.next();
+            Object reply = commands.popBlocked(client.connection.getDatabase(), client.keys, client.left, client.target);
+            if (reply == null) {
+                continue;
+            }
+            iterator.remove();
+            if (client.timeout != null) {
+                client.timeout.cancel(false);
+            }
+            client.connection.setBlocked(false);
+            send(client.connection, reply);
+            scheduler.execute(() -> process(client.connection));
+        }
+    }
+
+    /**
+     * 发送返回值，注入了延迟时在延迟之后发送
+     */
+    void send(RespConnection connection, Object reply) {
+        byte[] bytes = RespProtocol.encode(reply);
+        long latency = latencyNanos;
+        if (latency > 0) {
+            scheduler.schedule(() -> write(connection, bytes), latency, TimeUnit.NANOSECONDS);
+        } else {
+            write(connection, bytes);
+        }
+    }
+
+    private void write(RespConnection connection, byte[] bytes) {
+        connection.getOutput().add(ByteBuffer.wrap(bytes));
+        dirtyConnections.add(connection);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    private void loop() {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        while (running) {
+            try {
+                selector.select();
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    RespConnection connection = (RespConnection) key.attachment();
+                    if (key.isReadable()) {
+                        read(connection, buffer);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        flush(connection);
+                    }
+                }
+                RespConnection connection;
+                while ((connection = dirtyConnections.poll()) != null) {
+                    flush(connection);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("resp stub server {} select failed", port, e);
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        RespConnection connection = new RespConnection(channel);
+        connections.add(connection);
+        channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    private void read(RespConnection connection, ByteBuffer buffer) {
+        buffer.clear();
+        int read;
+        try {
+            read = connection.getChannel().read(buffer);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            closeConnection(connection);
+            return;
+        }
+        buffer.flip();
+        synchronized (connection) {
+            connection.append(buffer);
+        }
+        process(connection);
+    }
+
+    /**
+     * 依次执行连接中已完整接收的命令，连接阻塞时暂停
+     */
+    private void process(RespConnection connection) {
+        synchronized (connection) {
+            while (!connection.isBlocked() && !connection.isClosing()) {
+                List<String> args;
+                try {
+                    args = connection.next();
+                } catch (RespError e) {
+                    send(connection, e);
+                    connection.setClosing(true);
+                    break;
+                }
+                if (args == null) {
+                    break;
+                }
+                if (args.isEmpty()) {
+                    continue;
+                }
+                Object reply = execute(connection, args);
+                if (reply != RespProtocol.NO_REPLY) {
+                    send(connection, reply);
+                }
+            }
+        }
+    }
+
+    /**
+     * 执行单条命令
+     */
+    Object execute(RespConnection connection, List<String> args) {
+        synchronized (store) {
+            Object reply;
+            try {
+                reply = commands.execute(connection, args);
+            } catch (RespError e) {
+                reply = e;
+            } catch (RuntimeException e) {
+                log.warn("resp stub server {} execute {} failed", port, args.get(0), e);
+                reply = new RespError("ERR " + e);
+            }
+            if (!blockedClients.isEmpty() && RespCommands.isWrite(args.get(0))) {
+                serveBlockedClients();
+            }
+            return reply;
+        }
+    }
+
+    private void flush(RespConnection connection) {
+        SocketChannel channel = connection.getChannel();
+        SelectionKey key = channel.keyFor(selector);
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        try {
+            ByteBuffer buffer;
+            while ((buffer = connection.getOutput().peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                connection.getOutput().poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            if (connection.isClosing()) {
+                closeConnection(connection);
+            }
+        } catch (IOException e) {
+            closeConnection(connection);
+        }
+    }
+
+    private void closeConnection(RespConnection connection) {
+        if (!connections.remove(connection)) {
+            return;
+        }
+        synchronized (store) {
+            blockedClients.removeIf(client -> client.connection == connection);
+        }
+        connection.getChannels().forEach(channel -> unsubscribe(connection, channel, false));
+        connection.getPatterns().forEach(pattern -> unsubscribe(connection, pattern, true));
+        try {
+            connection.getChannel().close();
+        } catch (IOException e) {
+            log.debug("resp stub server {} close connection failed", port, e);
+        }
+    }
+
+    /**
+     * 阻塞中的连接
+     */
+    private static class BlockedClient {
+
+        private final RespConnection connection;
+
+        private final List<String> keys;
+
+        private final boolean left;
+
+        private final String target;
+
+        private ScheduledFuture<?> timeout;
+
+        BlockedClient(RespConnection connection, List<String> keys, boolean left, String target) {
+            this.connection = connection;
+            this.keys = keys;
+            this.left = left;
+            this.target = target;
+        }
+    }
+
+}
@@ -0,0 +1,363 @@
+package com.dxy.library.cache.redis.stub;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * 内存中的键空间，包含16个database，主节点和从节点共享同一个实例
+ * 所有读写都在该实例的锁内执行，与Redis相同，命令之间串行执行
+ * @author duanxinyuan
+ * 2020/6/27 10:10
+ */
+public class RespStore {
+
+    public static final int DATABASES = 16;
+
+    private final List<Map<String, Entry>> databases = new ArrayList<>(DATABASES);
+
+    public RespStore() {
+        for (int i = 0; i < DATABASES; i++) {
+            databases.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * 键值及过期时间
+     */
+    public static class Entry {
+
+        //值，String/HyperLogLog/LinkedHashMap/LinkedList/LinkedHashSet/ZSet
+        private Object value;
+
+        //过期的时间戳（毫秒），-1表示不过期
+        private long expireAt = -1;
+
+        public Entry(Object value) {
+            this.value = value;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public void setValue(Object value) {
+            this.value = value;
+        }
+
+        public long getExpireAt() {
+            return expireAt;
+        }
+
+        public void setExpireAt(long expireAt) {
+            this.expireAt = expireAt;
+        }
+
+        public boolean isExpired(long now) {
+            return expireAt >= 0 && expireAt <= now;
+        }
+    }
+
+    /**
+     * 有序集合，按分值排序，分值相同时按成员排序
+     */
+    public static class ZSet implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<String, Double> scores = new HashMap<>();
+
+        private final TreeSet<ZEntry> entries = new TreeSet<>();
+
+        public Double score(String member) {
+            return scores.get(member);
+        }
+
+        /**
+         * 添加或更新成员，返回是否为新成员
+         */
+        public boolean put(String member, double score) {
+            Double old = scores.put(member, score);
+            if (old != null) {
+                entries.remove(new ZEntry(member, old));
+            }
+            entries.add(new ZEntry(member, score));
+            return old == null;
+        }
+
+        public boolean remove(String member) {
+            Double old = scores.remove(member);
+            if (old == null) {
+                return false;
+            }
+            entries.remove(new ZEntry(member, old));
+            return true;
+        }
+
+        public int size() {
+            return scores.size();
+        }
+
+        public List<ZEntry> list() {
+            return new ArrayList<>(entries);
+        }
+    }
+
+    /**
+     * 有序集合的成员
+     */
+    public static class ZEntry implements Comparable<ZEntry>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String member;
+
+        private final double score;
+
+        public ZEntry(String member, double score) {
+            this.member = member;
+            this.score = score;
+        }
+
+        public String getMember() {
+            return member;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public int compareTo(ZEntry o) {
+            int compare = Double.compare(score, o.score);
+            return compare != 0 ? compare : member.compareTo(o.member);
+        }
+    }
+
+    /**
+     * HyperLogLog，使用精确的集合模拟，类型与Redis相同为string
+     */
+    public static class HyperLogLog implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Set<String> elements = new HashSet<>();
+
+        public Set<String> getElements() {
+            return elements;
+        }
+    }
+
+    /**
+     * 获取未过期的键，已过期的键在访问时删除
+     */
+    public Entry get(int db, String key) {
+        Map<String, Entry> database = databases.get(db);
+        Entry entry = database.get(key);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            database.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 获取指定类型的值，键不存在时返回null，类型不同时返回WRONGTYPE错误
+     */
+    public <T> T get(int db, String key, Class<T> type) {
+        Entry entry = get(db, key);
+        if (entry == null) {
+            return null;
+        }
+        if (!type.isInstance(entry.getValue())) {
+            throw RespError.WRONG_TYPE;
+        }
+        return type.cast(entry.getValue());
+    }
+
+    /**
+     * 获取指定类型的值，键不存在时使用 factory 创建
+     */
+    public <T> T getOrCreate(int db, String key, Class<T> type, Supplier<T> factory) {
+        return createIfAbsent(db, key, get(db, key, type), factory);
+    }
+
+    /**
+     * 获取哈希表，键不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, String> getHash(int db, String key) {
+        return get(db, key, LinkedHashMap.class);
+    }
+
+    /**
+     * 获取列表，键不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public LinkedList<String> getList(int db, String key) {
+        return get(db, key, LinkedList.class);
+    }
+
+    /**
+     * 获取集合，键不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> getSet(int db, String key) {
+        return get(db, key, LinkedHashSet.class);
+    }
+
+    public Map<String, String> getOrCreateHash(int db, String key) {
+        return createIfAbsent(db, key, getHash(db, key), LinkedHashMap::new);
+    }
+
+    public LinkedList<String> getOrCreateList(int db, String key) {
+        return createIfAbsent(db, key, getList(db, key), LinkedList::new);
+    }
+
+    public Set<String> getOrCreateSet(int db, String key) {
+        return createIfAbsent(db, key, getSet(db, key), LinkedHashSet::new);
+    }
+
+    private <T> T createIfAbsent(int db, String key, T value, Supplier<T> factory) {
+        if (value != null) {
+            return value;
+        }
+        T created = factory.get();
+        databases.get(db).put(key, new Entry(created));
+        return created;
+    }
+
+    /**
+     * 设置值并清除过期时间
+     */
+    public void put(int db, String key, Object value) {
+        databases.get(db).put(key, new Entry(value));
+    }
+
+    public void put(int db, String key, Entry entry) {
+        databases.get(db).put(key, entry);
+    }
+
+    public Entry remove(int db, String key) {
+        Entry entry = get(db, key);
+        if (entry != null) {
+            databases.get(db).remove(key);
+        }
+        return entry;
+    }
+
+    /**
+     * 集合类型的值为空时删除键
+     */
+    public void removeIfEmpty(int db, String key) {
+        Entry entry = databases.get(db).get(key);
+        if (entry != null && size(entry.getValue()) == 0) {
+            databases.get(db).remove(key);
+        }
+    }
+
+    /**
+     * 所有未过期的键
+     */
+    public List<String> keys(int db) {
+        long now = System.currentTimeMillis();
+        Map<String, Entry> database = databases.get(db);
+        database.values().removeIf(entry -> entry.isExpired(now));
+        return new ArrayList<>(database.keySet());
+    }
+
+    public int size(int db) {
+        return keys(db).size();
+    }
+
+    public void flush(int db) {
+        databases.get(db).clear();
+    }
+
+    public void flushAll() {
+        databases.forEach(Map::clear);
+    }
+
+    public static String type(Object value) {
+        if (value instanceof String || value instanceof HyperLogLog) {
+            return "string";
+        } else if (value instanceof LinkedHashMap) {
+            return "hash";
+        } else if (value instanceof LinkedList) {
+            return "list";
+        } else if (value instanceof LinkedHashSet) {
+            return "set";
+        } else if (value instanceof ZSet) {
+            return "zset";
+        }
+        return "none";
+    }
+
+    private static int size(Object value) {
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).size();
+        } else if (value instanceof List) {
+            return ((List<?>) value).size();
+        } else if (value instanceof Set) {
+            return ((Set<?>) value).size();
+        } else if (value instanceof ZSet) {
+            return ((ZSet) value).size();
+        }
+        return 1;
+    }
+
+    /**
+     * 序列化值，DUMP使用，格式只有本服务可以识别
+     */
+    public static String dump(Object value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream stream = new ObjectOutputStream(out)) {
+            stream.writeObject(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 反序列化DUMP的值，RESTORE使用
+     */
+    public static Object restore(String payload) {
+        try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(payload.getBytes(StandardCharsets.ISO_8859_1)))) {
+            return stream.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RespError("ERR DUMP payload version or checksum are wrong");
+        }
+    }
+
+    /**
+     * 按槽位移动键，模拟集群的槽位迁移
+     */
+    public void moveTo(RespStore target, int slot) {
+        Iterator<Map.Entry<String, Entry>> iterator = databases.get(0).entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (RespCluster.slot(entry.getKey()) == slot) {
+                target.databases.get(0).put(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.dxy.library.cache.redis.stub;
+
+import java.util.List;
+
+/**
+ * Lua脚本的Java实现，服务端不执行Lua，EVAL/EVALSHA按脚本内容找到对应的实现执行
+ * @author duanxinyuan
+ * 2020/6/27 10:10
+ */
+@FunctionalInterface
+public interface ScriptHandler {
+
+    /**
+     * 执行脚本
+     * @param redis 在当前连接的database上执行命令，相当于脚本中的redis.call
+     * @param keys KEYS
+     * @param args ARGV
+     * @return 脚本的返回值，类型与命令的返回值相同（String/Long/List/null）
+     */
+    Object execute(Redis redis, List<String> keys, List<String> args);
+
+    interface Redis {
+
+        /**
+         * 执行命令，命令失败时抛出RespError
+         */
+        Object call(String... args);
+    }
+
+}